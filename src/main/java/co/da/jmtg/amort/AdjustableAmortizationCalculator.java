@@ -0,0 +1,154 @@
+package co.da.jmtg.amort;
+
+import java.util.SortedMap;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.pmt.PmtCalculator;
+
+/**
+ * An amortization calculator for an adjustable rate mortgage. The rate is fixed for a number of payments, and then it
+ * resets every so many payments to an index rate plus a margin, limited by {@link RateCaps}. At each reset the balance
+ * left is amortized again over the payments left at the new rate, with the payment formula of the
+ * <tt>PmtCalculator</tt>. The payments between two resets are a segment.
+ *
+ * <p>
+ * Implementations should compute the balance of any payment of a segment in closed form from the opening balance of
+ * the segment, and should compute a segment only when one of its payments is asked for. Changing the index rate of a
+ * reset must not compute the segments before the reset again. This interface encourages implementations to be
+ * immutable by specifying that its set methods return an object that implements
+ * <tt>AdjustableAmortizationCalculator</tt>.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public interface AdjustableAmortizationCalculator {
+
+    /**
+     * Gets the <tt>PmtCalculator</tt> with the loan amount, initial interest rate, payment count, and payment period.
+     *
+     * @return <tt>PmtCalculator</tt> instance
+     */
+    PmtCalculator getPmtCalculator();
+
+    /**
+     * Gets the <tt>PmtKey</tt> with the dates of the payments.
+     *
+     * @return <tt>PmtKey</tt> instance
+     */
+    PmtKey getPmtKey();
+
+    /**
+     * Gets the number of payments before the first reset.
+     *
+     * @return number of fixed payments
+     */
+    int getFixedPmts();
+
+    /**
+     * Gets the number of payments between resets.
+     *
+     * @return number of payments between resets
+     */
+    int getPmtsPerReset();
+
+    /**
+     * Gets the margin added to the index rate at each reset.
+     *
+     * @return margin as a percentage
+     */
+    double getMargin();
+
+    /**
+     * Gets the caps and floor of the rate.
+     *
+     * @return <tt>RateCaps</tt> instance
+     */
+    RateCaps getRateCaps();
+
+    /**
+     * Gets the index rates of the resets. Element i is the index rate of reset i. Resets past the end of the array use
+     * the last index rate. If the array is empty, the rate never changes.
+     *
+     * @return copy of the index rates
+     */
+    double[] getIndexRates();
+
+    /**
+     * Sets the index rate of a reset. The resets after it that had no index rate of their own use the new one.
+     *
+     * @param reset
+     *            the index of the reset. The first reset is 0.
+     * @param indexRate
+     *            the index rate as a percentage
+     *
+     * @return new <tt>AdjustableAmortizationCalculator</tt> instance
+     *
+     * @throws IllegalArgumentException
+     *             if reset is less than 0
+     */
+    AdjustableAmortizationCalculator setIndexRate(int reset, double indexRate);
+
+    /**
+     * Sets the index rates of all the resets.
+     *
+     * @param indexRates
+     *            the index rates as percentages, by reset
+     *
+     * @return new <tt>AdjustableAmortizationCalculator</tt> instance
+     *
+     * @throws NullPointerException
+     *             if indexRates is null
+     */
+    AdjustableAmortizationCalculator setIndexRates(double... indexRates);
+
+    /**
+     * Gets the interest rate in effect for a payment.
+     *
+     * @param pmtIdx
+     *            the index of the payment. The first payment is 0.
+     *
+     * @return interest rate as a percentage
+     *
+     * @throws IndexOutOfBoundsException
+     *             if pmtIdx is less than 0 or not less than the number of payments
+     */
+    double getRate(int pmtIdx);
+
+    /**
+     * Gets a payment. Only the segments up to the one the payment is in are computed.
+     *
+     * @param pmtIdx
+     *            the index of the payment. The first payment is 0.
+     *
+     * @return <tt>Payment</tt> instance
+     *
+     * @throws IndexOutOfBoundsException
+     *             if pmtIdx is less than 0 or not less than the number of payments
+     */
+    Payment getPayment(int pmtIdx);
+
+    /**
+     * Gets the number of payments until the loan is paid off. Every segment is computed.
+     *
+     * @return number of payments
+     */
+    int size();
+
+    /**
+     * Gets the total cost of the mortgage: the loan amount plus the rounded cumulative interest of the last payment.
+     * Every segment is computed.
+     *
+     * @return total cost
+     */
+    double getTotalCost();
+
+    /**
+     * Gets the amortization table, with the date each payment is due as the key. Every segment is computed.
+     *
+     * @return <tt>SortedMap</tt>
+     */
+    SortedMap<LocalDate, Payment> getTable();
+}
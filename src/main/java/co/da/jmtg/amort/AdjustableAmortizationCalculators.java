@@ -0,0 +1,59 @@
+package co.da.jmtg.amort;
+
+import co.da.jmtg.pmt.PmtCalculator;
+
+/**
+ * <p>
+ * Contains static methods pertaining to instances of <tt>AdjustableAmortizationCalculator</tt>.
+ * </p>
+ *
+ * <p>
+ * The objects these methods return do not use instance control, so they must be compared with equals(). Each one
+ * keeps the segments it has computed, so a calculator should be kept and its set methods used to try other index rates.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public class AdjustableAmortizationCalculators {
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private AdjustableAmortizationCalculators() {
+    }
+
+    /**
+     * Creates a DefaultAdjustableAmortizationCalculator.
+     *
+     * @param pmtCalculator
+     *            the loan amount, initial interest rate, payment count, and payment period of the mortgage. Its
+     *            payment formula is used again at each reset.
+     * @param pmtKey
+     *            the mortgage start date, and interval between payments for this mortgage
+     * @param fixedPmts
+     *            the number of payments before the first reset
+     * @param pmtsPerReset
+     *            the number of payments between resets
+     * @param margin
+     *            the margin added to the index rate at each reset, as a percentage
+     * @param rateCaps
+     *            the caps and floor of the rate
+     * @param indexRates
+     *            the index rates of the resets, as percentages. Resets past the end use the last index rate. If there
+     *            are none, the rate never changes.
+     *
+     * @return DefaultAdjustableAmortizationCalculator
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator, pmtKey, rateCaps, or indexRates is null.
+     *
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY, if
+     *             fixedPmts is less than 0, or if pmtsPerReset is not greater than 0.
+     */
+    public static AdjustableAmortizationCalculator getDefaultAdjustableAmortizationCalculator(
+            PmtCalculator pmtCalculator, PmtKey pmtKey, int fixedPmts, int pmtsPerReset, double margin,
+            RateCaps rateCaps, double... indexRates) {
+        return DefaultAdjustableAmortizationCalculator.getInstance(pmtCalculator, pmtKey, fixedPmts, pmtsPerReset,
+                margin, rateCaps, indexRates);
+    }
+}
@@ -0,0 +1,58 @@
+package co.da.jmtg.amort;
+
+/**
+ * Enum that represents the way a {@link FixedAmortizationCalculator} computes the payments of its amortization table.
+ * The engine is part of the identity of a <tt>FixedAmortizationCalculator</tt>, so two calculators with the same
+ * mortgage but different engines are not equal.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ *
+ */
+public enum AmortizationEngine {
+
+    /**
+     * Computes the payments one after the other. Each payment starts from the unrounded balance of the one before it.
+     * This is the engine used unless another one is set.
+     */
+    STANDARD,
+
+    /**
+     * Computes the balances with a parallel prefix scan on a fork/join pool. Until the loan is paid off, each payment
+     * maps the balance before it to the balance after it with the affine map
+     * <tt>balance * (1 + r) - (pmt + extra)</tt>. Affine maps compose associatively, so the balances of a long
+     * schedule can be computed in O(log n) depth. The payments are then built in parallel, and the table ends at the
+     * first balance that rounds to 0.0, where the final payment is capped at the balance plus interest just like in the
+     * standard engine.
+     *
+     * <p>
+     * The balances are composed in a different order than the standard engine adds them, so the unrounded values can
+     * differ from the standard engine by a tiny fraction of a cent. For the mortgages this library is meant for, the
+     * difference is less than 1.0E-6. A rounded value can differ by a cent when its unrounded value is that close to
+     * half a cent, and in the same rare case the table can end one payment earlier or later. Schedules of a few hundred
+     * payments are not split, so this engine only pays off for schedules with thousands of payments.
+     * </p>
+     */
+    PARALLEL_SCAN,
+
+    /**
+     * Computes the payments with all money arithmetic in <tt>long</tt> cents. The period interest rate is rounded
+     * HALF_EVEN to 13 fractional digits, and the interest of each payment is rounded HALF_EVEN to the cent with exact
+     * integer arithmetic. The values of every payment add up exactly, and the cumulative interest is the exact sum of
+     * the interest of the payments. There are no unrounded values, so the unrounded getters of its payments return the
+     * rounded values.
+     *
+     * <p>
+     * It differs from the standard engine on purpose in two ways. The payment is the rounded payment of the
+     * <tt>PmtCalculator</tt>, and the last installment pays off whatever is owed. The standard engine pays the
+     * unrounded payment. And the interest is rounded every period, where the standard engine rounds the unrounded
+     * cumulative interest. So the interest of a payment can differ from the standard engine by a cent, and the balance
+     * drifts by up to half a cent a payment. For loans of up to 1.5 million dollars and terms of up to 40 years, the
+     * balances differ by at most a couple of dollars, the total cost by less than a dollar, and the table can end one
+     * payment earlier or later. The extra payments are rounded to the cent. The period interest rate must be less than
+     * 10%, and the loan amount, the extra payments, and the balance after every payment must not be more than about 92
+     * billion dollars.
+     * </p>
+     */
+    FIXED_POINT
+}
@@ -0,0 +1,174 @@
+package co.da.jmtg.amort;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import co.da.jmtg.amort.DefaultFixedAmortizationCalculator.DefaultPayment;
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.pmt.PmtCalculator;
+
+/**
+ * Primitive versions of the calculations <tt>DefaultFixedAmortizationCalculator</tt> makes when it builds an
+ * amortization table. They use the same arithmetic, in the same order, as <tt>DefaultPayment</tt>, so their results
+ * are exactly the values the table would hold, but they do not create any <tt>Payment</tt> objects or maps.
+ * 
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class AmortizationKernel {
+
+    // A balance greater than this value is greater than 0.0 when it is rounded to cents with HALF_EVEN. It is the same
+    // test buildTable makes with BigDecimal, without the allocation.
+    static final double HALF_CENT = 0.005;
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private AmortizationKernel() {
+    }
+
+    /*
+     * Returns true if the balance is still greater than 0.0 after it is rounded to cents.
+     */
+    static boolean isOwed(double balance) {
+        return balance > HALF_CENT;
+    }
+
+    /*
+     * The amortization loop every table is built with. It runs the installments from the first one until the count of
+     * payment keys is reached or the loan is paid off, with the scheduled payment of the policy and the extra payment
+     * of the cursor, in the same arithmetic and order as DefaultPayment. The loop reads the payment of a step once when
+     * it reaches the step, keeps its values in locals, and does not allocate anything. If the state records
+     * installments, it gets the values each DefaultPayment is built from. extraPmts may be null if there are no extra
+     * payments.
+     */
+    static void amortize(PmtPolicy policy, double periodInterestRate, int count, ExtraPmtRules.Cursor extraPmts,
+            State state) {
+        int[] stepStarts = policy.stepStarts;
+        double[] stepPmts = policy.stepPmts;
+        int step = 0;
+        int nextStepStart = stepStarts.length > 1 ? stepStarts[1] : Integer.MAX_VALUE;
+        double pmt = stepPmts[0];
+
+        boolean record = state.owedBefore != null;
+        double principalOwed = state.principalOwed;
+        double interestPaid = state.interestPaid;
+        int i = 0;
+        for (; i < count && isOwed(principalOwed); i++) {
+            if (i == nextStepStart) {
+                step++;
+                pmt = stepPmts[step];
+                nextStepStart = step + 1 < stepStarts.length ? stepStarts[step + 1] : Integer.MAX_VALUE;
+            }
+            double extraPrincipal = extraPmts == null ? 0.0 : extraPmts.amountAt(i);
+            if (record) {
+                state.pmts[i] = pmt;
+                state.owedBefore[i] = principalOwed;
+                state.interestBefore[i] = interestPaid;
+                state.extraPmts[i] = extraPrincipal;
+            }
+
+            double interest = principalOwed * periodInterestRate;
+            double total = Math.min(pmt + extraPrincipal, principalOwed + interest);
+            double principal = total - interest;
+            principalOwed = principalOwed - principal;
+            interestPaid = interestPaid + interest;
+        }
+
+        state.size = i;
+        state.principalOwed = principalOwed;
+        state.interestPaid = interestPaid;
+    }
+
+    /*
+     * Builds the payments of a table with the kernel. The payments are built from the values the kernel records, after
+     * the loop, so the loop itself stays free of allocations.
+     */
+    static Payment[] buildPayments(PmtPolicy policy, double periodInterestRate, double loanAmt, int count,
+            ExtraPmtRules extraPmts) {
+        State state = new State(loanAmt, count);
+        amortize(policy, periodInterestRate, count, extraPmts.isEmpty() ? null : extraPmts.cursor(), state);
+
+        Payment[] payments = new Payment[state.size];
+        for (int i = 0; i < payments.length; i++) {
+            payments[i] = new DefaultPayment(periodInterestRate, state.pmts[i], state.owedBefore[i],
+                    state.interestBefore[i], state.extraPmts[i]);
+        }
+        return payments;
+    }
+
+    /*
+     * Calculates the unrounded cumulative interest of the last payment of the table that would be built for the
+     * PmtCalculator and count of payment keys. extraPmts holds the rules of the extra payments by installment index.
+     */
+    static double calcCumulativeInterest(PmtCalculator pmtCalculator, int pmtCt, ExtraPmtRules extraPmts) {
+        State state = new State(pmtCalculator.getLoanAmt());
+        amortize(PmtPolicy.level(pmtCalculator), pmtCalculator.getPeriodInterestRate(), pmtCt,
+                extraPmts.isEmpty() ? null : extraPmts.cursor(), state);
+        return state.interestPaid;
+    }
+
+    /*
+     * Calculates the total cost exactly the way DefaultFixedAmortizationCalculator does: the loan amount plus the
+     * cumulative interest of the last payment rounded to cents.
+     */
+    static double calcTotalCost(PmtCalculator pmtCalculator, int pmtCt, ExtraPmtRules extraPmts) {
+        double cumulativeInterest = BigDecimal.valueOf(calcCumulativeInterest(pmtCalculator, pmtCt, extraPmts))
+                .setScale(2, RoundingMode.HALF_EVEN).doubleValue();
+        return BigDecimal.valueOf(pmtCalculator.getLoanAmt()).add(BigDecimal.valueOf(cumulativeInterest))
+                .doubleValue();
+    }
+
+    /*
+     * The balance and interest the kernel starts from and ends with, the number of installments it ran, and, if it
+     * records installments, the principal owed, interest paid, scheduled payment, and extra payment before each one.
+     */
+    static final class State {
+        double principalOwed;
+        double interestPaid;
+        int size;
+
+        final double[] owedBefore;
+        final double[] interestBefore;
+        final double[] pmts;
+        final double[] extraPmts;
+
+        /*
+         * A state that does not record installments.
+         */
+        State(double loanAmt) {
+            principalOwed = loanAmt;
+            owedBefore = null;
+            interestBefore = null;
+            pmts = null;
+            extraPmts = null;
+        }
+
+        /*
+         * A state that records up to count installments.
+         */
+        State(double loanAmt, int count) {
+            principalOwed = loanAmt;
+            owedBefore = new double[count];
+            interestBefore = new double[count];
+            pmts = new double[count];
+            extraPmts = new double[count];
+        }
+
+        /*
+         * Starts the state over from the loan amount passed in, so a state that records installments can be used for
+         * another schedule of no more installments than it was created for.
+         */
+        State reset(double loanAmt) {
+            principalOwed = loanAmt;
+            interestPaid = 0.0;
+            size = 0;
+            return this;
+        }
+
+        /*
+         * Gets the number of installments a state can record, or 0 if it does not record them.
+         */
+        int capacity() {
+            return owedBefore == null ? 0 : owedBefore.length;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package co.da.jmtg.amort;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+
+import com.google.common.base.Objects;
+
+/**
+ * One row of an amortization table: a payment, the date it is due, and the index of the payment installment. The row
+ * also holds the <tt>FixedAmortizationCalculator</tt> it comes from, so the rows of many loans can be streamed together
+ * and still be told apart. Rows are created as they are streamed and are not stored anywhere.
+ *
+ * <p>
+ * This class is immutable as long as the <tt>FixedAmortizationCalculator</tt> and <tt>Payment</tt> implementations it
+ * holds are immutable.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class AmortizationRow {
+
+    private final FixedAmortizationCalculator calculator;
+    private final int index;
+    private final LocalDate date;
+    private final Payment payment;
+
+    AmortizationRow(FixedAmortizationCalculator calculator, int index, LocalDate date, Payment payment) {
+        this.calculator = calculator;
+        this.index = index;
+        this.date = date;
+        this.payment = payment;
+    }
+
+    /**
+     * Gets the <tt>FixedAmortizationCalculator</tt> whose table this row is in.
+     *
+     * @return <tt>FixedAmortizationCalculator</tt> instance
+     */
+    public FixedAmortizationCalculator getCalculator() {
+        return calculator;
+    }
+
+    /**
+     * Gets the index of the payment installment. It is the index of the date in <tt>PmtKey.getKeys()</tt>.
+     *
+     * @return index of the payment
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the date the payment is due.
+     *
+     * @return <tt>LocalDate</tt> of the payment
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Gets the payment.
+     *
+     * @return <tt>Payment</tt> instance
+     */
+    public Payment getPayment() {
+        return payment;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("index", index)
+                .add("date", date)
+                .add("payment", payment)
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(calculator, index, date, payment);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (!(object instanceof AmortizationRow)) {
+            return false;
+        }
+
+        AmortizationRow that = (AmortizationRow) object;
+        return this.index == that.index
+                && Objects.equal(this.calculator, that.calculator)
+                && Objects.equal(this.date, that.date)
+                && Objects.equal(this.payment, that.payment);
+    }
+}
@@ -0,0 +1,147 @@
+package co.da.jmtg.amort;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.util.Cents;
+
+/**
+ * Sums the rounded values of payments into an array of cents for each bucket. The arrays start at the bucket of the
+ * first payment added and grow in either direction as payments outside of them are added. An accumulator is not thread
+ * safe. Each thread of a projection fills its own, and they are merged when the threads are done, so there is no
+ * locking and nothing is boxed.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class CashFlowAccumulator implements Consumer<AmortizationRow> {
+
+    private static final int STATS = Payment.INTEREST + 1;
+    private static final int INITIAL_CAPACITY = 32;
+
+    private final ProjectionBucket bucket;
+
+    // The number of the bucket at index 0 of the arrays, as returned by ProjectionBucket.indexOf.
+    private int first;
+    private int size;
+    private long[][] cents;
+
+    // The state addSchedule records the installments of a schedule in. It grows to the longest schedule added.
+    private AmortizationKernel.State state;
+
+    CashFlowAccumulator(ProjectionBucket bucket) {
+        this.bucket = bucket;
+        cents = new long[STATS][INITIAL_CAPACITY];
+    }
+
+    /*
+     * Adds the payment of a row of an amortization table. The rounded values of a payment are whole cents, so
+     * converting them to long loses nothing.
+     */
+    @Override
+    public void accept(AmortizationRow row) {
+        Payment payment = row.getPayment();
+        add(bucket.indexOf(row.getDate()), Math.round(payment.getTotal() * 100),
+                Math.round(payment.getPrincipal() * 100), Math.round(payment.getExtraPrincipal() * 100),
+                Math.round(payment.getInterest() * 100));
+    }
+
+    /*
+     * Adds the payments of the schedule for the PmtCalculator, payment keys, and extra payments passed in, without
+     * building the schedule. The installments are run by AmortizationKernel.amortize, the loop every table is built
+     * with, and each payment is taken from the values it records the way DefaultPayment takes them, so the sums are
+     * the same as the sums of the table. The recording state is kept and used again for the next schedule.
+     */
+    void addSchedule(PmtCalculator pmtCalculator, List<LocalDate> keys, ExtraPmtRules extraPmts) {
+        double periodInterestRate = pmtCalculator.getPeriodInterestRate();
+        int count = keys.size();
+        if (state == null || state.capacity() < count) {
+            state = new AmortizationKernel.State(pmtCalculator.getLoanAmt(), count);
+        }
+        AmortizationKernel.amortize(PmtPolicy.level(pmtCalculator), periodInterestRate, count,
+                extraPmts.isEmpty() ? null : extraPmts.cursor(), state.reset(pmtCalculator.getLoanAmt()));
+
+        for (int i = 0; i < state.size; i++) {
+            double principalOwed = state.owedBefore[i];
+            double extraPrincipal = state.extraPmts[i];
+            double interest = principalOwed * periodInterestRate;
+            double total = Math.min(state.pmts[i] + extraPrincipal, principalOwed + interest);
+            double principal = total - interest;
+
+            add(bucket.indexOf(keys.get(i)), Cents.toCents(total), Cents.toCents(principal),
+                    Cents.toCents(extraPrincipal), Cents.toCents(interest));
+        }
+    }
+
+    private void add(int idx, long total, long principal, long extraPrincipal, long interest) {
+        int pos = idx - first;
+        if (size == 0 || pos < 0 || pos >= size) {
+            cover(idx);
+            pos = idx - first;
+        }
+        cents[Payment.TOTAL][pos] += total;
+        cents[Payment.PRINCIPAL][pos] += principal;
+        cents[Payment.EXTRA_PRINCIPAL][pos] += extraPrincipal;
+        cents[Payment.INTEREST][pos] += interest;
+    }
+
+    /*
+     * Adds the sums of another accumulator of the same bucket to this one. The other accumulator is not changed.
+     */
+    CashFlowAccumulator merge(CashFlowAccumulator other) {
+        if (other.size == 0) {
+            return this;
+        }
+        cover(other.first);
+        cover(other.first + other.size - 1);
+        int offset = other.first - first;
+        for (int stat = 0; stat < STATS; stat++) {
+            long[] to = cents[stat];
+            long[] from = other.cents[stat];
+            for (int i = 0; i < other.size; i++) {
+                to[offset + i] += from[i];
+            }
+        }
+        return this;
+    }
+
+    /*
+     * Grows the arrays, if they have to, so that they include the bucket passed in.
+     */
+    private void cover(int idx) {
+        if (size == 0) {
+            first = idx;
+            size = 1;
+            return;
+        }
+        int newFirst = Math.min(first, idx);
+        int newEnd = Math.max(first + size, idx + 1);
+        int length = newEnd - newFirst;
+        int capacity = cents[0].length;
+        if (newFirst == first && length <= capacity) {
+            size = length;
+            return;
+        }
+
+        long[][] grown = new long[STATS][Math.max(length, capacity * 2)];
+        for (int stat = 0; stat < STATS; stat++) {
+            System.arraycopy(cents[stat], 0, grown[stat], first - newFirst, size);
+        }
+        cents = grown;
+        first = newFirst;
+        size = length;
+    }
+
+    CashFlowProjection toProjection() {
+        long[][] result = new long[STATS][];
+        for (int stat = 0; stat < STATS; stat++) {
+            result[stat] = Arrays.copyOf(cents[stat], size);
+        }
+        return new CashFlowProjection(bucket, size == 0 ? 0 : first, result);
+    }
+}
@@ -0,0 +1,190 @@
+package co.da.jmtg.amort;
+
+import java.util.Arrays;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * The scheduled cash flows of many mortgages, summed by period. The projection has a bucket for every period from the
+ * period of the first payment of any mortgage to the period of the last payment of any mortgage, including periods with
+ * no payments. The sums are kept in cents, so they are exact no matter how many mortgages there are, and they are kept
+ * in arrays, so reading them does not box anything. Projections are created with
+ * {@link FixedAmortizationCalculators#project(java.util.Collection, ProjectionBucket)} and
+ * {@link FixedAmortizationCalculators#projectCandidates(Iterable, ProjectionBucket)}. This object is immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class CashFlowProjection {
+
+    private final ProjectionBucket bucket;
+
+    // The number of the first bucket, as returned by ProjectionBucket.indexOf.
+    private final int first;
+
+    // cents[stat][i] is the sum of the rounded values of stat, in cents, of the payments in bucket first + i.
+    private final long[][] cents;
+
+    CashFlowProjection(ProjectionBucket bucket, int first, long[][] cents) {
+        this.bucket = bucket;
+        this.first = first;
+        this.cents = cents;
+    }
+
+    /**
+     * Gets the length of the periods of this projection.
+     *
+     * @return <tt>ProjectionBucket</tt> of this projection
+     */
+    public ProjectionBucket getBucket() {
+        return bucket;
+    }
+
+    /**
+     * Gets the number of buckets in this projection. It is 0 if there were no payments to project.
+     *
+     * @return number of buckets
+     */
+    public int size() {
+        return cents[Payment.TOTAL].length;
+    }
+
+    /**
+     * Gets the first day of the period of a bucket.
+     *
+     * @param idx
+     *            index of the bucket
+     *
+     * @return <tt>LocalDate</tt> the period starts on
+     *
+     * @throws IndexOutOfBoundsException
+     *             if idx is less than 0 or not less than size()
+     */
+    public LocalDate getStart(int idx) {
+        Preconditions.checkElementIndex(idx, size());
+        return bucket.startOf(first + idx);
+    }
+
+    /**
+     * Gets the index of the bucket whose period the date falls in.
+     *
+     * @param date
+     *            the date to find
+     *
+     * @return index of the bucket, or -1 if the date is before the first bucket or after the last one
+     *
+     * @throws NullPointerException
+     *             if date is null
+     */
+    public int indexOf(LocalDate date) {
+        Preconditions.checkNotNull(date, "date must not be null.");
+        int idx = bucket.indexOf(date) - first;
+        return idx >= 0 && idx < size() ? idx : -1;
+    }
+
+    /**
+     * Gets the sum of one of the rounded values of the payments in a bucket.
+     *
+     * @param stat
+     *            the value to get: <tt>Payment.TOTAL</tt>, <tt>Payment.PRINCIPAL</tt>,
+     *            <tt>Payment.EXTRA_PRINCIPAL</tt>, or <tt>Payment.INTEREST</tt>
+     * @param idx
+     *            index of the bucket
+     *
+     * @return sum of the values of the payments in the bucket
+     *
+     * @throws IllegalArgumentException
+     *             if stat is not one of the values above
+     *
+     * @throws IndexOutOfBoundsException
+     *             if idx is less than 0 or not less than size()
+     */
+    public double getSum(int stat, int idx) {
+        long[] sums = getCents(stat);
+        Preconditions.checkElementIndex(idx, sums.length);
+        return sums[idx] / 100.0;
+    }
+
+    /**
+     * Gets the sums of one of the rounded values of the payments in every bucket, in order. The array is a copy, so
+     * changing it does not change this projection.
+     *
+     * @param stat
+     *            the value to get: <tt>Payment.TOTAL</tt>, <tt>Payment.PRINCIPAL</tt>,
+     *            <tt>Payment.EXTRA_PRINCIPAL</tt>, or <tt>Payment.INTEREST</tt>
+     *
+     * @return array with the sum of each bucket
+     *
+     * @throws IllegalArgumentException
+     *             if stat is not one of the values above
+     */
+    public double[] getSums(int stat) {
+        long[] sums = getCents(stat);
+        double[] result = new double[sums.length];
+        for (int i = 0; i < sums.length; i++) {
+            result[i] = sums[i] / 100.0;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the sum of one of the rounded values of all the payments in this projection.
+     *
+     * @param stat
+     *            the value to get: <tt>Payment.TOTAL</tt>, <tt>Payment.PRINCIPAL</tt>,
+     *            <tt>Payment.EXTRA_PRINCIPAL</tt>, or <tt>Payment.INTEREST</tt>
+     *
+     * @return sum of the values of all the payments
+     *
+     * @throws IllegalArgumentException
+     *             if stat is not one of the values above
+     */
+    public double getTotalSum(int stat) {
+        long sum = 0L;
+        for (long value : getCents(stat)) {
+            sum += value;
+        }
+        return sum / 100.0;
+    }
+
+    private long[] getCents(int stat) {
+        Preconditions.checkArgument(stat >= Payment.TOTAL && stat <= Payment.INTEREST,
+                "stat must be TOTAL, PRINCIPAL, EXTRA_PRINCIPAL, or INTEREST.");
+        return cents[stat];
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("bucket", bucket)
+                .add("start", size() == 0 ? null : getStart(0))
+                .add("size", size())
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(bucket, first, Arrays.deepHashCode(cents));
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (!(object instanceof CashFlowProjection)) {
+            return false;
+        }
+
+        CashFlowProjection that = (CashFlowProjection) object;
+        return this.bucket == that.bucket
+                && this.first == that.first
+                && Arrays.deepEquals(this.cents, that.cents);
+    }
+}
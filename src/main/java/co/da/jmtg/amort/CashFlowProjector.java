@@ -0,0 +1,93 @@
+package co.da.jmtg.amort;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Projects the cash flows of a stream of <tt>ScheduleCandidate</tt> objects. The candidates are read in batches, the
+ * same way <tt>TopKSelector</tt> reads them, and each batch is summed by a task on an <tt>ExecutorService</tt> into an
+ * accumulator of its own. No schedule is built, so a task holds nothing but its batch and its arrays of cents. The
+ * accumulators are merged into the result as the tasks finish, and only a limited number of batches are in flight at
+ * once, so the candidates do not have to fit in memory.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class CashFlowProjector {
+
+    private static final int BATCH_SIZE = 256;
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private CashFlowProjector() {
+    }
+
+    static CashFlowProjection project(Iterable<ScheduleCandidate> candidates, ProjectionBucket bucket,
+            ExecutorService executor) {
+        Preconditions.checkNotNull(candidates, "candidates must not be null.");
+        Preconditions.checkNotNull(bucket, "bucket must not be null.");
+        Preconditions.checkNotNull(executor, "executor must not be null.");
+
+        CashFlowAccumulator result = new CashFlowAccumulator(bucket);
+        Deque<Future<CashFlowAccumulator>> inFlight = new ArrayDeque<>();
+        int maxInFlight = Runtime.getRuntime().availableProcessors() * 2;
+
+        try {
+            List<ScheduleCandidate> batch = new ArrayList<>(BATCH_SIZE);
+            for (ScheduleCandidate candidate : candidates) {
+                Preconditions.checkNotNull(candidate, "candidates must not contain null.");
+                batch.add(candidate);
+                if (batch.size() == BATCH_SIZE) {
+                    if (inFlight.size() >= maxInFlight) {
+                        result.merge(TopKSelector.getResult(inFlight.removeFirst()));
+                    }
+                    inFlight.addLast(executor.submit(new BatchTask(batch, bucket)));
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                inFlight.addLast(executor.submit(new BatchTask(batch, bucket)));
+            }
+            while (!inFlight.isEmpty()) {
+                result.merge(TopKSelector.getResult(inFlight.removeFirst()));
+            }
+        } finally {
+            // Only non-empty if a task failed. Don't leave the rest of the batches running.
+            for (Future<CashFlowAccumulator> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+
+        return result.toProjection();
+    }
+
+    /*
+     * Sums the cash flows of every candidate in a batch.
+     */
+    private static class BatchTask implements Callable<CashFlowAccumulator> {
+
+        private final List<ScheduleCandidate> batch;
+        private final ProjectionBucket bucket;
+
+        BatchTask(List<ScheduleCandidate> batch, ProjectionBucket bucket) {
+            this.batch = batch;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public CashFlowAccumulator call() {
+            CashFlowAccumulator accumulator = new CashFlowAccumulator(bucket);
+            for (ScheduleCandidate candidate : batch) {
+                accumulator.addSchedule(candidate.getPmtCalculator(), candidate.getPmtKey().getKeys(),
+                        candidate.toExtraPmtRules());
+            }
+            return accumulator;
+        }
+    }
+}
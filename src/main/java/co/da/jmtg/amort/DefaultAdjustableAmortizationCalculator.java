@@ -0,0 +1,410 @@
+package co.da.jmtg.amort;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.amort.DefaultFixedAmortizationCalculator.DefaultPayment;
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Ordering;
+
+/**
+ * The default implementation of <tt>AdjustableAmortizationCalculator</tt>. Segment 0 holds the fixed payments, and
+ * segment s holds the payments from reset s - 1 to the next reset. A segment is computed from the closing balance and
+ * rate of the segment before it, and the balance before any of its payments is computed in closed form,
+ * <tt>B(k) = B(0)(1 + i)^k - P((1 + i)^k - 1) / i</tt>, so no payment is built until it is asked for. The segments are
+ * computed lazily, and the ones that have been computed are kept. A calculator returned by a set method shares the
+ * segments before the first reset it changes with the calculator it was created from, whichever of the two computes
+ * them first, so a rate change late in the term does not compute the earlier segments again.
+ *
+ * <p>
+ * The closed form adds the payments up in a different order than <tt>DefaultFixedAmortizationCalculator</tt> does, so
+ * an unrounded value can differ from the fixed table by a tiny fraction of a cent, and a rounded value by a cent in the
+ * rare case its unrounded value is that close to half a cent. The last payment is capped at the balance plus interest,
+ * just like in the fixed table. This object is immutable and thread safe. Two threads can compute the same segment at
+ * once, but they compute the same values.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class DefaultAdjustableAmortizationCalculator implements AdjustableAmortizationCalculator {
+
+    private final PmtCalculator pmtCalculator;
+    private final PmtKey pmtKey;
+    private final int fixedPmts;
+    private final int pmtsPerReset;
+    private final double margin;
+    private final RateCaps rateCaps;
+    private final double[] indexRates;
+
+    private final int count;
+    private final AtomicReferenceArray<Segment> segments;
+
+    // The calculator the segments before sharedCt are read from and computed in, or null if none are shared.
+    private final DefaultAdjustableAmortizationCalculator parent;
+    private final int sharedCt;
+
+    private volatile int hashCode;
+
+    private DefaultAdjustableAmortizationCalculator(PmtCalculator pmtCalculator, PmtKey pmtKey, int fixedPmts,
+            int pmtsPerReset, double margin, RateCaps rateCaps, double[] indexRates,
+            DefaultAdjustableAmortizationCalculator parent, int sharedCt) {
+        this.pmtCalculator = pmtCalculator;
+        this.pmtKey = pmtKey;
+        this.fixedPmts = fixedPmts;
+        this.pmtsPerReset = pmtsPerReset;
+        this.margin = margin;
+        this.rateCaps = rateCaps;
+        this.indexRates = indexRates;
+
+        count = pmtKey.getCount();
+        int resetCt = count > fixedPmts ? (count - fixedPmts + pmtsPerReset - 1) / pmtsPerReset : 0;
+        segments = new AtomicReferenceArray<>(resetCt + 1);
+        this.parent = parent;
+        this.sharedCt = sharedCt;
+    }
+
+    static AdjustableAmortizationCalculator getInstance(PmtCalculator pmtCalculator, PmtKey pmtKey, int fixedPmts,
+            int pmtsPerReset, double margin, RateCaps rateCaps, double[] indexRates) {
+        DefaultFixedAmortizationCalculator.checkPreconditions(pmtCalculator, pmtKey);
+        Preconditions.checkArgument(fixedPmts >= 0, "fixedPmts must not be less than 0.");
+        Preconditions.checkArgument(pmtsPerReset > 0, "pmtsPerReset must be greater than 0.");
+        Preconditions.checkNotNull(rateCaps, "rateCaps must not be null.");
+        Preconditions.checkNotNull(indexRates, "indexRates must not be null.");
+
+        return new DefaultAdjustableAmortizationCalculator(pmtCalculator, pmtKey, fixedPmts, pmtsPerReset, margin,
+                rateCaps, indexRates.clone(), null, 0);
+    }
+
+    /*
+     * Creates a calculator with new index rates. It shares the segments of this calculator up to and including segment
+     * sharedThrough, which are the segments before the first reset whose index rate changed. If this calculator shares
+     * all of those with its own parent, the new one shares them with the parent directly, so a chain of set calls does
+     * not keep every calculator in it reachable.
+     */
+    private AdjustableAmortizationCalculator create(double[] indexRates, int sharedThrough) {
+        int shared = Math.min(sharedThrough + 1, segments.length());
+        DefaultAdjustableAmortizationCalculator from = parent != null && shared <= sharedCt ? parent : this;
+        return new DefaultAdjustableAmortizationCalculator(pmtCalculator, pmtKey, fixedPmts, pmtsPerReset, margin,
+                rateCaps, indexRates, from, shared);
+    }
+
+    @Override
+    public PmtCalculator getPmtCalculator() {
+        return pmtCalculator;
+    }
+
+    @Override
+    public PmtKey getPmtKey() {
+        return pmtKey;
+    }
+
+    @Override
+    public int getFixedPmts() {
+        return fixedPmts;
+    }
+
+    @Override
+    public int getPmtsPerReset() {
+        return pmtsPerReset;
+    }
+
+    @Override
+    public double getMargin() {
+        return margin;
+    }
+
+    @Override
+    public RateCaps getRateCaps() {
+        return rateCaps;
+    }
+
+    @Override
+    public double[] getIndexRates() {
+        return indexRates.clone();
+    }
+
+    @Override
+    public AdjustableAmortizationCalculator setIndexRate(int reset, double indexRate) {
+        Preconditions.checkArgument(reset >= 0, "reset must not be less than 0.");
+
+        double[] rates = Arrays.copyOf(indexRates, Math.max(indexRates.length, reset + 1));
+        // The resets between the old end of the array and this one used the last index rate, so they keep it.
+        for (int r = indexRates.length; r < reset; r++) {
+            rates[r] = indexRates.length == 0 ? Double.NaN : indexRates[indexRates.length - 1];
+        }
+        rates[reset] = indexRate;
+        // An empty array means the rate never changes, which a NaN index rate means too.
+        return create(rates, reset);
+    }
+
+    @Override
+    public AdjustableAmortizationCalculator setIndexRates(double... indexRates) {
+        Preconditions.checkNotNull(indexRates, "indexRates must not be null.");
+
+        int reset = 0;
+        int resetCt = segments.length() - 1;
+        while (reset < resetCt && Double.compare(indexRateOf(this.indexRates, reset),
+                indexRateOf(indexRates, reset)) == 0) {
+            reset++;
+        }
+        return create(indexRates.clone(), reset);
+    }
+
+    /*
+     * Gets the index rate of a reset, or NaN if the rate does not change at the reset.
+     */
+    private static double indexRateOf(double[] indexRates, int reset) {
+        return indexRates.length == 0 ? Double.NaN : indexRates[Math.min(reset, indexRates.length - 1)];
+    }
+
+    @Override
+    public double getRate(int pmtIdx) {
+        return segmentOfPmt(pmtIdx).rate;
+    }
+
+    @Override
+    public Payment getPayment(int pmtIdx) {
+        Segment segment = segmentOfPmt(pmtIdx);
+        return new DefaultPayment(segment.periodInterestRate, segment.pmt, segment.balanceBefore(pmtIdx),
+                segment.interestBefore(pmtIdx), 0.0);
+    }
+
+    @Override
+    public int size() {
+        return lastSegment().end;
+    }
+
+    @Override
+    public double getTotalCost() {
+        int size = size();
+        double cumulativeInterest = size == 0 ? 0.0 : getPayment(size - 1).getCumulativeInterest();
+        return BigDecimal.valueOf(pmtCalculator.getLoanAmt()).add(BigDecimal.valueOf(cumulativeInterest))
+                .doubleValue();
+    }
+
+    @Override
+    public SortedMap<LocalDate, Payment> getTable() {
+        ImmutableSortedMap.Builder<LocalDate, Payment> bldr = new ImmutableSortedMap.Builder<>(Ordering.natural());
+        List<LocalDate> keys = pmtKey.getKeys();
+        int size = size();
+        for (int i = 0; i < size; i++) {
+            bldr.put(keys.get(i), getPayment(i));
+        }
+        return bldr.build();
+    }
+
+    /*
+     * Gets the segment a payment is in, computing it and the segments before it if they have not been computed.
+     */
+    private Segment segmentOfPmt(int pmtIdx) {
+        Preconditions.checkElementIndex(pmtIdx, count);
+        int s = pmtIdx < fixedPmts ? 0 : 1 + (pmtIdx - fixedPmts) / pmtsPerReset;
+        Segment segment = segment(s);
+        if (segment == null || pmtIdx >= segment.end) {
+            // The loan was paid off before this payment.
+            throw new IndexOutOfBoundsException("pmtIdx " + pmtIdx + " is not less than the number of payments.");
+        }
+        return segment;
+    }
+
+    /*
+     * Gets the last segment with payments.
+     */
+    private Segment lastSegment() {
+        Segment last = segment(0);
+        for (int s = 1; s < segments.length(); s++) {
+            Segment segment = segment(s);
+            if (segment == null) {
+                break;
+            }
+            if (segment.end > segment.start) {
+                last = segment;
+            }
+        }
+        return last;
+    }
+
+    /*
+     * Gets a segment, computing it and the segments before it if they have not been computed. Returns null if the loan
+     * is paid off before the segment starts.
+     */
+    Segment segment(int s) {
+        Segment segment = segments.get(s);
+        if (segment != null) {
+            return segment;
+        }
+        if (s < sharedCt) {
+            // A shared segment is computed in the parent, so the parent finds it too.
+            segment = parent.segment(s);
+            if (segment != null) {
+                segments.compareAndSet(s, null, segment);
+            }
+            return segment;
+        }
+
+        // Find the last segment that has been computed, and compute forward from it. The shared segments before it
+        // are the parent's.
+        int from = s - 1;
+        while (from >= sharedCt && segments.get(from) == null) {
+            from--;
+        }
+        Segment previous = from < 0 ? null : segment(from);
+        if (from >= 0 && previous == null) {
+            // The loan is paid off before segment from starts.
+            return null;
+        }
+        for (int next = from + 1; next <= s; next++) {
+            if (previous != null && previous.paidOff) {
+                return null;
+            }
+            previous = next == 0 ? firstSegment() : nextSegment(previous, next);
+            segments.compareAndSet(next, null, previous);
+            previous = segments.get(next);
+        }
+        return previous;
+    }
+
+    private Segment firstSegment() {
+        return new Segment(0, Math.min(fixedPmts, count), pmtCalculator.getInterestRate(),
+                pmtCalculator.getPeriodInterestRate(), pmtCalculator.getPmtUnrounded(), pmtCalculator.getLoanAmt(),
+                0.0);
+    }
+
+    /*
+     * Computes segment s from the segment before it. The rate of the reset is the index rate plus the margin, limited
+     * by the caps, and the closing balance of the segment before is amortized again over the payments left.
+     */
+    private Segment nextSegment(Segment previous, int s) {
+        int reset = s - 1;
+        int start = fixedPmts + reset * pmtsPerReset;
+        int end = Math.min(start + pmtsPerReset, count);
+
+        double indexRate = indexRateOf(indexRates, reset);
+        double fullyIndexed = Double.isNaN(indexRate) ? previous.rate : indexRate + margin;
+        double rate = rateCaps.apply(pmtCalculator.getInterestRate(), previous.rate, reset == 0, fullyIndexed);
+
+        double openingBalance = previous.balanceBefore(start);
+        double periodInterestRate = PmtCalculators.calcPeriodInterestRate(pmtCalculator, rate);
+        double pmt = PmtCalculators.calcPmtUnrounded(pmtCalculator, openingBalance, rate, count - start);
+        return new Segment(start, end, rate, periodInterestRate, pmt, openingBalance,
+                previous.interestBefore(start));
+    }
+
+    /*
+     * The payments from index start, inclusive, to index end, exclusive, at one rate. If the loan is paid off in the
+     * segment, end is the index after the last payment and paidOff is true.
+     */
+    static final class Segment {
+        final int start;
+        final int end;
+        final boolean paidOff;
+        final double rate;
+        final double periodInterestRate;
+        final double pmt;
+        final double openingBalance;
+        final double openingInterest;
+
+        Segment(int start, int nominalEnd, double rate, double periodInterestRate, double pmt, double openingBalance,
+                double openingInterest) {
+            this.start = start;
+            this.rate = rate;
+            this.periodInterestRate = periodInterestRate;
+            this.pmt = pmt;
+            this.openingBalance = openingBalance;
+            this.openingInterest = openingInterest;
+
+            // The balance only goes down, so search for the first payment that leaves nothing owed.
+            int low = start;
+            int high = nominalEnd;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (AmortizationKernel.isOwed(balanceBefore(mid))) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            paidOff = low < nominalEnd || (nominalEnd > start && !AmortizationKernel.isOwed(balanceBefore(nominalEnd)));
+            end = low < nominalEnd ? low : nominalEnd;
+        }
+
+        /*
+         * Gets the unrounded balance before the payment at idx, which is the balance after the payment before it.
+         */
+        double balanceBefore(int idx) {
+            int k = idx - start;
+            if (periodInterestRate == 0.0) {
+                return openingBalance - pmt * k;
+            }
+            double growth = Math.pow(1 + periodInterestRate, k);
+            return openingBalance * growth - pmt * (growth - 1) / periodInterestRate;
+        }
+
+        /*
+         * Gets the unrounded cumulative interest before the payment at idx. Every payment before it paid the whole
+         * payment, so the interest is what was paid less what the balance went down.
+         */
+        double interestBefore(int idx) {
+            int k = idx - start;
+            return openingInterest + pmt * k - (openingBalance - balanceBefore(idx));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("pmtCalculator", pmtCalculator)
+                .add("pmtKey", pmtKey)
+                .add("fixedPmts", fixedPmts)
+                .add("pmtsPerReset", pmtsPerReset)
+                .add("margin", margin)
+                .add("rateCaps", rateCaps)
+                .add("indexRates", Arrays.toString(indexRates))
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hashCode;
+
+        if (result == 0) {
+            result = Objects.hashCode(pmtCalculator, pmtKey, fixedPmts, pmtsPerReset, margin, rateCaps,
+                    Arrays.hashCode(indexRates));
+            hashCode = result;
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (!(object instanceof DefaultAdjustableAmortizationCalculator)) {
+            return false;
+        }
+
+        DefaultAdjustableAmortizationCalculator that = (DefaultAdjustableAmortizationCalculator) object;
+        return this.fixedPmts == that.fixedPmts
+                && this.pmtsPerReset == that.pmtsPerReset
+                && Objects.equal(this.margin, that.margin)
+                && Objects.equal(this.pmtCalculator, that.pmtCalculator)
+                && Objects.equal(this.pmtKey, that.pmtKey)
+                && Objects.equal(this.rateCaps, that.rateCaps)
+                && Arrays.equals(this.indexRates, that.indexRates);
+    }
+}
@@ -2,25 +2,25 @@ package co.da.jmtg.amort;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.SortedMap;
+import java.util.Spliterator;
 
 import org.joda.time.LocalDate;
 
 import co.da.jmtg.pmt.PmtCalculator;
 import co.da.jmtg.pmt.PmtPeriod;
 import co.da.jmtg.pmt.extra.ExtraPmt;
+import co.da.jmtg.util.Cents;
+import co.da.jmtg.util.StripedInterners;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ComparisonChain;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Interner;
-import com.google.common.collect.Interners;
 import com.google.common.collect.Ordering;
 
 /**
@@ -34,26 +34,41 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
 
     private final PmtCalculator pmtCalculator;
     private final PmtKey pmtKey;
-    // Get a local copy of intervalInterestRate, mthlyPmt, and interval from the PmtCalculator object because they will
-    // be used so much when building the amortization table. These two values are not used in toString, equals,
-    // hashCode, or compareTo because they are redundant.
-    private final double periodInterestRate;
-    private final double pmt;
-
-    // This stores the result and is calculated at the end of the constructor.
-    private final SortedMap<LocalDate, Payment> amortizationMap;
-
-    // Convenience member to determine if extra payments are configured for this object. It is not evaluated in
-    // hashCode, equals, or compareTo.
+    private final AmortizationEngine engine;
+
+    // The payments of the amortization table without their dates. Interned objects share their core with every other
+    // interned object that has the same PmtCalculator, count of payments, and extra payments by installment, whatever
+    // the first payment date is. Its payments are evaluated in hashCode, equals, and compareTo, since they and the
+    // dates of pmtKey are the contents of the amortization table.
+    private final ScheduleCore core;
+
+    // The amortization table, built the first time getTable or a view of it is asked for by laying the dates of pmtKey
+    // over core. Most objects are only queried through core, so they never build it. Building it twice in a race does
+    // no harm.
+    private volatile SortedMap<LocalDate, Payment> amortizationMap;
+
+    // The loan amount plus the total interest. It is taken from the core once, so compareTo and TotalCostOrdering do
+    // not have to compute it on every call. It is not evaluated in hashCode or equals.
+    private final double totalCost;
+
+    // Convenience member to determine if extra payments are configured for this object. It is true if there are any
+    // rules, including the negative extra payments of missed installments. It is not evaluated in hashCode, equals, or
+    // compareTo.
     private final boolean areExtraPmts;
 
-    // extraPmtMap is not evaluated in hashCode, equals or compareTo because it does not need to be. Its values are
-    // derived from the extra payments captured in the amortizationMap.
-    private final SortedMap<LocalDate, Double> extraPmtMap;
+    // The extra payments as recurring rules and sparse single payments by installment index. The engines evaluate them
+    // as they build the core, so no map of extra payments by date is built. It is not evaluated in hashCode, equals, or
+    // compareTo because the extra payments are captured in the payments of core.
+    private final ExtraPmtRules extraPmts;
+
+    // True if this object was created by getInstance and is held by the interner. Objects created by newInstance are
+    // not interned, and neither are the objects their set, add, remove, and clear methods return. It is not evaluated
+    // in hashCode, equals, or compareTo.
+    private final boolean interned;
 
     private volatile int hashCode;
 
-    private static final Interner<FixedAmortizationCalculator> interner = Interners.newStrongInterner();
+    private static final Interner<FixedAmortizationCalculator> interner = StripedInterners.newStrongInterner();
 
     /*
      * 
@@ -61,24 +76,18 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
      * 
      * @param pmtKey
      * 
+     * @param engine
+     * 
+     * @param interned
+     * 
      * @throws NullPointerException if pmtCalculator or pmtKey is null.
      * 
      * @throws IllegalArgumentException if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY,
      * or RAPID_WEEKLY.
      */
-    private DefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator, PmtKey pmtKey) {
-        checkPreconditions(pmtCalculator, pmtKey);
-
-        this.pmtCalculator = pmtCalculator;
-        periodInterestRate = pmtCalculator.getPeriodInterestRate();
-        pmt = pmtCalculator.getPmtUnrounded(); // MUST get the unrounded payment amount for accuracy.
-
-        this.pmtKey = pmtKey;
-
-        amortizationMap = buildTable();
-
-        areExtraPmts = false;
-        extraPmtMap = getExtraPmts();
+    private DefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator, PmtKey pmtKey, AmortizationEngine engine,
+            boolean interned) {
+        this(pmtCalculator, pmtKey, toRules(pmtCalculator, pmtKey), engine, interned);
     }
 
     /*
@@ -91,6 +100,10 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
      * 
      * @param extraPmts
      * 
+     * @param engine
+     * 
+     * @param interned
+     * 
      * @throws NullPointerException if pmtCalculator, pmtKey, or extraPmts is null.
      * 
      * @throws IllegalArgumentException if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY,
@@ -99,20 +112,9 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
      * @throws IllegalArgumentException if extraPmts contains dates that are not valid payment dates for the mortgage
      * this object represents.
      */
-    private DefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator, PmtKey pmtKey, ExtraPmt extraPmts) {
-        checkPreconditions(pmtCalculator, pmtKey, extraPmts);
-
-        this.pmtCalculator = pmtCalculator;
-        periodInterestRate = pmtCalculator.getPeriodInterestRate();
-        pmt = pmtCalculator.getPmtUnrounded(); // MUST get the unrounded payment amount for accuracy.
-
-        this.pmtKey = pmtKey;
-        Map<LocalDate, Double> extraPmtMap = initializeExtraPmts(extraPmts);
-
-        amortizationMap = buildTable(extraPmtMap);
-        // To be sure, call areExtraPmtsInternal to determine value of areExtraPmts.
-        areExtraPmts = areExtraPmtsInternal();
-        this.extraPmtMap = getExtraPmts();
+    private DefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator, PmtKey pmtKey, ExtraPmt extraPmts,
+            AmortizationEngine engine, boolean interned) {
+        this(pmtCalculator, pmtKey, toRules(pmtCalculator, pmtKey, extraPmts), engine, interned);
     }
 
     /*
@@ -125,6 +127,10 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
      * 
      * @param extraPmts
      * 
+     * @param engine
+     * 
+     * @param interned
+     * 
      * @throws NullPointerException if pmtCalculator, pmtKey, or extraPmts is null.
      * 
      * @throws IllegalArgumentException if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY,
@@ -135,20 +141,9 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
      * 
      * @throws IllegalArgumentException if any of the ExtraPmt objects have duplicate date keys.
      */
-    private DefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator, PmtKey pmtKey, Iterable<ExtraPmt> extraPmts) {
-        checkPreconditions(pmtCalculator, pmtKey, extraPmts);
-
-        this.pmtCalculator = pmtCalculator;
-        periodInterestRate = pmtCalculator.getPeriodInterestRate();
-        pmt = pmtCalculator.getPmtUnrounded(); // MUST get the unrounded payment amount for accuracy.
-
-        this.pmtKey = pmtKey;
-        Map<LocalDate, Double> extraPmtMap = initializeExtraPmts(extraPmts);
-
-        amortizationMap = buildTable(extraPmtMap);
-        // To be sure, call areExtraPmtsInternal to determine value of areExtraPmts.
-        areExtraPmts = areExtraPmtsInternal();
-        this.extraPmtMap = getExtraPmts();
+    private DefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator, PmtKey pmtKey, Iterable<ExtraPmt> extraPmts,
+            AmortizationEngine engine, boolean interned) {
+        this(pmtCalculator, pmtKey, toRules(pmtCalculator, pmtKey, extraPmts), engine, interned);
     }
 
     /*
@@ -161,6 +156,10 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
      * 
      * @param extraPmts
      * 
+     * @param engine
+     * 
+     * @param interned
+     * 
      * @throws NullPointerException if pmtCalculator, pmtKey, or extraPmts is null.
      * 
      * @throws IllegalArgumentException if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY,
@@ -168,31 +167,55 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
      * 
      * @throws IllegalArgumentException if extraPmts contains dates that are not valid payment dates for the mortgage
      * this object represents.
-     * 
-     * @throws IllegalArgumentException if any of the ExtraPmt objects have duplicate date keys.
      */
     private DefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator, PmtKey pmtKey,
-            Map<LocalDate, Double> extraPmts) {
-        checkPreconditions(pmtCalculator, pmtKey, extraPmts);
+            Map<LocalDate, Double> extraPmts, AmortizationEngine engine, boolean interned) {
+        this(pmtCalculator, pmtKey, toRules(pmtCalculator, pmtKey, extraPmts), engine, interned);
+    }
 
-        this.pmtCalculator = pmtCalculator;
-        periodInterestRate = pmtCalculator.getPeriodInterestRate();
-        pmt = pmtCalculator.getPmtUnrounded(); // MUST get the unrounded payment amount for accuracy.
+    /*
+     * The constructor the others call once they have checked their arguments and turned the extra payments into rules.
+     * The set, add, and remove methods call it directly with the rules of this object combined with the new ones.
+     */
+    private DefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator, PmtKey pmtKey, ExtraPmtRules extraPmts,
+            AmortizationEngine engine, boolean interned) {
+        this(pmtCalculator, pmtKey, extraPmts, engine, getCore(pmtCalculator, pmtKey, extraPmts, engine, interned),
+                interned);
+    }
 
+    /*
+     * Lays the dates of pmtKey over a core that is already built. ScheduleCache calls it with the cores it holds.
+     */
+    private DefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator, PmtKey pmtKey, ExtraPmtRules extraPmts,
+            AmortizationEngine engine, ScheduleCore core, boolean interned) {
+        this.pmtCalculator = pmtCalculator;
         this.pmtKey = pmtKey;
-        Map<LocalDate, Double> extraPmtMap = initializeExtraPmts(extraPmts);
+        this.engine = engine;
+        this.extraPmts = extraPmts;
+        this.core = core;
 
-        amortizationMap = buildTable(extraPmtMap);
-        // To be sure, call areExtraPmtsInternal to determine value of areExtraPmts.
-        areExtraPmts = areExtraPmtsInternal();
-        this.extraPmtMap = getExtraPmts();
+        totalCost = core.getTotalCost();
+        areExtraPmts = !extraPmts.isEmpty();
+        this.interned = interned;
+    }
+
+    /*
+     * Gets the core of the amortization table. Interned objects get a cached core, so identical loans that start on
+     * different dates share it. Objects that are not interned do not touch the cache.
+     */
+    private static ScheduleCore getCore(PmtCalculator pmtCalculator, PmtKey pmtKey, ExtraPmtRules extraPmts,
+            AmortizationEngine engine, boolean interned) {
+        Preconditions.checkNotNull(engine, "engine must not be null.");
+        return interned ? ScheduleCore.getInstance(pmtCalculator, pmtKey.getCount(), extraPmts, engine) : ScheduleCore
+                .newInstance(pmtCalculator, pmtKey.getCount(), extraPmts, engine);
     }
 
     /*
      * Checks preconditions for objects common to all the constructors. Since the constructors do not call a common
-     * constructor, this is an attempt to consolidate some of the common functionality in each constructor.
+     * constructor until they have turned their extra payments into rules, this is an attempt to consolidate some of the
+     * common functionality in each constructor.
      */
-    private void checkPreconditions(PmtCalculator pmtCalculator, PmtKey pmtKey) {
+    static void checkPreconditions(PmtCalculator pmtCalculator, PmtKey pmtKey) {
         Preconditions.checkNotNull(pmtCalculator, "pmtCalculator must not be null.");
         Preconditions.checkNotNull(pmtKey, "pmtKey must not be null.");
 
@@ -216,94 +239,32 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
     }
 
     /*
-     * Checks preconditions in the constructor that takes an ExtraPmt object.
+     * The toRules methods check the preconditions of a constructor and turn its extra payments into rules. If an
+     * extra payment has a date key that is not valid for the mortgage this object represents, an
+     * IllegalArgumentException is thrown. If an Iterable<ExtraPmt> object has two extra payments for the same date, an
+     * IllegalArgumentException is thrown.
      */
-    private void checkPreconditions(PmtCalculator pmtCalculator, PmtKey pmtKey, ExtraPmt extraPmts) {
+    private static ExtraPmtRules toRules(PmtCalculator pmtCalculator, PmtKey pmtKey) {
         checkPreconditions(pmtCalculator, pmtKey);
-        Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+        return ExtraPmtRules.NONE;
     }
 
-    /*
-     * Checks preconditions in the constructor that takes an Iterable<ExtraPmt> object.
-     */
-    private void checkPreconditions(PmtCalculator pmtCalculator, PmtKey pmtKey, Iterable<ExtraPmt> extraPmts) {
+    private static ExtraPmtRules toRules(PmtCalculator pmtCalculator, PmtKey pmtKey, ExtraPmt extraPmts) {
         checkPreconditions(pmtCalculator, pmtKey);
         Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+        return ExtraPmtRules.of(pmtKey, extraPmts);
     }
 
-    /*
-     * Checks preconditions in the constructor that takes an Map<LocalDate, Double> object.
-     */
-    private void checkPreconditions(PmtCalculator pmtCalculator, PmtKey pmtKey, Map<LocalDate, Double> extraPmts) {
+    private static ExtraPmtRules toRules(PmtCalculator pmtCalculator, PmtKey pmtKey, Iterable<ExtraPmt> extraPmts) {
         checkPreconditions(pmtCalculator, pmtKey);
         Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+        return ExtraPmtRules.of(pmtKey, extraPmts);
     }
 
-    /*
-     * Initialize extra map of extra payments from an Iterable<ExtraPmt> object.If an attempt is made to add an extra
-     * payment with a date key that is not valid for the mortgage this object represents, an IllegalArgumentException is
-     * thrown. If an attempt is made to add an extra payment for a duplicate date, an IllegalArgumentException is
-     * thrown.
-     */
-    private Map<LocalDate, Double> initializeExtraPmts(Iterable<ExtraPmt> extraPmts) {
-        ImmutableMap.Builder<LocalDate, Double> builder = ImmutableMap.builder();
-
-        for (ExtraPmt extraPmt : extraPmts) {
-            builder.putAll(initializeExtraPmts(extraPmt));
-        }
-
-        return builder.build();
-    }
-
-    /*
-     * Initialize extra map of extra payments from an ExtraPmt object. If an attempt is made to add an extra payment
-     * with a date key that is not valid for the mortgage this object represents, an IllegalArgumentException is thrown.
-     * If an attempt is made to add an extra payment for a duplicate date, an IllegalArgumentException is thrown.
-     */
-    private Map<LocalDate, Double> initializeExtraPmts(ExtraPmt extraPmts) {
-        ImmutableMap.Builder<LocalDate, Double> builder = ImmutableMap.builder();
-
-        // The PmtPeriod for the ExtraPmt must be equal to the payment period for the mortgage,
-        // or YEARLY if the mortage payment is monthly, YEARLY_FOR_WEEKLY if the mortgage payment is WEEKLY or
-        // RAPID_WEEKLY, YEARLY_FOR_BIWEEKLY if the mortgage payment is BIWEEKLY or RAPID_BIWEEKLY, or ONETIME. Anything
-        // else is invalid.
-        PmtPeriod mortgagePeriod = pmtKey.getPmtPeriod();
-        PmtPeriod extraPeriod = extraPmts.getPmtKey().getPmtPeriod();
-        boolean validPeriod = isValidPmtPeriod(mortgagePeriod, extraPeriod);
-        Preconditions.checkArgument(validPeriod, "Extra Payment Period " + extraPeriod
-                + " is invalid for a mortgage payment period of " + mortgagePeriod + ".");
-
-        for (LocalDate key : extraPmts.getPmtKey().getKeys()) {
-            // If any key in extraPmts is not valid for this mortgage, throw an IllegalArgumentException. I aint playin.
-            Preconditions.checkArgument(pmtKey.getKeys().contains(key),
-                    "extraPmts contained the following payment date: " + key + ". It is not valid for this mortgage.");
-
-            // We know this extra payment has a key that matches one of the payment installments.
-            builder.put(key, extraPmts.getAmount());
-        }
-
-        return builder.build();
-    }
-
-    /*
-     * Initialize extra map of extra payments from an Map<LocalDate, Double> object. If an attempt is made to add an
-     * extra payment with a date key that is not valid for the mortgage this object represents, an
-     * IllegalArgumentException is thrown. If an attempt is made to add an extra payment for a duplicate date, an
-     * IllegalArgumentException is thrown.
-     */
-    private Map<LocalDate, Double> initializeExtraPmts(Map<LocalDate, Double> extraPmts) {
-        ImmutableMap.Builder<LocalDate, Double> builder = ImmutableMap.builder();
-
-        Set<LocalDate> keys = extraPmts.keySet();
-        for (LocalDate key : keys) {
-            // If any key in extraPmts is not valid for this mortgage, throw an IllegalArgumentException. I aint playin.
-            Preconditions.checkArgument(pmtKey.getKeys().contains(key),
-                    "extraPmts contained the following payment date: " + key + ". It is not valid for this mortgage.");
-
-            builder.put(key, extraPmts.get(key));
-        }
-
-        return builder.build();
+    private static ExtraPmtRules toRules(PmtCalculator pmtCalculator, PmtKey pmtKey, Map<LocalDate, Double> extraPmts) {
+        checkPreconditions(pmtCalculator, pmtKey);
+        Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+        return ExtraPmtRules.of(pmtKey, extraPmts);
     }
 
     /**
@@ -320,7 +281,28 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
      *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY.
      */
     public static FixedAmortizationCalculator getInstance(PmtCalculator pmtCalculator, PmtKey pmtKey) {
-        return interner.intern(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey));
+        return interner.intern(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey,
+                AmortizationEngine.STANDARD, true));
+    }
+
+    /**
+     * Create an instance of FixedAmortizationCalculator with no extra payments that computes its payments with the
+     * engine passed in.
+     * 
+     * @param pmtCalculator
+     * @param pmtKey
+     * @param engine
+     * @return FixedAmortizationCalculator
+     * 
+     * @throws NullPointerException
+     *             if pmtCalculator, pmtKey, or engine is null.
+     * 
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY.
+     */
+    public static FixedAmortizationCalculator getInstance(PmtCalculator pmtCalculator, PmtKey pmtKey,
+            AmortizationEngine engine) {
+        return interner.intern(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, engine, true));
     }
 
     /**
@@ -341,7 +323,8 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
      *             if extraPmts contains dates that are not valid payment dates for the mortgage this object represents.
      */
     public static FixedAmortizationCalculator getInstance(PmtCalculator pmtCalculator, PmtKey pmtKey, ExtraPmt extraPmts) {
-        return interner.intern(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts));
+        return interner.intern(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts,
+                AmortizationEngine.STANDARD, true));
     }
 
     /**
@@ -364,7 +347,8 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
      */
     public static FixedAmortizationCalculator getInstance(PmtCalculator pmtCalculator, PmtKey pmtKey,
             Iterable<ExtraPmt> extraPmts) {
-        return interner.intern(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts));
+        return interner.intern(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts,
+                AmortizationEngine.STANDARD, true));
     }
 
     /**
@@ -387,176 +371,145 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
      */
     public static FixedAmortizationCalculator getInstance(PmtCalculator pmtCalculator, PmtKey pmtKey,
             Map<LocalDate, Double> extraPmts) {
-        return interner.intern(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts));
+        return interner.intern(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts,
+                AmortizationEngine.STANDARD, true));
     }
 
-    @Override
-    public PmtCalculator getPmtCalculator() {
-        return pmtCalculator;
+    /*
+     * The newInstance methods create objects that are not interned. The objects returned by the set, add, remove, and
+     * clear methods of these objects are not interned either. They are equal to, but not the same object as, the ones
+     * getInstance returns for the same values.
+     */
+    static FixedAmortizationCalculator newInstance(PmtCalculator pmtCalculator, PmtKey pmtKey) {
+        return new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, AmortizationEngine.STANDARD, false);
     }
 
-    @Override
-    public PmtKey getPmtKey() {
-        return pmtKey;
+    static FixedAmortizationCalculator newInstance(PmtCalculator pmtCalculator, PmtKey pmtKey,
+            AmortizationEngine engine) {
+        return new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, engine, false);
     }
 
-    @Override
-    public FixedAmortizationCalculator setPmtCalculator(PmtCalculator pmtCalc) {
-        return getInstance(pmtCalc, pmtKey);
+    static FixedAmortizationCalculator newInstance(PmtCalculator pmtCalculator, PmtKey pmtKey, ExtraPmt extraPmts) {
+        return new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts, AmortizationEngine.STANDARD,
+                false);
     }
 
-    @Override
-    public FixedAmortizationCalculator setPmtKey(PmtKey pmtKey) {
-        Preconditions.checkNotNull(pmtKey, "pmtKey must not be null.");
-        return getInstance(pmtCalculator, pmtKey);
+    static FixedAmortizationCalculator newInstance(PmtCalculator pmtCalculator, PmtKey pmtKey,
+            Iterable<ExtraPmt> extraPmts) {
+        return new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts, AmortizationEngine.STANDARD,
+                false);
+    }
+
+    static FixedAmortizationCalculator newInstance(PmtCalculator pmtCalculator, PmtKey pmtKey,
+            Map<LocalDate, Double> extraPmts) {
+        return new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts, AmortizationEngine.STANDARD,
+                false);
     }
 
     /*
-     * Walk through the amortizationMap to see if there are any extra payments greater than 0. Return true as soon as we
-     * find the first one.
-     * 
-     * @return true if there are any extra payments greater than 0.0
+     * Creates an object that is not interned from extra payment rules that are already by installment index.
      */
-    private boolean areExtraPmtsInternal() {
-        Set<LocalDate> keys = amortizationMap.keySet();
-        for (LocalDate key : keys) {
-            Payment pmt = amortizationMap.get(key);
-            if (pmt.getExtraPrincipal() > 0.0) return true;
-        }
-        return false;
+    static FixedAmortizationCalculator newInstance(PmtCalculator pmtCalculator, PmtKey pmtKey,
+            ExtraPmtRules extraPmts) {
+        return newInstance(pmtCalculator, pmtKey, extraPmts, AmortizationEngine.STANDARD);
     }
 
-    /**
-     * Return areExtraPmts value, which is determined at object instantiation.
+    static FixedAmortizationCalculator newInstance(PmtCalculator pmtCalculator, PmtKey pmtKey,
+            ExtraPmtRules extraPmts, AmortizationEngine engine) {
+        checkPreconditions(pmtCalculator, pmtKey);
+        Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+        return new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts, engine, false);
+    }
+
+    /*
+     * Creates an object that is not interned with the STANDARD engine and a core that was built for the same
+     * PmtCalculator, count of payment keys, and extra payment rules.
      */
-    @Override
-    public boolean areExtraPayments() {
-        return areExtraPmts;
+    static FixedAmortizationCalculator newInstance(PmtCalculator pmtCalculator, PmtKey pmtKey,
+            ExtraPmtRules extraPmts, ScheduleCore core) {
+        return new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts, AmortizationEngine.STANDARD,
+                core, false);
     }
 
     /*
-     * Ensures that the payment period is one of: BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY.
+     * The create methods create an object with the same kind of instance control and the same engine as this object.
      */
-    private boolean isValidPmtPeriod(PmtPeriod mortgagePeriod, PmtPeriod extraPeriod) {
-        boolean validPeriod;
-        switch (mortgagePeriod) {
-        case MONTHLY:
-            switch (extraPeriod) {
-            case MONTHLY:
-            case YEARLY:
-            case ONETIME:
-                validPeriod = true;
-                break;
-
-            default:
-                validPeriod = false;
-                break;
-            }
-            break;
+    private FixedAmortizationCalculator create(PmtCalculator pmtCalculator, PmtKey pmtKey) {
+        return create(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, engine, interned));
+    }
 
-        case BIWEEKLY:
-        case RAPID_BIWEEKLY:
-            switch (extraPeriod) {
-            case BIWEEKLY:
-            case RAPID_BIWEEKLY:
-            case YEARLY_FOR_BIWEEKLY:
-            case ONETIME:
-                validPeriod = true;
-                break;
-
-            default:
-                validPeriod = false;
-                break;
-            }
-            break;
+    private FixedAmortizationCalculator create(PmtCalculator pmtCalculator, PmtKey pmtKey, ExtraPmt extraPmts) {
+        return create(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts, engine, interned));
+    }
 
-        case WEEKLY:
-        case RAPID_WEEKLY:
-            switch (extraPeriod) {
-            case WEEKLY:
-            case RAPID_WEEKLY:
-            case YEARLY_FOR_WEEKLY:
-            case ONETIME:
-                validPeriod = true;
-                break;
-
-            default:
-                validPeriod = false;
-                break;
-            }
-            break;
+    private FixedAmortizationCalculator create(PmtCalculator pmtCalculator, PmtKey pmtKey,
+            Iterable<ExtraPmt> extraPmts) {
+        return create(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts, engine, interned));
+    }
 
-        default:
-            validPeriod = false;
-            break;
-        }
+    private FixedAmortizationCalculator create(PmtCalculator pmtCalculator, PmtKey pmtKey,
+            Map<LocalDate, Double> extraPmts) {
+        return create(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts, engine, interned));
+    }
 
-        return validPeriod;
+    private FixedAmortizationCalculator create(ExtraPmtRules extraPmts) {
+        return create(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, extraPmts, engine, interned));
     }
 
-    /*
-     * Takes a Map<LocalDate, Double> map with new extra payments and a Map<LocalDate, Double> map with extra payments
-     * that this object has. It returns a merging of the two maps. If add is true, it adds to the value of any payment
-     * that is in the existing map. If add is false, it overwrites any existing extra payment. The existing extra
-     * payment map is mutable, so we can add the contents of the new map to it.
-     */
-    private Map<LocalDate, Double> mergeWithExistingExtraPmts(Map<LocalDate, Double> newExtraPmtMap,
-            Map<LocalDate, Double> mutableExistingExtraPmtMap, boolean add) {
-        if (add) {
-            for (LocalDate key : newExtraPmtMap.keySet()) {
-                // Get the existing value so we can add it.
-                Double e = mutableExistingExtraPmtMap.get(key);
-                double existing = e == null ? 0.0 : e.doubleValue();
-                Double newExtra = newExtraPmtMap.get(key).doubleValue() + existing;
-                mutableExistingExtraPmtMap.put(key, newExtra);
-            }
-        } else {
-            // Add the new values from newExtraPmtMap. Any duplicate values in mutableExtraPmtMap will be overwritten,
-            // which is what we want.
-            mutableExistingExtraPmtMap.putAll(newExtraPmtMap);
-        }
+    private FixedAmortizationCalculator create(DefaultFixedAmortizationCalculator amortCalculator) {
+        return interned ? interner.intern(amortCalculator) : amortCalculator;
+    }
 
-        return mutableExistingExtraPmtMap;
+    @Override
+    public PmtCalculator getPmtCalculator() {
+        return pmtCalculator;
     }
 
-    /*
-     * Builds a Map of extra payments if there are already extra payments in extraPmtMap. This is called in the
-     * setExtraPayment(ExtraPmt extraPmts) method, which returns a new FixedAmortizationCalculator object.
-     */
-    private Map<LocalDate, Double> buildExtraPmtFromExisting(ExtraPmt extraPmts, boolean add) {
-        Map<LocalDate, Double> mutableExtraPmtMap = new HashMap<>(getExtraPayments());
+    @Override
+    public PmtKey getPmtKey() {
+        return pmtKey;
+    }
 
-        // Now, build a map with the extraPmts passed in.
-        Map<LocalDate, Double> newExtraPmtMap = initializeExtraPmts(extraPmts);
+    @Override
+    public FixedAmortizationCalculator setPmtCalculator(PmtCalculator pmtCalc) {
+        return create(pmtCalc, pmtKey);
+    }
 
-        return mergeWithExistingExtraPmts(newExtraPmtMap, mutableExtraPmtMap, add);
+    @Override
+    public FixedAmortizationCalculator setPmtKey(PmtKey pmtKey) {
+        Preconditions.checkNotNull(pmtKey, "pmtKey must not be null.");
+        return create(pmtCalculator, pmtKey);
     }
 
-    /*
-     * Builds a Map of extra payments if there are already extra payments in extraPmtMap. This is called in the
-     * setExtraPayment(Iterable<ExtraPmt> extraPmts) method, which returns a new FixedAmortizationCalculator object. If
-     * add is true, it will add the amount of a new extra payment to one that already exists.
-     */
-    private Map<LocalDate, Double> buildExtraPmtFromExisting(Iterable<ExtraPmt> extraPmts, boolean add) {
-        Map<LocalDate, Double> mutableExtraPmtMap = new HashMap<>(getExtraPayments());
+    @Override
+    public AmortizationEngine getEngine() {
+        return engine;
+    }
 
-        // Now, build a map with the extraPmts passed in.
-        Map<LocalDate, Double> newExtraPmtMap = initializeExtraPmts(extraPmts);
+    @Override
+    public FixedAmortizationCalculator setEngine(AmortizationEngine engine) {
+        Preconditions.checkNotNull(engine, "engine must not be null.");
 
-        return mergeWithExistingExtraPmts(newExtraPmtMap, mutableExtraPmtMap, add);
+        return create(new DefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, getExistingExtraPmts(), engine,
+                interned));
     }
 
-    /*
-     * Builds a Map of extra payments if there are already extra payments in extraPmtMap. This is called in the
-     * setExtraPayment(Map<LocalDate, Double> extraPmts) method, which returns a new FixedAmortizationCalculator object.
+    /**
+     * Returns true if any payment of the amortization table has an extra payment greater than 0.0, which is
+     * determined at object instantiation.
      */
-    private Map<LocalDate, Double> buildExtraPmtFromExisting(Map<LocalDate, Double> extraPmts, boolean add) {
-        Map<LocalDate, Double> mutableExtraPmtMap = new HashMap<>(getExtraPayments());
-
-        // Now, build a map with the extraPmts passed in.
-        Map<LocalDate, Double> newExtraPmtMap = initializeExtraPmts(extraPmts);
+    @Override
+    public boolean areExtraPayments() {
+        return core.hasExtraPayments();
+    }
 
-        return mergeWithExistingExtraPmts(newExtraPmtMap, mutableExtraPmtMap, add);
+    /*
+     * Gets the rules of the extra payments the set and add methods start from. They are all the rules of this object,
+     * including negative extra payments, so a derived object keeps the missed installments of a ledger snapshot. The
+     * binary codec of the schedules writes them.
+     */
+    ExtraPmtRules getExistingExtraPmts() {
+        return extraPmts;
     }
 
     /**
@@ -581,13 +534,7 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
     public FixedAmortizationCalculator setExtraPayment(LocalDate key, double amount) {
         Preconditions.checkNotNull(key, "key must not be null");
 
-        Map<LocalDate, Double> xtra = ImmutableMap.of(key, Double.valueOf(amount));
-
-        if (!areExtraPmts) {
-            return getInstance(pmtCalculator, pmtKey, xtra);
-        }
-
-        return getInstance(pmtCalculator, pmtKey, buildExtraPmtFromExisting(xtra, false));
+        return create(getExistingExtraPmts().set(pmtKey, key, amount));
     }
 
     /**
@@ -612,11 +559,7 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
     public FixedAmortizationCalculator setExtraPayment(ExtraPmt extraPmts) {
         Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
 
-        if (!areExtraPmts) {
-            return getInstance(pmtCalculator, pmtKey, extraPmts);
-        }
-
-        return getInstance(pmtCalculator, pmtKey, buildExtraPmtFromExisting(extraPmts, false));
+        return create(getExistingExtraPmts().set(ExtraPmtRules.of(pmtKey, extraPmts)));
     }
 
     /**
@@ -641,11 +584,7 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
     public FixedAmortizationCalculator setExtraPayments(Iterable<ExtraPmt> extraPmts) {
         Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
 
-        if (!areExtraPmts) {
-            return getInstance(pmtCalculator, pmtKey, extraPmts);
-        }
-
-        return getInstance(pmtCalculator, pmtKey, buildExtraPmtFromExisting(extraPmts, false));
+        return create(getExistingExtraPmts().set(ExtraPmtRules.of(pmtKey, extraPmts)));
     }
 
     /**
@@ -669,11 +608,7 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
     public FixedAmortizationCalculator setExtraPayments(Map<LocalDate, Double> extraPmts) {
         Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
 
-        if (!areExtraPmts) {
-            return getInstance(pmtCalculator, pmtKey, extraPmts);
-        }
-
-        return getInstance(pmtCalculator, pmtKey, buildExtraPmtFromExisting(extraPmts, false));
+        return create(getExistingExtraPmts().set(pmtKey, extraPmts));
     }
 
     /**
@@ -697,13 +632,7 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
     public FixedAmortizationCalculator addExtraPayment(LocalDate key, double amount) {
         Preconditions.checkNotNull(key, "key must not be null");
 
-        Map<LocalDate, Double> xtra = ImmutableMap.of(key, Double.valueOf(amount));
-
-        if (!areExtraPmts) {
-            return getInstance(pmtCalculator, pmtKey, xtra);
-        }
-
-        return getInstance(pmtCalculator, pmtKey, buildExtraPmtFromExisting(xtra, true));
+        return create(getExistingExtraPmts().add(ExtraPmtRules.of(pmtKey, key, amount)));
     }
 
     /**
@@ -725,11 +654,7 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
     public FixedAmortizationCalculator addExtraPayment(ExtraPmt extraPmts) {
         Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
 
-        if (!areExtraPmts) {
-            return getInstance(pmtCalculator, pmtKey, extraPmts);
-        }
-
-        return getInstance(pmtCalculator, pmtKey, buildExtraPmtFromExisting(extraPmts, true));
+        return create(getExistingExtraPmts().add(ExtraPmtRules.of(pmtKey, extraPmts)));
     }
 
     /**
@@ -751,11 +676,7 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
     public FixedAmortizationCalculator addExtraPayments(Iterable<ExtraPmt> extraPmts) {
         Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
 
-        if (!areExtraPmts) {
-            return getInstance(pmtCalculator, pmtKey, extraPmts);
-        }
-
-        return getInstance(pmtCalculator, pmtKey, buildExtraPmtFromExisting(extraPmts, true));
+        return create(getExistingExtraPmts().add(ExtraPmtRules.of(pmtKey, extraPmts)));
     }
 
     /**
@@ -777,11 +698,14 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
     public FixedAmortizationCalculator addExtraPayments(Map<LocalDate, Double> extraPmts) {
         Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
 
-        if (!areExtraPmts) {
-            return getInstance(pmtCalculator, pmtKey, extraPmts);
-        }
+        return create(getExistingExtraPmts().add(ExtraPmtRules.of(pmtKey, extraPmts)));
+    }
 
-        return getInstance(pmtCalculator, pmtKey, buildExtraPmtFromExisting(extraPmts, true));
+    /*
+     * Adds extra payment rules that are already by installment index, the way addExtraPayments adds a map of them.
+     */
+    FixedAmortizationCalculator addExtraPmtRules(ExtraPmtRules extraPmts) {
+        return create(getExistingExtraPmts().add(extraPmts));
     }
 
     /**
@@ -806,11 +730,7 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
         Preconditions.checkArgument(getExtraPayment(key) > 0.0, "attempt to remove extra payment with key of " + key
                 + " failed because extraPmtMap does not contain an extra payment with that key.");
 
-        // Create a mutable copy of the map and remove the extra payment from that.
-        Map<LocalDate, Double> reducedMap = new HashMap<>(getExtraPayments());
-        reducedMap.remove(key);
-
-        return getInstance(pmtCalculator, pmtKey, reducedMap);
+        return create(extraPmts.remove(IndexedExtraPmts.indexOf(pmtKey, key)));
     }
 
     /**
@@ -831,15 +751,14 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
     public FixedAmortizationCalculator removeExtraPayments(Iterable<LocalDate> keys) {
         Preconditions.checkNotNull(keys, "keys must not be null.");
 
-        // Create a mutable copy of the map and remove the extra payment from that.
-        Map<LocalDate, Double> reducedMap = new HashMap<>(getExtraPayments());
+        ExtraPmtRules reduced = extraPmts;
         for (LocalDate key : keys) {
             Preconditions.checkArgument(getExtraPayment(key) > 0.0, "attempt to remove extra payment with key of "
                     + key + " failed because extraPmtMap does not contain an extra payment with that key.");
-            reducedMap.remove(key);
+            reduced = reduced.remove(IndexedExtraPmts.indexOf(pmtKey, key));
         }
 
-        return getInstance(pmtCalculator, pmtKey, reducedMap);
+        return create(reduced);
     }
 
     /**
@@ -854,31 +773,19 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
     public FixedAmortizationCalculator clearExtraPayments() {
 
         Preconditions.checkState(areExtraPmts, "This object does not contain extra payments so none can be cleared.");
-        return getInstance(pmtCalculator, pmtKey);
-    }
-
-    /*
-     * Create the map of extra payments. This is called in the constructors.
-     */
-    private SortedMap<LocalDate, Double> getExtraPmts() {
-        ImmutableSortedMap.Builder<LocalDate, Double> bldr = new ImmutableSortedMap.Builder<>(Ordering.natural());
-        Set<LocalDate> keys = amortizationMap.keySet();
-        for (LocalDate key : keys) {
-            bldr.put(key, amortizationMap.get(key).getExtraPrincipal());
-        }
-
-        return bldr.build();
+        return create(pmtCalculator, pmtKey);
     }
 
     /**
      * Returns a sorted map of the extra payments for this mortgage. If this mortgage does not have any extra payments,
-     * this will return a map of extra payments that each equal 0.0.
+     * this will return a map of extra payments that each equal 0.0. The map is a read-only view of the amortization
+     * table, so its values are read from the payments when they are asked for.
      * 
      * @return a map of extra payments sorted by the payment date
      */
     @Override
     public SortedMap<LocalDate, Double> getExtraPayments() {
-        return extraPmtMap;
+        return new ExtraPrincipalView(getTable());
     }
 
     /**
@@ -901,77 +808,85 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
         Preconditions.checkNotNull(key, "key must not be null.");
         Preconditions.checkArgument(pmtKey.getKeys().contains(key), key + " is not valid for this mortgage.");
 
-        Payment pmt = amortizationMap.get(key);
-        Double e = pmt == null ? 0.0 : pmt.getExtraPrincipal();
-        return e.doubleValue();
+        int idx = indexOf(key);
+        return idx < core.size() ? core.getPayment(idx).getExtraPrincipal() : 0.0;
     }
 
-    /**
-     * Returns the amortization table as a sorted map. The keys are the date the payment is due.
-     */
     @Override
-    public SortedMap<LocalDate, Payment> getTable() {
-        return amortizationMap;
+    public double getTotalCost() {
+        return totalCost;
     }
 
-    /*
-     * Builds a table with no extra payments.
-     */
-    private SortedMap<LocalDate, Payment> buildTable() {
+    @Override
+    public double getSum(int stat, LocalDate from, LocalDate to) {
+        Preconditions.checkNotNull(from, "from must not be null.");
+        Preconditions.checkNotNull(to, "to must not be null.");
+        Preconditions.checkArgument(!from.isAfter(to), "from must not be after to.");
 
-        double principalOwed = pmtCalculator.getLoanAmt();
-        double interestPaid = 0.0;
-        ImmutableSortedMap.Builder<LocalDate, Payment> pmtMapBuilder = new ImmutableSortedMap.Builder<>(
-                Ordering.natural());
+        return core.sum(stat, indexOf(from), indexOf(to));
+    }
 
-        Iterator<LocalDate> keyIterator = pmtKey.getKeys().iterator();
-        while ((BigDecimal.valueOf(principalOwed).setScale(2, RoundingMode.HALF_EVEN).doubleValue() > 0.0)
-                && (keyIterator.hasNext())) {
+    @Override
+    public double getYearlySum(int stat, int year) {
+        return core.sum(stat, indexOf(new LocalDate(year, 1, 1)), indexOf(new LocalDate(year + 1, 1, 1)));
+    }
 
-            // Get the key.
-            LocalDate key = keyIterator.next();
+    @Override
+    public SortedMap<Integer, Double> getYearlySums(int stat) {
+        ImmutableSortedMap.Builder<Integer, Double> bldr = new ImmutableSortedMap.Builder<>(Ordering.natural());
+        if (core.size() > 0) {
+            List<LocalDate> keys = pmtKey.getKeys();
+            int lastYear = keys.get(core.size() - 1).getYear();
+            for (int year = keys.get(0).getYear(); year <= lastYear; year++) {
+                bldr.put(year, getYearlySum(stat, year));
+            }
+        }
 
-            // Create the payment object and add it with its key.
-            Payment payment = new DefaultPayment(principalOwed, interestPaid);
-            pmtMapBuilder.put(key, payment);
+        return bldr.build();
+    }
 
-            // Update the principal owed and balance paid.
-            principalOwed = payment.getBalanceUnrounded();
-            interestPaid = payment.getCumulativeInterestUnrounded();
-        }
+    @Override
+    public LocalDate getFirstKeyWithBalanceAtOrBelow(double balance) {
+        return keyAt(core.indexOfBalanceAtOrBelow(balance));
+    }
 
-        return pmtMapBuilder.build();
+    @Override
+    public LocalDate getFirstKeyWithCumulativeInterestAtOrAbove(double cumulativeInterest) {
+        return keyAt(core.indexOfCumulativeInterestAtOrAbove(cumulativeInterest));
     }
 
     /*
-     * Builds a table with extra payments.
+     * Gets the payment key at the index passed in, or null if the index is -1.
      */
-    private SortedMap<LocalDate, Payment> buildTable(Map<LocalDate, Double> extraPmtMap) {
-
-        double principalOwed = pmtCalculator.getLoanAmt();
-        double interestPaid = 0.0;
-        ImmutableSortedMap.Builder<LocalDate, Payment> pmtMapBuilder = new ImmutableSortedMap.Builder<>(
-                Ordering.natural());
-
-        Iterator<LocalDate> keyIterator = pmtKey.getKeys().iterator();
-        while ((BigDecimal.valueOf(principalOwed).setScale(2, RoundingMode.HALF_EVEN).doubleValue() > 0.0)
-                && (keyIterator.hasNext())) {
-
-            // Get the key and the extra payment. Check it for null.
-            LocalDate key = keyIterator.next();
-            Double extraPmt = extraPmtMap.get(key);
+    private LocalDate keyAt(int idx) {
+        return idx < 0 ? null : pmtKey.getKeys().get(idx);
+    }
 
-            // Create the payment object and add it with its key.
-            Payment payment = new DefaultPayment(principalOwed, interestPaid, extraPmt == null ? 0.0
-                    : extraPmt.doubleValue());
-            pmtMapBuilder.put(key, payment);
+    /*
+     * Gets the index of the first payment key that is not before the date passed in. The keys are in chronological
+     * order, so use a binary search.
+     */
+    private int indexOf(LocalDate date) {
+        int idx = Collections.binarySearch(pmtKey.getKeys(), date);
+        return idx >= 0 ? idx : -(idx + 1);
+    }
 
-            // Update the principal owed and balance paid.
-            principalOwed = payment.getBalanceUnrounded();
-            interestPaid = payment.getCumulativeInterestUnrounded();
+    /**
+     * Returns the amortization table as a sorted map. The keys are the date the payment is due.
+     */
+    @Override
+    public SortedMap<LocalDate, Payment> getTable() {
+        SortedMap<LocalDate, Payment> table = amortizationMap;
+        if (table == null) {
+            table = core.toTable(pmtKey);
+            amortizationMap = table;
         }
+        return table;
+    }
 
-        return pmtMapBuilder.build();
+    @Override
+    public Spliterator<AmortizationRow> spliterator() {
+        return new RowSpliterator(this, core, pmtKey.getKeys(), 0, core.size());
     }
 
     @Override
@@ -979,7 +894,8 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
         return Objects.toStringHelper(this)
                 .add("pmtCalculator", pmtCalculator)
                 .add("pmtKey", pmtKey)
-                .add("amortizationMap", amortizationMap)
+                .add("engine", engine)
+                .add("amortizationMap", getTable())
                 .toString();
     }
 
@@ -990,7 +906,8 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
         if (result == 0) {
             result = Objects.hashCode(pmtCalculator,
                     pmtKey,
-                    amortizationMap);
+                    engine,
+                    core.paymentsHashCode());
             hashCode = result;
         }
 
@@ -1002,7 +919,7 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
      * 
      * Note: DefaultAmortizationCalculator uses instance control, so two objects that are equal will be the same object.
      * Therefore, to compare equality between two DefaultAmortizationCalculator object's one can use == instead of
-     * equals().
+     * equals(). That does not hold for objects created by newInstance. They must be compared with equals().
      * 
      * @return true if the two objects are effectively the same, false otherwise.
      */
@@ -1016,12 +933,13 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
             return false;
         }
 
-        // Do not compare the areExtraPmt boolean value or the extraPmtMap as those values are derived from the contents
-        // of amortizationMap
+        // Do not compare the areExtraPmt boolean value or the extraPmts rules as the extra payments are captured in the
+        // payments of the core. With equal PmtKeys, the tables are equal if the payments are.
         DefaultFixedAmortizationCalculator that = (DefaultFixedAmortizationCalculator) object;
         return Objects.equal(this.pmtCalculator, that.pmtCalculator)
                 && Objects.equal(this.pmtKey, that.pmtKey)
-                && Objects.equal(this.amortizationMap, that.amortizationMap);
+                && this.engine == that.engine
+                && this.core.paymentsEqual(that.core);
     }
 
     /**
@@ -1038,8 +956,8 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
      */
     @Override
     public int compareTo(FixedAmortizationCalculator o) {
-        // Since we use an Interner for this object, two objects that are equal should always be the same object, so
-        // this first check should always be true if the "objects" are the same.
+        // Two interned objects that are equal are always the same object, so this first check is true for them. Objects
+        // that are not interned fall through to the comparisons below.
         if (this == o) {
             return 0;
         }
@@ -1053,15 +971,9 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
         DefaultFixedAmortizationCalculator that = (DefaultFixedAmortizationCalculator) o;
 
         // The most important comparison to make between two FixedAmortizationCalculators is the total cost. This cost
-        // is the total principal owed plus the total interest. Compare this value first.
-        Payment thisLastPmt = amortizationMap.get(amortizationMap.lastKey());
-        Payment thatLastPmt = that.amortizationMap.get(that.amortizationMap.lastKey());
-        double thisTotalCost = BigDecimal.valueOf(pmtCalculator.getLoanAmt())
-                .add(BigDecimal.valueOf(thisLastPmt.getCumulativeInterest())).doubleValue();
-        double thatTotalCost = BigDecimal.valueOf(that.pmtCalculator.getLoanAmt())
-                .add(BigDecimal.valueOf(thatLastPmt.getCumulativeInterest())).doubleValue();
-
-        int result = Double.compare(thisTotalCost, thatTotalCost);
+        // is the total principal owed plus the total interest. Compare this value first. It was calculated when each
+        // object was created.
+        int result = Double.compare(totalCost, that.totalCost);
         if (result != 0) {
             return result;
         }
@@ -1070,32 +982,19 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
         result = ComparisonChain.start()
                 .compare(pmtCalculator, that.pmtCalculator)
                 .compare(pmtKey, that.pmtKey)
+                .compare(engine, that.engine)
                 .result();
 
         if (result != 0) {
             return result;
         }
 
-        // See if the amortization maps are the same size.
-        int amortSz = amortizationMap.size();
-        int thatAmortSz = that.amortizationMap.size();
-        if (amortSz > thatAmortSz) return 1;
-        if (amortSz < thatAmortSz) return -1;
-
-        Set<LocalDate> keys = amortizationMap.keySet();
-        for (LocalDate key : keys) {
-            Payment thisPmt = amortizationMap.get(key);
-            Payment thatPmt = that.amortizationMap.get(key);
-            // A null value is considered less than anything else.
-            if (thatPmt == null) return 1;
-            result = thisPmt.compareTo(thatPmt);
-            if (result != 0) return result;
-        }
-
-        return 0;
+        // The PmtKeys are the same, so the tables have the same dates. Compare the size of the tables, then the
+        // payments one by one.
+        return core.comparePayments(that.core);
     }
 
-    class DefaultPayment implements FixedAmortizationCalculator.Payment {
+    static class DefaultPayment implements FixedAmortizationCalculator.Payment {
 
         private final double total; // the total amount paid for this payment
         private final double principal; // the principal paid for this payment
@@ -1114,7 +1013,8 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
 
         private volatile int hashCode;
 
-        private DefaultPayment(double principalOwed, double interestPaid, double extraPrincipal) {
+        DefaultPayment(double periodInterestRate, double pmt, double principalOwed, double interestPaid,
+                double extraPrincipal) {
             // The extraPmt is the extra amount being paid for this payment. The total is the monthly payment plus the
             // extra payment.
             interest = principalOwed * periodInterestRate;
@@ -1134,8 +1034,39 @@ class DefaultFixedAmortizationCalculator implements FixedAmortizationCalculator
                     .doubleValue();
         }
 
-        private DefaultPayment(double principalOwed, double interestPaid) {
-            this(principalOwed, interestPaid, 0);
+        /*
+         * Restores a payment from its unrounded values, which is how the disk tier of ScheduleCache reads a table back.
+         * The values are rounded with Cents.toCents, which rounds exactly the way the constructor above does, so the
+         * payment is equal to the one the values were taken from.
+         */
+        private DefaultPayment(double total, double principal, double extraPrincipal, double interest,
+                double cumulativeInterest, double balance) {
+            this.total = total;
+            this.principal = principal;
+            this.extraPrincipal = extraPrincipal;
+            this.interest = interest;
+            this.cumulativeInterest = cumulativeInterest;
+            this.balance = balance;
+
+            totalRounded = Cents.toCents(total) / 100.0;
+            principalRounded = Cents.toCents(principal) / 100.0;
+            extraPrincipalRounded = Cents.toCents(extraPrincipal) / 100.0;
+            interestRounded = Cents.toCents(interest) / 100.0;
+            balanceRounded = Cents.toCents(balance) / 100.0;
+            cumulativeInterestRounded = Cents.toCents(cumulativeInterest) / 100.0;
+        }
+
+        static DefaultPayment restore(double total, double principal, double extraPrincipal, double interest,
+                double cumulativeInterest, double balance) {
+            return new DefaultPayment(total, principal, extraPrincipal, interest, cumulativeInterest, balance);
+        }
+
+        /*
+         * The Payment interface has no unrounded getter for the extra principal, but a payment cannot be restored
+         * without it.
+         */
+        double getExtraPrincipalUnrounded() {
+            return extraPrincipal;
         }
 
         @Override
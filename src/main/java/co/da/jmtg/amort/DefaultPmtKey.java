@@ -5,13 +5,13 @@ import java.util.List;
 import org.joda.time.LocalDate;
 
 import co.da.jmtg.pmt.PmtPeriod;
+import co.da.jmtg.util.StripedInterners;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Interner;
-import com.google.common.collect.Interners;
 
 /**
  * The default implementation of PmtKey.
@@ -22,26 +22,22 @@ import com.google.common.collect.Interners;
 class DefaultPmtKey implements PmtKey {
 
     private final LocalDate firstKey;
-    private final List<LocalDate> keys;
+    // The keys are built the first time they are read, so a lookup that finds an interned object does not build them.
+    private volatile List<LocalDate> keys;
     private final PmtPeriod pmtPeriod;
     private final int count;
 
-    private volatile int hashCode;
+    // True if this object was created by getInstance and is held by the interner. It is not evaluated in hashCode,
+    // equals, or compareTo.
+    private final boolean interned;
+
+    // The keys are fully determined by firstKey, pmtPeriod, and count, so only those three values are evaluated in
+    // hashCode, equals, and compareTo. The hash code is computed once in the constructor.
+    private final int hashCode;
 
     // Cache all instances of DefaultPmtKey. This will guarantee that only unique DefaultPmtKey objects will exist. It
     // means clients can use == to compare for equality.
-    private static final Interner<PmtKey> interner = Interners.newStrongInterner();
-
-    /*
-     * Creates an object using the specified pmtPeriod and LocalDate object. The count of payments defaults to 1.
-     * 
-     * @param pmtPeriod The <tt>PmtPeriod</tt> object
-     * 
-     * @param key The <tt>LocalDate</tt> object
-     */
-    private DefaultPmtKey(PmtPeriod pmtPeriod, LocalDate key) {
-        this(pmtPeriod, key, 1);
-    }
+    private static final Interner<PmtKey> interner = StripedInterners.newStrongInterner();
 
     /*
      * Creates an object using the specified pmtPeriod and LocalDate object.
@@ -52,13 +48,15 @@ class DefaultPmtKey implements PmtKey {
      * 
      * @param count the count of payments
      * 
+     * @param interned true if the object will be held by the interner
+     * 
      * @throws NullPointerException if pmtPeriod is null or key is null.
      * 
      * @throws IllegalArgumentException if pmtPeriod is PmtPeriod.ONETIME, but count is greater than 1.
      * 
      * @return PmtKey instance
      */
-    private DefaultPmtKey(PmtPeriod pmtPeriod, LocalDate key, int count) {
+    private DefaultPmtKey(PmtPeriod pmtPeriod, LocalDate key, int count, boolean interned) {
 
         Preconditions.checkNotNull(pmtPeriod, "pmtPeriod must not be null.");
         Preconditions.checkNotNull(key, "key must not be null.");
@@ -68,15 +66,10 @@ class DefaultPmtKey implements PmtKey {
 
         this.pmtPeriod = pmtPeriod;
         this.count = count;
+        this.interned = interned;
 
         firstKey = key;
-        ImmutableList.Builder<LocalDate> builder = ImmutableList.builder();
-        builder.add(firstKey);
-        while (--count > 0) {
-            key = key.plus(pmtPeriod.period());
-            builder.add(key);
-        }
-        keys = builder.build();
+        hashCode = Objects.hashCode(firstKey, pmtPeriod, this.count);
     }
 
     /**
@@ -93,7 +86,7 @@ class DefaultPmtKey implements PmtKey {
      * @return PmtKey instance
      */
     public static PmtKey getInstance(PmtPeriod pmtPeriod, LocalDate key) {
-        return interner.intern(new DefaultPmtKey(pmtPeriod, key));
+        return getInstance(pmtPeriod, key, 1);
     }
 
     /**
@@ -115,7 +108,21 @@ class DefaultPmtKey implements PmtKey {
      * @return PmtKey instance
      */
     public static PmtKey getInstance(PmtPeriod pmtPeriod, LocalDate key, int count) {
-        return interner.intern(new DefaultPmtKey(pmtPeriod, key, count));
+        return interner.intern(new DefaultPmtKey(pmtPeriod, key, count, true));
+    }
+
+    /*
+     * Creates an object that is not interned. The set methods of the object it returns do not intern either.
+     */
+    static PmtKey newInstance(PmtPeriod pmtPeriod, LocalDate key, int count) {
+        return new DefaultPmtKey(pmtPeriod, key, count, false);
+    }
+
+    /*
+     * Creates an object with the same kind of instance control as this object.
+     */
+    private PmtKey create(PmtPeriod pmtPeriod, LocalDate key, int count) {
+        return interned ? getInstance(pmtPeriod, key, count) : newInstance(pmtPeriod, key, count);
     }
 
     @Override
@@ -125,7 +132,19 @@ class DefaultPmtKey implements PmtKey {
 
     @Override
     public List<LocalDate> getKeys() {
-        return keys;
+        List<LocalDate> result = keys;
+        if (result == null) {
+            ImmutableList.Builder<LocalDate> builder = ImmutableList.builder();
+            LocalDate key = firstKey;
+            builder.add(key);
+            for (int i = 1; i < count; i++) {
+                key = key.plus(pmtPeriod.period());
+                builder.add(key);
+            }
+            result = builder.build();
+            keys = result;
+        }
+        return result;
     }
 
     @Override
@@ -140,17 +159,17 @@ class DefaultPmtKey implements PmtKey {
 
     @Override
     public PmtKey setPmtPeriod(PmtPeriod pmtPeriod) {
-        return getInstance(pmtPeriod, firstKey, count);
+        return create(pmtPeriod, firstKey, count);
     }
 
     @Override
     public PmtKey setFirstKey(LocalDate key) {
-        return getInstance(pmtPeriod, key, count);
+        return create(pmtPeriod, key, count);
     }
 
     @Override
     public PmtKey setCount(int count) {
-        return getInstance(pmtPeriod, firstKey, count);
+        return create(pmtPeriod, firstKey, count);
     }
 
     // @Override
@@ -162,7 +181,7 @@ class DefaultPmtKey implements PmtKey {
     public String toString() {
         return Objects.toStringHelper(this)
                 .add("firstKey", firstKey)
-                .add("keys", keys)
+                .add("keys", getKeys())
                 .add("pmtPeriod", pmtPeriod)
                 .add("count", count)
                 .toString();
@@ -170,14 +189,7 @@ class DefaultPmtKey implements PmtKey {
 
     @Override
     public int hashCode() {
-        int result = hashCode;
-
-        if (result == 0) {
-            result = Objects.hashCode(firstKey, keys, pmtPeriod, count);
-            hashCode = result;
-        }
-
-        return result;
+        return hashCode;
     }
 
     @Override
@@ -191,10 +203,10 @@ class DefaultPmtKey implements PmtKey {
         }
 
         DefaultPmtKey that = (DefaultPmtKey) object;
-        return Objects.equal(this.firstKey, that.firstKey)
-                && Objects.equal(this.pmtPeriod, that.pmtPeriod)
-                && Objects.equal(this.count, that.count)
-                && Objects.equal(this.keys, that.keys);
+        return this.hashCode == that.hashCode
+                && this.count == that.count
+                && this.pmtPeriod == that.pmtPeriod
+                && this.firstKey.equals(that.firstKey);
     }
 
     /**
@@ -221,26 +233,13 @@ class DefaultPmtKey implements PmtKey {
                             .getName());
         }
         DefaultPmtKey that = (DefaultPmtKey) o;
-        ComparisonChain cmpChain = ComparisonChain.start()
+        // If firstKey, pmtPeriod, and count are the same, the keys are the same, so there is no need to compare the
+        // contents of the lists.
+        return ComparisonChain.start()
                 .compare(firstKey, that.firstKey)
                 .compare(pmtPeriod, that.pmtPeriod)
-                .compare(count, that.count);
-
-        int result = cmpChain.result();
-        if (result != 0) {
-            return result;
-        }
-
-        // It should never get to this point in the code. Because we are using an Interner, two objects that are equal
-        // are the same object, so the first check will return 0. If the objects are not equal, at least one of the
-        // three values we check before the list will be unequal, so it should never have to compare the contents of the
-        // lists (thankfully).
-        for (int i = 0; i < keys.size(); i++) {
-            result = cmpChain.compare(keys.get(i), that.keys.get(i)).result();
-            if (result != 0) return result;
-        }
-
-        return result;
+                .compare(count, that.count)
+                .result();
     }
 
 }
@@ -0,0 +1,168 @@
+package co.da.jmtg.amort;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.SortedMap;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.pmt.PmtCalculator;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Ordering;
+
+/**
+ * The default implementation of <tt>StructuredAmortizationCalculator</tt>. The structure is turned into a
+ * <tt>PmtPolicy</tt> of level payment steps, and the payments are built by <tt>AmortizationKernel</tt>, the same way
+ * the STANDARD engine builds the payments of a <tt>DefaultFixedAmortizationCalculator</tt>. This object is immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class DefaultStructuredAmortizationCalculator implements StructuredAmortizationCalculator {
+
+    private final PmtCalculator pmtCalculator;
+    private final PmtKey pmtKey;
+    private final PmtStructure pmtStructure;
+    private final PmtPolicy pmtPolicy;
+
+    private final Payment[] payments;
+    private final SortedMap<LocalDate, Payment> amortizationMap;
+
+    // The loan amount plus the total interest. It is not evaluated in hashCode or equals.
+    private final double totalCost;
+
+    private volatile int hashCode;
+
+    private DefaultStructuredAmortizationCalculator(PmtCalculator pmtCalculator, PmtKey pmtKey,
+            PmtStructure pmtStructure, PmtPolicy pmtPolicy) {
+        this.pmtCalculator = pmtCalculator;
+        this.pmtKey = pmtKey;
+        this.pmtStructure = pmtStructure;
+        this.pmtPolicy = pmtPolicy;
+
+        payments = AmortizationKernel.buildPayments(pmtPolicy, pmtCalculator.getPeriodInterestRate(),
+                pmtCalculator.getLoanAmt(), pmtKey.getCount(), ExtraPmtRules.NONE);
+
+        List<LocalDate> keys = pmtKey.getKeys();
+        ImmutableSortedMap.Builder<LocalDate, Payment> pmtMapBuilder = new ImmutableSortedMap.Builder<>(
+                Ordering.natural());
+        for (int i = 0; i < payments.length; i++) {
+            pmtMapBuilder.put(keys.get(i), payments[i]);
+        }
+        amortizationMap = pmtMapBuilder.build();
+
+        // Add the two values as BigDecimal objects so the sum is not off by a fraction of a cent.
+        double cumulativeInterest = payments.length == 0 ? 0.0 : payments[payments.length - 1].getCumulativeInterest();
+        totalCost = BigDecimal.valueOf(pmtCalculator.getLoanAmt()).add(BigDecimal.valueOf(cumulativeInterest))
+                .doubleValue();
+    }
+
+    static StructuredAmortizationCalculator getInterestOnlyInstance(PmtCalculator pmtCalculator, PmtKey pmtKey,
+            int interestOnlyPmts) {
+        DefaultFixedAmortizationCalculator.checkPreconditions(pmtCalculator, pmtKey);
+        return new DefaultStructuredAmortizationCalculator(pmtCalculator, pmtKey, PmtStructure.INTEREST_ONLY,
+                PmtPolicy.interestOnly(pmtCalculator, interestOnlyPmts));
+    }
+
+    static StructuredAmortizationCalculator getBalloonInstance(PmtCalculator pmtCalculator, PmtKey pmtKey,
+            int maturityPmts) {
+        DefaultFixedAmortizationCalculator.checkPreconditions(pmtCalculator, pmtKey);
+        Preconditions.checkArgument(maturityPmts <= pmtKey.getCount(),
+                "maturityPmts must not be greater than the count of payment keys.");
+        return new DefaultStructuredAmortizationCalculator(pmtCalculator, pmtKey, PmtStructure.BALLOON,
+                PmtPolicy.balloon(pmtCalculator, maturityPmts));
+    }
+
+    static StructuredAmortizationCalculator getGraduatedInstance(PmtCalculator pmtCalculator, PmtKey pmtKey,
+            int pmtsPerStep, int steps, double graduationRate) {
+        DefaultFixedAmortizationCalculator.checkPreconditions(pmtCalculator, pmtKey);
+        return new DefaultStructuredAmortizationCalculator(pmtCalculator, pmtKey, PmtStructure.GRADUATED,
+                PmtPolicy.graduated(pmtCalculator, pmtsPerStep, steps, graduationRate));
+    }
+
+    @Override
+    public PmtCalculator getPmtCalculator() {
+        return pmtCalculator;
+    }
+
+    @Override
+    public PmtKey getPmtKey() {
+        return pmtKey;
+    }
+
+    @Override
+    public PmtStructure getPmtStructure() {
+        return pmtStructure;
+    }
+
+    /*
+     * Gets the payment steps the table was built with.
+     */
+    PmtPolicy getPmtPolicy() {
+        return pmtPolicy;
+    }
+
+    @Override
+    public Payment getPayment(int pmtIdx) {
+        Preconditions.checkElementIndex(pmtIdx, payments.length);
+        return payments[pmtIdx];
+    }
+
+    @Override
+    public int size() {
+        return payments.length;
+    }
+
+    @Override
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    @Override
+    public SortedMap<LocalDate, Payment> getTable() {
+        return amortizationMap;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("pmtCalculator", pmtCalculator)
+                .add("pmtKey", pmtKey)
+                .add("pmtStructure", pmtStructure)
+                .add("pmtPolicy", pmtPolicy)
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hashCode;
+
+        if (result == 0) {
+            result = Objects.hashCode(pmtCalculator, pmtKey, pmtStructure, pmtPolicy);
+            hashCode = result;
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (!(object instanceof DefaultStructuredAmortizationCalculator)) {
+            return false;
+        }
+
+        DefaultStructuredAmortizationCalculator that = (DefaultStructuredAmortizationCalculator) object;
+        return this.pmtStructure == that.pmtStructure
+                && Objects.equal(this.pmtCalculator, that.pmtCalculator)
+                && Objects.equal(this.pmtKey, that.pmtKey)
+                && Objects.equal(this.pmtPolicy, that.pmtPolicy);
+    }
+}
@@ -0,0 +1,79 @@
+package co.da.jmtg.amort;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The result of ingesting a file of extra payments with
+ * {@link FixedAmortizationCalculators#ingestExtraPayments(java.nio.file.Path, Map)}. It holds the calculators of the
+ * loans that got extra payments, with the extra payments added, and the records that were rejected. This object is
+ * immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class ExtraPmtIngestion {
+
+    private final Map<Long, FixedAmortizationCalculator> calculators;
+    private final long recordCt;
+    private final long rejectedCt;
+    private final List<String> errors;
+
+    ExtraPmtIngestion(Map<Long, FixedAmortizationCalculator> calculators, long recordCt, long rejectedCt,
+            List<String> errors) {
+        this.calculators = ImmutableMap.copyOf(calculators);
+        this.recordCt = recordCt;
+        this.rejectedCt = rejectedCt;
+        this.errors = ImmutableList.copyOf(errors);
+    }
+
+    /**
+     * Gets the new calculators of the loans that got extra payments, by loan id, in the order the loans first appear in
+     * the file. Loans without records in the file are not in the map.
+     *
+     * @return immutable map of calculators by loan id
+     */
+    public Map<Long, FixedAmortizationCalculator> getCalculators() {
+        return calculators;
+    }
+
+    /**
+     * Gets the number of records that were added to a loan.
+     *
+     * @return number of records added
+     */
+    public long getRecordCt() {
+        return recordCt;
+    }
+
+    /**
+     * Gets the number of records that were rejected.
+     *
+     * @return number of records rejected
+     */
+    public long getRejectedCt() {
+        return rejectedCt;
+    }
+
+    /**
+     * Gets the reasons for the first records that were rejected, with their line numbers. Only the first 100 are kept.
+     *
+     * @return immutable list of error messages
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("loans", calculators.size())
+                .add("recordCt", recordCt)
+                .add("rejectedCt", rejectedCt)
+                .toString();
+    }
+}
@@ -0,0 +1,474 @@
+package co.da.jmtg.amort;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.joda.time.LocalDate;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * Reads extra payments from CSV lines of <tt>loanId,yyyy-MM-dd,amount</tt> and adds them to the calculators of their
+ * loans. A first line that does not start with a digit is a header and is skipped. Loan ids are whole numbers, and
+ * amounts are decimal numbers greater than 0 with at most two fractional digits.
+ * </p>
+ *
+ * <p>
+ * The lines are parsed straight from the bytes of a <tt>ByteBuffer</tt> filled from a channel, so no line is turned
+ * into a <tt>String</tt> or split. A loan is looked up by its id in a primitive hash table, and a date is looked up in
+ * the payment dates of its loan as an int <tt>yyyyMMdd</tt> with a binary search, so a valid record does not create any
+ * objects. The records are kept in primitive arrays of a fixed size. When they are full, they are sorted by loan and
+ * installment, and the records of each loan are turned into <tt>ExtraPmtRules</tt> and added to the rules of the loan.
+ * Only the rules of the loans in the file are kept, and a run of evenly spaced payments of the same amount is a single
+ * rule, so the memory used does not grow with the number of lines. The payment dates are kept once for each distinct
+ * <tt>PmtKey</tt>, not for each loan. When the file has been read, the loans with extra payments are amortized again
+ * in batches on an <tt>ExecutorService</tt>.
+ * </p>
+ *
+ * <p>
+ * A record that cannot be parsed, or whose loan or date is not valid, is rejected and counted, and the reason for the
+ * first ones is kept. The other records are still added.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class ExtraPmtIngestor {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int BATCH_SIZE = 256;
+    private static final int MAX_ERRORS = 100;
+
+    // The bits of the sort key of a record of a chunk: the slot of the loan, the installment, and the position of the
+    // record in the chunk.
+    private static final int POS_BITS = 16;
+    private static final int IDX_BITS = 20;
+
+    private final LoanTable loans;
+
+    // The payment dates of each PmtKey as yyyyMMdd, built the first time a loan with the key is in the file. Loans
+    // share their keys, so there are only as many of these as distinct keys, not as loans.
+    private final Map<PmtKey, int[]> keyDates = new HashMap<>();
+
+    // The last key looked up, since the lines of a file are often grouped by loan.
+    private PmtKey lastKey;
+    private int[] lastKeyDates;
+
+    // The extra payments read for each loan so far, or null if none were.
+    private final ExtraPmtRules[] pending;
+    private final List<Integer> affected = new ArrayList<>();
+
+    // The records read since the last flush.
+    private final int[] chunkSlots = new int[CHUNK_SIZE];
+    private final int[] chunkIdxs = new int[CHUNK_SIZE];
+    private final long[] chunkCents = new long[CHUNK_SIZE];
+    private int chunkSize;
+
+    private long lineNo;
+    private long recordCt;
+    private long rejectedCt;
+    private final List<String> errors = new ArrayList<>();
+
+    private ExtraPmtIngestor(Map<Long, ? extends FixedAmortizationCalculator> calculators) {
+        loans = new LoanTable(calculators);
+        pending = new ExtraPmtRules[loans.size()];
+    }
+
+    static ExtraPmtIngestion ingest(ReadableByteChannel channel,
+            Map<Long, ? extends FixedAmortizationCalculator> calculators, ExecutorService executor) throws IOException {
+        Preconditions.checkNotNull(channel, "channel must not be null.");
+        Preconditions.checkNotNull(calculators, "calculators must not be null.");
+        Preconditions.checkNotNull(executor, "executor must not be null.");
+
+        ExtraPmtIngestor ingestor = new ExtraPmtIngestor(calculators);
+        ingestor.read(channel);
+        ingestor.flush();
+        return new ExtraPmtIngestion(ingestor.amortize(executor), ingestor.recordCt, ingestor.rejectedCt,
+                ingestor.errors);
+    }
+
+    /*
+     * Reads the channel to its end and parses each line. A line that is split between two reads is moved to the start
+     * of the buffer and finished by the next read.
+     */
+    private void read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        boolean eof = false;
+        while (!eof) {
+            eof = channel.read(buffer) < 0;
+            int limit = buffer.position();
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+                if (bytes[i] == '\n') {
+                    parseLine(bytes, lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            if (eof && lineStart < limit) {
+                parseLine(bytes, lineStart, limit);
+                lineStart = limit;
+            }
+            if (lineStart == 0 && limit == bytes.length) {
+                throw new IOException("line " + (lineNo + 1) + " is longer than " + BUFFER_SIZE + " bytes.");
+            }
+
+            buffer.flip();
+            buffer.position(lineStart);
+            buffer.compact();
+        }
+    }
+
+    /*
+     * Parses the line from index from, inclusive, to index to, exclusive, which does not include the line feed.
+     */
+    private void parseLine(byte[] bytes, int from, int to) {
+        lineNo++;
+        if (to > from && bytes[to - 1] == '\r') {
+            to--;
+        }
+        if (to == from || (lineNo == 1 && !isDigit(bytes[from]))) {
+            // A blank line, or the header.
+            return;
+        }
+
+        int pos = from;
+        long loanId = 0;
+        int digits = 0;
+        while (pos < to && isDigit(bytes[pos]) && digits < 18) {
+            loanId = loanId * 10 + (bytes[pos++] - '0');
+            digits++;
+        }
+        if (digits == 0 || pos >= to || bytes[pos++] != ',') {
+            reject(bytes, from, to, "the loan id is not a whole number.");
+            return;
+        }
+
+        int date = parseDate(bytes, pos, to);
+        pos += 10;
+        if (date < 0 || pos >= to || bytes[pos++] != ',') {
+            reject(bytes, from, to, "the date is not yyyy-MM-dd.");
+            return;
+        }
+
+        long cents = parseCents(bytes, pos, to);
+        if (cents <= 0) {
+            reject(bytes, from, to, "the amount is not a number greater than 0 with at most two decimal places.");
+            return;
+        }
+
+        int slot = loans.slotOf(loanId);
+        if (slot < 0) {
+            reject(bytes, from, to, "there is no loan with id " + loanId + ".");
+            return;
+        }
+        int idx = Arrays.binarySearch(keyDatesOf(slot), date);
+        if (idx < 0) {
+            reject(bytes, from, to, "the date is not a payment date of loan " + loanId + ".");
+            return;
+        }
+
+        add(slot, idx, cents);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /*
+     * Parses a date of yyyy-MM-dd at index from, and returns it as yyyyMMdd, or -1 if it is not a date of that form.
+     * Whether the day is in its month does not matter, since a date that is not a payment date is rejected anyway.
+     */
+    private static int parseDate(byte[] bytes, int from, int to) {
+        if (to - from < 10 || bytes[from + 4] != '-' || bytes[from + 7] != '-') {
+            return -1;
+        }
+        int date = 0;
+        for (int i = from; i < from + 10; i++) {
+            if (i == from + 4 || i == from + 7) {
+                continue;
+            }
+            if (!isDigit(bytes[i])) {
+                return -1;
+            }
+            date = date * 10 + (bytes[i] - '0');
+        }
+        int month = date / 100 % 100;
+        int day = date % 100;
+        return month >= 1 && month <= 12 && day >= 1 && day <= 31 ? date : -1;
+    }
+
+    /*
+     * Parses an amount with at most two decimal places from index from to index to, and returns it in cents, or -1 if
+     * it is not an amount of that form.
+     */
+    private static long parseCents(byte[] bytes, int from, int to) {
+        long cents = 0;
+        int pos = from;
+        int digits = 0;
+        while (pos < to && isDigit(bytes[pos]) && digits < 15) {
+            cents = cents * 10 + (bytes[pos++] - '0');
+            digits++;
+        }
+        int decimals = 0;
+        if (pos < to && bytes[pos] == '.') {
+            pos++;
+            while (pos < to && isDigit(bytes[pos]) && decimals < 2) {
+                cents = cents * 10 + (bytes[pos++] - '0');
+                decimals++;
+            }
+        }
+        if (pos != to || digits + decimals == 0) {
+            return -1;
+        }
+        for (; decimals < 2; decimals++) {
+            cents = cents * 10;
+        }
+        return cents;
+    }
+
+    private void reject(byte[] bytes, int from, int to, String reason) {
+        rejectedCt++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("line " + lineNo + ": " + new String(bytes, from, to - from, StandardCharsets.US_ASCII) + ": "
+                    + reason);
+        }
+    }
+
+    /*
+     * Gets the payment dates of a loan as yyyyMMdd. They are in the same order as the keys, so they are sorted.
+     */
+    private int[] keyDatesOf(int slot) {
+        PmtKey pmtKey = loans.calculators[slot].getPmtKey();
+        if (pmtKey == lastKey) {
+            return lastKeyDates;
+        }
+        int[] dates = keyDates.get(pmtKey);
+        if (dates == null) {
+            List<LocalDate> keys = pmtKey.getKeys();
+            dates = new int[keys.size()];
+            for (int i = 0; i < dates.length; i++) {
+                LocalDate key = keys.get(i);
+                dates[i] = key.getYear() * 10000 + key.getMonthOfYear() * 100 + key.getDayOfMonth();
+            }
+            keyDates.put(pmtKey, dates);
+        }
+        lastKey = pmtKey;
+        lastKeyDates = dates;
+        return dates;
+    }
+
+    private void add(int slot, int idx, long cents) {
+        if (chunkSize == CHUNK_SIZE) {
+            flush();
+        }
+        chunkSlots[chunkSize] = slot;
+        chunkIdxs[chunkSize] = idx;
+        chunkCents[chunkSize] = cents;
+        chunkSize++;
+        recordCt++;
+    }
+
+    /*
+     * Sorts the records of the chunk by loan and installment, and adds the records of each loan to its rules. Records
+     * for the same installment are added together.
+     */
+    private void flush() {
+        long[] order = new long[chunkSize];
+        for (int i = 0; i < chunkSize; i++) {
+            Preconditions.checkState(chunkIdxs[i] < 1 << IDX_BITS, "A loan has too many payments to ingest.");
+            order[i] = (long) chunkSlots[i] << (IDX_BITS + POS_BITS) | (long) chunkIdxs[i] << POS_BITS | i;
+        }
+        Arrays.sort(order);
+
+        int[] idxs = new int[chunkSize];
+        double[] amounts = new double[chunkSize];
+        int i = 0;
+        while (i < order.length) {
+            int slot = (int) (order[i] >>> (IDX_BITS + POS_BITS));
+            int size = 0;
+            while (i < order.length && (int) (order[i] >>> (IDX_BITS + POS_BITS)) == slot) {
+                int pos = (int) (order[i] & ((1 << POS_BITS) - 1));
+                long cents = chunkCents[pos];
+                if (size > 0 && idxs[size - 1] == chunkIdxs[pos]) {
+                    amounts[size - 1] = (Math.round(amounts[size - 1] * 100) + cents) / 100.0;
+                } else {
+                    idxs[size] = chunkIdxs[pos];
+                    amounts[size] = cents / 100.0;
+                    size++;
+                }
+                i++;
+            }
+
+            ExtraPmtRules rules = ExtraPmtRules.of(idxs, amounts, 0, size);
+            if (pending[slot] == null) {
+                pending[slot] = rules;
+                affected.add(slot);
+            } else {
+                pending[slot] = pending[slot].add(rules);
+            }
+        }
+        chunkSize = 0;
+    }
+
+    /*
+     * Adds the rules of each loan in the file to its calculator, in batches on the executor. Only a limited number of
+     * batches are in flight at once.
+     */
+    private Map<Long, FixedAmortizationCalculator> amortize(ExecutorService executor) {
+        Map<Long, FixedAmortizationCalculator> result = new LinkedHashMap<>();
+        Deque<Future<FixedAmortizationCalculator[]>> inFlight = new ArrayDeque<>();
+        Deque<int[]> inFlightSlots = new ArrayDeque<>();
+        int maxInFlight = Runtime.getRuntime().availableProcessors() * 2;
+
+        try {
+            for (int from = 0; from < affected.size(); from += BATCH_SIZE) {
+                int[] slots = new int[Math.min(BATCH_SIZE, affected.size() - from)];
+                for (int j = 0; j < slots.length; j++) {
+                    slots[j] = affected.get(from + j);
+                }
+                if (inFlight.size() >= maxInFlight) {
+                    collect(result, inFlightSlots.removeFirst(), TopKSelector.getResult(inFlight.removeFirst()));
+                }
+                inFlight.addLast(executor.submit(new BatchTask(slots)));
+                inFlightSlots.addLast(slots);
+            }
+            while (!inFlight.isEmpty()) {
+                collect(result, inFlightSlots.removeFirst(), TopKSelector.getResult(inFlight.removeFirst()));
+            }
+        } finally {
+            // Only non-empty if a task failed. Don't leave the rest of the batches running.
+            for (Future<FixedAmortizationCalculator[]> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+
+        return result;
+    }
+
+    private void collect(Map<Long, FixedAmortizationCalculator> result, int[] slots,
+            FixedAmortizationCalculator[] calculators) {
+        for (int j = 0; j < slots.length; j++) {
+            result.put(loans.ids[slots[j]], calculators[j]);
+        }
+    }
+
+    /*
+     * Adds the rules of a loan to its calculator. Any other implementation of FixedAmortizationCalculator gets the
+     * extra payments as a map.
+     */
+    private FixedAmortizationCalculator amortize(int slot) {
+        FixedAmortizationCalculator calculator = loans.calculators[slot];
+        ExtraPmtRules rules = pending[slot];
+        if (calculator instanceof DefaultFixedAmortizationCalculator) {
+            return ((DefaultFixedAmortizationCalculator) calculator).addExtraPmtRules(rules);
+        }
+
+        Map<LocalDate, Double> extraPmts = new LinkedHashMap<>();
+        List<LocalDate> keys = calculator.getPmtKey().getKeys();
+        for (int idx = 0; idx < keys.size(); idx++) {
+            double amount = rules.amountAt(idx);
+            if (amount != 0.0) {
+                extraPmts.put(keys.get(idx), amount);
+            }
+        }
+        return calculator.addExtraPayments(extraPmts);
+    }
+
+    private class BatchTask implements Callable<FixedAmortizationCalculator[]> {
+
+        private final int[] slots;
+
+        BatchTask(int[] slots) {
+            this.slots = slots;
+        }
+
+        @Override
+        public FixedAmortizationCalculator[] call() {
+            FixedAmortizationCalculator[] calculators = new FixedAmortizationCalculator[slots.length];
+            for (int j = 0; j < slots.length; j++) {
+                calculators[j] = amortize(slots[j]);
+            }
+            return calculators;
+        }
+    }
+
+    /*
+     * The calculators by loan id, with an open addressing hash table from id to slot, so a loan can be looked up
+     * without boxing its id.
+     */
+    private static final class LoanTable {
+
+        private final long[] ids;
+        private final FixedAmortizationCalculator[] calculators;
+
+        // The slot of each entry of the table plus 1, or 0 if the entry is empty. The length is a power of 2.
+        private final long[] tableIds;
+        private final int[] tableSlots;
+        private final int mask;
+
+        LoanTable(Map<Long, ? extends FixedAmortizationCalculator> byId) {
+            ids = new long[byId.size()];
+            calculators = new FixedAmortizationCalculator[byId.size()];
+
+            int capacity = Integer.highestOneBit(Math.max(2, byId.size() * 2 - 1)) << 1;
+            tableIds = new long[capacity];
+            tableSlots = new int[capacity];
+            mask = capacity - 1;
+
+            int slot = 0;
+            for (Map.Entry<Long, ? extends FixedAmortizationCalculator> entry : byId.entrySet()) {
+                Preconditions.checkNotNull(entry.getKey(), "calculators must not contain a null loan id.");
+                Preconditions.checkNotNull(entry.getValue(), "calculators must not contain null.");
+                long id = entry.getKey();
+                ids[slot] = id;
+                calculators[slot] = entry.getValue();
+
+                int entryIdx = hash(id) & mask;
+                while (tableSlots[entryIdx] != 0) {
+                    entryIdx = (entryIdx + 1) & mask;
+                }
+                tableIds[entryIdx] = id;
+                tableSlots[entryIdx] = ++slot;
+            }
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        /*
+         * Returns the slot of the loan with the id passed in, or -1 if there is none.
+         */
+        int slotOf(long id) {
+            int entryIdx = hash(id) & mask;
+            while (tableSlots[entryIdx] != 0) {
+                if (tableIds[entryIdx] == id) {
+                    return tableSlots[entryIdx] - 1;
+                }
+                entryIdx = (entryIdx + 1) & mask;
+            }
+            return -1;
+        }
+
+        private static int hash(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,720 @@
+package co.da.jmtg.amort;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.pmt.PmtPeriod;
+import co.da.jmtg.pmt.extra.ExtraPmt;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * The extra payments of a mortgage as a list of recurring rules and a sparse list of single payments. A rule adds an
+ * amount to the payment installments <tt>start, start + stride, ..., start + stride * (count - 1)</tt>, where the
+ * installments are indexes into <tt>PmtKey.getKeys()</tt>. A single payment is an installment index and an amount, kept
+ * in primitive arrays sorted by index with at most one entry per installment. It either adds its amount to the rules
+ * that cover the installment or replaces them. The extra payment of an installment is the sum of the amounts of the
+ * rules that cover it, added in the order of the rules, plus or in place of its single payment.
+ *
+ * <p>
+ * An <tt>ExtraPmt</tt> that pays every installment, or every year, becomes a single rule, so a thirty year loan with a
+ * monthly extra payment is described by four numbers instead of a map with 360 dates, and a lump sum is one index and
+ * one amount. The amortization engines evaluate the rules with a {@link Cursor} as they go, and the set, add, and
+ * remove operations combine two objects without looking at each date. Setting or removing the extra payment of an
+ * installment that a rule covers adds a single payment that replaces the rules there, so the result is exact.
+ * </p>
+ *
+ * <p>
+ * This class is immutable.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class ExtraPmtRules {
+
+    /**
+     * The rules of a mortgage without extra payments.
+     */
+    static final ExtraPmtRules NONE = new ExtraPmtRules(new int[0], new int[0], new int[0], new double[0], new int[0],
+            new double[0], new boolean[0]);
+
+    // The recurring rules. Each one covers at least two installments.
+    private final int[] starts;
+    private final int[] strides;
+    private final int[] counts;
+    private final double[] amounts;
+
+    // The single payments, sorted by installment index. pointReplaces[i] is true if the amount of the single payment
+    // replaces the rules that cover its installment instead of adding to them.
+    private final int[] pointIdxs;
+    private final double[] pointAmts;
+    private final boolean[] pointReplaces;
+
+    private final int hashCode;
+
+    private ExtraPmtRules(int[] starts, int[] strides, int[] counts, double[] amounts, int[] pointIdxs,
+            double[] pointAmts, boolean[] pointReplaces) {
+        this.starts = starts;
+        this.strides = strides;
+        this.counts = counts;
+        this.amounts = amounts;
+        this.pointIdxs = pointIdxs;
+        this.pointAmts = pointAmts;
+        this.pointReplaces = pointReplaces;
+        hashCode = Objects.hashCode(Arrays.hashCode(starts), Arrays.hashCode(strides), Arrays.hashCode(counts),
+                Arrays.hashCode(amounts), Arrays.hashCode(pointIdxs), Arrays.hashCode(pointAmts),
+                Arrays.hashCode(pointReplaces));
+    }
+
+    /*
+     * Gets the rules for the extra payment of amount on the payment key passed in.
+     *
+     * @throws IllegalArgumentException if key is not one of the keys of pmtKey.
+     */
+    static ExtraPmtRules of(PmtKey pmtKey, LocalDate key, double amount) {
+        Builder builder = new Builder(false);
+        builder.add(IndexedExtraPmts.indexOf(pmtKey, key), amount);
+        return builder.build();
+    }
+
+    /*
+     * Gets the rules for the extra payments of an ExtraPmt object. The dates of an ExtraPmt are almost always evenly
+     * spaced in the payment keys of the mortgage, so each date is first checked against the key one stride after the
+     * date before it. Only a date that is not there is looked up with a binary search, and it starts a new rule.
+     *
+     * @throws IllegalArgumentException if the PmtPeriod of extraPmts is not valid for the mortgage, or if extraPmts
+     * contains dates that are not valid payment dates for the mortgage.
+     */
+    static ExtraPmtRules of(PmtKey pmtKey, ExtraPmt extraPmts) {
+        Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+
+        Builder builder = new Builder(false);
+        put(pmtKey, extraPmts, builder, null);
+        return builder.build();
+    }
+
+    /*
+     * @throws IllegalArgumentException if any of the ExtraPmt objects have duplicate date keys.
+     */
+    static ExtraPmtRules of(PmtKey pmtKey, Iterable<ExtraPmt> extraPmts) {
+        Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+
+        Builder builder = new Builder(false);
+        boolean[] assigned = new boolean[pmtKey.getCount()];
+        for (ExtraPmt extraPmt : extraPmts) {
+            put(pmtKey, extraPmt, builder, assigned);
+        }
+        return builder.build();
+    }
+
+    /*
+     * Gets the rules for a map of extra payments. The entries are put in order of their installment, so runs of evenly
+     * spaced entries with the same amount still become a single rule.
+     *
+     * @throws IllegalArgumentException if extraPmts contains dates that are not valid payment dates for the mortgage.
+     */
+    static ExtraPmtRules of(PmtKey pmtKey, Map<LocalDate, Double> extraPmts) {
+        Builder builder = new Builder(false);
+        put(pmtKey, extraPmts, builder);
+        return builder.build();
+    }
+
+    private static void put(PmtKey pmtKey, Map<LocalDate, Double> extraPmts, Builder builder) {
+        Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+
+        // Sort the entries by installment. Each element holds the installment in the high half and the position of the
+        // entry in the low half.
+        long[] order = new long[extraPmts.size()];
+        double[] values = new double[order.length];
+        int pos = 0;
+        for (Map.Entry<LocalDate, Double> entry : extraPmts.entrySet()) {
+            Preconditions.checkNotNull(entry.getValue(), "extraPmts must not contain null amounts.");
+            order[pos] = (long) IndexedExtraPmts.indexOf(pmtKey, entry.getKey()) << 32 | pos;
+            values[pos++] = entry.getValue().doubleValue();
+        }
+        Arrays.sort(order);
+
+        for (long element : order) {
+            builder.add((int) (element >>> 32), values[(int) element]);
+        }
+    }
+
+    /*
+     * Gets the rules for the extra payments of the first size installments, by index. Runs of evenly spaced
+     * installments with the same amount become a single rule, and installments without an extra payment are skipped.
+     */
+    static ExtraPmtRules of(double[] extraPmts, int size) {
+        Builder builder = new Builder(false);
+        for (int i = 0; i < size; i++) {
+            builder.add(i, extraPmts[i]);
+        }
+        return builder.build();
+    }
+
+    /*
+     * Gets the rules for the extra payments of the installments idxs[from] to idxs[to - 1], whose amounts are in the
+     * same positions of amounts. The installments must be in ascending order with no duplicates.
+     */
+    static ExtraPmtRules of(int[] idxs, double[] amounts, int from, int to) {
+        Builder builder = new Builder(false);
+        for (int i = from; i < to; i++) {
+            builder.add(idxs[i], amounts[i]);
+        }
+        return builder.build();
+    }
+
+    private static void put(PmtKey pmtKey, ExtraPmt extraPmts, Builder builder, boolean[] assigned) {
+        PmtPeriod mortgagePeriod = pmtKey.getPmtPeriod();
+        PmtPeriod extraPeriod = extraPmts.getPmtKey().getPmtPeriod();
+        Preconditions.checkArgument(IndexedExtraPmts.isValidPmtPeriod(mortgagePeriod, extraPeriod),
+                "Extra Payment Period " + extraPeriod + " is invalid for a mortgage payment period of "
+                        + mortgagePeriod + ".");
+
+        List<LocalDate> mortgageKeys = pmtKey.getKeys();
+        double amount = extraPmts.getAmount();
+        int prevIdx = -1;
+        int stride = 0;
+        for (LocalDate key : extraPmts.getPmtKey().getKeys()) {
+            int guess = prevIdx + stride;
+            int idx = stride > 0 && guess < mortgageKeys.size() && mortgageKeys.get(guess).equals(key) ? guess
+                    : IndexedExtraPmts.indexOf(pmtKey, key);
+            if (assigned != null) {
+                Preconditions.checkArgument(!assigned[idx], "duplicate key: " + key);
+                assigned[idx] = true;
+            }
+
+            builder.add(idx, amount);
+            if (prevIdx >= 0) {
+                stride = idx - prevIdx;
+            }
+            prevIdx = idx;
+        }
+    }
+
+    boolean isEmpty() {
+        return starts.length == 0 && pointIdxs.length == 0;
+    }
+
+    private boolean hasReplaces() {
+        for (boolean replaces : pointReplaces) {
+            if (replaces) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Returns the extra payment of the installment at idx.
+     */
+    double amountAt(int idx) {
+        int point = Arrays.binarySearch(pointIdxs, idx);
+        if (point >= 0 && pointReplaces[point]) {
+            return pointAmts[point];
+        }
+
+        double amount = rulesAmountAt(idx);
+        return point >= 0 ? amount + pointAmts[point] : amount;
+    }
+
+    private double rulesAmountAt(int idx) {
+        double amount = 0.0;
+        for (int i = 0; i < starts.length; i++) {
+            if (covers(i, idx)) {
+                amount += amounts[i];
+            }
+        }
+        return amount;
+    }
+
+    /*
+     * Returns true if a rule or a single payment of this object is for the installment at idx.
+     */
+    private boolean isSet(int idx) {
+        if (Arrays.binarySearch(pointIdxs, idx) >= 0) {
+            return true;
+        }
+        for (int i = 0; i < starts.length; i++) {
+            if (covers(i, idx)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean covers(int rule, int idx) {
+        int offset = idx - starts[rule];
+        return offset >= 0 && offset % strides[rule] == 0 && offset / strides[rule] < counts[rule];
+    }
+
+    private int lastIndex(int rule) {
+        return starts[rule] + strides[rule] * (counts[rule] - 1);
+    }
+
+    /*
+     * Returns the rules of this object with the extra payments of other added to them. Where either object has a
+     * single payment that replaces the rules, the sum is computed here and replaces the rules of both.
+     */
+    ExtraPmtRules add(ExtraPmtRules other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+
+        Builder builder = new Builder(false);
+        builder.addAll(this);
+        builder.addAll(other);
+        for (ExtraPmtRules rules : new ExtraPmtRules[] { this, other }) {
+            for (int i = 0; i < rules.pointIdxs.length; i++) {
+                if (rules.pointReplaces[i]) {
+                    int idx = rules.pointIdxs[i];
+                    builder.addPoint(idx, amountAt(idx) + other.amountAt(idx), true);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /*
+     * Returns the rules of this object with the extra payments of other in place of the ones this object has for the
+     * same installments. Every installment other has an extra payment for and this object does too gets a single
+     * payment that replaces the rules of both with the amount of other, so the result is exactly the amount of other.
+     * If other was built by one of the set methods, a single payment of 0.0 in other clears the installment.
+     */
+    ExtraPmtRules set(ExtraPmtRules other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        // Other has to be built again if it holds payments that clear an installment, so they are left out.
+        if (isEmpty() && !other.hasReplaces()) {
+            return other;
+        }
+
+        int end = other.pointIdxs.length == 0 ? 0 : other.pointIdxs[other.pointIdxs.length - 1] + 1;
+        for (int i = 0; i < other.starts.length; i++) {
+            end = Math.max(end, other.lastIndex(i) + 1);
+        }
+
+        Builder builder = new Builder(false);
+        builder.addAll(this);
+        builder.addAll(other);
+        boolean[] replaced = new boolean[end];
+        for (int i = 0; i < other.starts.length; i++) {
+            for (int j = 0, idx = other.starts[i]; j < other.counts[i]; j++, idx += other.strides[i]) {
+                replace(builder, other, idx, replaced);
+            }
+        }
+        for (int idx : other.pointIdxs) {
+            replace(builder, other, idx, replaced);
+        }
+        return builder.build();
+    }
+
+    /*
+     * Returns the rules of this object with the extra payment of amount in place of the one this object has for the
+     * key passed in. An amount of 0.0 clears the extra payment of the key.
+     *
+     * @throws IllegalArgumentException if key is not one of the keys of pmtKey.
+     */
+    ExtraPmtRules set(PmtKey pmtKey, LocalDate key, double amount) {
+        Builder builder = new Builder(true);
+        builder.add(IndexedExtraPmts.indexOf(pmtKey, key), amount);
+        return set(builder.build());
+    }
+
+    /*
+     * Returns the rules of this object with the extra payments of the map in place of the ones this object has for the
+     * same keys. An amount of 0.0 clears the extra payment of its key.
+     *
+     * @throws IllegalArgumentException if extraPmts contains dates that are not valid payment dates for the mortgage.
+     */
+    ExtraPmtRules set(PmtKey pmtKey, Map<LocalDate, Double> extraPmts) {
+        Builder builder = new Builder(true);
+        put(pmtKey, extraPmts, builder);
+        return set(builder.build());
+    }
+
+    private void replace(Builder builder, ExtraPmtRules other, int idx, boolean[] replaced) {
+        if (!replaced[idx] && isSet(idx)) {
+            replaced[idx] = true;
+            builder.addPoint(idx, other.amountAt(idx), true);
+        }
+    }
+
+    /*
+     * Returns the rules of this object without an extra payment at idx.
+     */
+    ExtraPmtRules remove(int idx) {
+        Builder builder = new Builder(false);
+        builder.addAll(this);
+        builder.addPoint(idx, 0.0, true);
+        return builder.build();
+    }
+
+    /*
+     * Returns the extra payment for every installment below count, by index.
+     */
+    double[] toArray(int count) {
+        double[] extraPmts = new double[count];
+        for (int i = 0; i < starts.length; i++) {
+            for (int j = 0, idx = starts[i]; j < counts[i] && idx < count; j++, idx += strides[i]) {
+                extraPmts[idx] += amounts[i];
+            }
+        }
+        for (int i = 0; i < pointIdxs.length && pointIdxs[i] < count; i++) {
+            extraPmts[pointIdxs[i]] = pointReplaces[i] ? pointAmts[i] : extraPmts[pointIdxs[i]] + pointAmts[i];
+        }
+        return extraPmts;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /*
+     * Returns the number of bytes writeTo writes.
+     */
+    int sizeOf() {
+        return 8 + starts.length * 20 + pointIdxs.length * 13;
+    }
+
+    /*
+     * Writes the rules and the single payments to the buffer, each one preceded by its count, for the binary codec of
+     * the schedules.
+     */
+    void writeTo(ByteBuffer buffer) {
+        buffer.putInt(starts.length);
+        for (int i = 0; i < starts.length; i++) {
+            buffer.putInt(starts[i]);
+            buffer.putInt(strides[i]);
+            buffer.putInt(counts[i]);
+            buffer.putDouble(amounts[i]);
+        }
+        buffer.putInt(pointIdxs.length);
+        for (int i = 0; i < pointIdxs.length; i++) {
+            buffer.putInt(pointIdxs[i]);
+            buffer.putDouble(pointAmts[i]);
+            buffer.put(pointReplaces[i] ? (byte) 1 : (byte) 0);
+        }
+    }
+
+    /*
+     * Reads the rules writeTo wrote, for a mortgage of count installments. The arrays are used as they are read, so
+     * the rules are not built again. If validate is true, every rule and single payment is checked against the
+     * invariants the builder keeps.
+     *
+     * @throws IllegalArgumentException if validate is true and the rules are not valid.
+     */
+    static ExtraPmtRules readFrom(ByteBuffer buffer, int count, boolean validate) {
+        int ruleCt = buffer.getInt();
+        if (validate) {
+            Preconditions.checkArgument(ruleCt >= 0 && ruleCt <= buffer.remaining() / 20, "Bad count of rules %s.",
+                    ruleCt);
+        }
+        int[] starts = new int[ruleCt];
+        int[] strides = new int[ruleCt];
+        int[] counts = new int[ruleCt];
+        double[] amounts = new double[ruleCt];
+        for (int i = 0; i < ruleCt; i++) {
+            starts[i] = buffer.getInt();
+            strides[i] = buffer.getInt();
+            counts[i] = buffer.getInt();
+            amounts[i] = buffer.getDouble();
+            if (validate) {
+                Preconditions.checkArgument(starts[i] >= 0 && strides[i] > 0 && counts[i] > 0
+                        && starts[i] + (long) strides[i] * (counts[i] - 1) < count, "Rule %s is out of range.", i);
+                Preconditions.checkArgument(!Double.isNaN(amounts[i]) && !Double.isInfinite(amounts[i]),
+                        "The amount of rule %s must be finite.", i);
+            }
+        }
+
+        int pointCt = buffer.getInt();
+        if (validate) {
+            Preconditions.checkArgument(pointCt >= 0 && pointCt <= buffer.remaining() / 13,
+                    "Bad count of single payments %s.", pointCt);
+        }
+        int[] pointIdxs = new int[pointCt];
+        double[] pointAmts = new double[pointCt];
+        boolean[] pointReplaces = new boolean[pointCt];
+        for (int i = 0; i < pointCt; i++) {
+            pointIdxs[i] = buffer.getInt();
+            pointAmts[i] = buffer.getDouble();
+            byte replaces = buffer.get();
+            pointReplaces[i] = replaces != 0;
+            if (validate) {
+                Preconditions.checkArgument(pointIdxs[i] >= (i == 0 ? 0 : pointIdxs[i - 1] + 1) && pointIdxs[i] < count,
+                        "Single payment %s is out of range or order.", i);
+                Preconditions.checkArgument(!Double.isNaN(pointAmts[i]) && !Double.isInfinite(pointAmts[i]),
+                        "The amount of single payment %s must be finite.", i);
+                Preconditions.checkArgument(replaces == 0 || replaces == 1, "Bad flag of single payment %s.", i);
+            }
+        }
+
+        return ruleCt == 0 && pointCt == 0 ? NONE : new ExtraPmtRules(starts, strides, counts, amounts, pointIdxs,
+                pointAmts, pointReplaces);
+    }
+
+    /*
+     * Walks the installments in order and returns the extra payment of each one. It keeps the next installment of
+     * every rule and the next single payment, so each call only compares the rules and does not allocate anything.
+     */
+    final class Cursor {
+
+        private final int[] next = starts.clone();
+        private final int[] left = counts.clone();
+        private int nextPoint;
+
+        private Cursor() {
+        }
+
+        /*
+         * Returns the extra payment of the installment at idx. idx must not be less than the one passed in the call
+         * before.
+         */
+        double amountAt(int idx) {
+            double amount = 0.0;
+            for (int i = 0; i < next.length; i++) {
+                while (left[i] > 0 && next[i] < idx) {
+                    next[i] += strides[i];
+                    left[i]--;
+                }
+                if (left[i] > 0 && next[i] == idx) {
+                    amount += amounts[i];
+                    next[i] += strides[i];
+                    left[i]--;
+                }
+            }
+
+            while (nextPoint < pointIdxs.length && pointIdxs[nextPoint] < idx) {
+                nextPoint++;
+            }
+            if (nextPoint < pointIdxs.length && pointIdxs[nextPoint] == idx) {
+                amount = pointReplaces[nextPoint] ? pointAmts[nextPoint] : amount + pointAmts[nextPoint];
+            }
+            return amount;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("starts", Arrays.toString(starts))
+                .add("strides", Arrays.toString(strides))
+                .add("counts", Arrays.toString(counts))
+                .add("amounts", Arrays.toString(amounts))
+                .add("pointIdxs", Arrays.toString(pointIdxs))
+                .add("pointAmts", Arrays.toString(pointAmts))
+                .add("pointReplaces", Arrays.toString(pointReplaces))
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (!(object instanceof ExtraPmtRules)) {
+            return false;
+        }
+
+        ExtraPmtRules that = (ExtraPmtRules) object;
+        return this.hashCode == that.hashCode
+                && Arrays.equals(this.starts, that.starts)
+                && Arrays.equals(this.strides, that.strides)
+                && Arrays.equals(this.counts, that.counts)
+                && Arrays.equals(this.amounts, that.amounts)
+                && Arrays.equals(this.pointIdxs, that.pointIdxs)
+                && Arrays.equals(this.pointAmts, that.pointAmts)
+                && Arrays.equals(this.pointReplaces, that.pointReplaces);
+    }
+
+    /*
+     * Collects rules and single payments. Installments added one at a time with the same amount are joined into one
+     * rule as long as they are evenly spaced, and one that is not joined to any other becomes a single payment. An
+     * amount of 0.0 adds nothing, so it is left out, unless the builder keeps clears. Then it becomes a single payment
+     * of 0.0 that replaces the rules, so set can clear the installment with it.
+     */
+    private static final class Builder {
+
+        private final boolean keepClears;
+
+        private int[] starts = new int[4];
+        private int[] strides = new int[4];
+        private int[] counts = new int[4];
+        private double[] amounts = new double[4];
+        private int size;
+
+        // The single payments in the order they were added. They are sorted and merged in build.
+        private int[] pointIdxs = new int[4];
+        private double[] pointAmts = new double[4];
+        private boolean[] pointReplaces = new boolean[4];
+        private int pointSize;
+
+        // The rule that is being joined.
+        private int runStart;
+        private int runStride;
+        private int runCount;
+        private double runAmount;
+
+        Builder(boolean keepClears) {
+            this.keepClears = keepClears;
+        }
+
+        private void add(int idx, double amount) {
+            if (amount == 0.0) {
+                if (keepClears) {
+                    addPoint(idx, 0.0, true);
+                }
+                return;
+            }
+
+            if (runCount > 0 && amount == runAmount) {
+                if (runCount == 1 && idx > runStart) {
+                    runStride = idx - runStart;
+                    runCount++;
+                    return;
+                }
+                if (runCount > 1 && idx == runStart + runStride * runCount) {
+                    runCount++;
+                    return;
+                }
+            }
+
+            flush();
+            runStart = idx;
+            runStride = 1;
+            runCount = 1;
+            runAmount = amount;
+        }
+
+        private void addAll(ExtraPmtRules rules) {
+            flush();
+            for (int i = 0; i < rules.starts.length; i++) {
+                append(rules.starts[i], rules.strides[i], rules.counts[i], rules.amounts[i]);
+            }
+            for (int i = 0; i < rules.pointIdxs.length; i++) {
+                appendPoint(rules.pointIdxs[i], rules.pointAmts[i], rules.pointReplaces[i]);
+            }
+        }
+
+        /*
+         * Adds a single payment. If replaces is true, it replaces everything added for idx before it.
+         */
+        private void addPoint(int idx, double amount, boolean replaces) {
+            flush();
+            appendPoint(idx, amount, replaces);
+        }
+
+        private void flush() {
+            if (runCount == 1) {
+                appendPoint(runStart, runAmount, false);
+            } else if (runCount > 1) {
+                append(runStart, runStride, runCount, runAmount);
+            }
+            runCount = 0;
+        }
+
+        private void append(int start, int stride, int count, double amount) {
+            if (size == starts.length) {
+                int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                strides = Arrays.copyOf(strides, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+            }
+            starts[size] = start;
+            strides[size] = stride;
+            counts[size] = count;
+            amounts[size++] = amount;
+        }
+
+        private void appendPoint(int idx, double amount, boolean replaces) {
+            if (pointSize == pointIdxs.length) {
+                int capacity = pointSize * 2;
+                pointIdxs = Arrays.copyOf(pointIdxs, capacity);
+                pointAmts = Arrays.copyOf(pointAmts, capacity);
+                pointReplaces = Arrays.copyOf(pointReplaces, capacity);
+            }
+            pointIdxs[pointSize] = idx;
+            pointAmts[pointSize] = amount;
+            pointReplaces[pointSize++] = replaces;
+        }
+
+        private ExtraPmtRules build() {
+            flush();
+
+            int[] ruleStarts = Arrays.copyOf(starts, size);
+            int[] ruleStrides = Arrays.copyOf(strides, size);
+            int[] ruleCounts = Arrays.copyOf(counts, size);
+            double[] ruleAmounts = Arrays.copyOf(amounts, size);
+
+            // Sort the single payments by index, keeping the ones for the same index in the order they were added.
+            // Each element holds the index in the high half and the position in the low half.
+            long[] order = new long[pointSize];
+            for (int i = 0; i < pointSize; i++) {
+                order[i] = (long) pointIdxs[i] << 32 | i;
+            }
+            Arrays.sort(order);
+
+            int[] idxs = new int[pointSize];
+            double[] amts = new double[pointSize];
+            boolean[] replaces = new boolean[pointSize];
+            int length = 0;
+            for (int i = 0; i < pointSize;) {
+                int idx = (int) (order[i] >>> 32);
+                double amount = 0.0;
+                boolean replace = false;
+                for (; i < pointSize && (int) (order[i] >>> 32) == idx; i++) {
+                    int pos = (int) order[i];
+                    if (pointReplaces[pos]) {
+                        amount = pointAmts[pos];
+                        replace = true;
+                    } else {
+                        amount += pointAmts[pos];
+                    }
+                }
+
+                // A single payment that replaces the rules only needs to be marked that way if a rule covers it, or if
+                // it clears the installment for set.
+                if (replace && !keepClears && !covers(ruleStarts, ruleStrides, ruleCounts, idx)) {
+                    replace = false;
+                }
+                if (replace || amount != 0.0) {
+                    idxs[length] = idx;
+                    amts[length] = amount;
+                    replaces[length++] = replace;
+                }
+            }
+
+            if (size == 0 && length == 0) {
+                return NONE;
+            }
+            return new ExtraPmtRules(ruleStarts, ruleStrides, ruleCounts, ruleAmounts, Arrays.copyOf(idxs, length),
+                    Arrays.copyOf(amts, length), Arrays.copyOf(replaces, length));
+        }
+
+        private static boolean covers(int[] starts, int[] strides, int[] counts, int idx) {
+            for (int i = 0; i < starts.length; i++) {
+                int offset = idx - starts[i];
+                if (offset >= 0 && offset % strides[i] == 0 && offset / strides[i] < counts[i]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package co.da.jmtg.amort;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+
+/**
+ * A read-only view of the extra principal of each payment in an amortization table, by payment date. The view holds
+ * nothing but the table. A value is read from its <tt>Payment</tt> only when it is asked for, so a calculator does not
+ * keep a second map with an entry for every payment.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class ExtraPrincipalView extends AbstractMap<LocalDate, Double> implements SortedMap<LocalDate, Double> {
+
+    private final SortedMap<LocalDate, Payment> table;
+
+    ExtraPrincipalView(SortedMap<LocalDate, Payment> table) {
+        this.table = table;
+    }
+
+    @Override
+    public Comparator<? super LocalDate> comparator() {
+        return table.comparator();
+    }
+
+    @Override
+    public SortedMap<LocalDate, Double> subMap(LocalDate fromKey, LocalDate toKey) {
+        return new ExtraPrincipalView(table.subMap(fromKey, toKey));
+    }
+
+    @Override
+    public SortedMap<LocalDate, Double> headMap(LocalDate toKey) {
+        return new ExtraPrincipalView(table.headMap(toKey));
+    }
+
+    @Override
+    public SortedMap<LocalDate, Double> tailMap(LocalDate fromKey) {
+        return new ExtraPrincipalView(table.tailMap(fromKey));
+    }
+
+    @Override
+    public LocalDate firstKey() {
+        return table.firstKey();
+    }
+
+    @Override
+    public LocalDate lastKey() {
+        return table.lastKey();
+    }
+
+    @Override
+    public int size() {
+        return table.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return table.containsKey(key);
+    }
+
+    @Override
+    public Double get(Object key) {
+        Payment pmt = table.get(key);
+        return pmt == null ? null : pmt.getExtraPrincipal();
+    }
+
+    @Override
+    public Set<LocalDate> keySet() {
+        return table.keySet();
+    }
+
+    @Override
+    public Set<Map.Entry<LocalDate, Double>> entrySet() {
+        return new AbstractSet<Map.Entry<LocalDate, Double>>() {
+            @Override
+            public int size() {
+                return table.size();
+            }
+
+            @Override
+            public Iterator<Map.Entry<LocalDate, Double>> iterator() {
+                final Iterator<Map.Entry<LocalDate, Payment>> iterator = table.entrySet().iterator();
+                return new Iterator<Map.Entry<LocalDate, Double>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<LocalDate, Double> next() {
+                        Map.Entry<LocalDate, Payment> entry = iterator.next();
+                        return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().getExtraPrincipal());
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+}
@@ -1,10 +1,19 @@
 package co.da.jmtg.amort;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.joda.time.LocalDate;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedMap;
+
 import co.da.jmtg.pmt.PmtCalculator;
 import co.da.jmtg.pmt.extra.ExtraPmt;
 
@@ -54,6 +63,44 @@ public interface FixedAmortizationCalculator extends Comparable<FixedAmortizatio
      */
     FixedAmortizationCalculator setPmtKey(PmtKey pmtKey);
 
+    /**
+     * Gets the engine that computes the payments of the amortization table. The default implementation returns
+     * <tt>AmortizationEngine.STANDARD</tt>.
+     * 
+     * @return <tt>AmortizationEngine</tt> value
+     * 
+     * @since 1.1
+     */
+    default AmortizationEngine getEngine() {
+        return AmortizationEngine.STANDARD;
+    }
+
+    /**
+     * Sets the engine that computes the payments of the amortization table. The extra payments are kept. This method
+     * encourages immutability by returning a new <tt>FixedAmortizationCalculator</tt>. The default implementation only
+     * accepts the engine returned by <tt>getEngine</tt>.
+     * 
+     * @param engine
+     *            the engine to compute the payments with
+     * 
+     * @throws NullPointerException
+     *             if engine is null
+     * 
+     * @throws UnsupportedOperationException
+     *             if the implementation cannot compute the payments with engine
+     * 
+     * @return new FixedAmortizationCalculator instance
+     * 
+     * @since 1.1
+     */
+    default FixedAmortizationCalculator setEngine(AmortizationEngine engine) {
+        Preconditions.checkNotNull(engine, "engine must not be null.");
+        if (engine != getEngine()) {
+            throw new UnsupportedOperationException("This calculator only supports the " + getEngine() + " engine.");
+        }
+        return this;
+    }
+
     /**
      * Returns a new FixedAmortization instance with the extra payment represented by the ExtraPmt object passed in. If
      * any payment installments of the original instance already had an extra payment, this method overwrites that
@@ -276,6 +323,155 @@ public interface FixedAmortizationCalculator extends Comparable<FixedAmortizatio
      */
     boolean areExtraPayments();
 
+    /**
+     * Gets the total cost of the mortgage. The total cost is the loan amount plus the cumulative interest of the last
+     * payment in the amortization table. It is the first value compared by <tt>compareTo</tt>. Implementations should
+     * calculate this value once, when the object is created; the default implementation reads it from the last payment
+     * of <tt>getTable</tt>.
+     * 
+     * @return total cost as <tt>double</tt>
+     * 
+     * @since 1.1
+     */
+    default double getTotalCost() {
+        SortedMap<LocalDate, Payment> table = getTable();
+        BigDecimal totalCost = BigDecimal.valueOf(getPmtCalculator().getLoanAmt());
+        if (!table.isEmpty()) {
+            totalCost = totalCost.add(BigDecimal.valueOf(table.get(table.lastKey()).getCumulativeInterest()));
+        }
+        return totalCost.doubleValue();
+    }
+
+    /**
+     * Sums one of the rounded values of the payments due from a date, inclusive, to a date, exclusive. The range works
+     * like <tt>getTable().subMap(from, to)</tt>, so the dates do not have to be payment dates. Implementations should
+     * answer without iterating over the payments in the range; the default implementation iterates over them.
+     * 
+     * @param stat
+     *            the value to sum: <tt>Payment.TOTAL</tt>, <tt>Payment.PRINCIPAL</tt>,
+     *            <tt>Payment.EXTRA_PRINCIPAL</tt>, or <tt>Payment.INTEREST</tt>
+     * @param from
+     *            the first date of the range, inclusive
+     * @param to
+     *            the last date of the range, exclusive
+     * 
+     * @throws NullPointerException
+     *             if from or to is null
+     * 
+     * @throws IllegalArgumentException
+     *             if stat is not one of the values above or if from is after to
+     * 
+     * @return the sum of the values
+     * 
+     * @since 1.1
+     */
+    default double getSum(int stat, LocalDate from, LocalDate to) {
+        Preconditions.checkArgument(stat == Payment.TOTAL || stat == Payment.PRINCIPAL
+                || stat == Payment.EXTRA_PRINCIPAL || stat == Payment.INTEREST,
+                "stat must be TOTAL, PRINCIPAL, EXTRA_PRINCIPAL, or INTEREST.");
+        Preconditions.checkNotNull(from, "from must not be null.");
+        Preconditions.checkNotNull(to, "to must not be null.");
+        Preconditions.checkArgument(!from.isAfter(to), "from must not be after to.");
+
+        long cents = 0L;
+        for (Payment payment : getTable().subMap(from, to).values()) {
+            cents += Math.round(payment.getPmtStats()[stat] * 100);
+        }
+        return cents / 100.0;
+    }
+
+    /**
+     * Sums one of the rounded values of the payments due in a calendar year, such as the interest reported on a 1098.
+     * 
+     * @param stat
+     *            the value to sum: <tt>Payment.TOTAL</tt>, <tt>Payment.PRINCIPAL</tt>,
+     *            <tt>Payment.EXTRA_PRINCIPAL</tt>, or <tt>Payment.INTEREST</tt>
+     * @param year
+     *            the calendar year
+     * 
+     * @throws IllegalArgumentException
+     *             if stat is not one of the values above
+     * 
+     * @return the sum of the values, or 0.0 if no payments are due in the year
+     * 
+     * @since 1.1
+     */
+    default double getYearlySum(int stat, int year) {
+        return getSum(stat, new LocalDate(year, 1, 1), new LocalDate(year + 1, 1, 1));
+    }
+
+    /**
+     * Sums one of the rounded values of the payments for each calendar year that has payments in the amortization
+     * table.
+     * 
+     * @param stat
+     *            the value to sum: <tt>Payment.TOTAL</tt>, <tt>Payment.PRINCIPAL</tt>,
+     *            <tt>Payment.EXTRA_PRINCIPAL</tt>, or <tt>Payment.INTEREST</tt>
+     * 
+     * @throws IllegalArgumentException
+     *             if stat is not one of the values above
+     * 
+     * @return the sums, sorted by year
+     * 
+     * @since 1.1
+     */
+    default SortedMap<Integer, Double> getYearlySums(int stat) {
+        Preconditions.checkArgument(stat == Payment.TOTAL || stat == Payment.PRINCIPAL
+                || stat == Payment.EXTRA_PRINCIPAL || stat == Payment.INTEREST,
+                "stat must be TOTAL, PRINCIPAL, EXTRA_PRINCIPAL, or INTEREST.");
+        SortedMap<LocalDate, Payment> table = getTable();
+        ImmutableSortedMap.Builder<Integer, Double> builder = ImmutableSortedMap.naturalOrder();
+        if (table.isEmpty()) {
+            return builder.build();
+        }
+        for (int year = table.firstKey().getYear(); year <= table.lastKey().getYear(); year++) {
+            builder.put(year, getYearlySum(stat, year));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets the date of the first payment that brings the rounded balance to or below the balance passed in, such as
+     * the payment that reaches 80% or 78% of the original value of the home for PMI cancellation. Implementations
+     * should find the payment without a linear scan of the amortization table; the default implementation scans it.
+     * 
+     * @param balance
+     *            the balance to reach
+     * 
+     * @return the date of the payment, or null if the balance is never reached
+     * 
+     * @since 1.1
+     */
+    default LocalDate getFirstKeyWithBalanceAtOrBelow(double balance) {
+        for (Map.Entry<LocalDate, Payment> entry : getTable().entrySet()) {
+            if (entry.getValue().getBalance() <= balance) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the date of the first payment that brings the rounded cumulative interest to or above the interest passed
+     * in. Implementations should find the payment without a linear scan of the amortization table; the default
+     * implementation scans it.
+     * 
+     * @param cumulativeInterest
+     *            the cumulative interest to reach
+     * 
+     * @return the date of the payment, or null if the cumulative interest is never reached
+     * 
+     * @since 1.1
+     */
+    default LocalDate getFirstKeyWithCumulativeInterestAtOrAbove(double cumulativeInterest) {
+        for (Map.Entry<LocalDate, Payment> entry : getTable().entrySet()) {
+            if (entry.getValue().getCumulativeInterest() >= cumulativeInterest) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
     /**
      * Gets the amortization table. The amortization table is represented as a {@link SortedMap} with a
      * {@link LocalDate} that represents the date the payment is due as the key and an implementation of {@link Payment}
@@ -285,6 +481,47 @@ public interface FixedAmortizationCalculator extends Comparable<FixedAmortizatio
      */
     SortedMap<LocalDate, Payment> getTable();
 
+    /**
+     * Gets a <tt>Spliterator</tt> over the rows of the amortization table, in order of the payment date. It is
+     * <tt>ORDERED</tt>, <tt>SIZED</tt>, and <tt>SUBSIZED</tt>, and it splits a range of rows exactly in half, so a
+     * parallel stream over it keeps every thread equally busy. The default implementation copies the rows of
+     * <tt>getTable</tt> into a list and returns the list's <tt>Spliterator</tt>.
+     * 
+     * @return <tt>Spliterator</tt> of the rows
+     * 
+     * @since 1.1
+     */
+    default Spliterator<AmortizationRow> spliterator() {
+        SortedMap<LocalDate, Payment> table = getTable();
+        List<AmortizationRow> rows = new ArrayList<AmortizationRow>(table.size());
+        for (Map.Entry<LocalDate, Payment> entry : table.entrySet()) {
+            rows.add(new AmortizationRow(this, rows.size(), entry.getKey(), entry.getValue()));
+        }
+        return rows.spliterator();
+    }
+
+    /**
+     * Gets a sequential <tt>Stream</tt> over the rows of the amortization table, in order of the payment date.
+     * 
+     * @return <tt>Stream</tt> of the rows
+     * 
+     * @since 1.1
+     */
+    default Stream<AmortizationRow> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Gets a parallel <tt>Stream</tt> over the rows of the amortization table.
+     * 
+     * @return parallel <tt>Stream</tt> of the rows
+     * 
+     * @since 1.1
+     */
+    default Stream<AmortizationRow> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
     /**
      * Interface that represents a payment for a period.
      * 
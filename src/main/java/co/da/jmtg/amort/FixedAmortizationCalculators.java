@@ -2,9 +2,27 @@ package co.da.jmtg.amort;
 
 import co.da.jmtg.pmt.PmtCalculator;
 import co.da.jmtg.pmt.extra.ExtraPmt;
+import co.da.jmtg.util.BinaryCodec;
 import org.joda.time.LocalDate;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Ordering;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * <p>
@@ -17,6 +35,15 @@ import java.util.Map;
  * equal. Therefore, to compare two of these objects, it is safe to always use == instead of equals().
  * </p>
  *
+ * <p>
+ * The newDefaultFixedAmortizationCalculator methods return DefaultFixedAmortizationCalculator objects that do not use
+ * instance control. They are meant for batch jobs that build a schedule once and discard it. Nothing holds a reference
+ * to these objects, so they can be garbage collected, and no time is spent looking them up. The objects returned by
+ * their set, add, remove, and clear methods do not use instance control either. These objects must be compared with
+ * equals(). They are equal to the objects with the same values returned by the get methods, and compareTo returns 0
+ * for them.
+ * </p>
+ *
  * @since 1.0
  * @author David Armstrong
  *
@@ -127,4 +154,498 @@ public class FixedAmortizationCalculators {
             PmtKey pmtKey, Map<LocalDate, Double> extraPmts) {
         return DefaultFixedAmortizationCalculator.getInstance(pmtCalculator, pmtKey, extraPmts);
     }
+
+    /**
+     * Creates a DefaultFixedAmortizationCalculator with no extra payments that computes its payments with the engine
+     * passed in, such as {@link AmortizationEngine#FIXED_POINT}. Extra payments can be added with the set and add
+     * methods of the object it returns, which keep the engine.
+     *
+     * @param pmtCalculator
+     *            The mortgage data, including payment amounts, for the mortgage this FixedAmortizationCalculator will
+     *            represent
+     * @param pmtKey
+     *            The mortgage start date, and interval between payments for this mortgage
+     * @param engine
+     *            The engine that computes the payments
+     *
+     * @return DefaultFixedAmortizationCalculator
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator, pmtKey, or engine is null.
+     *
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY, or
+     *             if the engine cannot compute the mortgage.
+     *
+     * @since 1.1
+     */
+    public static FixedAmortizationCalculator getDefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator,
+            PmtKey pmtKey, AmortizationEngine engine) {
+        return DefaultFixedAmortizationCalculator.getInstance(pmtCalculator, pmtKey, engine);
+    }
+
+    /**
+     * Creates a DefaultFixedAmortizationCalculator with no extra payments that does not use instance control.
+     *
+     * @param pmtCalculator
+     *            The mortgage data, including payment amounts, for the mortgage this FixedAmortizationCalculator will
+     *            represent
+     * @param pmtKey
+     *            The mortgage start date, and interval between payments for this mortgage
+     *
+     * @return DefaultFixedAmortizationCalculator
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator or pmtKey is null.
+     *
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY.
+     *
+     * @since 1.1
+     */
+    public static FixedAmortizationCalculator newDefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator,
+            PmtKey pmtKey) {
+        return DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey);
+    }
+
+    /**
+     * Creates a DefaultFixedAmortizationCalculator with no extra payments that computes its payments with the engine
+     * passed in and does not use instance control.
+     *
+     * @param pmtCalculator
+     *            The mortgage data, including payment amounts, for the mortgage this FixedAmortizationCalculator will
+     *            represent
+     * @param pmtKey
+     *            The mortgage start date, and interval between payments for this mortgage
+     * @param engine
+     *            The engine that computes the payments
+     *
+     * @return DefaultFixedAmortizationCalculator
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator, pmtKey, or engine is null.
+     *
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY, or
+     *             if the engine cannot compute the mortgage.
+     *
+     * @since 1.1
+     */
+    public static FixedAmortizationCalculator newDefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator,
+            PmtKey pmtKey, AmortizationEngine engine) {
+        return DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey, engine);
+    }
+
+    /**
+     * Creates a DefaultFixedAmortizationCalculator with extra payments that does not use instance control.
+     *
+     * @param pmtCalculator
+     *            The mortgage data, including payment amounts, for the mortgage this FixedAmortizationCalculator will
+     *            represent
+     * @param pmtKey
+     *            The mortgage start date, and interval between payments for this mortgage
+     * @param extraPmts
+     *            extra payments for this mortgage, represented by an ExtraPmt object
+     *
+     * @return DefaultFixedAmortizationCalculator
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator, pmtKey, or extraPmts is null.
+     *
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY.
+     *
+     * @throws IllegalArgumentException
+     *             if extraPmts contains dates that are not valid payment dates for the mortgage this object represents.
+     *
+     * @since 1.1
+     */
+    public static FixedAmortizationCalculator newDefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator,
+            PmtKey pmtKey, ExtraPmt extraPmts) {
+        return DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey, extraPmts);
+    }
+
+    /**
+     * Creates a DefaultFixedAmortizationCalculator with extra payments that does not use instance control.
+     *
+     * @param pmtCalculator
+     *            The mortgage data, including payment amounts, for the mortgage this FixedAmortizationCalculator will
+     *            represent
+     * @param pmtKey
+     *            The mortgage start date, and interval between payments for this mortgage
+     * @param extraPmts
+     *            extra payments for this mortgage, represented by an Iteration of ExtraPmt objects
+     *
+     * @return DefaultFixedAmortizationCalculator
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator, pmtKey, or extraPmts is null.
+     *
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY.
+     *
+     * @throws IllegalArgumentException
+     *             if extraPmts contains dates that are not valid payment dates for the mortgage this object represents.
+     *
+     * @since 1.1
+     */
+    public static FixedAmortizationCalculator newDefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator,
+            PmtKey pmtKey, Iterable<ExtraPmt> extraPmts) {
+        return DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey, extraPmts);
+    }
+
+    /**
+     * Creates a DefaultFixedAmortizationCalculator with extra payments that does not use instance control.
+     *
+     * @param pmtCalculator
+     *            The mortgage data, including payment amounts, for the mortgage this FixedAmortizationCalculator will
+     *            represent
+     * @param pmtKey
+     *            The mortgage start date, and interval between payments for this mortgage
+     * @param extraPmts
+     *            extra payments for this mortgage, represented by an Map&lt;LocalDate, Double&gt; object
+     * @return DefaultFixedAmortizationCalculator
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator, pmtKey, or extraPmts is null.
+     *
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY.
+     *
+     * @throws IllegalArgumentException
+     *             if extraPmts contains dates that are not valid payment dates for the mortgage this object represents.
+     *
+     * @since 1.1
+     */
+    public static FixedAmortizationCalculator newDefaultFixedAmortizationCalculator(PmtCalculator pmtCalculator,
+            PmtKey pmtKey, Map<LocalDate, Double> extraPmts) {
+        return DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey, extraPmts);
+    }
+
+    /**
+     * Returns an ordering of FixedAmortizationCalculator objects by total cost, cheapest first. It compares the total
+     * cost each object calculated when it was created and breaks ties with the primitive values of the PmtCalculator
+     * and PmtKey, so sorting a large collection never walks an amortization table. Ties that remain after that are
+     * considered equal, so this ordering is not consistent with equals. Call <tt>compound</tt> with
+     * <tt>Ordering.natural()</tt> if a total order is needed.
+     *
+     * @return <tt>Ordering</tt> by total cost
+     *
+     * @since 1.1
+     */
+    public static Ordering<FixedAmortizationCalculator> totalCostOrdering() {
+        return TotalCostOrdering.INSTANCE;
+    }
+
+    /**
+     * Selects the k cheapest schedules from the candidates passed in, ordered by compareTo, cheapest first. The total
+     * cost of each candidate is calculated without building its amortization table, in parallel, on a thread pool with
+     * a thread for each available processor. The candidates are read as a stream, so they can be generated lazily and
+     * do not have to fit in memory at once. Only the tables of the winners are built. Candidates with the same total
+     * cost are ordered by the values of their PmtCalculator, then of their PmtKey. Only if those are equal too are
+     * their calculators built and ordered by compareTo, and candidates whose calculators are equal are preferred in
+     * the order they were read.
+     *
+     * @param candidates
+     *            the schedules to choose from
+     * @param k
+     *            the maximum number of schedules to return
+     *
+     * @return the k cheapest schedules, or all of them if there are fewer than k candidates
+     *
+     * @throws NullPointerException
+     *             if candidates is null or contains null
+     *
+     * @throws IllegalArgumentException
+     *             if k is not greater than 0, or if any candidate has extra payments that are not valid for its
+     *             mortgage
+     *
+     * @since 1.1
+     */
+    public static List<FixedAmortizationCalculator> getCheapest(Iterable<ScheduleCandidate> candidates, int k) {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return TopKSelector.select(candidates, k, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Selects the k cheapest schedules from the candidates passed in, ordered by compareTo, cheapest first. The total
+     * cost of each candidate is calculated on the executor passed in. The executor is not shut down.
+     *
+     * @param candidates
+     *            the schedules to choose from
+     * @param k
+     *            the maximum number of schedules to return
+     * @param executor
+     *            the executor that calculates the total costs
+     *
+     * @return the k cheapest schedules, or all of them if there are fewer than k candidates
+     *
+     * @throws NullPointerException
+     *             if candidates or executor is null, or if candidates contains null
+     *
+     * @throws IllegalArgumentException
+     *             if k is not greater than 0, or if any candidate has extra payments that are not valid for its
+     *             mortgage
+     *
+     * @since 1.1
+     */
+    public static List<FixedAmortizationCalculator> getCheapest(Iterable<ScheduleCandidate> candidates, int k,
+            ExecutorService executor) {
+        return TopKSelector.select(candidates, k, executor);
+    }
+
+    /**
+     * Sums one of the rounded values of the payments for each calendar year across all the mortgages passed in, such as
+     * the interest reported on 1098 forms for a portfolio. The sums are kept in cents, so they are exact no matter how
+     * many mortgages there are.
+     *
+     * @param calculators
+     *            the mortgages to sum
+     * @param stat
+     *            the value to sum: <tt>Payment.TOTAL</tt>, <tt>Payment.PRINCIPAL</tt>,
+     *            <tt>Payment.EXTRA_PRINCIPAL</tt>, or <tt>Payment.INTEREST</tt>
+     *
+     * @return the sums, sorted by year
+     *
+     * @throws NullPointerException
+     *             if calculators is null or contains null
+     *
+     * @throws IllegalArgumentException
+     *             if stat is not one of the values above
+     *
+     * @since 1.1
+     */
+    public static SortedMap<Integer, Double> getYearlySums(Iterable<? extends FixedAmortizationCalculator> calculators,
+            int stat) {
+        Preconditions.checkNotNull(calculators, "calculators must not be null.");
+
+        SortedMap<Integer, Long> cents = new TreeMap<>();
+        for (FixedAmortizationCalculator calculator : calculators) {
+            for (Map.Entry<Integer, Double> entry : calculator.getYearlySums(stat).entrySet()) {
+                Long sum = cents.get(entry.getKey());
+                long amount = Math.round(entry.getValue() * 100);
+                cents.put(entry.getKey(), sum == null ? amount : sum + amount);
+            }
+        }
+
+        ImmutableSortedMap.Builder<Integer, Double> bldr = new ImmutableSortedMap.Builder<>(Ordering.natural());
+        for (Map.Entry<Integer, Long> entry : cents.entrySet()) {
+            bldr.put(entry.getKey(), entry.getValue() / 100.0);
+        }
+
+        return bldr.build();
+    }
+
+    /**
+     * Gets a <tt>Spliterator</tt> over the rows of the amortization tables of all the mortgages passed in, one mortgage
+     * after the other. It is <tt>ORDERED</tt>, <tt>SIZED</tt>, and <tt>SUBSIZED</tt>. It splits between mortgages
+     * where it can and inside a mortgage where it must, so the rows are shared out evenly among the threads of a
+     * parallel stream. Each row holds the mortgage it comes from.
+     *
+     * @param calculators
+     *            the mortgages to stream. The collection is copied, so later changes to it are not seen.
+     *
+     * @return <tt>Spliterator</tt> of the rows
+     *
+     * @throws NullPointerException
+     *             if calculators is null or contains null
+     *
+     * @since 1.1
+     */
+    public static Spliterator<AmortizationRow> spliterator(
+            Collection<? extends FixedAmortizationCalculator> calculators) {
+        Preconditions.checkNotNull(calculators, "calculators must not be null.");
+        return new PortfolioSpliterator(calculators.toArray(new FixedAmortizationCalculator[calculators.size()]));
+    }
+
+    /**
+     * Gets a <tt>Stream</tt> over the rows of the amortization tables of all the mortgages passed in. See
+     * {@link #spliterator(Collection)}.
+     *
+     * @param calculators
+     *            the mortgages to stream
+     * @param parallel
+     *            true for a parallel stream, false for a sequential one
+     *
+     * @return <tt>Stream</tt> of the rows
+     *
+     * @throws NullPointerException
+     *             if calculators is null or contains null
+     *
+     * @since 1.1
+     */
+    public static Stream<AmortizationRow> stream(Collection<? extends FixedAmortizationCalculator> calculators,
+            boolean parallel) {
+        return StreamSupport.stream(spliterator(calculators), parallel);
+    }
+
+    /**
+     * Projects the scheduled cash flows of all the mortgages passed in, summed by period. The rows of the mortgages are
+     * read with a parallel stream of {@link #spliterator(Collection)}. Each thread sums the rounded values of the rows
+     * it reads into arrays of cents of its own, and the arrays are merged when the threads are done, so nothing is
+     * boxed and no map entry is created for a row.
+     *
+     * @param calculators
+     *            the mortgages to project
+     * @param bucket
+     *            the length of the periods to sum the payments into
+     *
+     * @return the cash flows by period
+     *
+     * @throws NullPointerException
+     *             if calculators or bucket is null, or if calculators contains null
+     *
+     * @since 1.1
+     */
+    public static CashFlowProjection project(Collection<? extends FixedAmortizationCalculator> calculators,
+            final ProjectionBucket bucket) {
+        Preconditions.checkNotNull(bucket, "bucket must not be null.");
+        return stream(calculators, true).collect(() -> new CashFlowAccumulator(bucket), CashFlowAccumulator::accept,
+                CashFlowAccumulator::merge).toProjection();
+    }
+
+    /**
+     * Projects the scheduled cash flows of all the candidates passed in, summed by period, without building their
+     * amortization tables. The payments of each candidate are computed with the same arithmetic as the tables, so the
+     * result is the same as the projection of the calculators the candidates represent. The candidates are read as a
+     * stream, so they can be generated lazily and do not have to fit in memory at once. They are projected in parallel,
+     * on a thread pool with a thread for each available processor.
+     *
+     * @param candidates
+     *            the mortgages to project
+     * @param bucket
+     *            the length of the periods to sum the payments into
+     *
+     * @return the cash flows by period
+     *
+     * @throws NullPointerException
+     *             if candidates or bucket is null, or if candidates contains null
+     *
+     * @throws IllegalArgumentException
+     *             if any candidate has extra payments that are not valid for its mortgage
+     *
+     * @since 1.1
+     */
+    public static CashFlowProjection projectCandidates(Iterable<ScheduleCandidate> candidates,
+            ProjectionBucket bucket) {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return CashFlowProjector.project(candidates, bucket, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Projects the scheduled cash flows of all the candidates passed in, summed by period, on the executor passed in.
+     * The executor is not shut down. See {@link #projectCandidates(Iterable, ProjectionBucket)}.
+     *
+     * @param candidates
+     *            the mortgages to project
+     * @param bucket
+     *            the length of the periods to sum the payments into
+     * @param executor
+     *            the executor that projects the candidates
+     *
+     * @return the cash flows by period
+     *
+     * @throws NullPointerException
+     *             if candidates, bucket, or executor is null, or if candidates contains null
+     *
+     * @throws IllegalArgumentException
+     *             if any candidate has extra payments that are not valid for its mortgage
+     *
+     * @since 1.1
+     */
+    public static CashFlowProjection projectCandidates(Iterable<ScheduleCandidate> candidates,
+            ProjectionBucket bucket, ExecutorService executor) {
+        return CashFlowProjector.project(candidates, bucket, executor);
+    }
+
+    /**
+     * Adds the extra payments in a CSV file to the calculators of their loans. Each line of the file is
+     * <tt>loanId,yyyy-MM-dd,amount</tt>, where the loan id is a whole number, the date is a payment date of the loan,
+     * and the amount is greater than 0 with at most two decimal places. A first line that does not start with a digit
+     * is a header. Several records for the same loan and date are added together, and added to the extra payment the
+     * calculator already has, the way addExtraPayments adds them.
+     *
+     * <p>
+     * The file is read through a channel and parsed from its bytes, and the records are grouped by loan a chunk at a
+     * time, so a file of millions of records is read in memory that only grows with the number of loans in it. Records
+     * that are not valid are rejected and counted without stopping the others. The loans with extra payments are
+     * amortized again in parallel, on a thread pool with a thread for each available processor.
+     * </p>
+     *
+     * @param file
+     *            the CSV file to read
+     * @param calculators
+     *            the calculators of the loans, by loan id
+     *
+     * @return the new calculators of the loans in the file, and the records that were rejected
+     *
+     * @throws NullPointerException
+     *             if file or calculators is null, or if calculators contains a null key or value
+     *
+     * @throws IOException
+     *             if the file cannot be read, or if a line is longer than 65536 bytes
+     *
+     * @since 1.1
+     */
+    public static ExtraPmtIngestion ingestExtraPayments(Path file,
+            Map<Long, ? extends FixedAmortizationCalculator> calculators) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            return ingestExtraPayments(file, calculators, executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Adds the extra payments in a CSV file to the calculators of their loans, and amortizes the loans again on the
+     * executor passed in. The executor is not shut down. See {@link #ingestExtraPayments(Path, Map)}.
+     *
+     * @param file
+     *            the CSV file to read
+     * @param calculators
+     *            the calculators of the loans, by loan id
+     * @param executor
+     *            the executor that amortizes the loans again
+     *
+     * @return the new calculators of the loans in the file, and the records that were rejected
+     *
+     * @throws NullPointerException
+     *             if file, calculators, or executor is null, or if calculators contains a null key or value
+     *
+     * @throws IOException
+     *             if the file cannot be read, or if a line is longer than 65536 bytes
+     *
+     * @since 1.1
+     */
+    public static ExtraPmtIngestion ingestExtraPayments(Path file,
+            Map<Long, ? extends FixedAmortizationCalculator> calculators, ExecutorService executor) throws IOException {
+        Preconditions.checkNotNull(file, "file must not be null.");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return ExtraPmtIngestor.ingest(channel, calculators, executor);
+        }
+    }
+
+    /**
+     * Gets the binary codec of the schedules of <tt>FixedAmortizationCalculator</tt>. A record holds the
+     * <tt>PmtCalculator</tt>, the <tt>PmtKey</tt>, the engine, and the extra payments, but not the payments, which the
+     * reader builds again. A schedule without extra payments is 40 bytes, so a buffer of 1 MB holds a frame of more
+     * than 25,000 of them. The objects it reads do not use instance control, so they must be compared with equals().
+     *
+     * @return <tt>BinaryCodec</tt> for <tt>FixedAmortizationCalculator</tt>
+     *
+     * @since 1.1
+     */
+    public static BinaryCodec<FixedAmortizationCalculator> getBinaryCodec() {
+        return ScheduleCodec.INSTANCE;
+    }
 }
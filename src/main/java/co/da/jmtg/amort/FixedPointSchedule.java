@@ -0,0 +1,326 @@
+package co.da.jmtg.amort;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.pmt.PmtCalculator;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ComparisonChain;
+
+/**
+ * Builds the payments of an amortization table with all money arithmetic in <tt>long</tt> cents. This is the
+ * {@link AmortizationEngine#FIXED_POINT} engine.
+ *
+ * <p>
+ * The period interest rate is rounded HALF_EVEN to {@link #RATE_DIGITS} fractional digits and held as a scaled
+ * <tt>long</tt>. The interest of each payment is the balance times the rate, rounded HALF_EVEN to the cent with exact
+ * integer arithmetic. Everything else is whole cents, so the values of every payment add up exactly: the principal
+ * plus the interest is the total, the balance is the balance before the payment less the principal, and the
+ * cumulative interest is the sum of the interest of the payments so far. The loop that computes the payments does not
+ * allocate anything but the <tt>Payment</tt> objects themselves.
+ * </p>
+ *
+ * <p>
+ * The payment is the rounded payment of the <tt>PmtCalculator</tt>, the amount a borrower actually pays. Because it
+ * is rounded, the balance left before the last installment is not exactly one payment. The last installment pays off
+ * whatever is owed, so it can differ from the others by a few cents.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class FixedPointSchedule {
+
+    /**
+     * The number of fractional digits of the period interest rate.
+     */
+    static final int RATE_DIGITS = 13;
+
+    private static final long RATE_SCALE = 10000000000000L; // 10^RATE_DIGITS
+
+    // The balance is split into high and low parts at this value so the products with the rate do not overflow.
+    private static final long SPLIT = 1000000L; // 10^6
+    private static final long HIGH_SCALE = RATE_SCALE / SPLIT; // 10^7
+
+    // The largest period interest rate and balance the arithmetic can handle without overflow. high * rate must fit in
+    // a long, which allows balances of more than 90 billion dollars. Every amount and every balance is checked against
+    // MAX_CENTS, so the sums of two of them fit in a long too.
+    private static final long MAX_RATE = RATE_SCALE / 10;
+    private static final long MAX_CENTS = Long.MAX_VALUE / MAX_RATE * SPLIT;
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private FixedPointSchedule() {
+    }
+
+    /*
+     * Builds the payments for the PmtCalculator and count of payment keys passed in. extraPmts holds the extra payment
+     * for each installment by index. It may be null if there are no extra payments.
+     *
+     * @throws IllegalArgumentException if the period interest rate is 10% or more, or if the loan amount, an extra
+     * payment, the balance, or the cumulative interest is too large for the arithmetic.
+     */
+    static Payment[] buildPayments(PmtCalculator pmtCalculator, int count, double[] extraPmts) {
+        long rate = toScaledRate(pmtCalculator.getPeriodInterestRate());
+        Preconditions.checkArgument(rate >= 0 && rate < MAX_RATE, "The period interest rate must be less than 10%.");
+        // Check the amounts before they are converted, since a double that does not fit in a long would wrap.
+        long loanAmt = toCheckedCents(pmtCalculator.getLoanAmt(), "The loan amount");
+        long pmt = toCheckedCents(pmtCalculator.getPmt(), "The payment");
+
+        long[] extraCents = new long[count];
+        if (extraPmts != null) {
+            for (int i = 0; i < count; i++) {
+                extraCents[i] = extraPmts[i] == 0.0 ? 0L : toCheckedCents(extraPmts[i], "An extra payment");
+            }
+        }
+
+        Payment[] payments = new Payment[count];
+        long principalOwed = loanAmt;
+        long interestPaid = 0L;
+        int size = 0;
+        while (size < count && principalOwed > 0L) {
+            long extraPrincipal = extraCents[size];
+            long interest = multiplyRate(principalOwed, rate);
+            // The last installment pays off the loan.
+            long total = size == count - 1 ? principalOwed + interest : Math.min(pmt + extraPrincipal, principalOwed
+                    + interest);
+            long principal = total - interest;
+            long balance = principalOwed - principal;
+            // Negative extra payments make the balance grow, and the interest adds up over every installment, so
+            // check the values that accumulate, not just the loan amount.
+            Preconditions.checkArgument(balance <= MAX_CENTS,
+                    "The balance grows too large for the FIXED_POINT engine.");
+            Preconditions.checkArgument(interestPaid <= Long.MAX_VALUE - interest,
+                    "The cumulative interest is too large for the FIXED_POINT engine.");
+            interestPaid += interest;
+
+            payments[size++] = new FixedPointPayment(total, principal, extraPrincipal, interest, interestPaid, balance);
+            principalOwed = balance;
+        }
+
+        if (size == count) {
+            return payments;
+        }
+        Payment[] result = new Payment[size];
+        System.arraycopy(payments, 0, result, 0, size);
+        return result;
+    }
+
+    /*
+     * Rounds an amount HALF_EVEN to whole cents.
+     */
+    static long toCents(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+    }
+
+    /*
+     * Rounds an amount HALF_EVEN to whole cents after checking that its absolute value is not more than MAX_CENTS.
+     */
+    private static long toCheckedCents(double amount, String name) {
+        Preconditions.checkArgument(Math.abs(amount) <= MAX_CENTS / 100.0,
+                "%s is too large for the FIXED_POINT engine.", name);
+        return toCents(amount);
+    }
+
+    /*
+     * Rounds a rate HALF_EVEN to RATE_DIGITS fractional digits and scales it to a long.
+     */
+    static long toScaledRate(double rate) {
+        return BigDecimal.valueOf(rate).setScale(RATE_DIGITS, RoundingMode.HALF_EVEN).unscaledValue().longValue();
+    }
+
+    /*
+     * Multiplies an amount in cents by a scaled rate and rounds the product HALF_EVEN to whole cents. The product can
+     * be larger than a long, so the amount is split into cents = high * SPLIT + low and each part is multiplied
+     * separately:
+     *
+     * cents * rate / RATE_SCALE = (high * rate) / HIGH_SCALE + (low * rate) / RATE_SCALE
+     */
+    static long multiplyRate(long cents, long rate) {
+        long high = cents / SPLIT;
+        long low = cents % SPLIT;
+
+        long highProduct = high * rate;
+        long quotient = highProduct / HIGH_SCALE;
+        // What is left of the high part, in units of 1 / RATE_SCALE cents, plus the low part.
+        long rest = (highProduct % HIGH_SCALE) * SPLIT + low * rate;
+        quotient += rest / RATE_SCALE;
+        long remainder = rest % RATE_SCALE;
+
+        // Round HALF_EVEN.
+        long twice = remainder * 2;
+        if (twice > RATE_SCALE || (twice == RATE_SCALE && (quotient & 1L) == 1L)) {
+            quotient++;
+        }
+        return quotient;
+    }
+
+    /*
+     * A payment with every value in whole cents. The fixed-point engine has no unrounded values, so the unrounded
+     * getters return the same values as the rounded ones.
+     */
+    static final class FixedPointPayment implements Payment {
+
+        private final long total;
+        private final long principal;
+        private final long extraPrincipal;
+        private final long interest;
+        private final long cumulativeInterest;
+        private final long balance;
+
+        private volatile int hashCode;
+
+        private FixedPointPayment(long total, long principal, long extraPrincipal, long interest,
+                long cumulativeInterest, long balance) {
+            this.total = total;
+            this.principal = principal;
+            this.extraPrincipal = extraPrincipal;
+            this.interest = interest;
+            this.cumulativeInterest = cumulativeInterest;
+            this.balance = balance;
+        }
+
+        private static double toDollars(long cents) {
+            return cents / 100.0;
+        }
+
+        @Override
+        public double getTotal() {
+            return toDollars(total);
+        }
+
+        @Override
+        public double getPrincipal() {
+            return toDollars(principal);
+        }
+
+        @Override
+        public double getExtraPrincipal() {
+            return toDollars(extraPrincipal);
+        }
+
+        @Override
+        public double getInterest() {
+            return toDollars(interest);
+        }
+
+        @Override
+        public double getBalance() {
+            return toDollars(balance);
+        }
+
+        @Override
+        public double getCumulativeInterest() {
+            return toDollars(cumulativeInterest);
+        }
+
+        @Override
+        public double getTotalUnrounded() {
+            return getTotal();
+        }
+
+        @Override
+        public double getPrincipalUnrounded() {
+            return getPrincipal();
+        }
+
+        @Override
+        public double getInterestUnrounded() {
+            return getInterest();
+        }
+
+        @Override
+        public double getBalanceUnrounded() {
+            return getBalance();
+        }
+
+        @Override
+        public double getCumulativeInterestUnrounded() {
+            return getCumulativeInterest();
+        }
+
+        @Override
+        public double[] getPmtStats() {
+            return new double[] {
+                    getTotal(),
+                    getPrincipal(),
+                    getExtraPrincipal(),
+                    getInterest(),
+                    getCumulativeInterest(),
+                    getBalance()
+            };
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this)
+                    .add("total", getTotal())
+                    .add("principal", getPrincipal())
+                    .add("extraPrincipal", getExtraPrincipal())
+                    .add("interest", getInterest())
+                    .add("cumulativeInterest", getCumulativeInterest())
+                    .add("balance", getBalance())
+                    .toString();
+        }
+
+        @Override
+        public int hashCode() {
+            int result = hashCode;
+
+            if (result == 0) {
+                result = Objects.hashCode(total,
+                        principal,
+                        extraPrincipal,
+                        interest,
+                        cumulativeInterest,
+                        balance);
+                hashCode = result;
+            }
+
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object == this) {
+                return true;
+            }
+
+            if (!(object instanceof FixedPointPayment)) {
+                return false;
+            }
+
+            FixedPointPayment that = (FixedPointPayment) object;
+            return this.total == that.total
+                    && this.principal == that.principal
+                    && this.extraPrincipal == that.extraPrincipal
+                    && this.interest == that.interest
+                    && this.cumulativeInterest == that.cumulativeInterest
+                    && this.balance == that.balance;
+        }
+
+        @Override
+        public int compareTo(Payment o) {
+            if (this == o) {
+                return 0;
+            }
+
+            if (!(o instanceof FixedPointPayment)) {
+                throw new ClassCastException("Object to compare must be of type FixedPointPayment. Object is "
+                        + (o == null ? "null" : o.getClass().getName()));
+            }
+
+            FixedPointPayment that = (FixedPointPayment) o;
+            return ComparisonChain.start()
+                    .compare(total, that.total)
+                    .compare(principal, that.principal)
+                    .compare(extraPrincipal, that.extraPrincipal)
+                    .compare(interest, that.interest)
+                    .compare(cumulativeInterest, that.cumulativeInterest)
+                    .compare(balance, that.balance)
+                    .result();
+        }
+    }
+}
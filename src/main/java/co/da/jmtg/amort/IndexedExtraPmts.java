@@ -0,0 +1,156 @@
+package co.da.jmtg.amort;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.pmt.PmtPeriod;
+import co.da.jmtg.pmt.extra.ExtraPmt;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Converts extra payments to an array of amounts indexed by payment installment. Index i of the array holds the extra
+ * payment for the payment with the key at index i of <tt>PmtKey.getKeys()</tt>. The validation is the same as the
+ * validation <tt>DefaultFixedAmortizationCalculator</tt> does when it is given extra payments.
+ * 
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class IndexedExtraPmts {
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private IndexedExtraPmts() {
+    }
+
+    /*
+     * Gets the index of key in the keys of pmtKey. The keys are in chronological order, so use a binary search instead
+     * of calling contains.
+     * 
+     * @throws IllegalArgumentException if key is not one of the keys of pmtKey.
+     */
+    static int indexOf(PmtKey pmtKey, LocalDate key) {
+        int idx = Collections.binarySearch(pmtKey.getKeys(), key);
+        // If any key in extraPmts is not valid for this mortgage, throw an IllegalArgumentException.
+        Preconditions.checkArgument(idx >= 0, "extraPmts contained the following payment date: " + key
+                + ". It is not valid for this mortgage.");
+        return idx;
+    }
+
+    static double[] toArray(PmtKey pmtKey, Map<LocalDate, Double> extraPmts) {
+        Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+
+        double[] amounts = new double[pmtKey.getKeys().size()];
+        for (Map.Entry<LocalDate, Double> entry : extraPmts.entrySet()) {
+            Preconditions.checkNotNull(entry.getValue(), "extraPmts must not contain null amounts.");
+            amounts[indexOf(pmtKey, entry.getKey())] = entry.getValue().doubleValue();
+        }
+
+        return amounts;
+    }
+
+    static double[] toArray(PmtKey pmtKey, ExtraPmt extraPmts) {
+        Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+
+        double[] amounts = new double[pmtKey.getKeys().size()];
+        put(pmtKey, extraPmts, amounts, null);
+        return amounts;
+    }
+
+    /*
+     * @throws IllegalArgumentException if any of the ExtraPmt objects have duplicate date keys.
+     */
+    static double[] toArray(PmtKey pmtKey, Iterable<ExtraPmt> extraPmts) {
+        Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+
+        int size = pmtKey.getKeys().size();
+        double[] amounts = new double[size];
+        boolean[] assigned = new boolean[size];
+        for (ExtraPmt extraPmt : extraPmts) {
+            put(pmtKey, extraPmt, amounts, assigned);
+        }
+
+        return amounts;
+    }
+
+    private static void put(PmtKey pmtKey, ExtraPmt extraPmts, double[] amounts, boolean[] assigned) {
+        PmtPeriod mortgagePeriod = pmtKey.getPmtPeriod();
+        PmtPeriod extraPeriod = extraPmts.getPmtKey().getPmtPeriod();
+        Preconditions.checkArgument(isValidPmtPeriod(mortgagePeriod, extraPeriod), "Extra Payment Period "
+                + extraPeriod + " is invalid for a mortgage payment period of " + mortgagePeriod + ".");
+
+        List<LocalDate> keys = extraPmts.getPmtKey().getKeys();
+        for (LocalDate key : keys) {
+            int idx = indexOf(pmtKey, key);
+            if (assigned != null) {
+                Preconditions.checkArgument(!assigned[idx], "duplicate key: " + key);
+                assigned[idx] = true;
+            }
+            amounts[idx] = extraPmts.getAmount();
+        }
+    }
+
+    /*
+     * The PmtPeriod for the ExtraPmt must be equal to the payment period for the mortgage, or YEARLY if the mortage
+     * payment is monthly, YEARLY_FOR_WEEKLY if the mortgage payment is WEEKLY or RAPID_WEEKLY, YEARLY_FOR_BIWEEKLY if
+     * the mortgage payment is BIWEEKLY or RAPID_BIWEEKLY, or ONETIME. Anything else is invalid.
+     */
+    static boolean isValidPmtPeriod(PmtPeriod mortgagePeriod, PmtPeriod extraPeriod) {
+        boolean validPeriod;
+        switch (mortgagePeriod) {
+        case MONTHLY:
+            switch (extraPeriod) {
+            case MONTHLY:
+            case YEARLY:
+            case ONETIME:
+                validPeriod = true;
+                break;
+
+            default:
+                validPeriod = false;
+                break;
+            }
+            break;
+
+        case BIWEEKLY:
+        case RAPID_BIWEEKLY:
+            switch (extraPeriod) {
+            case BIWEEKLY:
+            case RAPID_BIWEEKLY:
+            case YEARLY_FOR_BIWEEKLY:
+            case ONETIME:
+                validPeriod = true;
+                break;
+
+            default:
+                validPeriod = false;
+                break;
+            }
+            break;
+
+        case WEEKLY:
+        case RAPID_WEEKLY:
+            switch (extraPeriod) {
+            case WEEKLY:
+            case RAPID_WEEKLY:
+            case YEARLY_FOR_WEEKLY:
+            case ONETIME:
+                validPeriod = true;
+                break;
+
+            default:
+                validPeriod = false;
+                break;
+            }
+            break;
+
+        default:
+            validPeriod = false;
+            break;
+        }
+
+        return validPeriod;
+    }
+}
@@ -0,0 +1,244 @@
+package co.da.jmtg.amort;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import co.da.jmtg.amort.DefaultFixedAmortizationCalculator.DefaultPayment;
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.pmt.PmtCalculator;
+
+/**
+ * Builds the payments of an amortization table with a parallel prefix scan. This is the
+ * {@link AmortizationEngine#PARALLEL_SCAN} engine.
+ *
+ * <p>
+ * Before the loan is paid off, payment i maps the balance owed before it to the balance owed after it with the affine
+ * map <tt>f(x) = a * x - c[i]</tt>, where <tt>a = 1 + r</tt> and <tt>c[i] = pmt + extra[i]</tt>. The composition of two
+ * affine maps is an affine map, and composition is associative, so the balances are computed in two passes over a
+ * tree of ranges. The first pass composes the maps of each range, bottom up. The second pass hands each range the
+ * balance owed at its start, top down, and the leaves compute their balances sequentially. The cumulative interest is
+ * derived from the balances: the interest paid before payment i is the payments made before it less the principal
+ * paid off, <tt>i * pmt + extraBefore - (loanAmt - balance)</tt>, so it rides along the same passes.
+ * </p>
+ *
+ * <p>
+ * The maps are only affine until the payoff payment, so the table is cut at the first balance that rounds to 0.0. The
+ * payoff payment itself is built by <tt>DefaultPayment</tt>, which caps it at the balance plus interest.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class ParallelScan {
+
+    // The largest range a leaf computes sequentially. Schedules this size or smaller are not split at all.
+    static final int LEAF_SIZE = 512;
+
+    // The pool the scans run on. Its threads are daemon threads, so it does not keep the JVM alive.
+    private static final ForkJoinPool pool = new ForkJoinPool();
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private ParallelScan() {
+    }
+
+    /*
+     * Builds the payments for the PmtCalculator and count of payment keys passed in. extraPmts holds the extra payment
+     * for each installment by index and must have count elements.
+     */
+    static Payment[] buildPayments(PmtCalculator pmtCalculator, int count, double[] extraPmts) {
+        double periodInterestRate = pmtCalculator.getPeriodInterestRate();
+        double pmt = pmtCalculator.getPmtUnrounded(); // MUST get the unrounded payment amount for accuracy.
+        double loanAmt = pmtCalculator.getLoanAmt();
+
+        // owed[i] is the balance owed before payment i, and interestPaid[i] is the cumulative interest before it.
+        double[] owed = new double[count + 1];
+        double[] interestPaid = new double[count + 1];
+        Scan scan = new Scan(1 + periodInterestRate, pmt, loanAmt, extraPmts, owed, interestPaid);
+        if (count > 0) {
+            Node root = pool.invoke(scan.new UpSweep(0, count));
+            pool.invoke(scan.new DownSweep(root, loanAmt, 0.0));
+        }
+
+        // Fix up the payoff boundary. The table ends at the first balance that rounds to 0.0. The balances after the
+        // payoff payment are not valid, but they are never used.
+        int size = 0;
+        while (size < count && AmortizationKernel.isOwed(owed[size])) {
+            size++;
+        }
+
+        Payment[] payments = new Payment[size];
+        if (size > 0) {
+            pool.invoke(new Build(periodInterestRate, pmt, owed, interestPaid, extraPmts, payments, 0, size));
+        }
+        return payments;
+    }
+
+    /*
+     * A range of payments in the tree. a and b are the affine map x -> a * x + b of all the payments in the range, and
+     * extraSum is the sum of their extra payments.
+     */
+    private static final class Node {
+        private final int from;
+        private final int to;
+        private final double a;
+        private final double b;
+        private final double extraSum;
+        private final Node left;
+        private final Node right;
+
+        private Node(int from, int to, double a, double b, double extraSum, Node left, Node right) {
+            this.from = from;
+            this.to = to;
+            this.a = a;
+            this.b = b;
+            this.extraSum = extraSum;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    /*
+     * The values shared by the passes of one scan.
+     */
+    private static final class Scan {
+        private final double a;
+        private final double pmt;
+        private final double loanAmt;
+        private final double[] extraPmts;
+        private final double[] owed;
+        private final double[] interestPaid;
+
+        private Scan(double a, double pmt, double loanAmt, double[] extraPmts, double[] owed, double[] interestPaid) {
+            this.a = a;
+            this.pmt = pmt;
+            this.loanAmt = loanAmt;
+            this.extraPmts = extraPmts;
+            this.owed = owed;
+            this.interestPaid = interestPaid;
+        }
+
+        /*
+         * Composes the maps of the payments in a range, bottom up.
+         */
+        private final class UpSweep extends RecursiveTask<Node> {
+            private static final long serialVersionUID = 1L;
+
+            private final int from;
+            private final int to;
+
+            private UpSweep(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected Node compute() {
+                if (to - from <= LEAF_SIZE) {
+                    double rangeA = 1.0;
+                    double rangeB = 0.0;
+                    double extraSum = 0.0;
+                    for (int i = from; i < to; i++) {
+                        // Apply payment i after the payments before it: a * (rangeA * x + rangeB) - c[i].
+                        rangeA = a * rangeA;
+                        rangeB = a * rangeB - (pmt + extraPmts[i]);
+                        extraSum += extraPmts[i];
+                    }
+                    return new Node(from, to, rangeA, rangeB, extraSum, null, null);
+                }
+
+                int mid = (from + to) >>> 1;
+                UpSweep leftTask = new UpSweep(from, mid);
+                leftTask.fork();
+                Node right = new UpSweep(mid, to).compute();
+                Node left = leftTask.join();
+                // Apply the right range after the left one.
+                return new Node(from, to, right.a * left.a, right.a * left.b + right.b, left.extraSum
+                        + right.extraSum, left, right);
+            }
+        }
+
+        /*
+         * Hands each range the balance owed and the extra payments made before it, top down.
+         */
+        private final class DownSweep extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final Node node;
+            private final double owedBefore;
+            private final double extraBefore;
+
+            private DownSweep(Node node, double owedBefore, double extraBefore) {
+                this.node = node;
+                this.owedBefore = owedBefore;
+                this.extraBefore = extraBefore;
+            }
+
+            @Override
+            protected void compute() {
+                if (node.left == null) {
+                    double balance = owedBefore;
+                    double extraPaid = extraBefore;
+                    for (int i = node.from; i < node.to; i++) {
+                        owed[i] = balance;
+                        interestPaid[i] = i * pmt + extraPaid - (loanAmt - balance);
+                        balance = a * balance - (pmt + extraPmts[i]);
+                        extraPaid += extraPmts[i];
+                    }
+                    if (node.to == owed.length - 1) {
+                        owed[node.to] = balance;
+                        interestPaid[node.to] = node.to * pmt + extraPaid - (loanAmt - balance);
+                    }
+                    return;
+                }
+
+                Node left = node.left;
+                invokeAll(new DownSweep(left, owedBefore, extraBefore), new DownSweep(node.right, left.a * owedBefore
+                        + left.b, extraBefore + left.extraSum));
+            }
+        }
+    }
+
+    /*
+     * Builds the Payment objects of a range in parallel. Rounding the values of each payment is the expensive part of
+     * building a table.
+     */
+    private static final class Build extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double periodInterestRate;
+        private final double pmt;
+        private final double[] owed;
+        private final double[] interestPaid;
+        private final double[] extraPmts;
+        private final Payment[] payments;
+        private final int from;
+        private final int to;
+
+        private Build(double periodInterestRate, double pmt, double[] owed, double[] interestPaid, double[] extraPmts,
+                Payment[] payments, int from, int to) {
+            this.periodInterestRate = periodInterestRate;
+            this.pmt = pmt;
+            this.owed = owed;
+            this.interestPaid = interestPaid;
+            this.extraPmts = extraPmts;
+            this.payments = payments;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    payments[i] = new DefaultPayment(periodInterestRate, pmt, owed[i], interestPaid[i], extraPmts[i]);
+                }
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new Build(periodInterestRate, pmt, owed, interestPaid, extraPmts, payments, from, mid),
+                    new Build(periodInterestRate, pmt, owed, interestPaid, extraPmts, payments, mid, to));
+        }
+    }
+}
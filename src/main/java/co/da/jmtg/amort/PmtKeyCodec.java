@@ -0,0 +1,62 @@
+package co.da.jmtg.amort;
+
+import java.nio.ByteBuffer;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.pmt.PmtPeriod;
+import co.da.jmtg.util.AbstractBinaryCodec;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The binary codec of <tt>PmtKey</tt>. A key is fully determined by its first key, payment period, and count, so a
+ * record is 9 bytes: the ordinal of the <tt>PmtPeriod</tt>, the first key as the int yyyyMMdd, and the count. Any
+ * implementation of <tt>PmtKey</tt> can be written, and the objects it reads are DefaultPmtKey objects that are not
+ * interned. This object is stateless, so its thread safety is guaranteed.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class PmtKeyCodec extends AbstractBinaryCodec<PmtKey> {
+
+    static final PmtKeyCodec INSTANCE = new PmtKeyCodec();
+
+    static final int SIZE = 9;
+
+    private static final PmtPeriod[] PERIODS = PmtPeriod.values();
+
+    private PmtKeyCodec() {
+        super((byte) 2);
+    }
+
+    @Override
+    public int sizeOf(PmtKey value) {
+        Preconditions.checkNotNull(value, "value must not be null.");
+        return SIZE;
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, PmtKey value) {
+        LocalDate firstKey = value.getFirstKey();
+        buffer.put((byte) value.getPmtPeriod().ordinal());
+        buffer.putInt(firstKey.getYear() * 10000 + firstKey.getMonthOfYear() * 100 + firstKey.getDayOfMonth());
+        buffer.putInt(value.getCount());
+    }
+
+    @Override
+    public PmtKey read(ByteBuffer buffer, boolean validate) {
+        int period = buffer.get();
+        int date = buffer.getInt();
+        int count = buffer.getInt();
+
+        if (validate) {
+            // The LocalDate constructor checks the fields of the date.
+            Preconditions.checkArgument(period >= 0 && period < PERIODS.length, "Unknown PmtPeriod %s.", period);
+            Preconditions.checkArgument(count > 0, "count must be greater than 0.");
+        }
+
+        return DefaultPmtKey.newInstance(PERIODS[period], new LocalDate(date / 10000, date / 100 % 100, date % 100),
+                count);
+    }
+}
@@ -3,6 +3,7 @@ package co.da.jmtg.amort;
 import org.joda.time.LocalDate;
 
 import co.da.jmtg.pmt.PmtPeriod;
+import co.da.jmtg.util.BinaryCodec;
 
 import com.google.common.base.Preconditions;
 
@@ -17,6 +18,11 @@ import com.google.common.base.Preconditions;
  * to always use == instead of equals().
  * </p>
  * 
+ * <p>
+ * The newDefaultPmtKey methods return DefaultPmtKey objects that do not use instance control. They are meant for batch
+ * jobs that create an object, use it once, and discard it. These objects must be compared with equals().
+ * </p>
+ * 
  * @since 1.0
  * 
  * @author David Armstrong
@@ -111,6 +117,57 @@ public class PmtKeys {
         return DefaultPmtKey.getInstance(pmtPeriod, new LocalDate(), calcCountFromYears(pmtPeriod, years));
     }
 
+    /**
+     * Create a DefaultPmtKey object that does not use instance control.
+     * 
+     * @param pmtPeriod
+     *            The payment period for the PmtKey
+     * @param firstPmtDt
+     *            The first payment date
+     * @param count
+     *            The count of payments
+     * @return DefaultPmtKey
+     * 
+     * @since 1.1
+     */
+    public static PmtKey newDefaultPmtKey(PmtPeriod pmtPeriod, LocalDate firstPmtDt, int count) {
+        return DefaultPmtKey.newInstance(pmtPeriod, firstPmtDt, count);
+    }
+
+    /**
+     * Create a DefaultPmtKey object that does not use instance control. Since no count is passed in, it defaults to
+     * one.
+     * 
+     * @param pmtPeriod
+     *            The payment period for the PmtKey
+     * @param firstPmtDt
+     *            The first payment date
+     * @return DefaultPmtKey
+     * 
+     * @since 1.1
+     */
+    public static PmtKey newDefaultPmtKey(PmtPeriod pmtPeriod, LocalDate firstPmtDt) {
+        return DefaultPmtKey.newInstance(pmtPeriod, firstPmtDt, 1);
+    }
+
+    /**
+     * Create a DefaultPmtKey object that does not use instance control. It calculates the count of payments on the
+     * years, which are passed in, and the value of PmtPeriod.
+     * 
+     * @param pmtPeriod
+     *            The payment period for the PmtKey
+     * @param firstPmtDt
+     *            The first payment date
+     * @param years
+     *            The number of years for the mortgage
+     * @return DefaultPmtKey
+     * 
+     * @since 1.1
+     */
+    public static PmtKey newDefaultPmtKeyForYears(PmtPeriod pmtPeriod, LocalDate firstPmtDt, int years) {
+        return DefaultPmtKey.newInstance(pmtPeriod, firstPmtDt, calcCountFromYears(pmtPeriod, years));
+    }
+
     /**
      * Calculate the first payment date from the mortgage start date.The first payment date is determined based on the
      * value of the PmtPeriod object.
@@ -156,4 +213,17 @@ public class PmtKeys {
         }
         return count;
     }
+
+    /**
+     * Gets the binary codec of <tt>PmtKey</tt>. It writes any implementation of <tt>PmtKey</tt> in a record of 9
+     * bytes, and the objects it reads are DefaultPmtKey objects that do not use instance control, like the ones the
+     * newDefaultPmtKey methods return.
+     * 
+     * @return <tt>BinaryCodec</tt> for <tt>PmtKey</tt>
+     * 
+     * @since 1.1
+     */
+    public static BinaryCodec<PmtKey> getBinaryCodec() {
+        return PmtKeyCodec.INSTANCE;
+    }
 }
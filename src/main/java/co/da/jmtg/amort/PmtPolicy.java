@@ -0,0 +1,140 @@
+package co.da.jmtg.amort;
+
+import java.util.Arrays;
+
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * The scheduled payment of every installment of a loan, as steps of level payments. Step i starts at installment
+ * <tt>stepStarts[i]</tt> and schedules the unrounded payment <tt>stepPmts[i]</tt> until the next step starts. A level
+ * payment loan has one step, an interest-only loan has a step of interest before its level payments, and a graduated
+ * payment loan has a step for each increase. A balloon loan ends with a step whose payment is infinite, so its last
+ * installment pays off the balance and interest owed, whatever they are. The amortization kernel reads the payment
+ * of a step once when it reaches the step, so every kind of payment runs through the same loop. This object is
+ * immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class PmtPolicy {
+
+    final int[] stepStarts;
+    final double[] stepPmts;
+
+    private PmtPolicy(int[] stepStarts, double[] stepPmts) {
+        this.stepStarts = stepStarts;
+        this.stepPmts = stepPmts;
+    }
+
+    /*
+     * The level payment of the PmtCalculator for every installment.
+     */
+    static PmtPolicy level(PmtCalculator pmtCalculator) {
+        return new PmtPolicy(new int[] { 0 }, new double[] { pmtCalculator.getPmtUnrounded() });
+    }
+
+    /*
+     * Only the interest of the loan amount for the first interestOnlyPmts installments, then the level payment that
+     * pays off the loan amount over the rest of the payments of the PmtCalculator.
+     */
+    static PmtPolicy interestOnly(PmtCalculator pmtCalculator, int interestOnlyPmts) {
+        int pmtCt = pmtCalculator.getPmtCt();
+        Preconditions.checkArgument(interestOnlyPmts >= 0 && interestOnlyPmts < pmtCt,
+                "interestOnlyPmts must not be less than 0 and must be less than the payment count.");
+        if (interestOnlyPmts == 0) {
+            return level(pmtCalculator);
+        }
+
+        double loanAmt = pmtCalculator.getLoanAmt();
+        double interest = loanAmt * pmtCalculator.getPeriodInterestRate();
+        double pmt = PmtCalculators.calcPmtUnrounded(pmtCalculator, loanAmt, pmtCalculator.getInterestRate(),
+                pmtCt - interestOnlyPmts);
+        return new PmtPolicy(new int[] { 0, interestOnlyPmts }, new double[] { interest, pmt });
+    }
+
+    /*
+     * The level payment of the PmtCalculator until installment maturityPmts - 1, which pays off the loan.
+     */
+    static PmtPolicy balloon(PmtCalculator pmtCalculator, int maturityPmts) {
+        Preconditions.checkArgument(maturityPmts > 0, "maturityPmts must be greater than 0.");
+        return new PmtPolicy(new int[] { 0, maturityPmts - 1 }, new double[] { pmtCalculator.getPmtUnrounded(),
+                Double.POSITIVE_INFINITY });
+    }
+
+    /*
+     * A payment that goes up by graduationRate percent every pmtsPerStep installments for steps increases, and then
+     * stays level. The first payment is the one that pays off the loan over the payments of the PmtCalculator: the loan
+     * amount divided by the present value of the stream of payments of 1.0 graduated the same way. The early payments
+     * can be less than the interest, so the balance can go up before it goes down.
+     */
+    static PmtPolicy graduated(PmtCalculator pmtCalculator, int pmtsPerStep, int steps, double graduationRate) {
+        Preconditions.checkArgument(pmtsPerStep > 0, "pmtsPerStep must be greater than 0.");
+        Preconditions.checkArgument(steps >= 0, "steps must not be less than 0.");
+        Preconditions.checkArgument(graduationRate >= 0.0, "graduationRate must not be less than 0.");
+
+        int pmtCt = pmtCalculator.getPmtCt();
+        int stepCt = (int) Math.min(steps, (pmtCt - 1L) / pmtsPerStep);
+        double growth = 1 + graduationRate / 100;
+        double discount = 1 / (1 + pmtCalculator.getPeriodInterestRate());
+
+        double presentValue = 0.0;
+        double factor = 1.0;
+        double discountFactor = 1.0;
+        for (int i = 0; i < pmtCt; i++) {
+            if (i > 0 && i % pmtsPerStep == 0 && i / pmtsPerStep <= stepCt) {
+                factor = factor * growth;
+            }
+            discountFactor = discountFactor * discount;
+            presentValue = presentValue + factor * discountFactor;
+        }
+
+        int[] stepStarts = new int[stepCt + 1];
+        double[] stepPmts = new double[stepCt + 1];
+        double pmt = pmtCalculator.getLoanAmt() / presentValue;
+        for (int s = 0; s <= stepCt; s++) {
+            stepStarts[s] = s * pmtsPerStep;
+            stepPmts[s] = pmt;
+            pmt = pmt * growth;
+        }
+        return new PmtPolicy(stepStarts, stepPmts);
+    }
+
+    /*
+     * Gets the scheduled payment of the installment at idx. It is infinite for the last installment of a balloon loan.
+     */
+    double pmtAt(int idx) {
+        int step = Arrays.binarySearch(stepStarts, idx);
+        return stepPmts[step >= 0 ? step : -step - 2];
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("stepStarts", Arrays.toString(stepStarts))
+                .add("stepPmts", Arrays.toString(stepPmts))
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(Arrays.hashCode(stepStarts), Arrays.hashCode(stepPmts));
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (!(object instanceof PmtPolicy)) {
+            return false;
+        }
+
+        PmtPolicy that = (PmtPolicy) object;
+        return Arrays.equals(this.stepStarts, that.stepStarts) && Arrays.equals(this.stepPmts, that.stepPmts);
+    }
+}
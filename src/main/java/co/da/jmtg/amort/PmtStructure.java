@@ -0,0 +1,31 @@
+package co.da.jmtg.amort;
+
+/**
+ * Enum that represents how the scheduled payment of a {@link StructuredAmortizationCalculator} changes over the life of
+ * the loan. Every structure is amortized by the same loop, which only reads the payment again when it changes.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ *
+ */
+public enum PmtStructure {
+
+    /**
+     * Only the interest is paid for a number of payments, and then the level payment that pays off the loan amount over
+     * the rest of the payments of the <tt>PmtCalculator</tt>.
+     */
+    INTEREST_ONLY,
+
+    /**
+     * The level payment of the <tt>PmtCalculator</tt> is paid until the loan matures, before it is paid off. The last
+     * payment pays off the balance and interest owed.
+     */
+    BALLOON,
+
+    /**
+     * The payment goes up by a percentage at regular intervals for a number of steps, and then stays level. The first
+     * payment is the one that pays off the loan over the payments of the <tt>PmtCalculator</tt>. The early payments can
+     * be less than the interest, so the balance can go up before it goes down.
+     */
+    GRADUATED
+}
@@ -0,0 +1,118 @@
+package co.da.jmtg.amort;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A <tt>Spliterator</tt> over the rows of the amortization tables of many loans, one loan after the other. The count of
+ * rows before each loan is computed once, so the size of any range of loans is known without walking it. A range of
+ * two or more loans is split at the loan boundary closest to the middle row. A single loan is split with its own
+ * <tt>Spliterator</tt>, which splits exactly, so a portfolio with a few very long loans balances as well as one with
+ * many short ones.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class PortfolioSpliterator implements Spliterator<AmortizationRow> {
+
+    private final FixedAmortizationCalculator[] calculators;
+
+    // rowsBefore[i] is the count of rows in the tables of the loans before loan i.
+    private final long[] rowsBefore;
+
+    // The rows left of a loan that has been partly split off or consumed. They come before the rows of loan from.
+    private Spliterator<AmortizationRow> head;
+    private int from;
+    private final int to;
+
+    PortfolioSpliterator(FixedAmortizationCalculator[] calculators) {
+        this.calculators = calculators;
+        rowsBefore = new long[calculators.length + 1];
+        for (int i = 0; i < calculators.length; i++) {
+            Preconditions.checkNotNull(calculators[i], "calculators must not contain null elements.");
+            // The Spliterator of a calculator of this library counts the rows of its core, so no table is built.
+            rowsBefore[i + 1] = rowsBefore[i] + calculators[i].spliterator().getExactSizeIfKnown();
+        }
+        from = 0;
+        to = calculators.length;
+    }
+
+    private PortfolioSpliterator(FixedAmortizationCalculator[] calculators, long[] rowsBefore,
+            Spliterator<AmortizationRow> head, int from, int to) {
+        this.calculators = calculators;
+        this.rowsBefore = rowsBefore;
+        this.head = head;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super AmortizationRow> action) {
+        Preconditions.checkNotNull(action, "action must not be null.");
+        while (true) {
+            if (head != null) {
+                if (head.tryAdvance(action)) {
+                    return true;
+                }
+                head = null;
+            }
+            if (from >= to) {
+                return false;
+            }
+            head = calculators[from++].spliterator();
+        }
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super AmortizationRow> action) {
+        Preconditions.checkNotNull(action, "action must not be null.");
+        if (head != null) {
+            head.forEachRemaining(action);
+            head = null;
+        }
+        for (; from < to; from++) {
+            calculators[from].spliterator().forEachRemaining(action);
+        }
+    }
+
+    @Override
+    public Spliterator<AmortizationRow> trySplit() {
+        int loans = to - from;
+        if (loans == 0) {
+            return head == null ? null : head.trySplit();
+        }
+        if (loans == 1 && head == null) {
+            head = calculators[from++].spliterator();
+            return head.trySplit();
+        }
+
+        // Find the first loan boundary at or past the middle row. The prefix must not be empty, and the suffix must
+        // keep at least one loan.
+        long headSize = head == null ? 0L : head.estimateSize();
+        long target = rowsBefore[from] + (headSize + rowsBefore[to] - rowsBefore[from]) / 2 - headSize;
+        int mid = Arrays.binarySearch(rowsBefore, from, to + 1, target);
+        if (mid < 0) {
+            mid = -(mid + 1);
+        }
+        mid = Math.max(head == null ? from + 1 : from, Math.min(mid, to - 1));
+
+        Spliterator<AmortizationRow> prefix = new PortfolioSpliterator(calculators, rowsBefore, head, from, mid);
+        head = null;
+        from = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        long headSize = head == null ? 0L : head.estimateSize();
+        return headSize + rowsBefore[to] - rowsBefore[from];
+    }
+
+    @Override
+    public int characteristics() {
+        return RowSpliterator.CHARACTERISTICS;
+    }
+}
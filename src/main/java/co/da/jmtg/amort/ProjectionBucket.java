@@ -0,0 +1,61 @@
+package co.da.jmtg.amort;
+
+import org.joda.time.LocalDate;
+
+/**
+ * Enum that represents the length of the periods a {@link CashFlowProjection} sums payments into. Each bucket starts on
+ * the first day of a calendar month, so a payment falls in the bucket of the month it is due in, no matter what day of
+ * the month the mortgage is paid on.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ *
+ */
+public enum ProjectionBucket {
+
+    /**
+     * Calendar month
+     */
+    MONTH(1),
+
+    /**
+     * Calendar quarter, starting in January, April, July, or October
+     */
+    QUARTER(3),
+
+    /**
+     * Calendar year
+     */
+    YEAR(12);
+
+    private final int months;
+
+    ProjectionBucket(int months) {
+        this.months = months;
+    }
+
+    /**
+     * Gets the number of months in a bucket.
+     *
+     * @return number of months
+     */
+    public int months() {
+        return months;
+    }
+
+    /*
+     * Gets the number of the bucket the date falls in, counted from the bucket that starts in January of year 0. The
+     * numbers of consecutive buckets are consecutive, so they can index an array.
+     */
+    int indexOf(LocalDate date) {
+        return Math.floorDiv(date.getYear() * 12 + date.getMonthOfYear() - 1, months);
+    }
+
+    /*
+     * Gets the first day of the bucket with the number passed in. It is the inverse of indexOf.
+     */
+    LocalDate startOf(int idx) {
+        int month = idx * months;
+        return new LocalDate(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1, 1);
+    }
+}
@@ -0,0 +1,124 @@
+package co.da.jmtg.amort;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * The limits on how the interest rate of an adjustable rate mortgage can change. The first reset can move the rate by
+ * at most the first cap, and every reset after it by at most the periodic cap, up or down. The rate can never be more
+ * than the initial rate plus the lifetime cap, and never less than the floor. A 5/1 ARM with 2/2/5 caps has a first cap
+ * of 2.0, a periodic cap of 2.0, and a lifetime cap of 5.0. Caps and the floor are percentages, the same way interest
+ * rates are given to a <tt>PmtCalculator</tt>. This object is immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class RateCaps {
+
+    private final double firstCap;
+    private final double periodicCap;
+    private final double lifetimeCap;
+    private final double floor;
+
+    private RateCaps(double firstCap, double periodicCap, double lifetimeCap, double floor) {
+        Preconditions.checkArgument(firstCap >= 0.0, "firstCap must not be less than 0.");
+        Preconditions.checkArgument(periodicCap >= 0.0, "periodicCap must not be less than 0.");
+        Preconditions.checkArgument(lifetimeCap >= 0.0, "lifetimeCap must not be less than 0.");
+        // The payment formulas divide by the rate, so the rate must stay above 0.
+        Preconditions.checkArgument(floor > 0.0 && floor <= 100.0, "floor must be greater than 0 and not greater "
+                + "than 100.");
+
+        this.firstCap = firstCap;
+        this.periodicCap = periodicCap;
+        this.lifetimeCap = lifetimeCap;
+        this.floor = floor;
+    }
+
+    /**
+     * Creates rate caps.
+     *
+     * @param firstCap
+     *            the most the rate can change at the first reset
+     * @param periodicCap
+     *            the most the rate can change at any later reset
+     * @param lifetimeCap
+     *            the most the rate can ever be above the initial rate
+     * @param floor
+     *            the lowest the rate can ever be
+     * @return new <tt>RateCaps</tt>
+     *
+     * @throws IllegalArgumentException
+     *             if any cap is less than 0, or if floor is not greater than 0 and not greater than 100.
+     */
+    public static RateCaps of(double firstCap, double periodicCap, double lifetimeCap, double floor) {
+        return new RateCaps(firstCap, periodicCap, lifetimeCap, floor);
+    }
+
+    public double getFirstCap() {
+        return firstCap;
+    }
+
+    public double getPeriodicCap() {
+        return periodicCap;
+    }
+
+    public double getLifetimeCap() {
+        return lifetimeCap;
+    }
+
+    public double getFloor() {
+        return floor;
+    }
+
+    /**
+     * Applies the caps to the rate a reset would set without them.
+     *
+     * @param initialRate
+     *            the rate of the mortgage before its first reset
+     * @param previousRate
+     *            the rate before this reset
+     * @param first
+     *            true if this is the first reset
+     * @param rate
+     *            the fully indexed rate: the index plus the margin
+     *
+     * @return the rate the reset sets
+     */
+    public double apply(double initialRate, double previousRate, boolean first, double rate) {
+        double cap = first ? firstCap : periodicCap;
+        double result = Math.min(previousRate + cap, Math.max(previousRate - cap, rate));
+        return Math.max(floor, Math.min(Math.min(initialRate + lifetimeCap, 100.0), result));
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("firstCap", firstCap)
+                .add("periodicCap", periodicCap)
+                .add("lifetimeCap", lifetimeCap)
+                .add("floor", floor)
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(firstCap, periodicCap, lifetimeCap, floor);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (!(object instanceof RateCaps)) {
+            return false;
+        }
+
+        RateCaps that = (RateCaps) object;
+        return Objects.equal(this.firstCap, that.firstCap)
+                && Objects.equal(this.periodicCap, that.periodicCap)
+                && Objects.equal(this.lifetimeCap, that.lifetimeCap)
+                && Objects.equal(this.floor, that.floor);
+    }
+}
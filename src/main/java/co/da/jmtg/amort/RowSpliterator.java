@@ -0,0 +1,81 @@
+package co.da.jmtg.amort;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import org.joda.time.LocalDate;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A <tt>Spliterator</tt> over a range of the rows of one amortization table. The payments are read by index from the
+ * <tt>ScheduleCore</tt> of the table and the dates by index from its <tt>PmtKey</tt>, so a split is exact: each half
+ * gets half of the rows, and both halves know their size.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class RowSpliterator implements Spliterator<AmortizationRow> {
+
+    static final int CHARACTERISTICS = ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+
+    private final FixedAmortizationCalculator calculator;
+    private final ScheduleCore core;
+    private final List<LocalDate> keys;
+    private int from;
+    private final int to;
+
+    RowSpliterator(FixedAmortizationCalculator calculator, ScheduleCore core, List<LocalDate> keys, int from, int to) {
+        this.calculator = calculator;
+        this.core = core;
+        this.keys = keys;
+        this.from = from;
+        this.to = to;
+    }
+
+    private AmortizationRow rowAt(int idx) {
+        return new AmortizationRow(calculator, idx, keys.get(idx), core.getPayment(idx));
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super AmortizationRow> action) {
+        Preconditions.checkNotNull(action, "action must not be null.");
+        if (from >= to) {
+            return false;
+        }
+        action.accept(rowAt(from++));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super AmortizationRow> action) {
+        Preconditions.checkNotNull(action, "action must not be null.");
+        int end = to;
+        for (int i = from; i < end; i++) {
+            action.accept(rowAt(i));
+        }
+        from = end;
+    }
+
+    @Override
+    public Spliterator<AmortizationRow> trySplit() {
+        int mid = (from + to) >>> 1;
+        if (mid <= from) {
+            return null;
+        }
+        Spliterator<AmortizationRow> prefix = new RowSpliterator(calculator, core, keys, from, mid);
+        from = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+}
@@ -0,0 +1,424 @@
+package co.da.jmtg.amort;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.extra.ExtraPmt;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * A cache of computed amortization tables in front of <tt>FixedAmortizationCalculators</tt>, for services that price
+ * the same products over and over and must not build their tables again after a restart. The interned calculators of
+ * <tt>FixedAmortizationCalculators</tt> are never released, so they cannot be used for an open set of loans. This
+ * cache is bounded, and its entries expire.
+ * </p>
+ *
+ * <p>
+ * The cache has two tiers. The heap tier holds the most recently used tables, up to a number of entries. The disk tier
+ * is a memory-mapped file of a fixed size, which holds the unrounded values of the payments of each table, so a table
+ * is read back without the BigDecimal rounding that makes building one slow. A table is looked up by a fingerprint of
+ * its inputs: the <tt>PmtCalculator</tt>, the count of payment keys, and the extra payments by installment. The first
+ * payment date is not part of it, so loans that start on different days share an entry. A table found on disk is
+ * promoted to the heap tier, and {@link #warmUp(int)} promotes the newest tables on disk when a service starts.
+ * </p>
+ *
+ * <p>
+ * The calculators the cache returns use the STANDARD engine and are not interned, so they must be compared with
+ * equals(). They are equal to the calculators <tt>FixedAmortizationCalculators</tt> creates from the same inputs. A
+ * cache is thread safe, and a table that is missed by two threads at once may be built twice.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class ScheduleCache implements Closeable {
+
+    private static final LongSupplier SYSTEM_CLOCK = new LongSupplier() {
+        @Override
+        public long getAsLong() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private final int maxHeapEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    // The heap tier, in order of access. It is guarded by itself.
+    private final LinkedHashMap<ScheduleFingerprint, Entry> heap;
+
+    // The disk tier, or null if the cache only has a heap tier.
+    private final ScheduleStore store;
+
+    private final AtomicLong heapHitCt = new AtomicLong();
+    private final AtomicLong diskHitCt = new AtomicLong();
+    private final AtomicLong missCt = new AtomicLong();
+    private final AtomicLong heapEvictionCt = new AtomicLong();
+
+    private static final class Entry {
+        private final ScheduleCore core;
+        private final long createdAt;
+
+        private Entry(ScheduleCore core, long createdAt) {
+            this.core = core;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private ScheduleCache(final int maxHeapEntries, long ttlMillis, ScheduleStore store, LongSupplier clock) {
+        this.maxHeapEntries = maxHeapEntries;
+        this.ttlMillis = ttlMillis;
+        this.store = store;
+        this.clock = clock;
+
+        heap = new LinkedHashMap<ScheduleFingerprint, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ScheduleFingerprint, Entry> eldest) {
+                if (size() > ScheduleCache.this.maxHeapEntries) {
+                    heapEvictionCt.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Creates a cache with only a heap tier.
+     *
+     * @param maxHeapEntries
+     *            the number of tables the heap tier holds. The least recently used table is evicted when another is
+     *            added.
+     * @param ttlMillis
+     *            the number of milliseconds a table is kept after it is built
+     *
+     * @return new <tt>ScheduleCache</tt>
+     *
+     * @throws IllegalArgumentException
+     *             if maxHeapEntries or ttlMillis is less than 1.
+     */
+    public static ScheduleCache newHeapCache(int maxHeapEntries, long ttlMillis) {
+        return newHeapCache(maxHeapEntries, ttlMillis, SYSTEM_CLOCK);
+    }
+
+    static ScheduleCache newHeapCache(int maxHeapEntries, long ttlMillis, LongSupplier clock) {
+        checkLimits(maxHeapEntries, ttlMillis);
+        return new ScheduleCache(maxHeapEntries, ttlMillis, null, clock);
+    }
+
+    /**
+     * Opens a cache with a heap tier and a disk tier in the file passed in. The file is created if it does not exist.
+     * The tables in the file that have not expired can be read from the disk tier at once, and {@link #warmUp(int)}
+     * moves them to the heap tier. The cache must be closed to release the file.
+     *
+     * @param file
+     *            the file of the disk tier
+     * @param maxHeapEntries
+     *            the number of tables the heap tier holds. The least recently used table is evicted when another is
+     *            added.
+     * @param maxDiskBytes
+     *            the size of the file. When it is full, the oldest tables are evicted until the rest take half of it.
+     * @param ttlMillis
+     *            the number of milliseconds a table is kept after it is built, in both tiers
+     *
+     * @return new <tt>ScheduleCache</tt>
+     *
+     * @throws NullPointerException
+     *             if file is null.
+     *
+     * @throws IllegalArgumentException
+     *             if maxHeapEntries or ttlMillis is less than 1, or if maxDiskBytes is less than 4096.
+     *
+     * @throws IOException
+     *             if the file cannot be opened or mapped, or if it is not a file of this cache.
+     */
+    public static ScheduleCache open(Path file, int maxHeapEntries, int maxDiskBytes, long ttlMillis)
+            throws IOException {
+        return open(file, maxHeapEntries, maxDiskBytes, ttlMillis, SYSTEM_CLOCK);
+    }
+
+    static ScheduleCache open(Path file, int maxHeapEntries, int maxDiskBytes, long ttlMillis, LongSupplier clock)
+            throws IOException {
+        Preconditions.checkNotNull(file, "file must not be null.");
+        checkLimits(maxHeapEntries, ttlMillis);
+        Preconditions.checkArgument(maxDiskBytes >= 4096, "maxDiskBytes must not be less than 4096.");
+        return new ScheduleCache(maxHeapEntries, ttlMillis, ScheduleStore.open(file, maxDiskBytes, ttlMillis, clock),
+                clock);
+    }
+
+    private static void checkLimits(int maxHeapEntries, long ttlMillis) {
+        Preconditions.checkArgument(maxHeapEntries > 0, "maxHeapEntries must be greater than 0.");
+        Preconditions.checkArgument(ttlMillis > 0, "ttlMillis must be greater than 0.");
+    }
+
+    /**
+     * Gets the calculator of a loan with no extra payments, from the cache if its table is there.
+     *
+     * @param pmtCalculator
+     *            The mortgage data, including payment amounts
+     * @param pmtKey
+     *            The mortgage start date, and interval between payments
+     * @return <tt>FixedAmortizationCalculator</tt> that is not interned
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator or pmtKey is null.
+     *
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY, or
+     *             if pmtCalculator is not an implementation of this library.
+     */
+    public FixedAmortizationCalculator get(PmtCalculator pmtCalculator, PmtKey pmtKey) {
+        DefaultFixedAmortizationCalculator.checkPreconditions(pmtCalculator, pmtKey);
+        return get(pmtCalculator, pmtKey, ExtraPmtRules.NONE);
+    }
+
+    /**
+     * Gets the calculator of a loan with extra payments, from the cache if its table is there.
+     *
+     * @param pmtCalculator
+     *            The mortgage data, including payment amounts
+     * @param pmtKey
+     *            The mortgage start date, and interval between payments
+     * @param extraPmts
+     *            The extra payments
+     * @return <tt>FixedAmortizationCalculator</tt> that is not interned
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator, pmtKey, or extraPmts is null.
+     *
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY, if
+     *             pmtCalculator is not an implementation of this library, if the ExtraPmt objects have duplicate date
+     *             keys, or if they have dates that are not valid payment dates for the mortgage.
+     */
+    public FixedAmortizationCalculator get(PmtCalculator pmtCalculator, PmtKey pmtKey, Iterable<ExtraPmt> extraPmts) {
+        DefaultFixedAmortizationCalculator.checkPreconditions(pmtCalculator, pmtKey);
+        return get(pmtCalculator, pmtKey, ExtraPmtRules.of(pmtKey, extraPmts));
+    }
+
+    /**
+     * Gets the calculator of a loan with extra payments, from the cache if its table is there.
+     *
+     * @param pmtCalculator
+     *            The mortgage data, including payment amounts
+     * @param pmtKey
+     *            The mortgage start date, and interval between payments
+     * @param extraPmts
+     *            The extra payments by date
+     * @return <tt>FixedAmortizationCalculator</tt> that is not interned
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator, pmtKey, or extraPmts is null.
+     *
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY, if
+     *             pmtCalculator is not an implementation of this library, or if extraPmts contains dates that are not
+     *             valid payment dates for the mortgage.
+     */
+    public FixedAmortizationCalculator get(PmtCalculator pmtCalculator, PmtKey pmtKey,
+            Map<LocalDate, Double> extraPmts) {
+        DefaultFixedAmortizationCalculator.checkPreconditions(pmtCalculator, pmtKey);
+        return get(pmtCalculator, pmtKey, ExtraPmtRules.of(pmtKey, extraPmts));
+    }
+
+    private FixedAmortizationCalculator get(PmtCalculator pmtCalculator, PmtKey pmtKey, ExtraPmtRules extraPmts) {
+        ScheduleFingerprint fingerprint = ScheduleFingerprint.of(pmtCalculator, pmtKey.getCount(), extraPmts);
+        long now = clock.getAsLong();
+
+        ScheduleCore core = getFromHeap(fingerprint, now);
+        if (core != null) {
+            heapHitCt.incrementAndGet();
+        } else {
+            // A table read from the disk tier keeps the time it was written, so it expires at the same time in both
+            // tiers.
+            long createdAt = now;
+            ScheduleStore.Entry stored = store == null ? null : store.get(fingerprint);
+            if (stored != null) {
+                diskHitCt.incrementAndGet();
+                core = stored.core;
+                createdAt = stored.writtenAt;
+            } else {
+                // Build the table outside of the locks, since it takes much longer than the lookups.
+                missCt.incrementAndGet();
+                core = ScheduleCore.newInstance(pmtCalculator, pmtKey.getCount(), extraPmts,
+                        AmortizationEngine.STANDARD);
+                if (store != null) {
+                    store.put(fingerprint, core);
+                }
+            }
+            synchronized (heap) {
+                heap.put(fingerprint, new Entry(core, createdAt));
+            }
+        }
+        return DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey, extraPmts, core);
+    }
+
+    private ScheduleCore getFromHeap(ScheduleFingerprint fingerprint, long now) {
+        synchronized (heap) {
+            Entry entry = heap.get(fingerprint);
+            if (entry == null) {
+                return null;
+            }
+            if (now - entry.createdAt >= ttlMillis) {
+                heap.remove(fingerprint);
+                heapEvictionCt.incrementAndGet();
+                return null;
+            }
+            return entry.core;
+        }
+    }
+
+    /**
+     * Moves the newest tables of the disk tier to the heap tier, so the first requests after a restart do not wait on
+     * the disk. A cache with only a heap tier does nothing.
+     *
+     * @param maxEntries
+     *            the largest number of tables to move. No more than the heap tier holds are moved.
+     *
+     * @return the number of tables moved
+     *
+     * @throws IllegalArgumentException
+     *             if maxEntries is less than 0.
+     */
+    public int warmUp(int maxEntries) {
+        Preconditions.checkArgument(maxEntries >= 0, "maxEntries must not be less than 0.");
+        if (store == null) {
+            return 0;
+        }
+
+        Map<ScheduleFingerprint, ScheduleStore.Entry> newest = store.getNewest(Math.min(maxEntries, maxHeapEntries));
+        synchronized (heap) {
+            // Put the oldest first, so the newest are the last to be evicted. Each keeps the time it was written.
+            ScheduleFingerprint[] fingerprints = newest.keySet().toArray(new ScheduleFingerprint[newest.size()]);
+            for (int i = fingerprints.length - 1; i >= 0; i--) {
+                ScheduleStore.Entry stored = newest.get(fingerprints[i]);
+                heap.put(fingerprints[i], new Entry(stored.core, stored.writtenAt));
+            }
+        }
+        return newest.size();
+    }
+
+    /**
+     * Gets the number of lookups that found their table in the heap tier.
+     *
+     * @return number of heap hits
+     */
+    public long getHeapHitCt() {
+        return heapHitCt.get();
+    }
+
+    /**
+     * Gets the number of lookups that found their table in the disk tier after they missed the heap tier.
+     *
+     * @return number of disk hits
+     */
+    public long getDiskHitCt() {
+        return diskHitCt.get();
+    }
+
+    /**
+     * Gets the number of lookups that built their table, because it was in neither tier.
+     *
+     * @return number of misses
+     */
+    public long getMissCt() {
+        return missCt.get();
+    }
+
+    /**
+     * Gets the share of all lookups that found their table in the heap tier.
+     *
+     * @return heap hits divided by lookups, or 0.0 if there were no lookups
+     */
+    public double getHeapHitRatio() {
+        long heapHits = heapHitCt.get();
+        long lookups = heapHits + diskHitCt.get() + missCt.get();
+        return lookups == 0 ? 0.0 : (double) heapHits / lookups;
+    }
+
+    /**
+     * Gets the share of the lookups that missed the heap tier and found their table in the disk tier.
+     *
+     * @return disk hits divided by heap misses, or 0.0 if there were no heap misses
+     */
+    public double getDiskHitRatio() {
+        long diskHits = diskHitCt.get();
+        long heapMisses = diskHits + missCt.get();
+        return heapMisses == 0 ? 0.0 : (double) diskHits / heapMisses;
+    }
+
+    /**
+     * Gets the number of tables evicted from the heap tier, because it was full or they expired.
+     *
+     * @return number of heap evictions
+     */
+    public long getHeapEvictionCt() {
+        return heapEvictionCt.get();
+    }
+
+    /**
+     * Gets the number of tables evicted from the disk tier, because it was full, they expired, or they were written
+     * again.
+     *
+     * @return number of disk evictions, or 0 if the cache only has a heap tier
+     */
+    public long getDiskEvictionCt() {
+        return store == null ? 0 : store.getEvictionCt();
+    }
+
+    /**
+     * Gets the number of tables in the heap tier, including the ones that expired but were not looked up since.
+     *
+     * @return size of the heap tier
+     */
+    public int getHeapSize() {
+        synchronized (heap) {
+            return heap.size();
+        }
+    }
+
+    /**
+     * Gets the number of tables in the disk tier, including the ones that expired but were not looked up since.
+     *
+     * @return size of the disk tier, or 0 if the cache only has a heap tier
+     */
+    public int getDiskSize() {
+        return store == null ? 0 : store.size();
+    }
+
+    /**
+     * Writes the disk tier to the file and releases it. The cache can still be used with its heap tier only.
+     *
+     * @throws IOException
+     *             if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("heapSize", getHeapSize())
+                .add("diskSize", getDiskSize())
+                .add("heapHitRatio", getHeapHitRatio())
+                .add("diskHitRatio", getDiskHitRatio())
+                .toString();
+    }
+}
@@ -0,0 +1,193 @@
+package co.da.jmtg.amort;
+
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.extra.ExtraPmt;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The inputs of a <tt>FixedAmortizationCalculator</tt> that has not been built yet: a <tt>PmtCalculator</tt>, a
+ * <tt>PmtKey</tt>, and optional extra payments. Candidates are passed to
+ * {@link FixedAmortizationCalculators#getCheapest(Iterable, int)}, which calculates the total cost of each one without
+ * building its amortization table, and only builds the tables of the cheapest candidates. This object is immutable as
+ * long as the objects it holds are immutable.
+ * 
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class ScheduleCandidate {
+
+    private final PmtCalculator pmtCalculator;
+    private final PmtKey pmtKey;
+
+    // Only one of these is set, depending on which factory method created this object. Both are null if there are no
+    // extra payments.
+    private final Iterable<ExtraPmt> extraPmts;
+    private final Map<LocalDate, Double> extraPmtMap;
+
+    private ScheduleCandidate(PmtCalculator pmtCalculator, PmtKey pmtKey, Iterable<ExtraPmt> extraPmts,
+            Map<LocalDate, Double> extraPmtMap) {
+        Preconditions.checkNotNull(pmtCalculator, "pmtCalculator must not be null.");
+        Preconditions.checkNotNull(pmtKey, "pmtKey must not be null.");
+        Preconditions.checkArgument(pmtCalculator.getPmtPeriod() == pmtKey.getPmtPeriod(),
+                "pmtCalculator and pmtKey must have the same PmtPeriod.");
+
+        this.pmtCalculator = pmtCalculator;
+        this.pmtKey = pmtKey;
+        this.extraPmts = extraPmts;
+        this.extraPmtMap = extraPmtMap;
+    }
+
+    /**
+     * Creates a candidate with no extra payments.
+     * 
+     * @param pmtCalculator
+     *            The mortgage data, including payment amounts
+     * @param pmtKey
+     *            The mortgage start date, and interval between payments
+     * @return new <tt>ScheduleCandidate</tt>
+     * 
+     * @throws NullPointerException
+     *             if pmtCalculator or pmtKey is null.
+     * 
+     * @throws IllegalArgumentException
+     *             if the PmtPeriod of pmtCalculator is not the PmtPeriod of pmtKey.
+     */
+    public static ScheduleCandidate of(PmtCalculator pmtCalculator, PmtKey pmtKey) {
+        return new ScheduleCandidate(pmtCalculator, pmtKey, null, null);
+    }
+
+    /**
+     * Creates a candidate with the extra payments represented by an ExtraPmt object.
+     * 
+     * @param pmtCalculator
+     *            The mortgage data, including payment amounts
+     * @param pmtKey
+     *            The mortgage start date, and interval between payments
+     * @param extraPmts
+     *            extra payments for this mortgage
+     * @return new <tt>ScheduleCandidate</tt>
+     * 
+     * @throws NullPointerException
+     *             if pmtCalculator, pmtKey, or extraPmts is null.
+     * 
+     * @throws IllegalArgumentException
+     *             if the PmtPeriod of pmtCalculator is not the PmtPeriod of pmtKey.
+     */
+    public static ScheduleCandidate of(PmtCalculator pmtCalculator, PmtKey pmtKey, ExtraPmt extraPmts) {
+        Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+        return new ScheduleCandidate(pmtCalculator, pmtKey, ImmutableList.of(extraPmts), null);
+    }
+
+    /**
+     * Creates a candidate with the extra payments represented by an Iterable of ExtraPmt objects.
+     * 
+     * @param pmtCalculator
+     *            The mortgage data, including payment amounts
+     * @param pmtKey
+     *            The mortgage start date, and interval between payments
+     * @param extraPmts
+     *            extra payments for this mortgage
+     * @return new <tt>ScheduleCandidate</tt>
+     * 
+     * @throws NullPointerException
+     *             if pmtCalculator, pmtKey, or extraPmts is null.
+     * 
+     * @throws IllegalArgumentException
+     *             if the PmtPeriod of pmtCalculator is not the PmtPeriod of pmtKey.
+     */
+    public static ScheduleCandidate of(PmtCalculator pmtCalculator, PmtKey pmtKey, Iterable<ExtraPmt> extraPmts) {
+        Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+        return new ScheduleCandidate(pmtCalculator, pmtKey, ImmutableList.copyOf(extraPmts), null);
+    }
+
+    /**
+     * Creates a candidate with the extra payments represented by a map of amounts by payment date.
+     * 
+     * @param pmtCalculator
+     *            The mortgage data, including payment amounts
+     * @param pmtKey
+     *            The mortgage start date, and interval between payments
+     * @param extraPmts
+     *            extra payments for this mortgage
+     * @return new <tt>ScheduleCandidate</tt>
+     * 
+     * @throws NullPointerException
+     *             if pmtCalculator, pmtKey, or extraPmts is null.
+     * 
+     * @throws IllegalArgumentException
+     *             if the PmtPeriod of pmtCalculator is not the PmtPeriod of pmtKey.
+     */
+    public static ScheduleCandidate of(PmtCalculator pmtCalculator, PmtKey pmtKey, Map<LocalDate, Double> extraPmts) {
+        Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+        return new ScheduleCandidate(pmtCalculator, pmtKey, null, ImmutableMap.copyOf(extraPmts));
+    }
+
+    public PmtCalculator getPmtCalculator() {
+        return pmtCalculator;
+    }
+
+    public PmtKey getPmtKey() {
+        return pmtKey;
+    }
+
+    /*
+     * Calculates the total cost of the calculator this candidate represents without building its table. The result is
+     * the value getTotalCost would return on the calculator.
+     * 
+     * @throws IllegalArgumentException if the extra payments are not valid for the mortgage.
+     */
+    double calcTotalCost() {
+        return AmortizationKernel.calcTotalCost(pmtCalculator, pmtKey.getKeys().size(), toExtraPmtRules());
+    }
+
+    /*
+     * Gets the extra payments of this candidate as rules by installment index.
+     * 
+     * @throws IllegalArgumentException if the extra payments are not valid for the mortgage.
+     */
+    ExtraPmtRules toExtraPmtRules() {
+        if (extraPmts != null) {
+            return ExtraPmtRules.of(pmtKey, extraPmts);
+        }
+        if (extraPmtMap != null) {
+            return ExtraPmtRules.of(pmtKey, extraPmtMap);
+        }
+        return ExtraPmtRules.NONE;
+    }
+
+    /**
+     * Builds the <tt>FixedAmortizationCalculator</tt> this candidate represents.
+     * 
+     * @return DefaultFixedAmortizationCalculator
+     * 
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY,
+     *             or if the extra payments contain dates that are not valid payment dates for the mortgage.
+     */
+    public FixedAmortizationCalculator toCalculator() {
+        if (extraPmts != null) {
+            return DefaultFixedAmortizationCalculator.getInstance(pmtCalculator, pmtKey, extraPmts);
+        }
+        if (extraPmtMap != null) {
+            return DefaultFixedAmortizationCalculator.getInstance(pmtCalculator, pmtKey, extraPmtMap);
+        }
+        return DefaultFixedAmortizationCalculator.getInstance(pmtCalculator, pmtKey);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("pmtCalculator", pmtCalculator)
+                .add("pmtKey", pmtKey)
+                .add("extraPmts", extraPmts == null ? extraPmtMap : extraPmts)
+                .toString();
+    }
+}
@@ -0,0 +1,80 @@
+package co.da.jmtg.amort;
+
+import java.nio.ByteBuffer;
+
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.util.AbstractBinaryCodec;
+import co.da.jmtg.util.BinaryCodec;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * The binary codec of the schedules of <tt>FixedAmortizationCalculator</tt>. A record is the record of the
+ * <tt>PmtCalculator</tt>, the record of the <tt>PmtKey</tt>, the ordinal of the <tt>AmortizationEngine</tt>, and the
+ * extra payments as rules by installment index. A schedule without extra payments is 40 bytes.
+ * </p>
+ *
+ * <p>
+ * The payments are not written. A table is fully determined by these values, and the reader builds it again with the
+ * same engine, so it gets exactly the same payments. Building a table of a few hundred payments takes about as long as
+ * reading it would, and the record is hundreds of times smaller than the table. The objects it reads are not interned.
+ * This object is stateless, so its thread safety is guaranteed.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class ScheduleCodec extends AbstractBinaryCodec<FixedAmortizationCalculator> {
+
+    static final ScheduleCodec INSTANCE = new ScheduleCodec();
+
+    private static final BinaryCodec<PmtCalculator> pmtCalculatorCodec = PmtCalculators.getBinaryCodec();
+
+    private static final AmortizationEngine[] ENGINES = AmortizationEngine.values();
+
+    private ScheduleCodec() {
+        super((byte) 4);
+    }
+
+    @Override
+    public int sizeOf(FixedAmortizationCalculator value) {
+        return pmtCalculatorCodec.sizeOf(value.getPmtCalculator()) + PmtKeyCodec.SIZE + 1
+                + getExtraPmtRules(value).sizeOf();
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, FixedAmortizationCalculator value) {
+        pmtCalculatorCodec.write(buffer, value.getPmtCalculator());
+        PmtKeyCodec.INSTANCE.write(buffer, value.getPmtKey());
+        buffer.put((byte) value.getEngine().ordinal());
+        getExtraPmtRules(value).writeTo(buffer);
+    }
+
+    /*
+     * Gets the extra payments of the calculator as rules, including negative ones. Other implementations are turned
+     * into rules from their map of extra payments. areExtraPayments is not checked first, since it is false for a
+     * calculator whose only extra payments are negative, such as a ledger snapshot with missed installments.
+     */
+    private static ExtraPmtRules getExtraPmtRules(FixedAmortizationCalculator value) {
+        if (value instanceof DefaultFixedAmortizationCalculator) {
+            return ((DefaultFixedAmortizationCalculator) value).getExistingExtraPmts();
+        }
+        return ExtraPmtRules.of(value.getPmtKey(), value.getExtraPayments());
+    }
+
+    @Override
+    public FixedAmortizationCalculator read(ByteBuffer buffer, boolean validate) {
+        PmtCalculator pmtCalculator = pmtCalculatorCodec.read(buffer, validate);
+        PmtKey pmtKey = PmtKeyCodec.INSTANCE.read(buffer, validate);
+        int engine = buffer.get();
+        if (validate) {
+            Preconditions.checkArgument(engine >= 0 && engine < ENGINES.length, "Unknown AmortizationEngine %s.",
+                    engine);
+        }
+        ExtraPmtRules extraPmts = ExtraPmtRules.readFrom(buffer, pmtKey.getCount(), validate);
+
+        return DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey, extraPmts, ENGINES[engine]);
+    }
+}
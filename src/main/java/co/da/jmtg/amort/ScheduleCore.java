@@ -0,0 +1,394 @@
+package co.da.jmtg.amort;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.pmt.PmtCalculator;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Ordering;
+
+/**
+ * The numeric content of an amortization table, without the payment dates. The payments of a table depend only on the
+ * <tt>PmtCalculator</tt>, the count of payment keys, and the extra payment rules by installment index. They do not
+ * depend on the first payment date, so loans that are the same product but start on different days can share one
+ * <tt>ScheduleCore</tt>. <tt>DefaultFixedAmortizationCalculator</tt> builds its table by laying the dates of its
+ * <tt>PmtKey</tt> over the payments of its core.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class ScheduleCore {
+
+    private final Key key;
+    private final Payment[] payments;
+
+    // The loan amount plus the total interest.
+    private final double totalCost;
+
+    // True if the rounded balance never goes up from one payment to the next, which holds unless an extra payment is
+    // negative. It is checked on the payments, since rules that cancel each other can have negative amounts without
+    // the sum at any installment being negative. The threshold queries can only use a binary search on the balance if
+    // it is true.
+    private final boolean balanceNonIncreasing;
+
+    // True if any payment has a rounded extra principal greater than 0.0.
+    private final boolean extraPaid;
+
+    // Running sums, in cents, of the rounded TOTAL, PRINCIPAL, EXTRA_PRINCIPAL, and INTEREST values of the payments.
+    // prefixCents[stat][i] is the sum of the first i payments. They are built the first time a sum is asked for, since
+    // most tables are never queried that way. Building them twice in a race does no harm.
+    private volatile long[][] prefixCents;
+
+    // Cache the cores created by getInstance. The values are weak, so a core stays cached only as long as a
+    // calculator uses it, and the cache does not grow with every table that was ever built.
+    private static final ConcurrentMap<Key, ScheduleCore> cache = new MapMaker().weakValues().makeMap();
+
+    private ScheduleCore(Key key) {
+        this(key, buildPayments(key));
+    }
+
+    private ScheduleCore(Key key, Payment[] payments) {
+        this.key = key;
+        this.payments = payments;
+
+        PmtCalculator pmtCalculator = key.pmtCalculator;
+        // Add the two values as BigDecimal objects so the sum is not off by a fraction of a cent.
+        double cumulativeInterest = payments.length == 0 ? 0.0 : payments[payments.length - 1].getCumulativeInterest();
+        totalCost = BigDecimal.valueOf(pmtCalculator.getLoanAmt()).add(BigDecimal.valueOf(cumulativeInterest))
+                .doubleValue();
+
+        boolean nonIncreasing = true;
+        boolean anyExtra = false;
+        for (int i = 0; i < payments.length; i++) {
+            if (i > 0 && payments[i].getBalance() > payments[i - 1].getBalance()) nonIncreasing = false;
+            if (payments[i].getExtraPrincipal() > 0.0) anyExtra = true;
+        }
+        balanceNonIncreasing = nonIncreasing;
+        extraPaid = anyExtra;
+    }
+
+    private static Payment[] buildPayments(Key key) {
+        PmtCalculator pmtCalculator = key.pmtCalculator;
+        switch (key.engine) {
+        case PARALLEL_SCAN:
+            return ParallelScan.buildPayments(pmtCalculator, key.count, key.extraPmts.toArray(key.count));
+
+        case FIXED_POINT:
+            return FixedPointSchedule.buildPayments(pmtCalculator, key.count, key.extraPmts.toArray(key.count));
+
+        default:
+            return buildStandardPayments(key);
+        }
+    }
+
+    /*
+     * Builds the payments one after the other with the amortization kernel and the level payment of the PmtCalculator.
+     * This is the STANDARD engine. The extra payment of each installment is read from the rules as the loop reaches it.
+     */
+    private static Payment[] buildStandardPayments(Key key) {
+        PmtCalculator pmtCalculator = key.pmtCalculator;
+        // MUST use the unrounded payment amount for accuracy, which the level policy does.
+        return AmortizationKernel.buildPayments(PmtPolicy.level(pmtCalculator), pmtCalculator.getPeriodInterestRate(),
+                pmtCalculator.getLoanAmt(), key.count, key.extraPmts);
+    }
+
+    /*
+     * Gets the core for the PmtCalculator, count of payment keys, and extra payments passed in. The core is cached, so
+     * every table with the same numeric content shares the same Payment objects. extraPmts holds the rules of the extra
+     * payments by installment index. engine computes the payments.
+     */
+    static ScheduleCore getInstance(PmtCalculator pmtCalculator, int count, ExtraPmtRules extraPmts,
+            AmortizationEngine engine) {
+        Key key = new Key(pmtCalculator, count, extraPmts, engine);
+        ScheduleCore core = cache.get(key);
+        if (core == null) {
+            core = new ScheduleCore(key);
+            ScheduleCore existing = cache.putIfAbsent(key, core);
+            if (existing != null) {
+                core = existing;
+            }
+        }
+        return core;
+    }
+
+    /*
+     * Creates a core that is not cached.
+     */
+    static ScheduleCore newInstance(PmtCalculator pmtCalculator, int count, ExtraPmtRules extraPmts,
+            AmortizationEngine engine) {
+        return new ScheduleCore(new Key(pmtCalculator, count, extraPmts, engine));
+    }
+
+    /*
+     * Creates a core of the STANDARD engine from payments that were built for the same PmtCalculator, count of payment
+     * keys, and extra payments before, such as the payments ScheduleCache reads from its disk tier. The core is not
+     * cached.
+     */
+    static ScheduleCore restore(PmtCalculator pmtCalculator, int count, ExtraPmtRules extraPmts, Payment[] payments) {
+        return new ScheduleCore(new Key(pmtCalculator, count, extraPmts, AmortizationEngine.STANDARD), payments);
+    }
+
+    /*
+     * Returns true if the payments of this core equal the payments of the core passed in. Two tables with the same
+     * PmtKey are equal if and only if the payments of their cores are.
+     */
+    boolean paymentsEqual(ScheduleCore that) {
+        return this == that || Arrays.equals(payments, that.payments);
+    }
+
+    /*
+     * Returns a hash code of the payments of this core that is consistent with paymentsEqual.
+     */
+    int paymentsHashCode() {
+        return Arrays.hashCode(payments);
+    }
+
+    /*
+     * Compares the payments of this core to the payments of the core passed in, first by count, then payment by
+     * payment.
+     */
+    int comparePayments(ScheduleCore that) {
+        if (this == that) {
+            return 0;
+        }
+        int result = Integer.compare(payments.length, that.payments.length);
+        for (int i = 0; result == 0 && i < payments.length; i++) {
+            result = payments[i].compareTo(that.payments[i]);
+        }
+        return result;
+    }
+
+    /*
+     * Returns the number of payments it takes to pay off the loan. It may be less than the count of payment keys.
+     */
+    int size() {
+        return payments.length;
+    }
+
+    Payment getPayment(int idx) {
+        return payments[idx];
+    }
+
+    double getTotalCost() {
+        return totalCost;
+    }
+
+    /*
+     * Returns true if any payment has a rounded extra principal greater than 0.0.
+     */
+    boolean hasExtraPayments() {
+        return extraPaid;
+    }
+
+    /*
+     * Sums the rounded values of stat for the payments from index fromIdx, inclusive, to index toIdx, exclusive.
+     * Indexes past the last payment are treated as the end of the table. stat must be Payment.TOTAL,
+     * Payment.PRINCIPAL, Payment.EXTRA_PRINCIPAL, or Payment.INTEREST.
+     */
+    double sum(int stat, int fromIdx, int toIdx) {
+        Preconditions.checkArgument(stat >= Payment.TOTAL && stat <= Payment.INTEREST,
+                "stat must be TOTAL, PRINCIPAL, EXTRA_PRINCIPAL, or INTEREST.");
+
+        long[] prefix = getPrefixCents()[stat];
+        return (prefix[Math.min(toIdx, payments.length)] - prefix[Math.min(fromIdx, payments.length)]) / 100.0;
+    }
+
+    /*
+     * Returns the index of the first payment with a rounded balance less than or equal to the balance passed in, or -1
+     * if there is none. If there are no extra payments, the index is estimated with the closed-form balance of a fixed
+     * payment loan and then checked against the payments. Otherwise, the balances of the payments are searched with a
+     * binary search.
+     */
+    int indexOfBalanceAtOrBelow(double balance) {
+        if (!balanceNonIncreasing) {
+            // A negative extra payment can make the balance go back up, so the balances are not sorted.
+            return scanBalanceAtOrBelow(balance);
+        }
+        if (payments.length == 0 || payments[payments.length - 1].getBalance() > balance) {
+            return -1;
+        }
+
+        int idx = key.extraPmts.isEmpty() ? estimateIndexOfBalance(balance) : -1;
+        if (idx < 0 || idx >= payments.length) {
+            int low = 0;
+            int high = payments.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (payments[mid].getBalance() <= balance) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        // The estimate can be off by a payment or so because of rounding, so step to the exact payment.
+        while (idx > 0 && payments[idx - 1].getBalance() <= balance) {
+            idx--;
+        }
+        while (payments[idx].getBalance() > balance) {
+            idx++;
+        }
+        return idx;
+    }
+
+    /*
+     * Estimates the index of the first payment with a balance less than or equal to the balance passed in with the
+     * closed-form balance of a loan without extra payments. After k payments, the balance is
+     * pmt/r - (pmt/r - loanAmt) * (1 + r)^k. Returns -1 if the estimate cannot be made.
+     */
+    private int estimateIndexOfBalance(double balance) {
+        PmtCalculator pmtCalculator = key.pmtCalculator;
+        double loanAmt = pmtCalculator.getLoanAmt();
+        double pmt = pmtCalculator.getPmtUnrounded();
+        double r = pmtCalculator.getPeriodInterestRate();
+
+        double k;
+        if (r == 0.0) {
+            k = (loanAmt - balance) / pmt;
+        } else {
+            double payoff = pmt / r;
+            k = Math.log((payoff - balance) / (payoff - loanAmt)) / Math.log1p(r);
+        }
+
+        if (Double.isNaN(k) || Double.isInfinite(k)) {
+            return -1;
+        }
+        // k is the count of payments, so the payment that reaches the balance is at index k - 1.
+        return Math.max(0, (int) Math.ceil(k) - 1);
+    }
+
+    private int scanBalanceAtOrBelow(double balance) {
+        for (int i = 0; i < payments.length; i++) {
+            if (payments[i].getBalance() <= balance) return i;
+        }
+        return -1;
+    }
+
+    /*
+     * Returns the index of the first payment with a rounded cumulative interest greater than or equal to the interest
+     * passed in, or -1 if there is none. The cumulative interest never goes down, so use a binary search.
+     */
+    int indexOfCumulativeInterestAtOrAbove(double interest) {
+        if (payments.length == 0 || payments[payments.length - 1].getCumulativeInterest() < interest) {
+            return -1;
+        }
+
+        int low = 0;
+        int high = payments.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (payments[mid].getCumulativeInterest() >= interest) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private long[][] getPrefixCents() {
+        long[][] result = prefixCents;
+        if (result == null) {
+            result = new long[Payment.INTEREST + 1][payments.length + 1];
+            for (int i = 0; i < payments.length; i++) {
+                // The rounded values are whole cents, so converting them to long loses nothing.
+                double[] stats = payments[i].getPmtStats();
+                for (int stat = Payment.TOTAL; stat <= Payment.INTEREST; stat++) {
+                    result[stat][i + 1] = result[stat][i] + Math.round(stats[stat] * 100);
+                }
+            }
+            prefixCents = result;
+        }
+        return result;
+    }
+
+    /*
+     * Builds the amortization table by giving each payment the date of the payment key at the same index.
+     *
+     * @throws IllegalArgumentException if pmtKey does not have the count of payment keys this core was built for.
+     */
+    SortedMap<LocalDate, Payment> toTable(PmtKey pmtKey) {
+        Preconditions.checkArgument(pmtKey.getCount() == key.count, "pmtKey must have " + key.count + " keys.");
+
+        List<LocalDate> keys = pmtKey.getKeys();
+        ImmutableSortedMap.Builder<LocalDate, Payment> pmtMapBuilder = new ImmutableSortedMap.Builder<>(
+                Ordering.natural());
+        for (int i = 0; i < payments.length; i++) {
+            pmtMapBuilder.put(keys.get(i), payments[i]);
+        }
+
+        return pmtMapBuilder.build();
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("pmtCalculator", key.pmtCalculator)
+                .add("count", key.count)
+                .add("extraPmts", key.extraPmts)
+                .add("engine", key.engine)
+                .add("size", payments.length)
+                .toString();
+    }
+
+    /*
+     * The values a core is calculated from, and the engine that calculates it. The extra payments are held as rules,
+     * so a key for a loan without extra payments, or with a few recurring ones, holds no arrays of the size of the
+     * table.
+     */
+    private static final class Key {
+
+        private final PmtCalculator pmtCalculator;
+        private final int count;
+        private final ExtraPmtRules extraPmts;
+        private final AmortizationEngine engine;
+        private final int hashCode;
+
+        private Key(PmtCalculator pmtCalculator, int count, ExtraPmtRules extraPmts, AmortizationEngine engine) {
+            Preconditions.checkNotNull(pmtCalculator, "pmtCalculator must not be null.");
+            Preconditions.checkNotNull(extraPmts, "extraPmts must not be null.");
+            Preconditions.checkNotNull(engine, "engine must not be null.");
+
+            this.pmtCalculator = pmtCalculator;
+            this.count = count;
+            this.extraPmts = extraPmts;
+            this.engine = engine;
+            hashCode = Objects.hashCode(pmtCalculator, count, extraPmts, engine);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object == this) {
+                return true;
+            }
+
+            if (!(object instanceof Key)) {
+                return false;
+            }
+
+            Key that = (Key) object;
+            return this.hashCode == that.hashCode
+                    && this.count == that.count
+                    && this.engine == that.engine
+                    && this.pmtCalculator.equals(that.pmtCalculator)
+                    && this.extraPmts.equals(that.extraPmts);
+        }
+    }
+}
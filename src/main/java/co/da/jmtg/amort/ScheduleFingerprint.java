@@ -0,0 +1,86 @@
+package co.da.jmtg.amort;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.util.BinaryCodec;
+
+/**
+ * The inputs a <tt>ScheduleCore</tt> of the STANDARD engine is computed from, in the binary format of the codecs: the
+ * record of the <tt>PmtCalculator</tt>, the count of payment keys, and the extra payment rules. A fingerprint of a
+ * loan without extra payments is 34 bytes. The hash is the 64-bit FNV-1a hash of the bytes, and two fingerprints are
+ * equal if their bytes are, so a hash collision can never return the wrong table. This object is immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class ScheduleFingerprint {
+
+    private static final BinaryCodec<PmtCalculator> pmtCalculatorCodec = PmtCalculators.getBinaryCodec();
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final byte[] bytes;
+    private final long hash;
+
+    ScheduleFingerprint(byte[] bytes) {
+        this.bytes = bytes;
+
+        long h = FNV_OFFSET_BASIS;
+        for (byte b : bytes) {
+            h = (h ^ (b & 0xff)) * FNV_PRIME;
+        }
+        hash = h;
+    }
+
+    /*
+     * @throws IllegalArgumentException if pmtCalculator is not an implementation the codec of PmtCalculator writes.
+     */
+    static ScheduleFingerprint of(PmtCalculator pmtCalculator, int count, ExtraPmtRules extraPmts) {
+        ByteBuffer buffer = ByteBuffer.allocate(pmtCalculatorCodec.sizeOf(pmtCalculator) + 4 + extraPmts.sizeOf());
+        pmtCalculatorCodec.write(buffer, pmtCalculator);
+        buffer.putInt(count);
+        extraPmts.writeTo(buffer);
+        return new ScheduleFingerprint(buffer.array());
+    }
+
+    byte[] getBytes() {
+        return bytes;
+    }
+
+    long getHash() {
+        return hash;
+    }
+
+    /*
+     * Reads the inputs back and wraps the payments passed in in a core for them.
+     */
+    ScheduleCore restore(FixedAmortizationCalculator.Payment[] payments) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        PmtCalculator pmtCalculator = pmtCalculatorCodec.read(buffer, false);
+        int count = buffer.getInt();
+        return ScheduleCore.restore(pmtCalculator, count, ExtraPmtRules.readFrom(buffer, count, false), payments);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (!(object instanceof ScheduleFingerprint)) {
+            return false;
+        }
+
+        ScheduleFingerprint that = (ScheduleFingerprint) object;
+        return this.hash == that.hash && Arrays.equals(this.bytes, that.bytes);
+    }
+}
@@ -0,0 +1,349 @@
+package co.da.jmtg.amort;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+import co.da.jmtg.amort.DefaultFixedAmortizationCalculator.DefaultPayment;
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+
+/**
+ * <p>
+ * The disk tier of <tt>ScheduleCache</tt>: an append-only log of computed tables in a memory-mapped file of a fixed
+ * capacity. Each entry holds the bytes of its <tt>ScheduleFingerprint</tt>, the time it was written, and the six
+ * unrounded values of each payment. The rounded values are computed again when an entry is read, which is much faster
+ * than building the payments, since no BigDecimal is needed. An entry is 80 bytes plus 48 bytes a payment, so a 30 year
+ * monthly loan takes about 17 KB.
+ * </p>
+ *
+ * <p>
+ * An entry is written before its length, and the length of the next entry is kept 0, so a crash leaves at most one
+ * torn entry at the end. Each entry has a CRC-32 checksum, and opening the file reads the entries until the first one
+ * that is torn or does not match. The index of the entries by hash is kept in the heap and is built when the file is
+ * opened.
+ * </p>
+ *
+ * <p>
+ * When an entry does not fit, the file is compacted: the entries that have expired or were replaced are dropped, and
+ * then the oldest entries until the rest fill at most half of the file. Only tables of the STANDARD engine are stored.
+ * This object is thread safe.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class ScheduleStore implements Closeable {
+
+    private static final int MAGIC = 0x4A4D5343;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    // The fields of an entry before its fingerprint: the length, checksum, hash, time written, and fingerprint length.
+    private static final int ENTRY_HEADER_SIZE = 28;
+    private static final int PAYMENT_SIZE = 48;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    // The offset of the entry of each hash. A later entry with the same hash replaces an earlier one.
+    private final Map<Long, Integer> index = new HashMap<Long, Integer>();
+    private int end;
+    private long evictionCt;
+    private boolean closed;
+
+    private ScheduleStore(FileChannel channel, int capacity, long ttlMillis, LongSupplier clock) throws IOException {
+        this.channel = channel;
+        this.capacity = capacity;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+        int magic = buffer.getInt(0);
+        if (magic == 0) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+        } else if (magic != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("The file is not a schedule cache of version " + VERSION + ".");
+        }
+        end = scan();
+    }
+
+    /*
+     * Opens the store in the file passed in, and creates the file if it does not exist. A file of another capacity is
+     * mapped at the capacity passed in.
+     */
+    static ScheduleStore open(Path file, int capacity, long ttlMillis, LongSupplier clock) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            return new ScheduleStore(channel, capacity, ttlMillis, clock);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /*
+     * Indexes the entries from the start of the file, and returns the offset after the last good one.
+     */
+    private int scan() {
+        long now = clock.getAsLong();
+        int offset = HEADER_SIZE;
+        while (offset <= capacity - ENTRY_HEADER_SIZE) {
+            int length = buffer.getInt(offset);
+            if (length < ENTRY_HEADER_SIZE - 4 || length > capacity - offset - 4
+                    || buffer.getInt(offset + 4) != checksum(offset, length)) {
+                break;
+            }
+            if (!isExpired(offset, now)) {
+                index.put(buffer.getLong(offset + 8), offset);
+            }
+            offset += 4 + length;
+        }
+        terminate(offset);
+        return offset;
+    }
+
+    /*
+     * Gets the entry of the fingerprint, or null if there is none or it has expired.
+     */
+    synchronized Entry get(ScheduleFingerprint fingerprint) {
+        Integer offset = closed ? null : index.get(fingerprint.getHash());
+        if (offset == null) {
+            return null;
+        }
+        if (isExpired(offset, clock.getAsLong())) {
+            index.remove(fingerprint.getHash());
+            evictionCt++;
+            return null;
+        }
+        if (!Arrays.equals(readFingerprint(offset), fingerprint.getBytes())) {
+            return null;
+        }
+        return new Entry(fingerprint.restore(readPayments(offset)), getWrittenAt(offset));
+    }
+
+    /*
+     * Stores the table of a core. A core of another engine than STANDARD, or one that does not fit in the file even
+     * after it is compacted, is not stored. Nothing is stored once the store is closed.
+     */
+    synchronized void put(ScheduleFingerprint fingerprint, ScheduleCore core) {
+        if (closed) {
+            return;
+        }
+        int pmtCt = core.size();
+        for (int i = 0; i < pmtCt; i++) {
+            if (!(core.getPayment(i) instanceof DefaultPayment)) {
+                return;
+            }
+        }
+
+        byte[] bytes = fingerprint.getBytes();
+        long size = (long) ENTRY_HEADER_SIZE + bytes.length + 4 + (long) pmtCt * PAYMENT_SIZE;
+        if (size + 4 > capacity - end) {
+            compact();
+            if (size + 4 > capacity - end) {
+                return;
+            }
+        }
+
+        int offset = end;
+        int pos = offset + 8;
+        buffer.putLong(pos, fingerprint.getHash());
+        buffer.putLong(pos + 8, clock.getAsLong());
+        buffer.putInt(pos + 16, bytes.length);
+        pos += 20;
+        for (byte b : bytes) {
+            buffer.put(pos++, b);
+        }
+        buffer.putInt(pos, pmtCt);
+        pos += 4;
+        for (int i = 0; i < pmtCt; i++) {
+            DefaultPayment payment = (DefaultPayment) core.getPayment(i);
+            buffer.putDouble(pos, payment.getTotalUnrounded());
+            buffer.putDouble(pos + 8, payment.getPrincipalUnrounded());
+            buffer.putDouble(pos + 16, payment.getExtraPrincipalUnrounded());
+            buffer.putDouble(pos + 24, payment.getInterestUnrounded());
+            buffer.putDouble(pos + 32, payment.getCumulativeInterestUnrounded());
+            buffer.putDouble(pos + 40, payment.getBalanceUnrounded());
+            pos += PAYMENT_SIZE;
+        }
+
+        // Write the length last, so the entry is only seen once all of it is written.
+        int length = (int) size - 4;
+        buffer.putInt(offset + 4, checksum(offset, length));
+        terminate(offset + (int) size);
+        buffer.putInt(offset, length);
+
+        if (index.put(fingerprint.getHash(), offset) != null) {
+            evictionCt++;
+        }
+        end = offset + (int) size;
+    }
+
+    /*
+     * Gets the entries written last, up to max of them, newest first.
+     */
+    synchronized Map<ScheduleFingerprint, Entry> getNewest(int max) {
+        if (closed) {
+            return Collections.emptyMap();
+        }
+        List<Integer> offsets = new ArrayList<Integer>(index.values());
+        Collections.sort(offsets, Collections.reverseOrder());
+
+        long now = clock.getAsLong();
+        Map<ScheduleFingerprint, Entry> newest = new LinkedHashMap<ScheduleFingerprint, Entry>();
+        for (int i = 0; i < offsets.size() && newest.size() < max; i++) {
+            int offset = offsets.get(i);
+            if (!isExpired(offset, now)) {
+                ScheduleFingerprint fingerprint = new ScheduleFingerprint(readFingerprint(offset));
+                newest.put(fingerprint, new Entry(fingerprint.restore(readPayments(offset)), getWrittenAt(offset)));
+            }
+        }
+        return newest;
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    synchronized long getEvictionCt() {
+        return evictionCt;
+    }
+
+    /*
+     * Moves the entries that are still indexed and have not expired to the start of the file, dropping the oldest
+     * ones until the rest take at most half of the file.
+     */
+    private void compact() {
+        long now = clock.getAsLong();
+        List<Integer> offsets = new ArrayList<Integer>(index.values());
+        Collections.sort(offsets);
+
+        long budget = (capacity - HEADER_SIZE) / 2;
+        long kept = 0;
+        int first = offsets.size();
+        while (first > 0) {
+            int offset = offsets.get(first - 1);
+            long size = 4 + buffer.getInt(offset);
+            if (isExpired(offset, now) || kept + size > budget) {
+                break;
+            }
+            kept += size;
+            first--;
+        }
+        evictionCt += first;
+
+        // The entries keep their order, and each one moves down, so one never overwrites another before it is moved.
+        index.clear();
+        int to = HEADER_SIZE;
+        for (int i = first; i < offsets.size(); i++) {
+            int from = offsets.get(i);
+            int size = 4 + buffer.getInt(from);
+            if (from != to) {
+                byte[] entry = new byte[size];
+                for (int j = 0; j < size; j++) {
+                    entry[j] = buffer.get(from + j);
+                }
+                for (int j = 0; j < size; j++) {
+                    buffer.put(to + j, entry[j]);
+                }
+            }
+            index.put(buffer.getLong(to + 8), to);
+            to += size;
+        }
+        terminate(to);
+        end = to;
+    }
+
+    private boolean isExpired(int offset, long now) {
+        return now - getWrittenAt(offset) >= ttlMillis;
+    }
+
+    private long getWrittenAt(int offset) {
+        return buffer.getLong(offset + 16);
+    }
+
+    private byte[] readFingerprint(int offset) {
+        byte[] bytes = new byte[buffer.getInt(offset + 24)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + ENTRY_HEADER_SIZE + i);
+        }
+        return bytes;
+    }
+
+    private Payment[] readPayments(int offset) {
+        int pos = offset + ENTRY_HEADER_SIZE + buffer.getInt(offset + 24);
+        Payment[] payments = new Payment[buffer.getInt(pos)];
+        pos += 4;
+        for (int i = 0; i < payments.length; i++) {
+            payments[i] = DefaultPayment.restore(buffer.getDouble(pos), buffer.getDouble(pos + 8),
+                    buffer.getDouble(pos + 16), buffer.getDouble(pos + 24), buffer.getDouble(pos + 32),
+                    buffer.getDouble(pos + 40));
+            pos += PAYMENT_SIZE;
+        }
+        return payments;
+    }
+
+    /*
+     * Computes the checksum of the entry at offset, from its hash to its end.
+     */
+    private int checksum(int offset, int length) {
+        ByteBuffer covered = buffer.duplicate();
+        covered.limit(offset + 4 + length);
+        covered.position(offset + 8);
+
+        CRC32 crc = new CRC32();
+        crc.update(covered);
+        return (int) crc.getValue();
+    }
+
+    /*
+     * Marks the end of the entries with a length of 0.
+     */
+    private void terminate(int offset) {
+        if (offset <= capacity - 4) {
+            buffer.putInt(offset, 0);
+        }
+    }
+
+    /*
+     * The table of an entry, and the time it was written, so the heap tier expires it at the same time as this store.
+     */
+    static final class Entry {
+
+        final ScheduleCore core;
+        final long writtenAt;
+
+        private Entry(ScheduleCore core, long writtenAt) {
+            this.core = core;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            index.clear();
+            buffer.force();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package co.da.jmtg.amort;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.util.Cents;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * The servicing state of a live loan, built up from the payments that were actually made. A ledger starts from the
+ * <tt>PmtCalculator</tt> and <tt>PmtKey</tt> of the loan, and each call to {@link #post(LocalDate, double)} applies
+ * one payment to the next installment due. A payment that differs from the scheduled payment is the scheduled payment
+ * plus an extra payment, which is negative if less was paid. Posting only updates the balance and interest of the
+ * ledger with the arithmetic of the amortization table, so it takes constant time and does not build a table.
+ * </p>
+ *
+ * <p>
+ * The ledger keeps the extra payment of every installment it posted, which is all that is needed to build the
+ * amortization table of the loan again. {@link #snapshot()} builds a <tt>FixedAmortizationCalculator</tt> with the
+ * posted installments as they were paid and the rest as scheduled. The values of its payments are exactly the values
+ * the ledger posted. The snapshot is not interned, since the table of a serviced loan is rarely shared, so it must be
+ * compared with equals().
+ * </p>
+ *
+ * <p>
+ * A ledger is mutable and is not thread safe. Each loan of a portfolio has a ledger of its own, so the postings of a
+ * portfolio can be spread over threads by loan without any locks.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class ServicingLedger {
+
+    private final PmtCalculator pmtCalculator;
+    private final PmtKey pmtKey;
+    private final List<LocalDate> keys;
+
+    private final double periodInterestRate;
+    private final double pmt;
+    private final long pmtCents;
+
+    // The extra payment of each posted installment, by index. It is the event log of the ledger.
+    private final double[] extraPmts;
+
+    // The index of the next installment due. The installments before it are posted.
+    private int nextIdx;
+
+    // The unrounded balance and cumulative interest after the last posted installment, and before it, so another
+    // payment on the same date can be added to it.
+    private double principalOwed;
+    private double interestPaid;
+    private double lastPrincipalOwed;
+    private double lastInterestPaid;
+
+    private ServicingLedger(PmtCalculator pmtCalculator, PmtKey pmtKey) {
+        this.pmtCalculator = pmtCalculator;
+        this.pmtKey = pmtKey;
+        keys = pmtKey.getKeys();
+
+        periodInterestRate = pmtCalculator.getPeriodInterestRate();
+        pmt = pmtCalculator.getPmtUnrounded();
+        pmtCents = Cents.toCents(pmtCalculator.getPmt());
+        extraPmts = new double[pmtKey.getCount()];
+        principalOwed = pmtCalculator.getLoanAmt();
+    }
+
+    /**
+     * Creates a ledger for a loan with nothing posted.
+     *
+     * @param pmtCalculator
+     *            The mortgage data, including payment amounts
+     * @param pmtKey
+     *            The mortgage start date, and interval between payments
+     * @return new <tt>ServicingLedger</tt>
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator or pmtKey is null.
+     *
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY.
+     */
+    public static ServicingLedger of(PmtCalculator pmtCalculator, PmtKey pmtKey) {
+        DefaultFixedAmortizationCalculator.checkPreconditions(pmtCalculator, pmtKey);
+        return new ServicingLedger(pmtCalculator, pmtKey);
+    }
+
+    /**
+     * Posts a payment. The payment is for the installment due on the date passed in. The installments due before it
+     * that were not posted are posted as missed, so their interest is added to the balance. A payment on the date of
+     * the last installment posted is added to the payment of that installment. A payment equal to the rounded
+     * scheduled payment pays the installment exactly as scheduled.
+     *
+     * @param date
+     *            the due date of the installment paid. It must be one of the payment keys.
+     * @param amount
+     *            the amount paid
+     *
+     * @return this ledger
+     *
+     * @throws NullPointerException
+     *             if date is null.
+     *
+     * @throws IllegalArgumentException
+     *             if amount is less than 0, if date is not a payment key, or if date is before the due date of the
+     *             last installment posted.
+     *
+     * @throws IllegalStateException
+     *             if the loan is paid off and the payment is not added to the last installment posted.
+     */
+    public ServicingLedger post(LocalDate date, double amount) {
+        Preconditions.checkNotNull(date, "date must not be null.");
+        Preconditions.checkArgument(amount >= 0.0, "amount must not be less than 0.");
+
+        int idx = indexOf(date);
+        if (idx < nextIdx - 1) {
+            // Build the message only when it is thrown, since posting must not allocate.
+            throw new IllegalArgumentException("date must not be before " + keys.get(nextIdx - 1) + ".");
+        }
+
+        double extraPmt;
+        if (idx == nextIdx - 1) {
+            // Another payment on the last installment posted, so post the installment again with both payments.
+            extraPmt = extraPmts[idx] + Cents.toCents(amount) / 100.0;
+            principalOwed = lastPrincipalOwed;
+            interestPaid = lastInterestPaid;
+            nextIdx--;
+        } else {
+            Preconditions.checkState(AmortizationKernel.isOwed(principalOwed), "The loan is paid off.");
+            while (nextIdx < idx && AmortizationKernel.isOwed(principalOwed)) {
+                apply(-pmt);
+            }
+            Preconditions.checkState(AmortizationKernel.isOwed(principalOwed), "The loan is paid off.");
+            // A payment of 0.0 is a missed installment, so post it with the same extra payment as the installments
+            // skipped above. Otherwise the difference between the rounded and unrounded payment would be left over.
+            extraPmt = amount == 0.0 ? -pmt : (Cents.toCents(amount) - pmtCents) / 100.0;
+        }
+
+        apply(extraPmt);
+        return this;
+    }
+
+    /*
+     * Gets the index of the payment key on the date passed in. Payments are almost always posted for the next
+     * installment due, so that key is checked before the keys are searched.
+     *
+     * @throws IllegalArgumentException if date is not one of the payment keys.
+     */
+    private int indexOf(LocalDate date) {
+        if (nextIdx < keys.size() && keys.get(nextIdx).equals(date)) {
+            return nextIdx;
+        }
+        int idx = Collections.binarySearch(keys, date);
+        if (idx < 0) {
+            throw new IllegalArgumentException("date " + date + " is not a payment date of this mortgage.");
+        }
+        return idx;
+    }
+
+    /*
+     * Posts the next installment with the extra payment passed in, with the same arithmetic as the payments of the
+     * amortization table.
+     */
+    private void apply(double extraPmt) {
+        lastPrincipalOwed = principalOwed;
+        lastInterestPaid = interestPaid;
+
+        double interest = principalOwed * periodInterestRate;
+        double total = Math.min(pmt + extraPmt, principalOwed + interest);
+        double principal = total - interest;
+        principalOwed = principalOwed - principal;
+        interestPaid = interestPaid + interest;
+        extraPmts[nextIdx++] = extraPmt;
+    }
+
+    public PmtCalculator getPmtCalculator() {
+        return pmtCalculator;
+    }
+
+    public PmtKey getPmtKey() {
+        return pmtKey;
+    }
+
+    /**
+     * Gets the number of installments posted, including the ones posted as missed.
+     *
+     * @return number of installments posted
+     */
+    public int getPostedCt() {
+        return nextIdx;
+    }
+
+    /**
+     * Gets the due date of the next installment.
+     *
+     * @return the due date, or null if every installment is posted or the loan is paid off
+     */
+    public LocalDate getNextDueDate() {
+        return nextIdx < keys.size() && !isPaidOff() ? keys.get(nextIdx) : null;
+    }
+
+    /**
+     * Gets the amount posted for an installment, which is 0.0 for a missed installment.
+     *
+     * @param idx
+     *            the index of the installment. The first installment is 0.
+     *
+     * @return the amount posted, rounded to cents
+     *
+     * @throws IndexOutOfBoundsException
+     *             if idx is less than 0 or not less than the number of installments posted
+     */
+    public double getPaidAmount(int idx) {
+        Preconditions.checkElementIndex(idx, nextIdx);
+        if (extraPmts[idx] == -pmt) {
+            return 0.0;
+        }
+        return Math.max(0L, pmtCents + Cents.toCents(extraPmts[idx])) / 100.0;
+    }
+
+    /**
+     * Gets the balance after the last installment posted, rounded to cents.
+     *
+     * @return balance
+     */
+    public double getBalance() {
+        return Cents.toCents(principalOwed) / 100.0;
+    }
+
+    /**
+     * Gets the cumulative interest after the last installment posted, rounded to cents.
+     *
+     * @return cumulative interest
+     */
+    public double getCumulativeInterest() {
+        return Cents.toCents(interestPaid) / 100.0;
+    }
+
+    /**
+     * Returns true if the balance is 0.0 when rounded to cents.
+     *
+     * @return true if the loan is paid off
+     */
+    public boolean isPaidOff() {
+        return !AmortizationKernel.isOwed(principalOwed);
+    }
+
+    /**
+     * Builds the amortization table of the loan: the posted installments as they were paid, and the rest as scheduled.
+     * The ledger is not changed, and can go on posting.
+     *
+     * @return <tt>FixedAmortizationCalculator</tt> that is not interned
+     */
+    public FixedAmortizationCalculator snapshot() {
+        return DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey,
+                ExtraPmtRules.of(extraPmts, nextIdx));
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("pmtCalculator", pmtCalculator)
+                .add("pmtKey", pmtKey)
+                .add("postedCt", nextIdx)
+                .add("balance", getBalance())
+                .toString();
+    }
+}
@@ -0,0 +1,75 @@
+package co.da.jmtg.amort;
+
+import java.util.SortedMap;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.pmt.PmtCalculator;
+
+/**
+ * An amortization calculator for a loan whose scheduled payment is not level for its whole life: an interest-only
+ * loan, a balloon loan, or a graduated payment loan. The rate is fixed. Its table is built by the same loop as the
+ * table of a <tt>FixedAmortizationCalculator</tt>, with the payment the {@link PmtStructure} schedules for each
+ * installment. Implementations should be immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public interface StructuredAmortizationCalculator {
+
+    /**
+     * Gets the <tt>PmtCalculator</tt> with the loan amount, interest rate, payment count, and payment period.
+     *
+     * @return <tt>PmtCalculator</tt> instance
+     */
+    PmtCalculator getPmtCalculator();
+
+    /**
+     * Gets the <tt>PmtKey</tt> with the dates of the payments.
+     *
+     * @return <tt>PmtKey</tt> instance
+     */
+    PmtKey getPmtKey();
+
+    /**
+     * Gets how the scheduled payment changes over the life of the loan.
+     *
+     * @return <tt>PmtStructure</tt>
+     */
+    PmtStructure getPmtStructure();
+
+    /**
+     * Gets a payment.
+     *
+     * @param pmtIdx
+     *            the index of the payment. The first payment is 0.
+     *
+     * @return <tt>Payment</tt> instance
+     *
+     * @throws IndexOutOfBoundsException
+     *             if pmtIdx is less than 0 or not less than the number of payments
+     */
+    Payment getPayment(int pmtIdx);
+
+    /**
+     * Gets the number of payments until the loan is paid off.
+     *
+     * @return number of payments
+     */
+    int size();
+
+    /**
+     * Gets the total cost of the mortgage: the loan amount plus the rounded cumulative interest of the last payment.
+     *
+     * @return total cost
+     */
+    double getTotalCost();
+
+    /**
+     * Gets the amortization table, with the date each payment is due as the key.
+     *
+     * @return <tt>SortedMap</tt>
+     */
+    SortedMap<LocalDate, Payment> getTable();
+}
@@ -0,0 +1,106 @@
+package co.da.jmtg.amort;
+
+import co.da.jmtg.pmt.PmtCalculator;
+
+/**
+ * <p>
+ * Contains static methods pertaining to instances of <tt>StructuredAmortizationCalculator</tt>.
+ * </p>
+ *
+ * <p>
+ * The objects these methods return do not use instance control, so they must be compared with equals().
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public class StructuredAmortizationCalculators {
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private StructuredAmortizationCalculators() {
+    }
+
+    /**
+     * Creates a calculator for an interest-only loan. The first payments pay only the interest on the loan amount, and
+     * the payments after them pay off the loan amount over the rest of the payments of the <tt>PmtCalculator</tt>.
+     *
+     * @param pmtCalculator
+     *            the loan amount, interest rate, payment count, and payment period of the mortgage
+     * @param pmtKey
+     *            the mortgage start date, and interval between payments for this mortgage
+     * @param interestOnlyPmts
+     *            the number of payments that pay only interest
+     *
+     * @return DefaultStructuredAmortizationCalculator
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator or pmtKey is null.
+     *
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY, or
+     *             if interestOnlyPmts is less than 0 or not less than the payment count of the
+     *             <tt>PmtCalculator</tt>.
+     */
+    public static StructuredAmortizationCalculator getInterestOnlyAmortizationCalculator(PmtCalculator pmtCalculator,
+            PmtKey pmtKey, int interestOnlyPmts) {
+        return DefaultStructuredAmortizationCalculator.getInterestOnlyInstance(pmtCalculator, pmtKey,
+                interestOnlyPmts);
+    }
+
+    /**
+     * Creates a calculator for a balloon loan. The payments are the level payment of the <tt>PmtCalculator</tt>, which
+     * amortizes the loan over its payment count, until the loan matures. The payment at maturity pays off the balance
+     * and interest owed.
+     *
+     * @param pmtCalculator
+     *            the loan amount, interest rate, amortization payment count, and payment period of the mortgage
+     * @param pmtKey
+     *            the mortgage start date, and interval between payments for this mortgage
+     * @param maturityPmts
+     *            the number of payments until the loan matures, including the balloon payment
+     *
+     * @return DefaultStructuredAmortizationCalculator
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator or pmtKey is null.
+     *
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY, or
+     *             if maturityPmts is not greater than 0 or is greater than the count of payment keys.
+     */
+    public static StructuredAmortizationCalculator getBalloonAmortizationCalculator(PmtCalculator pmtCalculator,
+            PmtKey pmtKey, int maturityPmts) {
+        return DefaultStructuredAmortizationCalculator.getBalloonInstance(pmtCalculator, pmtKey, maturityPmts);
+    }
+
+    /**
+     * Creates a calculator for a graduated payment loan. The payment goes up by graduationRate percent every
+     * pmtsPerStep payments, steps times, and then stays level until the loan is paid off. A common plan is a monthly
+     * payment that goes up 7.5% a year for 5 years: pmtsPerStep 12, steps 5, and graduationRate 7.5.
+     *
+     * @param pmtCalculator
+     *            the loan amount, interest rate, payment count, and payment period of the mortgage
+     * @param pmtKey
+     *            the mortgage start date, and interval between payments for this mortgage
+     * @param pmtsPerStep
+     *            the number of payments between increases
+     * @param steps
+     *            the number of increases
+     * @param graduationRate
+     *            the increase as a percentage of the payment before it
+     *
+     * @return DefaultStructuredAmortizationCalculator
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator or pmtKey is null.
+     *
+     * @throws IllegalArgumentException
+     *             if PmtPeriod in PmtCalculator is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY, if
+     *             pmtsPerStep is not greater than 0, or if steps or graduationRate is less than 0.
+     */
+    public static StructuredAmortizationCalculator getGraduatedAmortizationCalculator(PmtCalculator pmtCalculator,
+            PmtKey pmtKey, int pmtsPerStep, int steps, double graduationRate) {
+        return DefaultStructuredAmortizationCalculator.getGraduatedInstance(pmtCalculator, pmtKey, pmtsPerStep, steps,
+                graduationRate);
+    }
+}
@@ -0,0 +1,205 @@
+package co.da.jmtg.amort;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.Ordering;
+
+/**
+ * Selects the k cheapest schedules from a stream of <tt>ScheduleCandidate</tt> objects. The candidates are read in
+ * batches, and the total cost of each batch is calculated by a task on an <tt>ExecutorService</tt>. Each task keeps
+ * the k cheapest candidates of its batch, and those are merged into a bounded heap of the k cheapest candidates so far.
+ * Only a limited number of batches are in flight at once, so the candidates do not have to fit in memory. The
+ * amortization tables are built for the winners only.
+ * 
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class TopKSelector {
+
+    private static final int BATCH_SIZE = 256;
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private TopKSelector() {
+    }
+
+    static List<FixedAmortizationCalculator> select(Iterable<ScheduleCandidate> candidates, final int k,
+            ExecutorService executor) {
+        Preconditions.checkNotNull(candidates, "candidates must not be null.");
+        Preconditions.checkArgument(k > 0, "k must be greater than 0.");
+        Preconditions.checkNotNull(executor, "executor must not be null.");
+
+        // The heap is ordered with the most expensive candidate at its head, so it is the one that gets replaced.
+        PriorityQueue<Scored> best = new PriorityQueue<>(k, Collections.reverseOrder());
+        Deque<Future<List<Scored>>> inFlight = new ArrayDeque<>();
+        int maxInFlight = Runtime.getRuntime().availableProcessors() * 2;
+
+        try {
+            long seq = 0;
+            List<ScheduleCandidate> batch = new ArrayList<>(BATCH_SIZE);
+            long batchStart = seq;
+            for (ScheduleCandidate candidate : candidates) {
+                Preconditions.checkNotNull(candidate, "candidates must not contain null.");
+                batch.add(candidate);
+                seq++;
+                if (batch.size() == BATCH_SIZE) {
+                    if (inFlight.size() >= maxInFlight) {
+                        merge(best, k, getResult(inFlight.removeFirst()));
+                    }
+                    inFlight.addLast(executor.submit(new BatchTask(batch, batchStart, k)));
+                    batch = new ArrayList<>(BATCH_SIZE);
+                    batchStart = seq;
+                }
+            }
+            if (!batch.isEmpty()) {
+                inFlight.addLast(executor.submit(new BatchTask(batch, batchStart, k)));
+            }
+            while (!inFlight.isEmpty()) {
+                merge(best, k, getResult(inFlight.removeFirst()));
+            }
+        } finally {
+            // Only non-empty if a task failed. Don't leave the rest of the batches running.
+            for (Future<List<Scored>> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+
+        List<FixedAmortizationCalculator> winners = new ArrayList<>(best.size());
+        for (Scored scored : best) {
+            winners.add(scored.getCalculator());
+        }
+        return Ordering.natural().sortedCopy(winners);
+    }
+
+    private static void merge(PriorityQueue<Scored> best, int k, List<Scored> scores) {
+        for (Scored scored : scores) {
+            offer(best, k, scored);
+        }
+    }
+
+    /*
+     * Adds scored to the heap if it has fewer than k entries or if scored is cheaper than the most expensive entry.
+     */
+    private static void offer(PriorityQueue<Scored> best, int k, Scored scored) {
+        if (best.size() < k) {
+            best.add(scored);
+        } else if (scored.compareTo(best.peek()) < 0) {
+            best.poll();
+            best.add(scored);
+        }
+    }
+
+    /*
+     * Gets the result of a task, and rethrows the exception it threw, if any.
+     */
+    static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a batch of candidates.", e);
+        } catch (ExecutionException e) {
+            // Rethrow the exception the candidate threw, such as an IllegalArgumentException for an invalid extra
+            // payment date, so callers see the same exception they would see when building the calculator.
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /*
+     * Calculates the total cost of every candidate in a batch and returns the k cheapest.
+     */
+    private static class BatchTask implements Callable<List<Scored>> {
+
+        private final List<ScheduleCandidate> batch;
+        private final long firstSeq;
+        private final int k;
+
+        BatchTask(List<ScheduleCandidate> batch, long firstSeq, int k) {
+            this.batch = batch;
+            this.firstSeq = firstSeq;
+            this.k = k;
+        }
+
+        @Override
+        public List<Scored> call() {
+            PriorityQueue<Scored> best = new PriorityQueue<>(k, Collections.reverseOrder());
+            for (int i = 0; i < batch.size(); i++) {
+                ScheduleCandidate candidate = batch.get(i);
+                offer(best, k, new Scored(candidate.calcTotalCost(), firstSeq + i, candidate));
+            }
+            return new ArrayList<>(best);
+        }
+    }
+
+    /*
+     * A candidate and its total cost. Candidates are ordered the way compareTo orders the calculators they build, so
+     * the k candidates that are kept are the first k of the sorted calculators no matter how the input was split into
+     * batches. Candidates with the same total cost are ordered by their PmtCalculator and PmtKey. Only if those are
+     * equal too are the calculators built and compared, and candidates that build equal calculators are ordered by
+     * their position in the input.
+     */
+    private static class Scored implements Comparable<Scored> {
+
+        private final double totalCost;
+        private final long seq;
+        private final ScheduleCandidate candidate;
+
+        // Built the first time a tie needs it or when this candidate is one of the winners. A Scored is only used by
+        // one thread at a time, and the Future that hands it over makes the field visible to the next one.
+        private FixedAmortizationCalculator calculator;
+
+        Scored(double totalCost, long seq, ScheduleCandidate candidate) {
+            this.totalCost = totalCost;
+            this.seq = seq;
+            this.candidate = candidate;
+        }
+
+        FixedAmortizationCalculator getCalculator() {
+            if (calculator == null) {
+                calculator = candidate.toCalculator();
+            }
+            return calculator;
+        }
+
+        @Override
+        public int compareTo(Scored o) {
+            int result = Double.compare(totalCost, o.totalCost);
+            if (result != 0) {
+                return result;
+            }
+
+            result = ComparisonChain.start()
+                    .compare(candidate.getPmtCalculator(), o.candidate.getPmtCalculator())
+                    .compare(candidate.getPmtKey(), o.candidate.getPmtKey())
+                    .result();
+            if (result != 0) {
+                return result;
+            }
+
+            if (candidate != o.candidate) {
+                result = getCalculator().compareTo(o.getCalculator());
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return Long.compare(seq, o.seq);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package co.da.jmtg.amort;
+
+import java.io.Serializable;
+
+import co.da.jmtg.pmt.PmtCalculator;
+
+import com.google.common.collect.Ordering;
+
+/**
+ * An <tt>Ordering</tt> of <tt>FixedAmortizationCalculator</tt> objects by total cost. It orders objects the same way
+ * <tt>compareTo</tt> does for the values it compares, but it only reads values each object calculated when it was
+ * created, so it does not allocate or walk the amortization tables. Use it to sort large collections of calculators.
+ * 
+ * <p>
+ * Objects with the same total cost are ordered by the values of their <tt>PmtCalculator</tt> and <tt>PmtKey</tt>, then
+ * by the count of payments in the table. Two objects that are equal for all these values are considered equal by this
+ * ordering even if the payments in their tables differ, so this ordering is not consistent with equals.
+ * </p>
+ * 
+ * @since 1.1
+ * @author David Armstrong
+ */
+class TotalCostOrdering extends Ordering<FixedAmortizationCalculator> implements Serializable {
+
+    static final TotalCostOrdering INSTANCE = new TotalCostOrdering();
+
+    private static final long serialVersionUID = 0;
+
+    private TotalCostOrdering() {
+    }
+
+    @Override
+    public int compare(FixedAmortizationCalculator left, FixedAmortizationCalculator right) {
+        if (left == right) {
+            return 0;
+        }
+
+        int result = Double.compare(left.getTotalCost(), right.getTotalCost());
+        if (result != 0) {
+            return result;
+        }
+
+        PmtCalculator leftCalc = left.getPmtCalculator();
+        PmtCalculator rightCalc = right.getPmtCalculator();
+        if (leftCalc != rightCalc) {
+            result = Double.compare(leftCalc.getLoanAmt(), rightCalc.getLoanAmt());
+            if (result != 0) return result;
+            result = Double.compare(leftCalc.getInterestRate(), rightCalc.getInterestRate());
+            if (result != 0) return result;
+            result = Double.compare(leftCalc.getPeriodInterestRate(), rightCalc.getPeriodInterestRate());
+            if (result != 0) return result;
+            result = Integer.compare(leftCalc.getTerm(), rightCalc.getTerm());
+            if (result != 0) return result;
+            result = Integer.compare(leftCalc.getPmtCt(), rightCalc.getPmtCt());
+            if (result != 0) return result;
+            result = Integer.compare(leftCalc.getPmtPeriod().ordinal(), rightCalc.getPmtPeriod().ordinal());
+            if (result != 0) return result;
+            result = Double.compare(leftCalc.getPmtUnrounded(), rightCalc.getPmtUnrounded());
+            if (result != 0) return result;
+        }
+
+        PmtKey leftKey = left.getPmtKey();
+        PmtKey rightKey = right.getPmtKey();
+        if (leftKey != rightKey) {
+            result = leftKey.getFirstKey().compareTo(rightKey.getFirstKey());
+            if (result != 0) return result;
+            result = Integer.compare(leftKey.getPmtPeriod().ordinal(), rightKey.getPmtPeriod().ordinal());
+            if (result != 0) return result;
+            result = Integer.compare(leftKey.getCount(), rightKey.getCount());
+            if (result != 0) return result;
+        }
+
+        result = left.getEngine().compareTo(right.getEngine());
+        if (result != 0) return result;
+
+        // The Spliterator of a calculator of this library counts the rows of its core, so neither table is built.
+        return Long.compare(left.spliterator().getExactSizeIfKnown(), right.spliterator().getExactSizeIfKnown());
+    }
+
+    // Preserves the singleton on deserialization.
+    private Object readResolve() {
+        return INSTANCE;
+    }
+
+    @Override
+    public String toString() {
+        return "FixedAmortizationCalculators.totalCostOrdering()";
+    }
+}
@@ -0,0 +1,82 @@
+package co.da.jmtg.pmt;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A cache of the annuity factors of the payment formulas. The annuity factor is the monthly payment per unit of loan
+ * amount, and it depends only on the formula, the interest rate, and the term, so every loan amount of a product
+ * shares it. It is the part of a payment that takes <tt>Math.pow</tt>, so a calculator created from a cached factor
+ * only multiplies. The cache stops growing at {@link #MAX_SIZE} factors, since a simulation can ask for a payment at
+ * any rate, and the factors after that are computed each time. This object is thread safe.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class AnnuityFactors {
+
+    static final int MAX_SIZE = 1 << 16;
+
+    private static final ConcurrentMap<Key, Double> factors = new ConcurrentHashMap<Key, Double>();
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private AnnuityFactors() {
+    }
+
+    static double getDefault(double interestRate, int term) {
+        return get(false, interestRate, term);
+    }
+
+    static double getCanadian(double interestRate, int term) {
+        return get(true, interestRate, term);
+    }
+
+    private static double get(boolean canadian, double interestRate, int term) {
+        Key key = new Key(canadian, interestRate, term);
+        Double factor = factors.get(key);
+        if (factor != null) {
+            return factor;
+        }
+
+        double value = canadian ? CanadianPmtCalculator.calcAnnuityFactor(interestRate, term) : DefaultPmtCalculator
+                .calcAnnuityFactor(interestRate, term);
+        if (factors.size() < MAX_SIZE) {
+            factors.putIfAbsent(key, value);
+        }
+        return value;
+    }
+
+    static int size() {
+        return factors.size();
+    }
+
+    private static final class Key {
+        private final boolean canadian;
+        private final long interestRateBits;
+        private final int term;
+
+        private Key(boolean canadian, double interestRate, int term) {
+            this.canadian = canadian;
+            this.interestRateBits = Double.doubleToLongBits(interestRate);
+            this.term = term;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (interestRateBits ^ (interestRateBits >>> 32));
+            result = 31 * result + term;
+            return canadian ? ~result : result;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Key)) {
+                return false;
+            }
+
+            Key that = (Key) object;
+            return this.canadian == that.canadian && this.interestRateBits == that.interestRateBits
+                    && this.term == that.term;
+        }
+    }
+}
@@ -1,10 +1,11 @@
 package co.da.jmtg.pmt;
 
+import co.da.jmtg.util.StripedInterners;
+
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.Interner;
-import com.google.common.collect.Interners;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -27,13 +28,18 @@ class DefaultPmtCalculator implements PmtCalculator {
     private final double pmt;
     private final double pmtUnrounded;
 
+    // True if this object was created by getInstance and is held by the interner. Instances created by newInstance
+    // are not interned, and objects returned by their set methods are not interned either. It is not evaluated in
+    // hashCode, equals, or compareTo, so interned and non-interned objects with the same values are equal.
+    private final boolean interned;
+
     private volatile int hashCode;
 
     // Cache all instances of DefaultPmtCalculator. This will guarantee that only unique DefaultPmtCalculator objects
     // will exist. It means clients can use == to compare for equality.
-    private static final Interner<PmtCalculator> interner = Interners.newStrongInterner();
+    private static final Interner<PmtCalculator> interner = StripedInterners.newStrongInterner();
 
-    private DefaultPmtCalculator(PmtPeriod pmtPeriod, double loanAmt, double interestRate, int term) {
+    private DefaultPmtCalculator(PmtPeriod pmtPeriod, double loanAmt, double interestRate, int term, boolean interned) {
 
         Preconditions.checkNotNull(pmtPeriod, "pmtPeriod must not be null");
         Preconditions.checkArgument(loanAmt > 0.0, "Loan Amount must be greater than 0");
@@ -60,17 +66,34 @@ class DefaultPmtCalculator implements PmtCalculator {
 
         this.loanAmt = loanAmt;
         this.interestRate = interestRate;
-        this.periodInterestRate = (interestRate / pmtPeriod.pmtsPerYear()) / 100;
+        this.periodInterestRate = calcPeriodInterestRate(pmtPeriod, interestRate);
         this.pmtPeriod = pmtPeriod;
         this.term = term;
         pmtCt =  term;
+        this.interned = interned;
 
-        pmtUnrounded = calcPmtUnrounded();
+        pmtUnrounded = scalePmt(pmtPeriod, loanAmt * AnnuityFactors.getDefault(interestRate, term));
         pmt = calcPmt(pmtUnrounded);
     }
 
     public static PmtCalculator getInstance(PmtPeriod pmtPeriod, double loanAmt, double interestRate, int years) {
-        return interner.intern(new DefaultPmtCalculator(pmtPeriod, loanAmt, interestRate, years));
+        return interner.intern(new DefaultPmtCalculator(pmtPeriod, loanAmt, interestRate, years, true));
+    }
+
+    /*
+     * Creates an object that is not interned. It is equal to, but not the same object as, the one getInstance returns
+     * for the same values.
+     */
+    static PmtCalculator newInstance(PmtPeriod pmtPeriod, double loanAmt, double interestRate, int years) {
+        return new DefaultPmtCalculator(pmtPeriod, loanAmt, interestRate, years, false);
+    }
+
+    /*
+     * Creates an object with the same kind of instance control as this object.
+     */
+    private PmtCalculator create(PmtPeriod pmtPeriod, double loanAmt, double interestRate, int years) {
+        return interned ? getInstance(pmtPeriod, loanAmt, interestRate, years) : newInstance(pmtPeriod, loanAmt,
+                interestRate, years);
     }
 
     @Override
@@ -105,22 +128,22 @@ class DefaultPmtCalculator implements PmtCalculator {
 
     @Override
     public PmtCalculator setLoanAmt(double loanAmt) {
-        return getInstance(pmtPeriod, loanAmt, interestRate, term);
+        return create(pmtPeriod, loanAmt, interestRate, term);
     }
 
     @Override
     public PmtCalculator setInterestRate(double interestRate) {
-        return getInstance(pmtPeriod, loanAmt, interestRate, term);
+        return create(pmtPeriod, loanAmt, interestRate, term);
     }
 
     @Override
     public PmtCalculator setYears(int years) {
-        return getInstance(pmtPeriod, loanAmt, interestRate, years);
+        return create(pmtPeriod, loanAmt, interestRate, years);
     }
 
     @Override
     public PmtCalculator setPmtPeriod(PmtPeriod pmtPeriod) {
-        return getInstance(pmtPeriod, loanAmt, interestRate, term);
+        return create(pmtPeriod, loanAmt, interestRate, term);
     }
 
     @Override
@@ -137,12 +160,36 @@ class DefaultPmtCalculator implements PmtCalculator {
         return new BigDecimal(pmtUnrounded).setScale(2, RoundingMode.HALF_EVEN).doubleValue();
     }
 
-    private double calcPmtUnrounded() {
+    /*
+     * Calculates the interval interest rate for the values passed in. It is static so the rate can be calculated for
+     * other values without creating an object.
+     */
+    static double calcPeriodInterestRate(PmtPeriod pmtPeriod, double interestRate) {
+        return (interestRate / pmtPeriod.pmtsPerYear()) / 100;
+    }
+
+    /*
+     * Calculates the unrounded payment for the values passed in. It is static so the payment can be calculated for
+     * other values without creating an object.
+     */
+    static double calcPmtUnrounded(PmtPeriod pmtPeriod, double loanAmt, double interestRate, int term) {
+        return scalePmt(pmtPeriod, loanAmt * calcAnnuityFactor(interestRate, term));
+    }
+
+    /*
+     * Calculates the monthly payment per unit of loan amount. AnnuityFactors caches it.
+     */
+    static double calcAnnuityFactor(double interestRate, int term) {
         // Payment is calculated for monthly. That is why years is multiplied by 12.
         double mthlyIntRate = interestRate / (12 * 100);
         double pwer = Math.pow(1 + mthlyIntRate, -(term));
-        double pmt = loanAmt * (mthlyIntRate / (1 - pwer));
+        return mthlyIntRate / (1 - pwer);
+    }
 
+    /*
+     * Turns a monthly payment into the payment of pmtPeriod.
+     */
+    static double scalePmt(PmtPeriod pmtPeriod, double pmt) {
         // Now, see if the PmtPeriod is weekly, rapid weekly, biweekly, or rapid biweekly. If weekly divide payment by
         // 4. If biweekly, divide payment by 2.
         switch (pmtPeriod) {
@@ -0,0 +1,75 @@
+package co.da.jmtg.pmt;
+
+import java.nio.ByteBuffer;
+
+import co.da.jmtg.util.AbstractBinaryCodec;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The binary codec of the <tt>PmtCalculator</tt> implementations of this package. A record is 22 bytes: the formula,
+ * the ordinal of the <tt>PmtPeriod</tt>, the loan amount, the interest rate, and the payment count. The objects it
+ * reads are not interned. This object is stateless, so its thread safety is guaranteed.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class PmtCalculatorCodec extends AbstractBinaryCodec<PmtCalculator> {
+
+    static final PmtCalculatorCodec INSTANCE = new PmtCalculatorCodec();
+
+    private static final int SIZE = 22;
+
+    private static final byte DEFAULT = 0;
+    private static final byte CANADIAN = 1;
+
+    private static final PmtPeriod[] PERIODS = PmtPeriod.values();
+
+    private PmtCalculatorCodec() {
+        super((byte) 1);
+    }
+
+    @Override
+    public int sizeOf(PmtCalculator value) {
+        Preconditions.checkNotNull(value, "value must not be null.");
+        return SIZE;
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, PmtCalculator value) {
+        byte formula;
+        if (value instanceof DefaultPmtCalculator) {
+            formula = DEFAULT;
+        } else if (value instanceof CanadianPmtCalculator) {
+            formula = CANADIAN;
+        } else {
+            Preconditions.checkNotNull(value, "value must not be null.");
+            throw new IllegalArgumentException("Only DefaultPmtCalculator and CanadianPmtCalculator can be written.");
+        }
+
+        buffer.put(formula);
+        buffer.put((byte) value.getPmtPeriod().ordinal());
+        buffer.putDouble(value.getLoanAmt());
+        buffer.putDouble(value.getInterestRate());
+        buffer.putInt(value.getPmtCt());
+    }
+
+    @Override
+    public PmtCalculator read(ByteBuffer buffer, boolean validate) {
+        byte formula = buffer.get();
+        int period = buffer.get();
+        double loanAmt = buffer.getDouble();
+        double interestRate = buffer.getDouble();
+        int pmtCt = buffer.getInt();
+
+        if (validate) {
+            // The constructors check the rest of the fields, but not for values that cannot be written.
+            Preconditions.checkArgument(formula == DEFAULT || formula == CANADIAN, "Unknown formula %s.", formula);
+            Preconditions.checkArgument(period >= 0 && period < PERIODS.length, "Unknown PmtPeriod %s.", period);
+            Preconditions.checkArgument(!Double.isInfinite(loanAmt), "Loan Amount must be finite.");
+        }
+
+        return formula == CANADIAN ? CanadianPmtCalculator.newInstance(PERIODS[period], loanAmt, interestRate, pmtCt)
+                : DefaultPmtCalculator.newInstance(PERIODS[period], loanAmt, interestRate, pmtCt);
+    }
+}
@@ -1,5 +1,9 @@
 package co.da.jmtg.pmt;
 
+import co.da.jmtg.util.BinaryCodec;
+
+import com.google.common.base.Preconditions;
+
 /**
  * <p>
  * Contains static classes pertaining to instances of <tt>PmtCalculator</tt>.
@@ -17,6 +21,14 @@ package co.da.jmtg.pmt;
  * objects, it is safe to always use == instead of equals().
  * </p>
  * 
+ * <p>
+ * The newDefaultPmtCalculator and newCanadianPmtCalculator methods return objects that do not use instance control.
+ * They are meant for batch jobs that create an object, use it once, and discard it. Nothing holds a reference to these
+ * objects, so they can be garbage collected. The objects returned by their set methods do not use instance control
+ * either. These objects must be compared with equals(). They are equal to the objects with the same values returned by
+ * the get methods, and compareTo returns 0 for them.
+ * </p>
+ * 
  * @since 1.0
  * @author David Armstrong
  * 
@@ -78,4 +90,241 @@ public class PmtCalculators {
         return CanadianPmtCalculator.getInstance(pmtPeriod, loanAmt, interestRate, years);
     }
 
+    /**
+     * Get a new instance of <tt>DefaultPmtCalculator</tt> that does not use instance control.
+     * 
+     * @param pmtPeriod
+     *            Payment period of the mortgage
+     * @param loanAmt
+     *            Amount of the loan
+     * @param interestRate
+     *            interest rate
+     * @param years
+     *            number of years to pay mortgage
+     * 
+     * @return <tt>DefaultPmtCalculator</tt> instance of <tt>PmtCalculator</tt>
+     * 
+     * @throws NullPointerException
+     *             if pmtPeriod is null
+     * 
+     * @throws IllegalArgumentException
+     *             if loanAmt is not greater than 0, interest rate is not between 0 and 100, or years is not greater
+     *             than 0.
+     * 
+     * @since 1.1
+     */
+    public static PmtCalculator newDefaultPmtCalculator(PmtPeriod pmtPeriod, double loanAmt, double interestRate,
+            int years) {
+        return DefaultPmtCalculator.newInstance(pmtPeriod, loanAmt, interestRate, years);
+    }
+
+    /**
+     * Get a new instance of <tt>CanadianPmtCalculator</tt> that does not use instance control.
+     * 
+     * @param pmtPeriod
+     *            Payment period of the mortgage
+     * @param loanAmt
+     *            Amount of the loan
+     * @param interestRate
+     *            interest rate
+     * @param years
+     *            number of years to pay mortgage
+     * 
+     * @return <tt>CanadianPmtCalculator</tt> instance of <tt>PmtCalculator</tt>
+     * 
+     * @throws NullPointerException
+     *             if pmtPeriod is null
+     * 
+     * @throws IllegalArgumentException
+     *             if loanAmt is not greater than 0, interest rate is not between 0 and 100, or years is not greater
+     *             than 0.
+     * 
+     * @since 1.1
+     */
+    public static PmtCalculator newCanadianPmtCalculator(PmtPeriod pmtPeriod, double loanAmt, double interestRate,
+            int years) {
+        return CanadianPmtCalculator.newInstance(pmtPeriod, loanAmt, interestRate, years);
+    }
+
+    /**
+     * Calculates the unrounded payment a <tt>PmtCalculator</tt> of the same kind and payment period as the one passed
+     * in would calculate for another loan amount, interest rate, and payment count, without creating one. It is meant
+     * for loops that re-amortize a balance many times, such as a rate reset in a simulation, where creating a
+     * <tt>PmtCalculator</tt> for every reset would intern millions of objects. The values are not validated. For
+     * implementations of <tt>PmtCalculator</tt> outside of this package, the set methods of the one passed in are
+     * used.
+     * 
+     * @param pmtCalculator
+     *            the calculator whose formula and payment period to use
+     * @param loanAmt
+     *            Amount of the loan
+     * @param interestRate
+     *            interest rate
+     * @param pmtCt
+     *            number of payments
+     * 
+     * @return payment as <tt>double</tt>
+     * 
+     * @throws NullPointerException
+     *             if pmtCalculator is null
+     * 
+     * @since 1.1
+     */
+    public static double calcPmtUnrounded(PmtCalculator pmtCalculator, double loanAmt, double interestRate,
+            int pmtCt) {
+        if (pmtCalculator instanceof DefaultPmtCalculator) {
+            return DefaultPmtCalculator.calcPmtUnrounded(pmtCalculator.getPmtPeriod(), loanAmt, interestRate, pmtCt);
+        }
+        if (pmtCalculator instanceof CanadianPmtCalculator) {
+            return CanadianPmtCalculator.calcPmtUnrounded(pmtCalculator.getPmtPeriod(), loanAmt, interestRate, pmtCt);
+        }
+        return pmtCalculator.setLoanAmt(loanAmt).setInterestRate(interestRate).setYears(pmtCt).getPmtUnrounded();
+    }
+
+    /**
+     * Calculates the interval interest rate a <tt>PmtCalculator</tt> of the same kind and payment period as the one
+     * passed in would calculate for another interest rate, without creating one. See
+     * {@link #calcPmtUnrounded(PmtCalculator, double, double, int)}.
+     * 
+     * @param pmtCalculator
+     *            the calculator whose formula and payment period to use
+     * @param interestRate
+     *            interest rate
+     * 
+     * @return interval interest rate as <tt>double</tt>
+     * 
+     * @throws NullPointerException
+     *             if pmtCalculator is null
+     * 
+     * @since 1.1
+     */
+    public static double calcPeriodInterestRate(PmtCalculator pmtCalculator, double interestRate) {
+        if (pmtCalculator instanceof DefaultPmtCalculator) {
+            return DefaultPmtCalculator.calcPeriodInterestRate(pmtCalculator.getPmtPeriod(), interestRate);
+        }
+        if (pmtCalculator instanceof CanadianPmtCalculator) {
+            return CanadianPmtCalculator.calcPeriodInterestRate(pmtCalculator.getPmtPeriod(), interestRate);
+        }
+        return pmtCalculator.setInterestRate(interestRate).getPeriodInterestRate();
+    }
+
+    /**
+     * Gets the annuity factor of the formula of a <tt>PmtCalculator</tt> for an interest rate and payment count. The
+     * annuity factor is the monthly payment per unit of loan amount, and every loan amount of a product shares it.
+     * {@link #calcPmtUnrounded(PmtPeriod, double, double)} turns it into the payment of a loan amount. The factors are
+     * cached, and the calculators of the get and new methods take their payments from the same cache, so a warm cache
+     * saves the <tt>Math.pow</tt> calls when calculators are created.
+     * 
+     * @param pmtCalculator
+     *            the calculator whose formula to use. Its own values are not used.
+     * @param interestRate
+     *            interest rate
+     * @param pmtCt
+     *            number of payments
+     * 
+     * @return annuity factor as <tt>double</tt>
+     * 
+     * @throws NullPointerException
+     *             if pmtCalculator is null
+     * 
+     * @throws IllegalArgumentException
+     *             if pmtCalculator is not a <tt>DefaultPmtCalculator</tt> or a <tt>CanadianPmtCalculator</tt>
+     * 
+     * @since 1.1
+     */
+    public static double getAnnuityFactor(PmtCalculator pmtCalculator, double interestRate, int pmtCt) {
+        if (pmtCalculator instanceof DefaultPmtCalculator) {
+            return AnnuityFactors.getDefault(interestRate, pmtCt);
+        }
+        if (pmtCalculator instanceof CanadianPmtCalculator) {
+            return AnnuityFactors.getCanadian(interestRate, pmtCt);
+        }
+        Preconditions.checkNotNull(pmtCalculator, "pmtCalculator must not be null.");
+        throw new IllegalArgumentException("Only DefaultPmtCalculator and CanadianPmtCalculator have annuity factors.");
+    }
+
+    /**
+     * Calculates the annuity factor of the formula of a <tt>PmtCalculator</tt> for an interest rate and payment count
+     * without the cache. It is the same value {@link #getAnnuityFactor(PmtCalculator, double, int)} returns. It is
+     * meant for code that computes a grid of payments once and shares the factors itself, so the cache is left to the
+     * calculators a service keeps.
+     * 
+     * @param pmtCalculator
+     *            the calculator whose formula to use. Its own values are not used.
+     * @param interestRate
+     *            interest rate
+     * @param pmtCt
+     *            number of payments
+     * 
+     * @return annuity factor as <tt>double</tt>
+     * 
+     * @throws NullPointerException
+     *             if pmtCalculator is null
+     * 
+     * @throws IllegalArgumentException
+     *             if pmtCalculator is not a <tt>DefaultPmtCalculator</tt> or a <tt>CanadianPmtCalculator</tt>
+     * 
+     * @since 1.1
+     */
+    public static double calcAnnuityFactor(PmtCalculator pmtCalculator, double interestRate, int pmtCt) {
+        if (pmtCalculator instanceof DefaultPmtCalculator) {
+            return DefaultPmtCalculator.calcAnnuityFactor(interestRate, pmtCt);
+        }
+        if (pmtCalculator instanceof CanadianPmtCalculator) {
+            return CanadianPmtCalculator.calcAnnuityFactor(interestRate, pmtCt);
+        }
+        Preconditions.checkNotNull(pmtCalculator, "pmtCalculator must not be null.");
+        throw new IllegalArgumentException("Only DefaultPmtCalculator and CanadianPmtCalculator have annuity factors.");
+    }
+
+    /**
+     * Calculates the unrounded payment of a loan amount from an annuity factor that
+     * {@link #getAnnuityFactor(PmtCalculator, double, int)} or {@link #calcAnnuityFactor(PmtCalculator, double, int)}
+     * returned. It is exactly the payment a
+     * <tt>PmtCalculator</tt> of the same formula, interest rate, and payment count calculates for the loan amount and
+     * payment period.
+     * 
+     * @param pmtPeriod
+     *            Payment period of the mortgage
+     * @param loanAmt
+     *            Amount of the loan
+     * @param annuityFactor
+     *            the annuity factor
+     * 
+     * @return payment as <tt>double</tt>
+     * 
+     * @throws NullPointerException
+     *             if pmtPeriod is null
+     * 
+     * @since 1.1
+     */
+    public static double calcPmtUnrounded(PmtPeriod pmtPeriod, double loanAmt, double annuityFactor) {
+        Preconditions.checkNotNull(pmtPeriod, "pmtPeriod must not be null.");
+        // Both formulas turn a monthly payment into the payment of a period the same way.
+        return DefaultPmtCalculator.scalePmt(pmtPeriod, loanAmt * annuityFactor);
+    }
+
+    /**
+     * Gets the number of annuity factors in the cache.
+     * 
+     * @return number of cached annuity factors
+     * 
+     * @since 1.1
+     */
+    public static int getAnnuityFactorCt() {
+        return AnnuityFactors.size();
+    }
+
+    /**
+     * Gets the binary codec of the <tt>PmtCalculator</tt> objects these methods return. It writes
+     * <tt>DefaultPmtCalculator</tt> and <tt>CanadianPmtCalculator</tt> objects in records of 22 bytes, and the objects
+     * it reads do not use instance control, like the ones newDefaultPmtCalculator and newCanadianPmtCalculator return.
+     * 
+     * @return <tt>BinaryCodec</tt> for <tt>PmtCalculator</tt>
+     * 
+     * @since 1.1
+     */
+    public static BinaryCodec<PmtCalculator> getBinaryCodec() {
+        return PmtCalculatorCodec.INSTANCE;
+    }
 }
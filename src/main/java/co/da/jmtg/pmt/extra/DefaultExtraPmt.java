@@ -1,12 +1,12 @@
 package co.da.jmtg.pmt.extra;
 
 import co.da.jmtg.amort.PmtKey;
+import co.da.jmtg.util.StripedInterners;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.Interner;
-import com.google.common.collect.Interners;
 
 /**
  * The default implementation of <tt>ExtraPmt</tt>. This object contains the amount of the extra payment, the number of
@@ -25,16 +25,21 @@ class DefaultExtraPmt implements ExtraPmt {
     private final PmtKey pmtKey;
     private final double amount;
 
+    // True if this object was created by getInstance and is held by the interner. It is not evaluated in hashCode,
+    // equals, or compareTo.
+    private final boolean interned;
+
     private volatile int hashCode;
 
-    private static final Interner<ExtraPmt> interner = Interners.newStrongInterner();
+    private static final Interner<ExtraPmt> interner = StripedInterners.newStrongInterner();
 
-    private DefaultExtraPmt(PmtKey pmtKey, double amount) {
+    private DefaultExtraPmt(PmtKey pmtKey, double amount, boolean interned) {
         Preconditions.checkNotNull(pmtKey, "pmtKey must not be null.");
         Preconditions.checkArgument(amount > 0.0, "amount must be greater than 0.");
 
         this.pmtKey = pmtKey;
         this.amount = amount;
+        this.interned = interned;
     }
 
     /**
@@ -46,7 +51,21 @@ class DefaultExtraPmt implements ExtraPmt {
      *            The amount value
      */
     public static ExtraPmt getInstance(PmtKey pmtKey, double amount) {
-        return interner.intern(new DefaultExtraPmt(pmtKey, amount));
+        return interner.intern(new DefaultExtraPmt(pmtKey, amount, true));
+    }
+
+    /*
+     * Creates an object that is not interned. The set methods of the object it returns do not intern either.
+     */
+    static ExtraPmt newInstance(PmtKey pmtKey, double amount) {
+        return new DefaultExtraPmt(pmtKey, amount, false);
+    }
+
+    /*
+     * Creates an object with the same kind of instance control as this object.
+     */
+    private ExtraPmt create(PmtKey pmtKey, double amount) {
+        return interned ? getInstance(pmtKey, amount) : newInstance(pmtKey, amount);
     }
 
     @Override
@@ -61,12 +80,12 @@ class DefaultExtraPmt implements ExtraPmt {
 
     @Override
     public ExtraPmt setPmtKey(PmtKey pmtKey) {
-        return getInstance(pmtKey, amount);
+        return create(pmtKey, amount);
     }
 
     @Override
     public ExtraPmt setAmount(double amount) {
-        return getInstance(pmtKey, amount);
+        return create(pmtKey, amount);
     }
 
     @Override
@@ -0,0 +1,52 @@
+package co.da.jmtg.pmt.extra;
+
+import java.nio.ByteBuffer;
+
+import co.da.jmtg.amort.PmtKey;
+import co.da.jmtg.amort.PmtKeys;
+import co.da.jmtg.util.AbstractBinaryCodec;
+import co.da.jmtg.util.BinaryCodec;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The binary codec of <tt>ExtraPmt</tt>. A record is the record of its <tt>PmtKey</tt> followed by the amount, which
+ * is 17 bytes. Any implementation of <tt>ExtraPmt</tt> can be written, and the objects it reads are DefaultExtraPmt
+ * objects that are not interned. This object is stateless, so its thread safety is guaranteed.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class ExtraPmtCodec extends AbstractBinaryCodec<ExtraPmt> {
+
+    static final ExtraPmtCodec INSTANCE = new ExtraPmtCodec();
+
+    private static final BinaryCodec<PmtKey> pmtKeyCodec = PmtKeys.getBinaryCodec();
+
+    private ExtraPmtCodec() {
+        super((byte) 3);
+    }
+
+    @Override
+    public int sizeOf(ExtraPmt value) {
+        return pmtKeyCodec.sizeOf(value.getPmtKey()) + 8;
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, ExtraPmt value) {
+        pmtKeyCodec.write(buffer, value.getPmtKey());
+        buffer.putDouble(value.getAmount());
+    }
+
+    @Override
+    public ExtraPmt read(ByteBuffer buffer, boolean validate) {
+        PmtKey pmtKey = pmtKeyCodec.read(buffer, validate);
+        double amount = buffer.getDouble();
+
+        if (validate) {
+            Preconditions.checkArgument(!Double.isInfinite(amount), "amount must be finite.");
+        }
+
+        return DefaultExtraPmt.newInstance(pmtKey, amount);
+    }
+}
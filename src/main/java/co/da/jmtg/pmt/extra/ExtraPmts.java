@@ -1,6 +1,7 @@
 package co.da.jmtg.pmt.extra;
 
 import co.da.jmtg.amort.PmtKey;
+import co.da.jmtg.util.BinaryCodec;
 
 /**
  * <p>
@@ -13,6 +14,11 @@ import co.da.jmtg.amort.PmtKey;
  * safe to always use == instead of equals().
  * </p>
  * 
+ * <p>
+ * The newDefaultExtraPmt method returns a DefaultExtraPmt that does not use instance control. It is meant for batch
+ * jobs that create an object, use it once, and discard it. These objects must be compared with equals().
+ * </p>
+ * 
  * @since 1.0
  * 
  * @author David Armstrong
@@ -36,4 +42,33 @@ public class ExtraPmts {
     public static ExtraPmt getDefaultExtraPmt(PmtKey pmtKey, double amount) {
         return DefaultExtraPmt.getInstance(pmtKey, amount);
     }
+
+    /**
+     * Creates an object with the specified {@link PmtKey} instance and amount that does not use instance control.
+     * 
+     * @param pmtKey
+     *            The <tt>PmtKey</tt> instance
+     * @param amount
+     *            The amount value
+     * 
+     * @return a DefaultExtraPmt instance
+     * 
+     * @since 1.1
+     */
+    public static ExtraPmt newDefaultExtraPmt(PmtKey pmtKey, double amount) {
+        return DefaultExtraPmt.newInstance(pmtKey, amount);
+    }
+
+    /**
+     * Gets the binary codec of <tt>ExtraPmt</tt>. It writes any implementation of <tt>ExtraPmt</tt> in a record of 17
+     * bytes, and the objects it reads are DefaultExtraPmt objects that do not use instance control, like the one
+     * newDefaultExtraPmt returns.
+     * 
+     * @return <tt>BinaryCodec</tt> for <tt>ExtraPmt</tt>
+     * 
+     * @since 1.1
+     */
+    public static BinaryCodec<ExtraPmt> getBinaryCodec() {
+        return ExtraPmtCodec.INSTANCE;
+    }
 }
@@ -0,0 +1,114 @@
+package co.da.jmtg.pool;
+
+import java.util.Arrays;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * The default implementation of <tt>PrepaymentModel</tt>. The model is a vector of SMM fractions, one for each month
+ * of loan age starting with month 1, and a tail SMM for every month after the vector. A constant CPR is an empty vector
+ * with a tail, and a PSA ramp is a vector of 30 months with the CPR of month 30 as its tail. The SMM of every month is
+ * converted from its CPR once, when the model is created, so projecting a pool does not call <tt>Math.pow</tt> for
+ * monthly payments. This object is immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class DefaultPrepaymentModel implements PrepaymentModel {
+
+    private static final int MONTHS_PER_YEAR = 12;
+
+    // smms[i] is the SMM, as a fraction, of month i + 1.
+    private final double[] smms;
+    private final double tailSmm;
+
+    private volatile int hashCode;
+
+    private DefaultPrepaymentModel(double[] smms, double tailSmm) {
+        this.smms = smms;
+        this.tailSmm = tailSmm;
+    }
+
+    /*
+     * Creates a model from CPR percentages by month. The last CPR is used for every month after the vector.
+     */
+    static PrepaymentModel ofCprs(double[] cprs, double tailCpr) {
+        double[] smms = new double[cprs.length];
+        for (int i = 0; i < cprs.length; i++) {
+            smms[i] = toSmm(cprs[i]);
+        }
+        return new DefaultPrepaymentModel(smms, toSmm(tailCpr));
+    }
+
+    /*
+     * Creates a model with a constant SMM percentage.
+     */
+    static PrepaymentModel ofSmm(double smm) {
+        checkPercentage(smm, "smm");
+        return new DefaultPrepaymentModel(new double[0], smm / 100);
+    }
+
+    private static double toSmm(double cpr) {
+        checkPercentage(cpr, "cpr");
+        return 1 - Math.pow(1 - cpr / 100, 1.0 / MONTHS_PER_YEAR);
+    }
+
+    private static void checkPercentage(double rate, String name) {
+        Preconditions.checkArgument(rate >= 0.0 && rate <= 100.0, name + " must be between 0 and 100.");
+    }
+
+    /*
+     * Gets the SMM, as a fraction, of a month of loan age. The month is not checked.
+     */
+    double smmFraction(int month) {
+        return month <= smms.length ? smms[month - 1] : tailSmm;
+    }
+
+    @Override
+    public double getCpr(int month) {
+        Preconditions.checkArgument(month > 0, "month must be greater than 0.");
+        return (1 - Math.pow(1 - smmFraction(month), MONTHS_PER_YEAR)) * 100;
+    }
+
+    @Override
+    public double getSmm(int month) {
+        Preconditions.checkArgument(month > 0, "month must be greater than 0.");
+        return smmFraction(month) * 100;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("smms", Arrays.toString(smms))
+                .add("tailSmm", tailSmm)
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hashCode;
+
+        if (result == 0) {
+            result = Objects.hashCode(Arrays.hashCode(smms), tailSmm);
+            hashCode = result;
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (!(object instanceof DefaultPrepaymentModel)) {
+            return false;
+        }
+
+        DefaultPrepaymentModel that = (DefaultPrepaymentModel) object;
+        return Objects.equal(this.tailSmm, that.tailSmm)
+                && Arrays.equals(this.smms, that.smms);
+    }
+}
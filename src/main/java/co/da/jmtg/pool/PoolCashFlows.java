@@ -0,0 +1,195 @@
+package co.da.jmtg.pool;
+
+import java.util.Arrays;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * The expected cash flows of a pool of mortgages, by payment period. Each period has the interest paid, the scheduled
+ * principal paid, the principal prepaid, and the balance left at the end of the period. The values are expected
+ * values, so they are not rounded to cents. The values are kept in arrays of primitives and are read by index. This
+ * object is immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class PoolCashFlows {
+
+    private final int pmtsPerYear;
+    private final double[] interest;
+    private final double[] scheduledPrincipal;
+    private final double[] prepaidPrincipal;
+    private final double[] balance;
+
+    PoolCashFlows(int pmtsPerYear, double[] interest, double[] scheduledPrincipal, double[] prepaidPrincipal,
+            double[] balance) {
+        this.pmtsPerYear = pmtsPerYear;
+        this.interest = interest;
+        this.scheduledPrincipal = scheduledPrincipal;
+        this.prepaidPrincipal = prepaidPrincipal;
+        this.balance = balance;
+    }
+
+    /**
+     * Gets the number of periods until the pool is paid off.
+     *
+     * @return number of periods
+     */
+    public int size() {
+        return balance.length;
+    }
+
+    /**
+     * Gets the interest paid in a period.
+     *
+     * @param idx
+     *            index of the period. The first period is 0.
+     *
+     * @return interest
+     *
+     * @throws IndexOutOfBoundsException
+     *             if idx is less than 0 or not less than size()
+     */
+    public double getInterest(int idx) {
+        return interest[Preconditions.checkElementIndex(idx, size())];
+    }
+
+    /**
+     * Gets the scheduled principal paid in a period by the loans that did not prepay.
+     *
+     * @param idx
+     *            index of the period. The first period is 0.
+     *
+     * @return scheduled principal
+     *
+     * @throws IndexOutOfBoundsException
+     *             if idx is less than 0 or not less than size()
+     */
+    public double getScheduledPrincipal(int idx) {
+        return scheduledPrincipal[Preconditions.checkElementIndex(idx, size())];
+    }
+
+    /**
+     * Gets the principal prepaid in a period.
+     *
+     * @param idx
+     *            index of the period. The first period is 0.
+     *
+     * @return prepaid principal
+     *
+     * @throws IndexOutOfBoundsException
+     *             if idx is less than 0 or not less than size()
+     */
+    public double getPrepaidPrincipal(int idx) {
+        return prepaidPrincipal[Preconditions.checkElementIndex(idx, size())];
+    }
+
+    /**
+     * Gets the total cash flow of a period: the interest, the scheduled principal, and the prepaid principal.
+     *
+     * @param idx
+     *            index of the period. The first period is 0.
+     *
+     * @return total cash flow
+     *
+     * @throws IndexOutOfBoundsException
+     *             if idx is less than 0 or not less than size()
+     */
+    public double getTotal(int idx) {
+        Preconditions.checkElementIndex(idx, size());
+        return interest[idx] + scheduledPrincipal[idx] + prepaidPrincipal[idx];
+    }
+
+    /**
+     * Gets the balance of the pool at the end of a period.
+     *
+     * @param idx
+     *            index of the period. The first period is 0.
+     *
+     * @return balance
+     *
+     * @throws IndexOutOfBoundsException
+     *             if idx is less than 0 or not less than size()
+     */
+    public double getBalance(int idx) {
+        return balance[Preconditions.checkElementIndex(idx, size())];
+    }
+
+    /**
+     * Gets the interest paid over the life of the pool.
+     *
+     * @return total interest
+     */
+    public double getTotalInterest() {
+        return sum(interest);
+    }
+
+    /**
+     * Gets the principal prepaid over the life of the pool.
+     *
+     * @return total prepaid principal
+     */
+    public double getTotalPrepaidPrincipal() {
+        return sum(prepaidPrincipal);
+    }
+
+    /**
+     * Gets the weighted average life of the pool in years: the average time until a dollar of principal is paid back,
+     * scheduled or prepaid.
+     *
+     * @return weighted average life in years, or 0.0 if the pool has no periods
+     */
+    public double getWeightedAverageLife() {
+        double weighted = 0.0;
+        double principal = 0.0;
+        for (int i = 0; i < balance.length; i++) {
+            double paid = scheduledPrincipal[i] + prepaidPrincipal[i];
+            weighted += (i + 1) * paid;
+            principal += paid;
+        }
+        return principal == 0.0 ? 0.0 : weighted / principal / pmtsPerYear;
+    }
+
+    private static double sum(double[] values) {
+        double result = 0.0;
+        for (double value : values) {
+            result += value;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("size", size())
+                .add("totalInterest", getTotalInterest())
+                .add("totalPrepaidPrincipal", getTotalPrepaidPrincipal())
+                .add("weightedAverageLife", getWeightedAverageLife())
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(pmtsPerYear, Arrays.hashCode(interest), Arrays.hashCode(scheduledPrincipal),
+                Arrays.hashCode(prepaidPrincipal), Arrays.hashCode(balance));
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (!(object instanceof PoolCashFlows)) {
+            return false;
+        }
+
+        PoolCashFlows that = (PoolCashFlows) object;
+        return this.pmtsPerYear == that.pmtsPerYear
+                && Arrays.equals(this.interest, that.interest)
+                && Arrays.equals(this.scheduledPrincipal, that.scheduledPrincipal)
+                && Arrays.equals(this.prepaidPrincipal, that.prepaidPrincipal)
+                && Arrays.equals(this.balance, that.balance);
+    }
+}
@@ -0,0 +1,132 @@
+package co.da.jmtg.pool;
+
+import java.util.Arrays;
+
+import co.da.jmtg.pmt.PmtCalculator;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * Contains static methods that project the expected cash flows of pools of mortgages under a
+ * <tt>PrepaymentModel</tt>.
+ * </p>
+ *
+ * <p>
+ * A pool is described by a <tt>PmtCalculator</tt>: its loan amount is the balance of the pool, its interest rate is
+ * the rate the loans pay, and its payment count is the number of payments left. Every loan in the pool has the same
+ * schedule, so the loans that have not prepaid pay the payment of the <tt>PmtCalculator</tt> times the fraction of the
+ * pool that is left. That is the same payment the balance left would have if it were amortized again over the payments
+ * left, without calculating it again every period. Each period, the interest and the scheduled principal are paid
+ * first, and then the SMM of the period is prepaid out of the balance left.
+ * </p>
+ *
+ * <p>
+ * The projection is a single loop over primitive values, and it creates nothing but the arrays of its result, so
+ * thousands of pools can be projected a second on one thread. When the payments are monthly, the SMM of each month is
+ * read from the model without converting it. For other periods, the SMM of the month a payment falls in is converted to
+ * the length of the period.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public class Pools {
+
+    private static final int MONTHS_PER_YEAR = 12;
+
+    // A balance less than or equal to this is 0.0 when rounded to cents, so the pool is paid off.
+    private static final double HALF_CENT = 0.005;
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private Pools() {
+    }
+
+    /**
+     * Projects the cash flows of a new pool.
+     *
+     * @param pmtCalculator
+     *            the balance, rate, payment count, and payment period of the pool
+     * @param model
+     *            the prepayment speed of the pool
+     *
+     * @return <tt>PoolCashFlows</tt> of the pool
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator or model is null
+     */
+    public static PoolCashFlows getCashFlows(PmtCalculator pmtCalculator, PrepaymentModel model) {
+        return getCashFlows(pmtCalculator, 0, model);
+    }
+
+    /**
+     * Projects the cash flows of a seasoned pool. The age of the pool only selects the months of the prepayment model,
+     * such as how far along the PSA ramp the pool is. The <tt>PmtCalculator</tt> describes the pool as it is now.
+     *
+     * @param pmtCalculator
+     *            the balance, rate, payments left, and payment period of the pool
+     * @param age
+     *            the number of months since the loans of the pool were made
+     * @param model
+     *            the prepayment speed of the pool
+     *
+     * @return <tt>PoolCashFlows</tt> of the pool
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator or model is null
+     *
+     * @throws IllegalArgumentException
+     *             if age is less than 0
+     */
+    public static PoolCashFlows getCashFlows(PmtCalculator pmtCalculator, int age, PrepaymentModel model) {
+        Preconditions.checkNotNull(pmtCalculator, "pmtCalculator must not be null.");
+        Preconditions.checkArgument(age >= 0, "age must not be less than 0.");
+        Preconditions.checkNotNull(model, "model must not be null.");
+
+        double periodInterestRate = pmtCalculator.getPeriodInterestRate();
+        double pmt = pmtCalculator.getPmtUnrounded();
+        int count = pmtCalculator.getPmtCt();
+        int pmtsPerYear = pmtCalculator.getPmtPeriod().pmtsPerYear();
+        double monthsPerPmt = (double) MONTHS_PER_YEAR / pmtsPerYear;
+        boolean monthly = pmtsPerYear == MONTHS_PER_YEAR;
+        DefaultPrepaymentModel defaultModel = model instanceof DefaultPrepaymentModel
+                ? (DefaultPrepaymentModel) model : null;
+
+        double[] interest = new double[count];
+        double[] scheduledPrincipal = new double[count];
+        double[] prepaidPrincipal = new double[count];
+        double[] balance = new double[count];
+
+        double owed = pmtCalculator.getLoanAmt();
+        double survival = 1.0;
+        int size = 0;
+        while (size < count && owed > HALF_CENT) {
+            int month = age + (int) (size * monthsPerPmt) + 1;
+            double smm = defaultModel != null ? defaultModel.smmFraction(month) : model.getSmm(month) / 100;
+            if (!monthly) {
+                smm = 1 - Math.pow(1 - smm, monthsPerPmt);
+            }
+
+            double periodInterest = owed * periodInterestRate;
+            // The last payment pays off whatever is left, so the pool does not end with a fraction of a cent owed.
+            double scheduled = size == count - 1 ? owed : Math.min(pmt * survival - periodInterest, owed);
+            double prepaid = (owed - scheduled) * smm;
+            owed = owed - scheduled - prepaid;
+            survival = survival * (1 - smm);
+
+            interest[size] = periodInterest;
+            scheduledPrincipal[size] = scheduled;
+            prepaidPrincipal[size] = prepaid;
+            balance[size] = owed;
+            size++;
+        }
+
+        if (size < count) {
+            interest = Arrays.copyOf(interest, size);
+            scheduledPrincipal = Arrays.copyOf(scheduledPrincipal, size);
+            prepaidPrincipal = Arrays.copyOf(prepaidPrincipal, size);
+            balance = Arrays.copyOf(balance, size);
+        }
+        return new PoolCashFlows(pmtsPerYear, interest, scheduledPrincipal, prepaidPrincipal, balance);
+    }
+}
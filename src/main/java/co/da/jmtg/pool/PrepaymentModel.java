@@ -0,0 +1,41 @@
+package co.da.jmtg.pool;
+
+/**
+ * The speed at which the loans of a pool are expected to pay off early. The speed is given for each month of loan age
+ * as a conditional prepayment rate (CPR), the percentage of the balance left at the start of a year that is prepaid
+ * during the year, and as the single monthly mortality (SMM), the percentage of the balance left at the start of a
+ * month, after its scheduled principal, that is prepaid during the month. The two are related by
+ * <tt>1 - SMM = (1 - CPR)^(1/12)</tt>. Rates are percentages, so a CPR of 6% is 6.0, the same way interest rates are
+ * given to a <tt>PmtCalculator</tt>.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public interface PrepaymentModel {
+
+    /**
+     * Gets the conditional prepayment rate for a month of loan age.
+     *
+     * @param month
+     *            the month of loan age. The first month of a new loan is 1.
+     *
+     * @return CPR as a percentage
+     *
+     * @throws IllegalArgumentException
+     *             if month is not greater than 0
+     */
+    double getCpr(int month);
+
+    /**
+     * Gets the single monthly mortality for a month of loan age.
+     *
+     * @param month
+     *            the month of loan age. The first month of a new loan is 1.
+     *
+     * @return SMM as a percentage
+     *
+     * @throws IllegalArgumentException
+     *             if month is not greater than 0
+     */
+    double getSmm(int month);
+}
@@ -0,0 +1,99 @@
+package co.da.jmtg.pool;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * Contains static methods that create instances of <tt>PrepaymentModel</tt>.
+ * </p>
+ *
+ * <p>
+ * The PSA model is the Public Securities Association benchmark. At 100% PSA, the CPR starts at 0.2% in the first month
+ * of loan age, rises by 0.2% a month until it reaches 6% in month 30, and stays at 6% after that. Other speeds scale
+ * the whole ramp, so 150% PSA reaches 9% CPR in month 30.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public class PrepaymentModels {
+
+    private static final int PSA_RAMP_MONTHS = 30;
+    private static final double PSA_CPR_PER_MONTH = 0.2;
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private PrepaymentModels() {
+    }
+
+    /**
+     * Gets a model with the same CPR in every month.
+     *
+     * @param cpr
+     *            conditional prepayment rate as a percentage
+     *
+     * @return <tt>PrepaymentModel</tt> instance
+     *
+     * @throws IllegalArgumentException
+     *             if cpr is not between 0 and 100
+     */
+    public static PrepaymentModel getConstantCpr(double cpr) {
+        return DefaultPrepaymentModel.ofCprs(new double[0], cpr);
+    }
+
+    /**
+     * Gets a model with the same SMM in every month.
+     *
+     * @param smm
+     *            single monthly mortality as a percentage
+     *
+     * @return <tt>PrepaymentModel</tt> instance
+     *
+     * @throws IllegalArgumentException
+     *             if smm is not between 0 and 100
+     */
+    public static PrepaymentModel getConstantSmm(double smm) {
+        return DefaultPrepaymentModel.ofSmm(smm);
+    }
+
+    /**
+     * Gets a model that follows the PSA ramp at the speed passed in. The CPR of a month is capped at 100%.
+     *
+     * @param speed
+     *            PSA speed as a percentage. 100.0 is the benchmark.
+     *
+     * @return <tt>PrepaymentModel</tt> instance
+     *
+     * @throws IllegalArgumentException
+     *             if speed is less than 0
+     */
+    public static PrepaymentModel getPsa(double speed) {
+        Preconditions.checkArgument(speed >= 0.0, "speed must not be less than 0.");
+
+        double[] cprs = new double[PSA_RAMP_MONTHS];
+        for (int i = 0; i < PSA_RAMP_MONTHS; i++) {
+            cprs[i] = Math.min(100.0, PSA_CPR_PER_MONTH * (i + 1) * speed / 100);
+        }
+        return DefaultPrepaymentModel.ofCprs(cprs, cprs[PSA_RAMP_MONTHS - 1]);
+    }
+
+    /**
+     * Gets a model with a CPR for each month of loan age, such as a vector of projected speeds from a prepayment
+     * desk. The first CPR is for month 1. The last CPR is used for every month after the vector.
+     *
+     * @param cprs
+     *            conditional prepayment rates as percentages, by month
+     *
+     * @return <tt>PrepaymentModel</tt> instance
+     *
+     * @throws NullPointerException
+     *             if cprs is null
+     *
+     * @throws IllegalArgumentException
+     *             if cprs is empty, or if any CPR is not between 0 and 100
+     */
+    public static PrepaymentModel getCprVector(double... cprs) {
+        Preconditions.checkNotNull(cprs, "cprs must not be null.");
+        Preconditions.checkArgument(cprs.length > 0, "cprs must not be empty.");
+        return DefaultPrepaymentModel.ofCprs(cprs.clone(), cprs[cprs.length - 1]);
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * This package contains the PrepaymentModel interface and its implementations, and the engine that projects the
+ * expected cash flows of a pool of mortgages under a prepayment model.
+ * 
+ * @author David Armstrong
+ *
+ */
+package co.da.jmtg.pool;
@@ -0,0 +1,160 @@
+package co.da.jmtg.shard;
+
+import java.util.Map;
+import java.util.SortedMap;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Ordering;
+
+/**
+ * The result of a run of a {@link ShardedPortfolioRunner}. For each loan of the loan file, by its position in the
+ * file, it holds the number of payments, the total cost, and the total interest. For the whole portfolio it holds the
+ * sums of the payments by calendar year, which are exact since they are added up in cents. It also holds how many
+ * shards were computed again and how many workers were started again. This object is immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class PortfolioRunResult {
+
+    private final int[] pmtCts;
+    private final double[] totalCosts;
+    private final double[] totalInterests;
+    private final SortedMap<Integer, long[]> yearlyCents;
+    private final int shardCt;
+    private final int retryCt;
+    private final int restartCt;
+
+    PortfolioRunResult(int[] pmtCts, double[] totalCosts, double[] totalInterests,
+            SortedMap<Integer, long[]> yearlyCents, int shardCt, int retryCt, int restartCt) {
+        this.pmtCts = pmtCts;
+        this.totalCosts = totalCosts;
+        this.totalInterests = totalInterests;
+        this.yearlyCents = yearlyCents;
+        this.shardCt = shardCt;
+        this.retryCt = retryCt;
+        this.restartCt = restartCt;
+    }
+
+    /**
+     * Gets the number of loans in the loan file.
+     *
+     * @return number of loans
+     */
+    public int getLoanCt() {
+        return pmtCts.length;
+    }
+
+    /**
+     * Gets the number of payments of a loan until it is paid off.
+     *
+     * @param loan
+     *            the position of the loan in the loan file. The first loan is 0.
+     *
+     * @return number of payments
+     *
+     * @throws IndexOutOfBoundsException
+     *             if loan is less than 0 or not less than the number of loans
+     */
+    public int getPmtCt(int loan) {
+        Preconditions.checkElementIndex(loan, pmtCts.length);
+        return pmtCts[loan];
+    }
+
+    /**
+     * Gets the total cost of a loan, as <tt>FixedAmortizationCalculator.getTotalCost()</tt> computes it.
+     *
+     * @param loan
+     *            the position of the loan in the loan file. The first loan is 0.
+     *
+     * @return total cost
+     *
+     * @throws IndexOutOfBoundsException
+     *             if loan is less than 0 or not less than the number of loans
+     */
+    public double getTotalCost(int loan) {
+        Preconditions.checkElementIndex(loan, totalCosts.length);
+        return totalCosts[loan];
+    }
+
+    /**
+     * Gets the total interest of a loan: the total cost less the loan amount, rounded to cents.
+     *
+     * @param loan
+     *            the position of the loan in the loan file. The first loan is 0.
+     *
+     * @return total interest
+     *
+     * @throws IndexOutOfBoundsException
+     *             if loan is less than 0 or not less than the number of loans
+     */
+    public double getTotalInterest(int loan) {
+        Preconditions.checkElementIndex(loan, totalInterests.length);
+        return totalInterests[loan];
+    }
+
+    /**
+     * Sums one of the rounded values of the payments of all the loans for each calendar year, like
+     * <tt>FixedAmortizationCalculators.getYearlySums</tt>.
+     *
+     * @param stat
+     *            the value to sum: <tt>Payment.TOTAL</tt>, <tt>Payment.PRINCIPAL</tt>,
+     *            <tt>Payment.EXTRA_PRINCIPAL</tt>, or <tt>Payment.INTEREST</tt>
+     *
+     * @return the sums, sorted by year
+     *
+     * @throws IllegalArgumentException
+     *             if stat is not one of the values above
+     */
+    public SortedMap<Integer, Double> getYearlySums(int stat) {
+        Preconditions.checkArgument(stat >= Payment.TOTAL && stat <= Payment.INTEREST,
+                "stat must be TOTAL, PRINCIPAL, EXTRA_PRINCIPAL, or INTEREST.");
+
+        ImmutableSortedMap.Builder<Integer, Double> bldr = new ImmutableSortedMap.Builder<>(Ordering.natural());
+        for (Map.Entry<Integer, long[]> entry : yearlyCents.entrySet()) {
+            bldr.put(entry.getKey(), entry.getValue()[stat] / 100.0);
+        }
+        return bldr.build();
+    }
+
+    /**
+     * Gets the number of shards the loan file was split into.
+     *
+     * @return number of shards
+     */
+    public int getShardCt() {
+        return shardCt;
+    }
+
+    /**
+     * Gets the number of times a shard that failed was handed out again.
+     *
+     * @return number of retries
+     */
+    public int getRetryCt() {
+        return retryCt;
+    }
+
+    /**
+     * Gets the number of times a worker JVM that failed was started again.
+     *
+     * @return number of restarts
+     */
+    public int getRestartCt() {
+        return restartCt;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("loanCt", pmtCts.length)
+                .add("shardCt", shardCt)
+                .add("retryCt", retryCt)
+                .add("restartCt", restartCt)
+                .toString();
+    }
+}
@@ -0,0 +1,119 @@
+package co.da.jmtg.shard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator;
+import co.da.jmtg.amort.FixedAmortizationCalculators;
+import co.da.jmtg.util.BinaryCodec;
+
+/**
+ * <p>
+ * The main class of the worker JVMs of a {@link ShardedPortfolioRunner}. A worker connects to the port of the runner
+ * on the loopback interface, and computes the shards the runner sends it until the runner tells it to stop. It reads
+ * the frame of each shard from the loan file, decodes the schedules with
+ * {@link FixedAmortizationCalculators#getBinaryCodec()}, and sends the <tt>ShardResult</tt> of the loans back.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class PortfolioWorker {
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private PortfolioWorker() {
+    }
+
+    /**
+     * Runs a worker.
+     *
+     * @param args
+     *            the path of the loan file, and the port of the runner
+     *
+     * @throws IOException
+     *             if the connection to the runner or the loan file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        run(args, null);
+    }
+
+    /*
+     * Runs a worker, and tells the listener about each shard it is sent before it computes it. The listener may be
+     * null. Tests pass one to make a worker fail.
+     */
+    static void run(String[] args, ShardListener listener) throws IOException {
+        int port = Integer.parseInt(args[1]);
+        BinaryCodec<FixedAmortizationCalculator> codec = FixedAmortizationCalculators.getBinaryCodec();
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                FileChannel channel = FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+
+            ByteBuffer frame = ByteBuffer.allocate(0);
+            while (in.readByte() == ShardProtocol.SHARD) {
+                int shardId = in.readInt();
+                int attempt = in.readInt();
+                long offset = in.readLong();
+                int length = in.readInt();
+                if (listener != null) {
+                    listener.shardReceived(shardId, attempt);
+                }
+
+                if (frame.capacity() < length) {
+                    frame = ByteBuffer.allocate(length);
+                }
+                ShardResult result;
+                try {
+                    read(channel, offset, length, frame);
+                    List<FixedAmortizationCalculator> loans = codec.decode(frame);
+                    result = ShardResult.compute(loans);
+                } catch (RuntimeException | IOException e) {
+                    out.writeByte(ShardProtocol.ERROR);
+                    out.writeInt(shardId);
+                    out.writeUTF(String.valueOf(e));
+                    out.flush();
+                    continue;
+                }
+
+                out.writeByte(ShardProtocol.RESULT);
+                out.writeInt(shardId);
+                result.writeTo(out);
+                out.flush();
+            }
+        }
+    }
+
+    /*
+     * Is told about each shard a worker is sent, before the worker computes it.
+     */
+    interface ShardListener {
+
+        void shardReceived(int shardId, int attempt);
+    }
+
+    /*
+     * Reads length bytes of the file at offset into the buffer, and flips it.
+     */
+    private static void read(FileChannel channel, long offset, int length, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("The loan file ends inside the frame at " + offset + ".");
+            }
+        }
+        buffer.flip();
+    }
+}
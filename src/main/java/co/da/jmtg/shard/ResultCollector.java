@@ -0,0 +1,53 @@
+package co.da.jmtg.shard;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Collects the results of the shards of a run into arrays by the position of the loan in the loan file. The shards
+ * cover different loans, so their results are copied in without merging, and only the yearly sums are added up. This
+ * object is thread safe.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class ResultCollector {
+
+    private final int[] pmtCts;
+    private final double[] totalCosts;
+    private final double[] totalInterests;
+    private final SortedMap<Integer, long[]> yearlyCents = new TreeMap<Integer, long[]>();
+    private int restartCt;
+
+    ResultCollector(int loanCt) {
+        pmtCts = new int[loanCt];
+        totalCosts = new double[loanCt];
+        totalInterests = new double[loanCt];
+    }
+
+    synchronized void collect(Shard shard, ShardResult result) {
+        System.arraycopy(result.pmtCts, 0, pmtCts, shard.firstLoan, shard.loanCt);
+        System.arraycopy(result.totalCosts, 0, totalCosts, shard.firstLoan, shard.loanCt);
+        System.arraycopy(result.totalInterests, 0, totalInterests, shard.firstLoan, shard.loanCt);
+
+        for (Map.Entry<Integer, long[]> entry : result.yearlyCents.entrySet()) {
+            long[] cents = yearlyCents.get(entry.getKey());
+            if (cents == null) {
+                yearlyCents.put(entry.getKey(), entry.getValue());
+            } else {
+                for (int i = 0; i < cents.length; i++) {
+                    cents[i] += entry.getValue()[i];
+                }
+            }
+        }
+    }
+
+    synchronized void restarted() {
+        restartCt++;
+    }
+
+    synchronized PortfolioRunResult toResult(int shardCt, int retryCt) {
+        return new PortfolioRunResult(pmtCts, totalCosts, totalInterests, yearlyCents, shardCt, retryCt, restartCt);
+    }
+}
@@ -0,0 +1,40 @@
+package co.da.jmtg.shard;
+
+import com.google.common.base.Objects;
+
+/**
+ * A shard of a loan file: one frame of schedules, and the position of its first loan in the file. The number of
+ * attempts is guarded by the <tt>ShardQueue</tt> that hands the shard out.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class Shard {
+
+    final int id;
+    final long offset;
+    final int length;
+    final int firstLoan;
+    final int loanCt;
+
+    int attempts;
+
+    Shard(int id, long offset, int length, int firstLoan, int loanCt) {
+        this.id = id;
+        this.offset = offset;
+        this.length = length;
+        this.firstLoan = firstLoan;
+        this.loanCt = loanCt;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("id", id)
+                .add("offset", offset)
+                .add("length", length)
+                .add("firstLoan", firstLoan)
+                .add("loanCt", loanCt)
+                .toString();
+    }
+}
@@ -0,0 +1,30 @@
+package co.da.jmtg.shard;
+
+/**
+ * <p>
+ * The messages between the runner and its workers. Each worker has a socket of its own on the loopback interface, and
+ * the messages are written with <tt>DataOutputStream</tt>, so all values are big-endian.
+ * </p>
+ *
+ * <p>
+ * The runner sends SHARD, followed by the id of the shard, the number of the attempt, the offset of its frame in the
+ * loan file, and the length of the frame: 21 bytes in all. The loans are not sent, since the worker reads the frame
+ * from the file itself. The runner sends STOP when there are no shards left. The worker answers each shard with
+ * RESULT, the id of the shard, and the <tt>ShardResult</tt>, or with ERROR, the id of the shard, and the reason.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class ShardProtocol {
+
+    static final byte STOP = 0;
+    static final byte SHARD = 1;
+
+    static final byte RESULT = 1;
+    static final byte ERROR = 2;
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private ShardProtocol() {
+    }
+}
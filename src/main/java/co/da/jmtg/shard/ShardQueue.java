@@ -0,0 +1,118 @@
+package co.da.jmtg.shard;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * <p>
+ * Hands the shards of a run out to the worker slots. Each slot has a deque of its own, filled with a contiguous block
+ * of shards, so a worker reads its part of the file in order. A slot takes from the head of its own deque, and when it
+ * is empty it steals from the tail of the longest deque of another slot, so the slots that get shards that are cheap
+ * to compute take over the work of the ones that do not.
+ * </p>
+ *
+ * <p>
+ * A shard that fails is handed out again, ahead of the others, until it has failed maxAttempts times. Then the run
+ * fails. A slot only blocks when there is nothing to take but shards are still being computed, since one of them can
+ * fail and come back. Each call hands out or returns one shard of thousands of loans, so a single monitor is enough.
+ * This object is thread safe.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class ShardQueue {
+
+    private final ArrayDeque<Shard>[] deques;
+    private final ArrayDeque<Shard> retries = new ArrayDeque<Shard>();
+    private final int maxAttempts;
+
+    private int remaining;
+    private int liveSlots;
+    private int retryCt;
+    private String failure;
+
+    @SuppressWarnings("unchecked")
+    ShardQueue(List<Shard> shards, int slots, int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+        deques = new ArrayDeque[slots];
+        for (int i = 0; i < slots; i++) {
+            // Slot i gets the i-th block of shards.
+            int from = (int) ((long) shards.size() * i / slots);
+            int to = (int) ((long) shards.size() * (i + 1) / slots);
+            deques[i] = new ArrayDeque<Shard>(shards.subList(from, to));
+        }
+        remaining = shards.size();
+        liveSlots = slots;
+    }
+
+    /*
+     * Takes the next shard for a slot, and waits while there is none to take and shards are still being computed.
+     * Returns null when every shard is done or the run has failed.
+     */
+    synchronized Shard take(int slot) throws InterruptedException {
+        while (remaining > 0 && failure == null) {
+            Shard shard = retries.pollFirst();
+            if (shard == null) {
+                shard = deques[slot].pollFirst();
+            }
+            if (shard == null) {
+                shard = steal(slot);
+            }
+            if (shard != null) {
+                return shard;
+            }
+            wait();
+        }
+        return null;
+    }
+
+    private Shard steal(int slot) {
+        ArrayDeque<Shard> victim = null;
+        for (int i = 0; i < deques.length; i++) {
+            if (i != slot && (victim == null || deques[i].size() > victim.size())) {
+                victim = deques[i];
+            }
+        }
+        return victim == null ? null : victim.pollLast();
+    }
+
+    synchronized void complete(Shard shard) {
+        if (--remaining == 0) {
+            notifyAll();
+        }
+    }
+
+    /*
+     * Hands a shard that failed out again, or fails the run if it has failed too many times.
+     */
+    synchronized void fail(Shard shard, String reason) {
+        if (++shard.attempts >= maxAttempts) {
+            if (failure == null) {
+                failure = "Shard " + shard.id + " failed " + shard.attempts + " times. Last failure: " + reason;
+            }
+        } else {
+            retries.addLast(shard);
+            retryCt++;
+        }
+        notifyAll();
+    }
+
+    /*
+     * Removes a slot whose worker cannot be started again. The run fails when no slot is left to compute the shards.
+     */
+    synchronized void retire(String reason) {
+        if (--liveSlots == 0 && remaining > 0 && failure == null) {
+            failure = "Every worker failed. Last failure: " + reason;
+        }
+        notifyAll();
+    }
+
+    synchronized String getFailure() {
+        return failure;
+    }
+
+    synchronized int getRetryCt() {
+        return retryCt;
+    }
+}
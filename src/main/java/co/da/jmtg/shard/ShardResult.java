@@ -0,0 +1,119 @@
+package co.da.jmtg.shard;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator;
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+
+/**
+ * <p>
+ * The results of the loans of one shard, as a worker sends them back. For each loan it holds the number of payments,
+ * the total cost, and the total interest, and for the whole shard it holds the sums of the total, principal, extra
+ * principal, and interest of the payments by calendar year, in cents.
+ * </p>
+ *
+ * <p>
+ * On the wire, the count of loans is followed by 20 bytes a loan, and the count of years by 36 bytes a year.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class ShardResult {
+
+    // The stats summed by year, in the order they are sent. They are the first four indexes of getPmtStats.
+    static final int STAT_CT = 4;
+
+    final int[] pmtCts;
+    final double[] totalCosts;
+    final double[] totalInterests;
+    final SortedMap<Integer, long[]> yearlyCents;
+
+    private ShardResult(int loanCt) {
+        pmtCts = new int[loanCt];
+        totalCosts = new double[loanCt];
+        totalInterests = new double[loanCt];
+        yearlyCents = new TreeMap<Integer, long[]>();
+    }
+
+    /*
+     * Computes the results of the loans of a shard.
+     */
+    static ShardResult compute(List<FixedAmortizationCalculator> loans) {
+        ShardResult result = new ShardResult(loans.size());
+        for (int i = 0; i < loans.size(); i++) {
+            FixedAmortizationCalculator loan = loans.get(i);
+            SortedMap<LocalDate, Payment> table = loan.getTable();
+            result.pmtCts[i] = table.size();
+            result.totalCosts[i] = loan.getTotalCost();
+            result.totalInterests[i] = Math.round((loan.getTotalCost() - loan.getPmtCalculator().getLoanAmt()) * 100)
+                    / 100.0;
+
+            for (Map.Entry<LocalDate, Payment> entry : table.entrySet()) {
+                Payment payment = entry.getValue();
+                long[] cents = result.yearlyCents.get(entry.getKey().getYear());
+                if (cents == null) {
+                    cents = new long[STAT_CT];
+                    result.yearlyCents.put(entry.getKey().getYear(), cents);
+                }
+                cents[Payment.TOTAL] += Math.round(payment.getTotal() * 100);
+                cents[Payment.PRINCIPAL] += Math.round(payment.getPrincipal() * 100);
+                cents[Payment.EXTRA_PRINCIPAL] += Math.round(payment.getExtraPrincipal() * 100);
+                cents[Payment.INTEREST] += Math.round(payment.getInterest() * 100);
+            }
+        }
+        return result;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(pmtCts.length);
+        for (int i = 0; i < pmtCts.length; i++) {
+            out.writeInt(pmtCts[i]);
+            out.writeDouble(totalCosts[i]);
+            out.writeDouble(totalInterests[i]);
+        }
+        out.writeInt(yearlyCents.size());
+        for (Map.Entry<Integer, long[]> entry : yearlyCents.entrySet()) {
+            out.writeInt(entry.getKey());
+            for (long cents : entry.getValue()) {
+                out.writeLong(cents);
+            }
+        }
+    }
+
+    /*
+     * Reads the results of a shard of loanCt loans.
+     *
+     * @throws IOException if the stream fails, or if it holds the results of another number of loans.
+     */
+    static ShardResult readFrom(DataInputStream in, int loanCt) throws IOException {
+        int count = in.readInt();
+        if (count != loanCt) {
+            throw new IOException("Expected the results of " + loanCt + " loans, but got " + count + ".");
+        }
+
+        ShardResult result = new ShardResult(count);
+        for (int i = 0; i < count; i++) {
+            result.pmtCts[i] = in.readInt();
+            result.totalCosts[i] = in.readDouble();
+            result.totalInterests[i] = in.readDouble();
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            long[] cents = new long[STAT_CT];
+            int year = in.readInt();
+            for (int j = 0; j < STAT_CT; j++) {
+                cents[j] = in.readLong();
+            }
+            result.yearlyCents.put(year, cents);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,396 @@
+package co.da.jmtg.shard;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator;
+import co.da.jmtg.amort.FixedAmortizationCalculators;
+import co.da.jmtg.util.AbstractBinaryCodec;
+import co.da.jmtg.util.BinaryCodec;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * <p>
+ * Computes a portfolio that is too large for one JVM in worker JVMs on the same machine. The loans are read from a
+ * loan file, which is a sequence of frames of schedules in the format of
+ * {@link FixedAmortizationCalculators#getBinaryCodec()}, usually written with
+ * {@link #writeLoanFile(Path, Iterable, int)}. Each frame is a shard. The runner starts a
+ * worker JVM for each slot, running {@link PortfolioWorker} with the class path of this JVM, and sends each one the
+ * position of a shard in the file over a socket on the loopback interface. The worker reads the shard from the file
+ * itself, computes the schedules, and sends back a summary of each loan and the yearly sums of the shard.
+ * </p>
+ *
+ * <p>
+ * Each worker starts with a contiguous block of shards, and a worker that runs out steals shards from the end of the
+ * block of the worker with the most left, so the run is not held up by a block of shards that take longer. A shard
+ * whose worker dies or reports an error is handed out again, up to maxAttempts times, and a worker that dies is
+ * started again, up to maxRestarts times.
+ * </p>
+ *
+ * <p>
+ * A frame with a checksum is trusted by the workers once its checksum matches, so its records are not validated. The
+ * loan file should be written with frames of a few thousand loans. Fewer, larger frames leave less to steal at the end
+ * of a run, and more, smaller frames cost a round trip each. This object is immutable, and its set methods return a
+ * new object.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class ShardedPortfolioRunner {
+
+    private final int workers;
+    private final int maxAttempts;
+    private final int maxRestarts;
+    private final int shardTimeoutMillis;
+    private final List<String> jvmOptions;
+
+    // The main class of the worker JVMs. Only tests set it to another class, one that wraps PortfolioWorker.
+    private final String workerClass;
+
+    private ShardedPortfolioRunner(int workers, int maxAttempts, int maxRestarts, int shardTimeoutMillis,
+            List<String> jvmOptions, String workerClass) {
+        Preconditions.checkArgument(workers > 0, "workers must be greater than 0.");
+        Preconditions.checkArgument(maxAttempts > 0, "maxAttempts must be greater than 0.");
+        Preconditions.checkArgument(maxRestarts >= 0, "maxRestarts must not be less than 0.");
+        Preconditions.checkArgument(shardTimeoutMillis > 0, "shardTimeoutMillis must be greater than 0.");
+
+        this.workers = workers;
+        this.maxAttempts = maxAttempts;
+        this.maxRestarts = maxRestarts;
+        this.shardTimeoutMillis = shardTimeoutMillis;
+        this.jvmOptions = jvmOptions;
+        this.workerClass = workerClass;
+    }
+
+    /**
+     * Creates a runner with the number of worker JVMs passed in. Each shard is tried 3 times, each worker is started
+     * again up to 3 times, and a worker has 10 minutes to compute a shard.
+     *
+     * @param workers
+     *            the number of worker JVMs
+     *
+     * @return new <tt>ShardedPortfolioRunner</tt>
+     *
+     * @throws IllegalArgumentException
+     *             if workers is not greater than 0.
+     */
+    public static ShardedPortfolioRunner of(int workers) {
+        return new ShardedPortfolioRunner(workers, 3, 3, 600000, ImmutableList.<String> of(),
+                PortfolioWorker.class.getName());
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public int getMaxRestarts() {
+        return maxRestarts;
+    }
+
+    public int getShardTimeoutMillis() {
+        return shardTimeoutMillis;
+    }
+
+    public List<String> getJvmOptions() {
+        return jvmOptions;
+    }
+
+    /**
+     * Returns a runner with another number of worker JVMs.
+     *
+     * @param workers
+     *            the number of worker JVMs
+     *
+     * @return new <tt>ShardedPortfolioRunner</tt>
+     *
+     * @throws IllegalArgumentException
+     *             if workers is not greater than 0.
+     */
+    public ShardedPortfolioRunner setWorkers(int workers) {
+        return new ShardedPortfolioRunner(workers, maxAttempts, maxRestarts, shardTimeoutMillis, jvmOptions,
+                workerClass);
+    }
+
+    /**
+     * Returns a runner that fails the run when a shard has failed maxAttempts times.
+     *
+     * @param maxAttempts
+     *            the number of times a shard is tried
+     *
+     * @return new <tt>ShardedPortfolioRunner</tt>
+     *
+     * @throws IllegalArgumentException
+     *             if maxAttempts is not greater than 0.
+     */
+    public ShardedPortfolioRunner setMaxAttempts(int maxAttempts) {
+        return new ShardedPortfolioRunner(workers, maxAttempts, maxRestarts, shardTimeoutMillis, jvmOptions,
+                workerClass);
+    }
+
+    /**
+     * Returns a runner that starts a worker JVM that failed again up to maxRestarts times. A worker that fails more
+     * often than that is given up on, and the other workers compute its shards.
+     *
+     * @param maxRestarts
+     *            the number of times each worker is started again
+     *
+     * @return new <tt>ShardedPortfolioRunner</tt>
+     *
+     * @throws IllegalArgumentException
+     *             if maxRestarts is less than 0.
+     */
+    public ShardedPortfolioRunner setMaxRestarts(int maxRestarts) {
+        return new ShardedPortfolioRunner(workers, maxAttempts, maxRestarts, shardTimeoutMillis, jvmOptions,
+                workerClass);
+    }
+
+    /**
+     * Returns a runner that treats a worker that has not answered for shardTimeoutMillis as failed.
+     *
+     * @param shardTimeoutMillis
+     *            how long a worker has to compute a shard, in milliseconds
+     *
+     * @return new <tt>ShardedPortfolioRunner</tt>
+     *
+     * @throws IllegalArgumentException
+     *             if shardTimeoutMillis is not greater than 0.
+     */
+    public ShardedPortfolioRunner setShardTimeoutMillis(int shardTimeoutMillis) {
+        return new ShardedPortfolioRunner(workers, maxAttempts, maxRestarts, shardTimeoutMillis, jvmOptions,
+                workerClass);
+    }
+
+    /**
+     * Returns a runner that starts the worker JVMs with the options passed in, such as <tt>-Xmx2g</tt>.
+     *
+     * @param jvmOptions
+     *            the options of the java command of the workers
+     *
+     * @return new <tt>ShardedPortfolioRunner</tt>
+     *
+     * @throws NullPointerException
+     *             if jvmOptions is null or contains null.
+     */
+    public ShardedPortfolioRunner setJvmOptions(String... jvmOptions) {
+        return new ShardedPortfolioRunner(workers, maxAttempts, maxRestarts, shardTimeoutMillis,
+                ImmutableList.copyOf(jvmOptions), workerClass);
+    }
+
+    /*
+     * Returns a runner that starts the worker JVMs with another main class. The class must have a main method that
+     * takes the same arguments as the one of PortfolioWorker and calls PortfolioWorker.run. Tests use it to start
+     * workers that fail on purpose.
+     */
+    ShardedPortfolioRunner setWorkerClass(Class<?> workerClass) {
+        return new ShardedPortfolioRunner(workers, maxAttempts, maxRestarts, shardTimeoutMillis, jvmOptions,
+                workerClass.getName());
+    }
+
+    /**
+     * Computes the loans of a loan file in the worker JVMs, and waits for them to finish.
+     *
+     * @param loanFile
+     *            the loan file
+     *
+     * @return the summaries of the loans, and the yearly sums of the portfolio
+     *
+     * @throws NullPointerException
+     *             if loanFile is null.
+     *
+     * @throws IllegalArgumentException
+     *             if the file is not a sequence of frames, or if it holds more than Integer.MAX_VALUE loans.
+     *
+     * @throws IOException
+     *             if the file cannot be read, or if the run fails because a shard failed maxAttempts times or every
+     *             worker failed more than maxRestarts times.
+     */
+    public PortfolioRunResult run(Path loanFile) throws IOException {
+        Preconditions.checkNotNull(loanFile, "loanFile must not be null.");
+
+        List<Shard> shards = new ArrayList<Shard>();
+        int loanCt = scan(loanFile, shards);
+
+        ShardQueue queue = new ShardQueue(shards, workers, maxAttempts);
+        ResultCollector collector = new ResultCollector(loanCt);
+        List<String> command = getCommand(loanFile);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(new WorkerSlot(i, command, queue, collector, maxRestarts,
+                        shardTimeoutMillis)));
+            }
+            for (Future<Void> future : futures) {
+                getResult(future);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (queue.getFailure() != null) {
+            throw new IOException(queue.getFailure());
+        }
+        return collector.toResult(shards.size(), queue.getRetryCt());
+    }
+
+    /*
+     * Reads the header of each frame of the loan file, and adds a shard for each frame that holds loans. Returns the
+     * number of loans.
+     */
+    private static int scan(Path loanFile, List<Shard> shards) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(AbstractBinaryCodec.HEADER_SIZE);
+        long loanCt = 0;
+        try (FileChannel channel = FileChannel.open(loanFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long offset = 0; offset < size;) {
+                header.clear();
+                while (header.hasRemaining()) {
+                    if (channel.read(header, offset + header.position()) < 0) {
+                        throw new EOFException("The loan file ends inside the header of the frame at " + offset + ".");
+                    }
+                }
+                header.flip();
+
+                int frameSize = AbstractBinaryCodec.getFrameSize(header);
+                int recordCt = AbstractBinaryCodec.getRecordCt(header);
+                Preconditions.checkArgument(frameSize >= AbstractBinaryCodec.HEADER_SIZE && recordCt >= 0
+                        && offset + frameSize <= size, "The frame at %s is truncated.", offset);
+                Preconditions.checkArgument(loanCt + recordCt <= Integer.MAX_VALUE,
+                        "The loan file holds more than Integer.MAX_VALUE loans.");
+                if (recordCt > 0) {
+                    shards.add(new Shard(shards.size(), offset, frameSize, (int) loanCt, recordCt));
+                }
+                loanCt += recordCt;
+                offset += frameSize;
+            }
+        }
+        return (int) loanCt;
+    }
+
+    /*
+     * Gets the command that starts a worker, without its port, which is added last.
+     */
+    private List<String> getCommand(Path loanFile) {
+        List<String> command = new ArrayList<String>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), workerClass));
+        command.add(loanFile.toAbsolutePath().toString());
+        return command;
+    }
+
+    private static void getResult(Future<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the workers.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Writes a loan file for {@link #run(Path)}, with frames of loansPerShard loans and a checksum. The file is
+     * replaced if it exists.
+     *
+     * @param loanFile
+     *            the file to write
+     * @param loans
+     *            the loans, in the order of their positions in the file
+     * @param loansPerShard
+     *            the number of loans of each frame. The last frame can have fewer.
+     *
+     * @return the number of loans written
+     *
+     * @throws NullPointerException
+     *             if loanFile or loans is null, or if loans contains null.
+     *
+     * @throws IllegalArgumentException
+     *             if loansPerShard is not greater than 0.
+     *
+     * @throws IOException
+     *             if the file cannot be written.
+     */
+    public static int writeLoanFile(Path loanFile, Iterable<? extends FixedAmortizationCalculator> loans,
+            int loansPerShard) throws IOException {
+        Preconditions.checkNotNull(loanFile, "loanFile must not be null.");
+        Preconditions.checkNotNull(loans, "loans must not be null.");
+        Preconditions.checkArgument(loansPerShard > 0, "loansPerShard must be greater than 0.");
+
+        BinaryCodec<FixedAmortizationCalculator> codec = FixedAmortizationCalculators.getBinaryCodec();
+        List<FixedAmortizationCalculator> batch = new ArrayList<FixedAmortizationCalculator>(loansPerShard);
+        ByteBuffer buffer = ByteBuffer.allocate(0);
+        int loanCt = 0;
+        try (FileChannel channel = FileChannel.open(loanFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (FixedAmortizationCalculator loan : loans) {
+                batch.add(loan);
+                if (batch.size() == loansPerShard) {
+                    buffer = writeFrame(channel, codec, batch, buffer);
+                    loanCt += batch.size();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeFrame(channel, codec, batch, buffer);
+                loanCt += batch.size();
+            }
+        }
+        return loanCt;
+    }
+
+    private static ByteBuffer writeFrame(FileChannel channel, BinaryCodec<FixedAmortizationCalculator> codec,
+            List<FixedAmortizationCalculator> batch, ByteBuffer buffer) throws IOException {
+        int size = codec.sizeOfFrame(batch);
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(size);
+        }
+        buffer.clear();
+        codec.encode(buffer, batch, true);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return buffer;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("workers", workers)
+                .add("maxAttempts", maxAttempts)
+                .add("maxRestarts", maxRestarts)
+                .add("shardTimeoutMillis", shardTimeoutMillis)
+                .add("jvmOptions", jvmOptions)
+                .toString();
+    }
+}
@@ -0,0 +1,134 @@
+package co.da.jmtg.shard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * One worker JVM of a run, and the thread of the runner that feeds it. The slot listens on a port of its own on the
+ * loopback interface, starts the worker with that port, and sends it shards from the <tt>ShardQueue</tt> one at a time
+ * until there are none left.
+ * </p>
+ *
+ * <p>
+ * If the worker dies, stops answering for longer than the timeout, or breaks the protocol, the shard it was computing
+ * is handed back to the queue, and the worker is started again, up to maxRestarts times. A shard that the worker
+ * reports an error for is handed back too, but the worker keeps going. The results of a shard are only collected once
+ * all of them are read, so a shard that is computed again is never counted twice.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class WorkerSlot implements Callable<Void> {
+
+    // How long to wait for a worker JVM to connect after it is started.
+    private static final int START_TIMEOUT_MILLIS = 60000;
+
+    private final int slot;
+    private final List<String> command;
+    private final ShardQueue queue;
+    private final ResultCollector collector;
+    private final int maxRestarts;
+    private final int timeoutMillis;
+
+    // The shard the worker is computing, so it can be handed back if the worker fails.
+    private Shard current;
+
+    WorkerSlot(int slot, List<String> command, ShardQueue queue, ResultCollector collector, int maxRestarts,
+            int timeoutMillis) {
+        this.slot = slot;
+        this.command = command;
+        this.queue = queue;
+        this.collector = collector;
+        this.maxRestarts = maxRestarts;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public Void call() throws IOException, InterruptedException {
+        String reason = null;
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(START_TIMEOUT_MILLIS);
+            for (int start = 0; start <= maxRestarts; start++) {
+                if (start > 0) {
+                    collector.restarted();
+                }
+
+                Process process = null;
+                try {
+                    process = start(server.getLocalPort());
+                    try (Socket socket = server.accept()) {
+                        socket.setSoTimeout(timeoutMillis);
+                        serve(socket);
+                    }
+                    // The worker exits once it reads STOP.
+                    process.waitFor(START_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    return null;
+                } catch (IOException e) {
+                    reason = "worker " + slot + ": " + e;
+                    if (current != null) {
+                        queue.fail(current, reason);
+                        current = null;
+                    }
+                } finally {
+                    if (process != null) {
+                        process.destroyForcibly();
+                    }
+                }
+            }
+        }
+        queue.retire(reason);
+        return null;
+    }
+
+    private Process start(int port) throws IOException {
+        List<String> args = new ArrayList<String>(command);
+        args.add(Integer.toString(port));
+        return new ProcessBuilder(args).inheritIO().start();
+    }
+
+    private void serve(Socket socket) throws IOException, InterruptedException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        Shard shard;
+        while ((shard = queue.take(slot)) != null) {
+            current = shard;
+            out.writeByte(ShardProtocol.SHARD);
+            out.writeInt(shard.id);
+            out.writeInt(shard.attempts);
+            out.writeLong(shard.offset);
+            out.writeInt(shard.length);
+            out.flush();
+
+            byte reply = in.readByte();
+            int id = in.readInt();
+            if (id != shard.id) {
+                throw new IOException("Sent shard " + shard.id + ", but got the reply for shard " + id + ".");
+            }
+            if (reply == ShardProtocol.RESULT) {
+                collector.collect(shard, ShardResult.readFrom(in, shard.loanCt));
+                queue.complete(shard);
+            } else if (reply == ShardProtocol.ERROR) {
+                queue.fail(shard, "worker " + slot + ": " + in.readUTF());
+            } else {
+                throw new IOException("Unknown reply " + reply + ".");
+            }
+            current = null;
+        }
+
+        out.writeByte(ShardProtocol.STOP);
+        out.flush();
+    }
+}
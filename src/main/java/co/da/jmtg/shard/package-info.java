@@ -0,0 +1,8 @@
+/**
+ * This package contains the runner that splits a portfolio of mortgages into shards and computes them in worker JVMs
+ * on the same machine, and the worker those JVMs run.
+ * 
+ * @author David Armstrong
+ *
+ */
+package co.da.jmtg.shard;
@@ -0,0 +1,394 @@
+package co.da.jmtg.sheet;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+
+import co.da.jmtg.amort.FixedAmortizationCalculators;
+import co.da.jmtg.amort.PmtKey;
+import co.da.jmtg.amort.PmtKeys;
+import co.da.jmtg.amort.ScheduleCache;
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * <p>
+ * Warms a pricing service up when it starts, so the first requests after a deploy do not pay for empty caches and a
+ * cold JIT compiler. The warm-up has two phases, and each runs in parallel on an <tt>ExecutorService</tt>.
+ * </p>
+ *
+ * <p>
+ * The first phase fills the caches for every cell of a <tt>RateSheet</tt>. It asks for the interned
+ * <tt>PmtCalculator</tt> of each cell, which also caches the annuity factor of its rate and payment count, and for the
+ * interned <tt>PmtKey</tt> of each payment period and term on each first payment date. If a <tt>ScheduleCache</tt> is
+ * set, it also gets the table of each calculator on the first of the dates from the cache, which builds the tables the
+ * cache does not hold yet.
+ * </p>
+ *
+ * <p>
+ * The second phase exercises the hot paths in rounds until the JIT compiler settles: the payment formulas with
+ * <tt>Math.pow</tt>, the construction of calculators and of the date lists of keys, and the building of tables. Each
+ * round makes thousands of calls on each thread, so the methods reach the optimizing compiler within a few rounds. The
+ * compiler has settled when the last rounds added no compilation time, as reported by the
+ * <tt>CompilationMXBean</tt>. The time is for the whole JVM, so a service that compiles other code at the same time
+ * may not settle before the last round. The report tells which it was.
+ * </p>
+ *
+ * <p>
+ * This object is immutable, and its set methods return a new object.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class CacheWarmer {
+
+    // The rounds that always run, and the rounds without compilation time after which the compiler has settled.
+    static final int MIN_ROUNDS = 10;
+    static final int SETTLED_ROUNDS = 3;
+
+    // The calls each task of a round makes.
+    private static final int PMTS_PER_TASK = 2000;
+    private static final int KEYS_PER_TASK = 20;
+    private static final int TABLES_PER_TASK = 1;
+
+    // Keeps the compiler from dropping the calls of the rounds as dead code.
+    private static volatile double sink;
+
+    private final RateSheet rateSheet;
+    private final List<LocalDate> firstPmtDts;
+    private final ScheduleCache scheduleCache;
+    private final int maxRounds;
+
+    private CacheWarmer(RateSheet rateSheet, List<LocalDate> firstPmtDts, ScheduleCache scheduleCache, int maxRounds) {
+        Preconditions.checkArgument(!firstPmtDts.isEmpty(), "firstPmtDts must not be empty.");
+        Preconditions.checkArgument(maxRounds >= MIN_ROUNDS, "maxRounds must not be less than %s.", MIN_ROUNDS);
+
+        this.rateSheet = rateSheet;
+        this.firstPmtDts = firstPmtDts;
+        this.scheduleCache = scheduleCache;
+        this.maxRounds = maxRounds;
+    }
+
+    /**
+     * Creates a warmer for a rate sheet. The keys are for loans whose first payment is on the first of next month, no
+     * tables are cached, and the hot paths are exercised for up to 100 rounds.
+     *
+     * @param rateSheet
+     *            the products the service quotes
+     *
+     * @return new <tt>CacheWarmer</tt>
+     *
+     * @throws NullPointerException
+     *             if rateSheet is null.
+     */
+    public static CacheWarmer of(RateSheet rateSheet) {
+        Preconditions.checkNotNull(rateSheet, "rateSheet must not be null.");
+        return new CacheWarmer(rateSheet, ImmutableList.of(new LocalDate().plusMonths(1).withDayOfMonth(1)), null, 100);
+    }
+
+    public RateSheet getRateSheet() {
+        return rateSheet;
+    }
+
+    public List<LocalDate> getFirstPmtDts() {
+        return firstPmtDts;
+    }
+
+    public ScheduleCache getScheduleCache() {
+        return scheduleCache;
+    }
+
+    public int getMaxRounds() {
+        return maxRounds;
+    }
+
+    /**
+     * Returns a warmer that interns the keys of other first payment dates.
+     *
+     * @param firstPmtDts
+     *            the first payment dates. The tables are cached for the first of them.
+     *
+     * @return new <tt>CacheWarmer</tt>
+     *
+     * @throws NullPointerException
+     *             if firstPmtDts is null or contains null.
+     *
+     * @throws IllegalArgumentException
+     *             if firstPmtDts is empty.
+     */
+    public CacheWarmer setFirstPmtDts(Iterable<LocalDate> firstPmtDts) {
+        return new CacheWarmer(rateSheet, ImmutableList.copyOf(firstPmtDts), scheduleCache, maxRounds);
+    }
+
+    /**
+     * Returns a warmer that fills a <tt>ScheduleCache</tt> with the table of each cell.
+     *
+     * @param scheduleCache
+     *            the cache, or null to cache no tables
+     *
+     * @return new <tt>CacheWarmer</tt>
+     */
+    public CacheWarmer setScheduleCache(ScheduleCache scheduleCache) {
+        return new CacheWarmer(rateSheet, firstPmtDts, scheduleCache, maxRounds);
+    }
+
+    /**
+     * Returns a warmer that exercises the hot paths for up to maxRounds rounds.
+     *
+     * @param maxRounds
+     *            the largest number of rounds
+     *
+     * @return new <tt>CacheWarmer</tt>
+     *
+     * @throws IllegalArgumentException
+     *             if maxRounds is less than 10.
+     */
+    public CacheWarmer setMaxRounds(int maxRounds) {
+        return new CacheWarmer(rateSheet, firstPmtDts, scheduleCache, maxRounds);
+    }
+
+    /**
+     * Warms the service up on a thread pool with a thread for each available processor, and waits until it is warm.
+     *
+     * @return the report of the warm-up
+     */
+    public WarmUpReport run() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            return run(executor, threads);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Warms the service up on the executor passed in, and waits until it is warm. The executor is not shut down.
+     *
+     * @param executor
+     *            the executor that runs the tasks of the warm-up
+     * @param parallelism
+     *            the number of tasks of each round of the second phase, which should be the number of threads of the
+     *            executor
+     *
+     * @return the report of the warm-up
+     *
+     * @throws NullPointerException
+     *             if executor is null.
+     *
+     * @throws IllegalArgumentException
+     *             if parallelism is not greater than 0.
+     *
+     * @throws IllegalStateException
+     *             if the thread is interrupted while it waits for the tasks.
+     */
+    public WarmUpReport run(ExecutorService executor, int parallelism) {
+        Preconditions.checkNotNull(executor, "executor must not be null.");
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be greater than 0.");
+
+        long start = System.nanoTime();
+
+        // Fill the caches, a task for each row of calculators and for each series of keys.
+        List<Future<Long>> calculatorFutures = new ArrayList<Future<Long>>();
+        for (final PmtFormula formula : rateSheet.getFormulas()) {
+            for (final double rate : rateSheet.getRates()) {
+                calculatorFutures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        return fillRow(formula, rate);
+                    }
+                }));
+            }
+        }
+        List<Future<Long>> keyFutures = new ArrayList<Future<Long>>();
+        for (final PmtPeriod pmtPeriod : rateSheet.getPmtPeriods()) {
+            for (final int term : rateSheet.getTerms()) {
+                keyFutures.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        for (LocalDate firstPmtDt : firstPmtDts) {
+                            PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, firstPmtDt, term);
+                        }
+                        return (long) firstPmtDts.size();
+                    }
+                }));
+            }
+        }
+        long tableCt = sum(calculatorFutures);
+        long keyCt = sum(keyFutures);
+
+        // Exercise the hot paths until the compiler settles.
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean timed = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+        long firstCompileTime = timed ? compiler.getTotalCompilationTime() : 0;
+        long lastCompileTime = firstCompileTime;
+        int quietRounds = 0;
+        int rounds = 0;
+        boolean warm = false;
+        while (rounds < maxRounds && !warm) {
+            List<Future<Double>> futures = new ArrayList<Future<Double>>(parallelism);
+            for (int i = 0; i < parallelism; i++) {
+                final int offset = rounds * parallelism + i;
+                futures.add(executor.submit(new Callable<Double>() {
+                    @Override
+                    public Double call() {
+                        return exercise(offset);
+                    }
+                }));
+            }
+            double total = 0.0;
+            for (Future<Double> future : futures) {
+                total += getResult(future);
+            }
+            sink = total;
+            rounds++;
+
+            if (timed) {
+                long compileTime = compiler.getTotalCompilationTime();
+                quietRounds = compileTime == lastCompileTime ? quietRounds + 1 : 0;
+                lastCompileTime = compileTime;
+                warm = rounds >= MIN_ROUNDS && quietRounds >= SETTLED_ROUNDS;
+            } else {
+                warm = rounds >= MIN_ROUNDS;
+            }
+        }
+
+        return new WarmUpReport(rateSheet.getCellCt(), keyCt, tableCt, PmtCalculators.getAnnuityFactorCt(), rounds,
+                timed ? lastCompileTime - firstCompileTime : -1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                        - start), warm);
+    }
+
+    /**
+     * Starts to warm the service up on a daemon thread, with a thread pool with a thread for each available processor.
+     * A readiness check can poll isDone() of the future, and get() returns the report.
+     *
+     * @return the future of the report
+     */
+    public Future<WarmUpReport> start() {
+        FutureTask<WarmUpReport> task = new FutureTask<WarmUpReport>(new Callable<WarmUpReport>() {
+            @Override
+            public WarmUpReport call() {
+                return run();
+            }
+        });
+        Thread thread = new Thread(task, "jmtg-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+        return task;
+    }
+
+    /*
+     * Interns the calculators of a row of the rate sheet, and gets their tables from the cache if there is one.
+     * Returns the number of tables.
+     */
+    private long fillRow(PmtFormula formula, double rate) {
+        long tableCt = 0;
+        for (PmtPeriod pmtPeriod : rateSheet.getPmtPeriods()) {
+            for (int term : rateSheet.getTerms()) {
+                int pmtCt = RateSheet.getPmtCt(pmtPeriod, term);
+                PmtKey pmtKey = scheduleCache == null ? null : PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, firstPmtDts
+                        .get(0), term);
+                for (double amount : rateSheet.getAmounts()) {
+                    PmtCalculator pmtCalculator = formula.getPmtCalculator(pmtPeriod, amount, rate, pmtCt);
+                    if (scheduleCache != null) {
+                        scheduleCache.get(pmtCalculator, pmtKey);
+                        tableCt++;
+                    }
+                }
+            }
+        }
+        return tableCt;
+    }
+
+    /*
+     * Makes the calls of one task of a round, on the cells of the rate sheet from the offset passed in, so the tasks
+     * and rounds spread over the whole sheet.
+     */
+    private double exercise(int offset) {
+        double[] rates = rateSheet.getRates();
+        int[] terms = rateSheet.getTerms();
+        List<PmtPeriod> pmtPeriods = rateSheet.getPmtPeriods();
+        double[] amounts = rateSheet.getAmounts();
+        List<PmtFormula> formulas = rateSheet.getFormulas();
+
+        double total = 0.0;
+        for (int i = 0; i < PMTS_PER_TASK; i++) {
+            int cell = offset * PMTS_PER_TASK + i;
+            PmtFormula formula = formulas.get(cell % formulas.size());
+            PmtPeriod pmtPeriod = pmtPeriods.get(cell / formulas.size() % pmtPeriods.size());
+            int pmtCt = RateSheet.getPmtCt(pmtPeriod, terms[cell % terms.length]);
+            double rate = rates[cell % rates.length];
+            double amount = amounts[cell % amounts.length];
+
+            total += formula.calcPmtUnrounded(pmtPeriod, amount, rate, pmtCt);
+            total += formula.newPmtCalculator(pmtPeriod, amount, rate, pmtCt).getPmt();
+        }
+
+        LocalDate firstPmtDt = firstPmtDts.get(offset % firstPmtDts.size());
+        for (int i = 0; i < KEYS_PER_TASK; i++) {
+            int cell = offset * KEYS_PER_TASK + i;
+            total += PmtKeys.newDefaultPmtKeyForYears(pmtPeriods.get(cell % pmtPeriods.size()), firstPmtDt,
+                    terms[cell % terms.length]).getCount();
+        }
+
+        for (int i = 0; i < TABLES_PER_TASK; i++) {
+            int cell = offset * TABLES_PER_TASK + i;
+            PmtPeriod pmtPeriod = pmtPeriods.get(cell % pmtPeriods.size());
+            int term = terms[cell % terms.length];
+            PmtCalculator pmtCalculator = formulas.get(cell % formulas.size()).newPmtCalculator(pmtPeriod,
+                    amounts[cell % amounts.length], rates[cell % rates.length], RateSheet.getPmtCt(pmtPeriod, term));
+            total += FixedAmortizationCalculators.newDefaultFixedAmortizationCalculator(pmtCalculator,
+                    PmtKeys.newDefaultPmtKeyForYears(pmtPeriod, firstPmtDt, term)).getTotalCost();
+        }
+        return total;
+    }
+
+    private static long sum(List<Future<Long>> futures) {
+        long sum = 0;
+        for (Future<Long> future : futures) {
+            sum += getResult(future);
+        }
+        return sum;
+    }
+
+    private static <T> T getResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while warming up.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("rateSheet", rateSheet)
+                .add("firstPmtDts", firstPmtDts)
+                .add("scheduleCache", scheduleCache)
+                .add("maxRounds", maxRounds)
+                .toString();
+    }
+}
@@ -0,0 +1,149 @@
+package co.da.jmtg.sheet;
+
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The payment formulas of <tt>PmtCalculators</tt>. A rate sheet can quote the products of either formula.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public enum PmtFormula {
+
+    /**
+     * The formula of the United States, with interest compounded by each payment period.
+     */
+    DEFAULT(false) {
+        @Override
+        public PmtCalculator getPmtCalculator(PmtPeriod pmtPeriod, double loanAmt, double interestRate, int pmtCt) {
+            return PmtCalculators.getDefaultPmtCalculator(pmtPeriod, loanAmt, interestRate, pmtCt);
+        }
+
+        @Override
+        public PmtCalculator newPmtCalculator(PmtPeriod pmtPeriod, double loanAmt, double interestRate, int pmtCt) {
+            return PmtCalculators.newDefaultPmtCalculator(pmtPeriod, loanAmt, interestRate, pmtCt);
+        }
+    },
+
+    /**
+     * The formula of Canada, with interest compounded semi-annually.
+     */
+    CANADIAN(true) {
+        @Override
+        public PmtCalculator getPmtCalculator(PmtPeriod pmtPeriod, double loanAmt, double interestRate, int pmtCt) {
+            return PmtCalculators.getCanadianPmtCalculator(pmtPeriod, loanAmt, interestRate, pmtCt);
+        }
+
+        @Override
+        public PmtCalculator newPmtCalculator(PmtPeriod pmtPeriod, double loanAmt, double interestRate, int pmtCt) {
+            return PmtCalculators.newCanadianPmtCalculator(pmtPeriod, loanAmt, interestRate, pmtCt);
+        }
+    };
+
+    // A calculator of the formula for each PmtPeriod a mortgage can have, by ordinal, whose loan amount, interest
+    // rate, and payment count are never used.
+    private final PmtCalculator[] templates = new PmtCalculator[PmtPeriod.values().length];
+
+    private PmtFormula(boolean canadian) {
+        for (PmtPeriod pmtPeriod : PmtPeriod.values()) {
+            if (RateSheet.isValidPmtPeriod(pmtPeriod)) {
+                templates[pmtPeriod.ordinal()] = canadian ? PmtCalculators.newCanadianPmtCalculator(pmtPeriod, 1.0,
+                        1.0, 1) : PmtCalculators.newDefaultPmtCalculator(pmtPeriod, 1.0, 1.0, 1);
+            }
+        }
+    }
+
+    /**
+     * Gets the interned calculator of this formula for the values passed in. See
+     * {@link PmtCalculators#getDefaultPmtCalculator(PmtPeriod, double, double, int)}.
+     *
+     * @param pmtPeriod
+     *            Payment period of the mortgage
+     * @param loanAmt
+     *            Amount of the loan
+     * @param interestRate
+     *            interest rate
+     * @param pmtCt
+     *            number of payments
+     *
+     * @return interned <tt>PmtCalculator</tt>
+     */
+    public abstract PmtCalculator getPmtCalculator(PmtPeriod pmtPeriod, double loanAmt, double interestRate,
+            int pmtCt);
+
+    /**
+     * Creates a calculator of this formula for the values passed in that does not use instance control.
+     *
+     * @param pmtPeriod
+     *            Payment period of the mortgage
+     * @param loanAmt
+     *            Amount of the loan
+     * @param interestRate
+     *            interest rate
+     * @param pmtCt
+     *            number of payments
+     *
+     * @return new <tt>PmtCalculator</tt>
+     */
+    public abstract PmtCalculator newPmtCalculator(PmtPeriod pmtPeriod, double loanAmt, double interestRate,
+            int pmtCt);
+
+    /**
+     * Gets the cached annuity factor of this formula. See
+     * {@link PmtCalculators#getAnnuityFactor(PmtCalculator, double, int)}.
+     *
+     * @param interestRate
+     *            interest rate
+     * @param pmtCt
+     *            number of payments
+     *
+     * @return annuity factor as <tt>double</tt>
+     */
+    public double getAnnuityFactor(double interestRate, int pmtCt) {
+        return PmtCalculators.getAnnuityFactor(templates[PmtPeriod.MONTHLY.ordinal()], interestRate, pmtCt);
+    }
+
+    /**
+     * Calculates the annuity factor of this formula without the cache. See
+     * {@link PmtCalculators#calcAnnuityFactor(PmtCalculator, double, int)}.
+     *
+     * @param interestRate
+     *            interest rate
+     * @param pmtCt
+     *            number of payments
+     *
+     * @return annuity factor as <tt>double</tt>
+     */
+    public double calcAnnuityFactor(double interestRate, int pmtCt) {
+        return PmtCalculators.calcAnnuityFactor(templates[PmtPeriod.MONTHLY.ordinal()], interestRate, pmtCt);
+    }
+
+    /**
+     * Calculates the unrounded payment of this formula without creating a calculator or using the cache of annuity
+     * factors. See {@link PmtCalculators#calcPmtUnrounded(PmtCalculator, double, double, int)}.
+     *
+     * @param pmtPeriod
+     *            Payment period of the mortgage
+     * @param loanAmt
+     *            Amount of the loan
+     * @param interestRate
+     *            interest rate
+     * @param pmtCt
+     *            number of payments
+     *
+     * @return payment as <tt>double</tt>
+     *
+     * @throws IllegalArgumentException
+     *             if pmtPeriod is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or RAPID_WEEKLY.
+     */
+    public double calcPmtUnrounded(PmtPeriod pmtPeriod, double loanAmt, double interestRate, int pmtCt) {
+        PmtCalculator template = templates[pmtPeriod.ordinal()];
+        Preconditions.checkArgument(template != null, "Valid PmtPeriod values are BIWEEKLY, MONTHLY, RAPID_BIWEEKLY, "
+                + "RAPID_WEEKLY, or WEEKLY");
+        return PmtCalculators.calcPmtUnrounded(template, loanAmt, interestRate, pmtCt);
+    }
+}
@@ -0,0 +1,355 @@
+package co.da.jmtg.sheet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import co.da.jmtg.pmt.PmtPeriod;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
+
+/**
+ * <p>
+ * The grid of products a pricing service quotes: every interest rate with every term, payment period, loan amount, and
+ * payment formula. A cell of the grid is one <tt>PmtCalculator</tt>. The terms are in years, and the payment count of
+ * a cell is the term times the payments a year of its payment period.
+ * </p>
+ *
+ * <p>
+ * A rate sheet is usually read from a file of properties, with the values of each axis separated by commas:
+ * </p>
+ *
+ * <pre>
+ * rates = 3.0..7.0, 7.5
+ * terms = 15, 30
+ * periods = MONTHLY, BIWEEKLY
+ * amounts = 150000, 250000, 400000
+ * formulas = DEFAULT, CANADIAN
+ * </pre>
+ *
+ * <p>
+ * A rate of the form low..high is every rate from low to high in steps of an eighth of a point, which is how rates are
+ * quoted. The formulas are optional, and default to DEFAULT. This object is immutable, and its set method returns a
+ * new object.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class RateSheet {
+
+    /**
+     * The step of a range of rates, an eighth of a point.
+     */
+    public static final double RATE_STEP = 0.125;
+
+    private final double[] rates;
+    private final int[] terms;
+    private final List<PmtPeriod> pmtPeriods;
+    private final double[] amounts;
+    private final List<PmtFormula> formulas;
+
+    private RateSheet(double[] rates, int[] terms, List<PmtPeriod> pmtPeriods, double[] amounts,
+            List<PmtFormula> formulas) {
+        Preconditions.checkArgument(rates.length > 0, "rates must not be empty.");
+        Preconditions.checkArgument(terms.length > 0, "terms must not be empty.");
+        Preconditions.checkArgument(!pmtPeriods.isEmpty(), "pmtPeriods must not be empty.");
+        Preconditions.checkArgument(amounts.length > 0, "amounts must not be empty.");
+        Preconditions.checkArgument(!formulas.isEmpty(), "formulas must not be empty.");
+        for (double rate : rates) {
+            Preconditions.checkArgument(rate > 0.0 && rate <= 100.0, "Interest Rate %s must be greater than 0 and "
+                    + "not greater than 100.", rate);
+        }
+        for (int term : terms) {
+            Preconditions.checkArgument(term > 0, "Term %s must be greater than 0.", term);
+        }
+        for (PmtPeriod pmtPeriod : pmtPeriods) {
+            Preconditions.checkArgument(isValidPmtPeriod(pmtPeriod), "Valid PmtPeriod values are BIWEEKLY, MONTHLY, "
+                    + "RAPID_BIWEEKLY, RAPID_WEEKLY, or WEEKLY");
+        }
+        for (double amount : amounts) {
+            Preconditions.checkArgument(amount > 0.0 && !Double.isInfinite(amount), "Loan Amount %s must be greater "
+                    + "than 0.", amount);
+        }
+
+        this.rates = rates;
+        this.terms = terms;
+        this.pmtPeriods = pmtPeriods;
+        this.amounts = amounts;
+        this.formulas = formulas;
+    }
+
+    /**
+     * Creates a rate sheet of the DEFAULT formula.
+     *
+     * @param rates
+     *            the interest rates, in the order of the rows of the sheet
+     * @param terms
+     *            the terms in years
+     * @param pmtPeriods
+     *            the payment periods
+     * @param amounts
+     *            the loan amounts
+     *
+     * @return new <tt>RateSheet</tt>
+     *
+     * @throws NullPointerException
+     *             if any argument is null, or if pmtPeriods contains null.
+     *
+     * @throws IllegalArgumentException
+     *             if an axis is empty, if a rate is not greater than 0 or is greater than 100, if a term or amount is
+     *             not greater than 0, or if a PmtPeriod is not BIWEEKLY, RAPID_BIWEEKLY, MONTHLY, WEEKLY, or
+     *             RAPID_WEEKLY.
+     */
+    public static RateSheet of(double[] rates, int[] terms, Iterable<PmtPeriod> pmtPeriods, double[] amounts) {
+        Preconditions.checkNotNull(rates, "rates must not be null.");
+        Preconditions.checkNotNull(terms, "terms must not be null.");
+        Preconditions.checkNotNull(pmtPeriods, "pmtPeriods must not be null.");
+        Preconditions.checkNotNull(amounts, "amounts must not be null.");
+        return new RateSheet(rates.clone(), terms.clone(), ImmutableList.copyOf(pmtPeriods), amounts.clone(),
+                ImmutableList.of(PmtFormula.DEFAULT));
+    }
+
+    /**
+     * Reads a rate sheet from a file of properties. See the description of this class for its format.
+     *
+     * @param file
+     *            the file
+     *
+     * @return new <tt>RateSheet</tt>
+     *
+     * @throws NullPointerException
+     *             if file is null.
+     *
+     * @throws IllegalArgumentException
+     *             if an axis is missing, or if a value is not valid.
+     *
+     * @throws IOException
+     *             if the file cannot be read.
+     */
+    public static RateSheet read(Path file) throws IOException {
+        Preconditions.checkNotNull(file, "file must not be null.");
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        List<Double> rates = new ArrayList<Double>();
+        for (String value : split(properties, "rates")) {
+            int range = value.indexOf("..");
+            if (range < 0) {
+                rates.add(parseDouble("rates", value));
+            } else {
+                rates.addAll(Doubles.asList(rateRange(parseDouble("rates", value.substring(0, range)), parseDouble(
+                        "rates", value.substring(range + 2)))));
+            }
+        }
+
+        List<Integer> terms = new ArrayList<Integer>();
+        for (String value : split(properties, "terms")) {
+            try {
+                terms.add(Integer.parseInt(value));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("'" + value + "' is not a value of terms.");
+            }
+        }
+
+        List<PmtPeriod> pmtPeriods = new ArrayList<PmtPeriod>();
+        for (String value : split(properties, "periods")) {
+            pmtPeriods.add(parseEnum(PmtPeriod.class, "periods", value));
+        }
+
+        List<Double> amounts = new ArrayList<Double>();
+        for (String value : split(properties, "amounts")) {
+            amounts.add(parseDouble("amounts", value));
+        }
+
+        List<PmtFormula> formulas = new ArrayList<PmtFormula>();
+        if (properties.getProperty("formulas") == null) {
+            formulas.add(PmtFormula.DEFAULT);
+        } else {
+            for (String value : split(properties, "formulas")) {
+                formulas.add(parseEnum(PmtFormula.class, "formulas", value));
+            }
+        }
+
+        return new RateSheet(Doubles.toArray(rates), Ints.toArray(terms), ImmutableList.copyOf(pmtPeriods), Doubles
+                .toArray(amounts), ImmutableList.copyOf(formulas));
+    }
+
+    private static List<String> split(Properties properties, String name) {
+        String property = properties.getProperty(name);
+        Preconditions.checkArgument(property != null, "The rate sheet has no %s.", name);
+
+        List<String> values = new ArrayList<String>();
+        for (String value : property.split(",")) {
+            if (!value.trim().isEmpty()) {
+                values.add(value.trim());
+            }
+        }
+        return values;
+    }
+
+    private static double parseDouble(String name, String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + value + "' is not a value of " + name + ".");
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String name, String value) {
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("'" + value + "' is not a value of " + name + ".");
+        }
+    }
+
+    /**
+     * Gets every rate from low to high in steps of an eighth of a point. Each rate is computed from low and its index,
+     * so the steps do not add up rounding errors.
+     *
+     * @param low
+     *            the first rate
+     * @param high
+     *            the last rate. It is included if it is a whole number of steps from low.
+     *
+     * @return rates in ascending order
+     *
+     * @throws IllegalArgumentException
+     *             if high is less than low.
+     */
+    public static double[] rateRange(double low, double high) {
+        Preconditions.checkArgument(high >= low, "high must not be less than low.");
+
+        // Allow for a high that is a step away but was written with fewer digits.
+        int steps = (int) Math.floor((high - low) / RATE_STEP + 1e-9);
+        double[] rates = new double[steps + 1];
+        for (int i = 0; i <= steps; i++) {
+            rates[i] = low + i * RATE_STEP;
+        }
+        return rates;
+    }
+
+    static boolean isValidPmtPeriod(PmtPeriod pmtPeriod) {
+        switch (pmtPeriod) {
+        case BIWEEKLY:
+        case RAPID_BIWEEKLY:
+        case MONTHLY:
+        case RAPID_WEEKLY:
+        case WEEKLY:
+            return true;
+
+        default:
+            return false;
+        }
+    }
+
+    public double[] getRates() {
+        return rates.clone();
+    }
+
+    public int[] getTerms() {
+        return terms.clone();
+    }
+
+    public List<PmtPeriod> getPmtPeriods() {
+        return pmtPeriods;
+    }
+
+    public double[] getAmounts() {
+        return amounts.clone();
+    }
+
+    public List<PmtFormula> getFormulas() {
+        return formulas;
+    }
+
+    /**
+     * Returns a rate sheet with other payment formulas.
+     *
+     * @param formulas
+     *            the formulas
+     *
+     * @return new <tt>RateSheet</tt>
+     *
+     * @throws NullPointerException
+     *             if formulas is null or contains null.
+     *
+     * @throws IllegalArgumentException
+     *             if formulas is empty.
+     */
+    public RateSheet setFormulas(PmtFormula... formulas) {
+        return new RateSheet(rates, terms, pmtPeriods, amounts, ImmutableList.copyOf(formulas));
+    }
+
+    /**
+     * Gets the number of payments of a term in a payment period.
+     *
+     * @param pmtPeriod
+     *            the payment period
+     * @param term
+     *            the term in years
+     *
+     * @return term times the payments a year of pmtPeriod
+     */
+    public static int getPmtCt(PmtPeriod pmtPeriod, int term) {
+        return pmtPeriod.pmtsPerYear() * term;
+    }
+
+    /**
+     * Gets the number of cells of the grid, which is the product of the sizes of its axes.
+     *
+     * @return number of cells
+     */
+    public long getCellCt() {
+        return (long) rates.length * terms.length * pmtPeriods.size() * amounts.length * formulas.size();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(Arrays.hashCode(rates), Arrays.hashCode(terms), pmtPeriods, Arrays.hashCode(amounts),
+                formulas);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (!(object instanceof RateSheet)) {
+            return false;
+        }
+
+        RateSheet that = (RateSheet) object;
+        return Arrays.equals(this.rates, that.rates)
+                && Arrays.equals(this.terms, that.terms)
+                && this.pmtPeriods.equals(that.pmtPeriods)
+                && Arrays.equals(this.amounts, that.amounts)
+                && this.formulas.equals(that.formulas);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("rates", Arrays.toString(rates))
+                .add("terms", Arrays.toString(terms))
+                .add("pmtPeriods", pmtPeriods)
+                .add("amounts", Arrays.toString(amounts))
+                .add("formulas", formulas)
+                .toString();
+    }
+}
@@ -0,0 +1,347 @@
+package co.da.jmtg.sheet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+import co.da.jmtg.util.Cents;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
+
+/**
+ * <p>
+ * The payments of every cell of a <tt>RateSheet</tt>, computed in one pass without creating a <tt>PmtCalculator</tt>
+ * for any of them. The annuity factor of each formula, rate, and payment count is computed once and shared by every
+ * loan amount, and by the payment periods with the same number of payments a year, so a payment only takes a multiply
+ * and the scaling to its period. The factors are not put in the cache of <tt>PmtCalculators</tt>, so a sheet of any
+ * size leaves nothing behind but this object. Each payment is exactly the one a calculator of the same values
+ * returns.
+ * </p>
+ *
+ * <p>
+ * The payments are held in primitive arrays, by cell. The cells are in order of formula, payment period, term, rate,
+ * and loan amount, with the loan amount changing fastest, which is the order of the rows of {@link #writeCsv(Path)}.
+ * This object is immutable.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class RateSheetMatrix {
+
+    private final RateSheet rateSheet;
+    private final double[] rates;
+    private final int[] terms;
+    private final List<PmtPeriod> pmtPeriods;
+    private final double[] amounts;
+    private final List<PmtFormula> formulas;
+
+    private final double[] pmtsUnrounded;
+    private final long[] pmtCents;
+    private final int annuityFactorCt;
+
+    private RateSheetMatrix(RateSheet rateSheet, double[] pmtsUnrounded, long[] pmtCents, int annuityFactorCt) {
+        this.rateSheet = rateSheet;
+        rates = rateSheet.getRates();
+        terms = rateSheet.getTerms();
+        pmtPeriods = rateSheet.getPmtPeriods();
+        amounts = rateSheet.getAmounts();
+        formulas = rateSheet.getFormulas();
+
+        this.pmtsUnrounded = pmtsUnrounded;
+        this.pmtCents = pmtCents;
+        this.annuityFactorCt = annuityFactorCt;
+    }
+
+    /**
+     * Computes the payments of every cell of a rate sheet.
+     *
+     * @param rateSheet
+     *            the rate sheet
+     *
+     * @return new <tt>RateSheetMatrix</tt>
+     *
+     * @throws NullPointerException
+     *             if rateSheet is null.
+     *
+     * @throws IllegalArgumentException
+     *             if the rate sheet has more than Integer.MAX_VALUE cells.
+     */
+    public static RateSheetMatrix compute(RateSheet rateSheet) {
+        Preconditions.checkNotNull(rateSheet, "rateSheet must not be null.");
+        Preconditions.checkArgument(rateSheet.getCellCt() <= Integer.MAX_VALUE,
+                "The rate sheet has more than Integer.MAX_VALUE cells.");
+
+        double[] rates = rateSheet.getRates();
+        int[] terms = rateSheet.getTerms();
+        double[] amounts = rateSheet.getAmounts();
+
+        int cellCt = (int) rateSheet.getCellCt();
+        double[] pmtsUnrounded = new double[cellCt];
+        long[] pmtCents = new long[cellCt];
+        int annuityFactorCt = 0;
+
+        int cell = 0;
+        for (PmtFormula formula : rateSheet.getFormulas()) {
+            // The factors of each rate by payment count. Periods with the same payments a year share them.
+            Map<Integer, double[]> factorsByPmtCt = new HashMap<Integer, double[]>();
+            for (PmtPeriod pmtPeriod : rateSheet.getPmtPeriods()) {
+                for (int term : terms) {
+                    int pmtCt = RateSheet.getPmtCt(pmtPeriod, term);
+                    double[] factors = factorsByPmtCt.get(pmtCt);
+                    if (factors == null) {
+                        factors = new double[rates.length];
+                        for (int i = 0; i < rates.length; i++) {
+                            factors[i] = formula.calcAnnuityFactor(rates[i], pmtCt);
+                        }
+                        factorsByPmtCt.put(pmtCt, factors);
+                        annuityFactorCt += factors.length;
+                    }
+
+                    for (double factor : factors) {
+                        for (double amount : amounts) {
+                            double pmt = PmtCalculators.calcPmtUnrounded(pmtPeriod, amount, factor);
+                            pmtsUnrounded[cell] = pmt;
+                            // A PmtCalculator rounds the exact binary value of its payment.
+                            pmtCents[cell] = Cents.toCentsExact(pmt);
+                            cell++;
+                        }
+                    }
+                }
+            }
+        }
+        return new RateSheetMatrix(rateSheet, pmtsUnrounded, pmtCents, annuityFactorCt);
+    }
+
+    public RateSheet getRateSheet() {
+        return rateSheet;
+    }
+
+    /**
+     * Gets the number of cells, which is the number of payments.
+     *
+     * @return number of cells
+     */
+    public int getCellCt() {
+        return pmtCents.length;
+    }
+
+    /**
+     * Gets the number of annuity factors that were computed for the payments. It is the number of formulas times the
+     * number of rates times the number of distinct payment counts.
+     *
+     * @return number of annuity factors
+     */
+    public int getAnnuityFactorCt() {
+        return annuityFactorCt;
+    }
+
+    /**
+     * Gets the payment of a cell, rounded to cents.
+     *
+     * @param cell
+     *            the index of the cell, in the order described above
+     *
+     * @return payment
+     *
+     * @throws IndexOutOfBoundsException
+     *             if cell is less than 0 or not less than the number of cells.
+     */
+    public double getPmt(int cell) {
+        Preconditions.checkElementIndex(cell, pmtCents.length);
+        return pmtCents[cell] / 100.0;
+    }
+
+    /**
+     * Gets the unrounded payment of a cell.
+     *
+     * @param cell
+     *            the index of the cell, in the order described above
+     *
+     * @return unrounded payment
+     *
+     * @throws IndexOutOfBoundsException
+     *             if cell is less than 0 or not less than the number of cells.
+     */
+    public double getPmtUnrounded(int cell) {
+        Preconditions.checkElementIndex(cell, pmtsUnrounded.length);
+        return pmtsUnrounded[cell];
+    }
+
+    /**
+     * Gets the payment of a product on the sheet, rounded to cents.
+     *
+     * @param formula
+     *            the payment formula
+     * @param pmtPeriod
+     *            the payment period
+     * @param term
+     *            the term in years
+     * @param rate
+     *            the interest rate
+     * @param amount
+     *            the loan amount
+     *
+     * @return payment
+     *
+     * @throws IllegalArgumentException
+     *             if one of the values is not on the sheet.
+     */
+    public double getPmt(PmtFormula formula, PmtPeriod pmtPeriod, int term, double rate, double amount) {
+        return pmtCents[indexOf(formula, pmtPeriod, term, rate, amount)] / 100.0;
+    }
+
+    /**
+     * Gets the unrounded payment of a product on the sheet.
+     *
+     * @param formula
+     *            the payment formula
+     * @param pmtPeriod
+     *            the payment period
+     * @param term
+     *            the term in years
+     * @param rate
+     *            the interest rate
+     * @param amount
+     *            the loan amount
+     *
+     * @return unrounded payment
+     *
+     * @throws IllegalArgumentException
+     *             if one of the values is not on the sheet.
+     */
+    public double getPmtUnrounded(PmtFormula formula, PmtPeriod pmtPeriod, int term, double rate, double amount) {
+        return pmtsUnrounded[indexOf(formula, pmtPeriod, term, rate, amount)];
+    }
+
+    /**
+     * Gets the index of the cell of a product on the sheet.
+     *
+     * @param formula
+     *            the payment formula
+     * @param pmtPeriod
+     *            the payment period
+     * @param term
+     *            the term in years
+     * @param rate
+     *            the interest rate
+     * @param amount
+     *            the loan amount
+     *
+     * @return index of the cell
+     *
+     * @throws IllegalArgumentException
+     *             if one of the values is not on the sheet.
+     */
+    public int indexOf(PmtFormula formula, PmtPeriod pmtPeriod, int term, double rate, double amount) {
+        int formulaIdx = formulas.indexOf(formula);
+        Preconditions.checkArgument(formulaIdx >= 0, "Formula %s is not on the sheet.", formula);
+        int periodIdx = pmtPeriods.indexOf(pmtPeriod);
+        Preconditions.checkArgument(periodIdx >= 0, "PmtPeriod %s is not on the sheet.", pmtPeriod);
+        int termIdx = Ints.indexOf(terms, term);
+        Preconditions.checkArgument(termIdx >= 0, "Term %s is not on the sheet.", term);
+        int rateIdx = Doubles.indexOf(rates, rate);
+        Preconditions.checkArgument(rateIdx >= 0, "Interest Rate %s is not on the sheet.", rate);
+        int amountIdx = Doubles.indexOf(amounts, amount);
+        Preconditions.checkArgument(amountIdx >= 0, "Loan Amount %s is not on the sheet.", amount);
+
+        return (((formulaIdx * pmtPeriods.size() + periodIdx) * terms.length + termIdx) * rates.length + rateIdx)
+                * amounts.length + amountIdx;
+    }
+
+    /**
+     * Writes the payments to a CSV file of <tt>formula,period,term,rate,amount,pmt</tt> lines, with a header line, in
+     * the order of the cells. The payments are rounded to cents. The file is replaced if it exists.
+     *
+     * @param file
+     *            the file to write
+     *
+     * @throws NullPointerException
+     *             if file is null.
+     *
+     * @throws IOException
+     *             if the file cannot be written.
+     */
+    public void writeCsv(Path file) throws IOException {
+        Preconditions.checkNotNull(file, "file must not be null.");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeCsv(writer);
+        }
+    }
+
+    /**
+     * Writes the payments as CSV to a writer. See {@link #writeCsv(Path)}. The writer is not closed.
+     *
+     * @param writer
+     *            the writer
+     *
+     * @throws NullPointerException
+     *             if writer is null.
+     *
+     * @throws IOException
+     *             if the writer fails.
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        Preconditions.checkNotNull(writer, "writer must not be null.");
+
+        // Format the values of the axes once, since each is on many lines.
+        String[] rateLabels = new String[rates.length];
+        for (int i = 0; i < rates.length; i++) {
+            rateLabels[i] = format(rates[i]);
+        }
+        String[] amountLabels = new String[amounts.length];
+        for (int i = 0; i < amounts.length; i++) {
+            amountLabels[i] = format(amounts[i]);
+        }
+
+        writer.write("formula,period,term,rate,amount,pmt\n");
+        StringBuilder line = new StringBuilder();
+        int cell = 0;
+        for (PmtFormula formula : formulas) {
+            for (PmtPeriod pmtPeriod : pmtPeriods) {
+                for (int term : terms) {
+                    for (String rateLabel : rateLabels) {
+                        for (String amountLabel : amountLabels) {
+                            long cents = pmtCents[cell++];
+                            line.setLength(0);
+                            line.append(formula).append(',').append(pmtPeriod).append(',').append(term).append(',')
+                                    .append(rateLabel).append(',').append(amountLabel).append(',')
+                                    .append(cents / 100).append('.');
+                            long fraction = cents % 100;
+                            if (fraction < 10) {
+                                line.append('0');
+                            }
+                            line.append(fraction).append('\n');
+                            writer.append(line);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static String format(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("rateSheet", rateSheet)
+                .add("cellCt", getCellCt())
+                .add("annuityFactorCt", annuityFactorCt)
+                .toString();
+    }
+}
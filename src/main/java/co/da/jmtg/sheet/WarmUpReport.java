@@ -0,0 +1,117 @@
+package co.da.jmtg.sheet;
+
+import com.google.common.base.Objects;
+
+/**
+ * The result of a warm-up by <tt>CacheWarmer</tt>: what it put in the caches, how long it exercised the hot paths, and
+ * whether the JIT compiler settled. This object is immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class WarmUpReport {
+
+    private final long calculatorCt;
+    private final long keyCt;
+    private final long tableCt;
+    private final int annuityFactorCt;
+    private final int rounds;
+    private final long compilationMillis;
+    private final long elapsedMillis;
+    private final boolean warm;
+
+    WarmUpReport(long calculatorCt, long keyCt, long tableCt, int annuityFactorCt, int rounds, long compilationMillis,
+            long elapsedMillis, boolean warm) {
+        this.calculatorCt = calculatorCt;
+        this.keyCt = keyCt;
+        this.tableCt = tableCt;
+        this.annuityFactorCt = annuityFactorCt;
+        this.rounds = rounds;
+        this.compilationMillis = compilationMillis;
+        this.elapsedMillis = elapsedMillis;
+        this.warm = warm;
+    }
+
+    /**
+     * Gets the number of interned calculators the warm-up asked for, one for each cell of the rate sheet.
+     *
+     * @return number of calculators
+     */
+    public long getCalculatorCt() {
+        return calculatorCt;
+    }
+
+    /**
+     * Gets the number of interned payment keys the warm-up asked for, one for each payment period, term, and first
+     * payment date.
+     *
+     * @return number of keys
+     */
+    public long getKeyCt() {
+        return keyCt;
+    }
+
+    /**
+     * Gets the number of tables the warm-up put in the <tt>ScheduleCache</tt>, or found there.
+     *
+     * @return number of tables, or 0 if the warm-up had no cache
+     */
+    public long getTableCt() {
+        return tableCt;
+    }
+
+    /**
+     * Gets the number of annuity factors in the cache of <tt>PmtCalculators</tt> after the warm-up.
+     *
+     * @return number of annuity factors
+     */
+    public int getAnnuityFactorCt() {
+        return annuityFactorCt;
+    }
+
+    /**
+     * Gets the number of rounds the warm-up exercised the hot paths.
+     *
+     * @return number of rounds
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Gets the time the JIT compiler spent while the hot paths were exercised.
+     *
+     * @return milliseconds of compilation, or -1 if the JVM does not report it
+     */
+    public long getCompilationMillis() {
+        return compilationMillis;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns true if the JIT compiler settled before the last round: the last rounds added no compilation time. If
+     * the JVM does not report compilation time, it is true once the minimum number of rounds ran.
+     *
+     * @return true if the service is warm
+     */
+    public boolean isWarm() {
+        return warm;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("calculatorCt", calculatorCt)
+                .add("keyCt", keyCt)
+                .add("tableCt", tableCt)
+                .add("annuityFactorCt", annuityFactorCt)
+                .add("rounds", rounds)
+                .add("compilationMillis", compilationMillis)
+                .add("elapsedMillis", elapsedMillis)
+                .add("warm", warm)
+                .toString();
+    }
+}
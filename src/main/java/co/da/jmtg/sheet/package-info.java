@@ -0,0 +1,9 @@
+/**
+ * This package contains the rate sheet, which describes the grid of products a pricing service quotes, the matrix of
+ * the payments of every product on a sheet, and the warm-up that prepares the caches of the library for a sheet when
+ * the service starts.
+ * 
+ * @author David Armstrong
+ *
+ */
+package co.da.jmtg.sheet;
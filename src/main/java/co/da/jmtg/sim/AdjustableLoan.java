@@ -0,0 +1,108 @@
+package co.da.jmtg.sim;
+
+import co.da.jmtg.pmt.PmtCalculator;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+/**
+ * The terms of an adjustable rate mortgage for a simulation. The <tt>PmtCalculator</tt> holds the loan amount, the
+ * initial interest rate, the payment count, and the payment period. The rate is fixed for a number of payments, and
+ * then it resets every so many payments for the rest of the term. At each reset the balance left is amortized again
+ * over the payments left at the new rate, with the payment formula of the <tt>PmtCalculator</tt>. This object is
+ * immutable as long as the <tt>PmtCalculator</tt> it holds is immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class AdjustableLoan {
+
+    private final PmtCalculator pmtCalculator;
+    private final int fixedPmts;
+    private final int pmtsPerReset;
+
+    private AdjustableLoan(PmtCalculator pmtCalculator, int fixedPmts, int pmtsPerReset) {
+        Preconditions.checkNotNull(pmtCalculator, "pmtCalculator must not be null.");
+        Preconditions.checkArgument(fixedPmts >= 0, "fixedPmts must not be less than 0.");
+        Preconditions.checkArgument(pmtsPerReset > 0, "pmtsPerReset must be greater than 0.");
+
+        this.pmtCalculator = pmtCalculator;
+        this.fixedPmts = fixedPmts;
+        this.pmtsPerReset = pmtsPerReset;
+    }
+
+    /**
+     * Creates an adjustable rate mortgage, such as a 5/1 ARM paid monthly, which has 60 fixed payments and resets every
+     * 12 payments.
+     *
+     * @param pmtCalculator
+     *            The mortgage data, including the initial interest rate
+     * @param fixedPmts
+     *            the number of payments before the first reset
+     * @param pmtsPerReset
+     *            the number of payments between resets
+     * @return new <tt>AdjustableLoan</tt>
+     *
+     * @throws NullPointerException
+     *             if pmtCalculator is null.
+     *
+     * @throws IllegalArgumentException
+     *             if fixedPmts is less than 0, or if pmtsPerReset is not greater than 0.
+     */
+    public static AdjustableLoan of(PmtCalculator pmtCalculator, int fixedPmts, int pmtsPerReset) {
+        return new AdjustableLoan(pmtCalculator, fixedPmts, pmtsPerReset);
+    }
+
+    public PmtCalculator getPmtCalculator() {
+        return pmtCalculator;
+    }
+
+    public int getFixedPmts() {
+        return fixedPmts;
+    }
+
+    public int getPmtsPerReset() {
+        return pmtsPerReset;
+    }
+
+    /**
+     * Gets the number of rate resets over the term of the mortgage. It is the length of the rate paths a simulation
+     * generates.
+     *
+     * @return number of resets
+     */
+    public int getResetCt() {
+        int adjustablePmts = pmtCalculator.getPmtCt() - fixedPmts;
+        return adjustablePmts <= 0 ? 0 : (adjustablePmts + pmtsPerReset - 1) / pmtsPerReset;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("pmtCalculator", pmtCalculator)
+                .add("fixedPmts", fixedPmts)
+                .add("pmtsPerReset", pmtsPerReset)
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(pmtCalculator, fixedPmts, pmtsPerReset);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (!(object instanceof AdjustableLoan)) {
+            return false;
+        }
+
+        AdjustableLoan that = (AdjustableLoan) object;
+        return this.fixedPmts == that.fixedPmts
+                && this.pmtsPerReset == that.pmtsPerReset
+                && Objects.equal(this.pmtCalculator, that.pmtCalculator);
+    }
+}
@@ -0,0 +1,43 @@
+package co.da.jmtg.sim;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import com.google.common.base.Objects;
+
+/**
+ * A <tt>RatePathGenerator</tt> that resamples historical rate changes. Each step adds a change drawn at random, with
+ * replacement, from the changes between consecutive historical rates, so the paths have the same distribution of
+ * moves as the history without assuming a model. Each rate is clamped between <tt>RatePathGenerators.MIN_RATE</tt> and
+ * 100. This object is immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class BootstrapRatePathGenerator implements RatePathGenerator {
+
+    private final double startRate;
+    private final double[] changes;
+
+    BootstrapRatePathGenerator(double startRate, double[] changes) {
+        this.startRate = startRate;
+        this.changes = changes;
+    }
+
+    @Override
+    public void nextPath(SplittableRandom random, double[] rates) {
+        double rate = startRate;
+        for (int i = 0; i < rates.length; i++) {
+            rate = RatePathGenerators.clamp(rate + changes[random.nextInt(changes.length)]);
+            rates[i] = rate;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("startRate", startRate)
+                .add("changes", Arrays.toString(changes))
+                .toString();
+    }
+}
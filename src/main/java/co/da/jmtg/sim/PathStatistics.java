@@ -0,0 +1,101 @@
+package co.da.jmtg.sim;
+
+import com.google.common.base.Objects;
+
+/**
+ * Summary statistics of one value over the paths of a simulation: the count, mean, standard deviation, minimum, and
+ * maximum. This object is immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class PathStatistics {
+
+    private final long count;
+    private final double mean;
+    private final double standardDeviation;
+    private final double min;
+    private final double max;
+
+    PathStatistics(long count, double mean, double standardDeviation, double min, double max) {
+        this.count = count;
+        this.mean = mean;
+        this.standardDeviation = standardDeviation;
+        this.min = min;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean of the value over the paths.
+     *
+     * @return mean, or 0.0 if there are no paths
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Gets the sample standard deviation of the value over the paths.
+     *
+     * @return standard deviation, or 0.0 if there are fewer than 2 paths
+     */
+    public double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    /**
+     * Gets the smallest value of any path.
+     *
+     * @return minimum, or <tt>Double.NaN</tt> if there are no paths
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Gets the largest value of any path.
+     *
+     * @return maximum, or <tt>Double.NaN</tt> if there are no paths
+     */
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("count", count)
+                .add("mean", mean)
+                .add("standardDeviation", standardDeviation)
+                .add("min", min)
+                .add("max", max)
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(count, mean, standardDeviation, min, max);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (!(object instanceof PathStatistics)) {
+            return false;
+        }
+
+        PathStatistics that = (PathStatistics) object;
+        return this.count == that.count
+                && Objects.equal(this.mean, that.mean)
+                && Objects.equal(this.standardDeviation, that.standardDeviation)
+                && Objects.equal(this.min, that.min)
+                && Objects.equal(this.max, that.max);
+    }
+}
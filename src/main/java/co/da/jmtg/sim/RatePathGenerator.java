@@ -0,0 +1,27 @@
+package co.da.jmtg.sim;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates random interest rate paths for a simulation. A path is the interest rate that applies from each rate reset
+ * of a mortgage on. The generator fills an array the simulation passes in, so a path does not create any objects, and
+ * it draws all its random numbers from the <tt>SplittableRandom</tt> passed in, so a simulation with the same seed
+ * generates the same paths no matter how many threads it runs on. Implementations must be immutable, because the same
+ * generator is used by every thread of a simulation.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public interface RatePathGenerator {
+
+    /**
+     * Fills the array passed in with a new rate path. Rates are percentages, the same way interest rates are given to
+     * a <tt>PmtCalculator</tt>, and must be greater than 0 and not greater than 100.
+     *
+     * @param random
+     *            the source of random numbers for the path
+     * @param rates
+     *            the array to fill. rates[i] is the interest rate from reset i on.
+     */
+    void nextPath(SplittableRandom random, double[] rates);
+}
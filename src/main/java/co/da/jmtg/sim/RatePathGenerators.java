@@ -0,0 +1,105 @@
+package co.da.jmtg.sim;
+
+import java.util.SplittableRandom;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * Contains static methods that create instances of <tt>RatePathGenerator</tt>.
+ * </p>
+ *
+ * <p>
+ * The payment formulas of <tt>PmtCalculator</tt> divide by the interest rate, so generated rates are never less than
+ * {@link #MIN_RATE}.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public class RatePathGenerators {
+
+    /**
+     * The lowest rate a generator returns, one basis point.
+     */
+    public static final double MIN_RATE = 0.01;
+
+    private static final double MAX_RATE = 100.0;
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private RatePathGenerators() {
+    }
+
+    /**
+     * Gets a generator that follows the Vasicek model. The rate reverts to meanRate at reversionSpeed, with random
+     * moves of volatility per square root of a year.
+     *
+     * @param startRate
+     *            the rate before the first step, as a percentage
+     * @param meanRate
+     *            the long run mean rate, as a percentage
+     * @param reversionSpeed
+     *            the speed of mean reversion per year
+     * @param volatility
+     *            the volatility of the rate, in percentage points per square root of a year
+     * @param yearsPerStep
+     *            the length of a step in years, such as 1.0 for a loan that resets every year
+     *
+     * @return <tt>RatePathGenerator</tt> instance
+     *
+     * @throws IllegalArgumentException
+     *             if reversionSpeed or volatility is less than 0, or if yearsPerStep is not greater than 0
+     */
+    public static RatePathGenerator getVasicek(double startRate, double meanRate, double reversionSpeed,
+            double volatility, double yearsPerStep) {
+        Preconditions.checkArgument(reversionSpeed >= 0.0, "reversionSpeed must not be less than 0.");
+        Preconditions.checkArgument(volatility >= 0.0, "volatility must not be less than 0.");
+        Preconditions.checkArgument(yearsPerStep > 0.0, "yearsPerStep must be greater than 0.");
+        return new VasicekRatePathGenerator(startRate, meanRate, reversionSpeed, volatility, yearsPerStep);
+    }
+
+    /**
+     * Gets a generator that resamples the changes between consecutive historical rates. The history must be observed
+     * at the same interval as the rate resets of the simulated loan, such as a yearly series for a loan that resets
+     * every year.
+     *
+     * @param startRate
+     *            the rate before the first step, as a percentage
+     * @param history
+     *            historical rates as percentages, oldest first
+     *
+     * @return <tt>RatePathGenerator</tt> instance
+     *
+     * @throws NullPointerException
+     *             if history is null
+     *
+     * @throws IllegalArgumentException
+     *             if history has fewer than 2 rates
+     */
+    public static RatePathGenerator getHistoricalBootstrap(double startRate, double... history) {
+        Preconditions.checkNotNull(history, "history must not be null.");
+        Preconditions.checkArgument(history.length >= 2, "history must have at least 2 rates.");
+
+        double[] changes = new double[history.length - 1];
+        for (int i = 0; i < changes.length; i++) {
+            changes[i] = history[i + 1] - history[i];
+        }
+        return new BootstrapRatePathGenerator(startRate, changes);
+    }
+
+    /*
+     * Clamps a rate between MIN_RATE and MAX_RATE.
+     */
+    static double clamp(double rate) {
+        return Math.min(MAX_RATE, Math.max(MIN_RATE, rate));
+    }
+
+    /*
+     * Draws a standard normal number with the Box-Muller transform. SplittableRandom does not have nextGaussian.
+     */
+    static double nextGaussian(SplittableRandom random) {
+        // 1 - nextDouble is in (0, 1], so the log is finite.
+        double radius = Math.sqrt(-2 * Math.log(1 - random.nextDouble()));
+        return radius * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+}
@@ -0,0 +1,161 @@
+package co.da.jmtg.sim;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * Contains static methods that simulate the schedule of an <tt>AdjustableLoan</tt> over many random interest rate
+ * paths.
+ * </p>
+ *
+ * <p>
+ * The paths are split into ranges on a fork/join pool. A range is split in two until it is small enough, and each
+ * half gets its own <tt>SplittableRandom</tt>, split from the one of the range. The tree of ranges depends only on the
+ * number of paths, so a simulation with the same seed returns the same result no matter how its ranges are scheduled.
+ * Each range runs its paths on one thread with a single array for the rates, and adds the result of each path to
+ * accumulators of its own, which are merged up the tree. A path does not create any objects.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public class RateSimulations {
+
+    // The number of paths a range runs on one thread without splitting.
+    private static final int LEAF_PATHS = 64;
+
+    // A balance less than or equal to this is 0.0 when rounded to cents, so the loan is paid off.
+    private static final double HALF_CENT = 0.005;
+
+    private static final ForkJoinPool pool = new ForkJoinPool();
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private RateSimulations() {
+    }
+
+    /**
+     * Simulates the mortgage over paths generated by the generator passed in.
+     *
+     * @param loan
+     *            the mortgage to simulate
+     * @param generator
+     *            generates the interest rate of each reset of a path
+     * @param paths
+     *            the number of paths to simulate
+     * @param seed
+     *            the seed of the random numbers. The same seed gives the same result.
+     *
+     * @return <tt>SimulationSummary</tt> of the paths
+     *
+     * @throws NullPointerException
+     *             if loan or generator is null
+     *
+     * @throws IllegalArgumentException
+     *             if paths is not greater than 0
+     */
+    public static SimulationSummary simulate(AdjustableLoan loan, RatePathGenerator generator, int paths, long seed) {
+        Preconditions.checkNotNull(loan, "loan must not be null.");
+        Preconditions.checkNotNull(generator, "generator must not be null.");
+        Preconditions.checkArgument(paths > 0, "paths must be greater than 0.");
+
+        Accumulators result = pool.invoke(new PathRange(loan, generator, 0, paths, new SplittableRandom(seed)));
+        return new SimulationSummary(result.totalInterest.toStatistics(), result.maxPmt.toStatistics(),
+                result.finalRate.toStatistics());
+    }
+
+    /*
+     * Runs one path and adds its results to the accumulators. rates holds the rate path.
+     */
+    private static void runPath(AdjustableLoan loan, double[] rates, Accumulators accumulators) {
+        PmtCalculator pmtCalculator = loan.getPmtCalculator();
+        int count = pmtCalculator.getPmtCt();
+        int fixedPmts = loan.getFixedPmts();
+        int pmtsPerReset = loan.getPmtsPerReset();
+
+        double rate = pmtCalculator.getInterestRate();
+        double periodInterestRate = pmtCalculator.getPeriodInterestRate();
+        double pmt = pmtCalculator.getPmtUnrounded();
+        double maxPmt = pmt;
+        double owed = pmtCalculator.getLoanAmt();
+        double interestPaid = 0.0;
+        for (int i = 0; i < count && owed > HALF_CENT; i++) {
+            int sinceFixed = i - fixedPmts;
+            if (sinceFixed >= 0 && sinceFixed % pmtsPerReset == 0) {
+                rate = rates[sinceFixed / pmtsPerReset];
+                periodInterestRate = PmtCalculators.calcPeriodInterestRate(pmtCalculator, rate);
+                pmt = PmtCalculators.calcPmtUnrounded(pmtCalculator, owed, rate, count - i);
+                maxPmt = Math.max(maxPmt, pmt);
+            }
+
+            double interest = owed * periodInterestRate;
+            double total = Math.min(pmt, owed + interest);
+            owed = owed - (total - interest);
+            interestPaid = interestPaid + interest;
+        }
+
+        accumulators.totalInterest.add(interestPaid);
+        accumulators.maxPmt.add(maxPmt);
+        accumulators.finalRate.add(rate);
+    }
+
+    private static final class Accumulators {
+        private final StatisticsAccumulator totalInterest = new StatisticsAccumulator();
+        private final StatisticsAccumulator maxPmt = new StatisticsAccumulator();
+        private final StatisticsAccumulator finalRate = new StatisticsAccumulator();
+
+        Accumulators merge(Accumulators other) {
+            totalInterest.merge(other.totalInterest);
+            maxPmt.merge(other.maxPmt);
+            finalRate.merge(other.finalRate);
+            return this;
+        }
+    }
+
+    /*
+     * Runs the paths from index from, inclusive, to index to, exclusive.
+     */
+    private static final class PathRange extends RecursiveTask<Accumulators> {
+        private static final long serialVersionUID = 1L;
+
+        private final AdjustableLoan loan;
+        private final RatePathGenerator generator;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        PathRange(AdjustableLoan loan, RatePathGenerator generator, int from, int to, SplittableRandom random) {
+            this.loan = loan;
+            this.generator = generator;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected Accumulators compute() {
+            if (to - from <= LEAF_PATHS) {
+                Accumulators accumulators = new Accumulators();
+                double[] rates = new double[loan.getResetCt()];
+                for (int i = from; i < to; i++) {
+                    generator.nextPath(random, rates);
+                    runPath(loan, rates, accumulators);
+                }
+                return accumulators;
+            }
+
+            int mid = (from + to) >>> 1;
+            PathRange left = new PathRange(loan, generator, from, mid, random.split());
+            PathRange right = new PathRange(loan, generator, mid, to, random);
+            left.fork();
+            Accumulators rightResult = right.compute();
+            return left.join().merge(rightResult);
+        }
+    }
+}
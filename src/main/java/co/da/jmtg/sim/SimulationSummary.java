@@ -0,0 +1,80 @@
+package co.da.jmtg.sim;
+
+import com.google.common.base.Objects;
+
+/**
+ * The result of a rate path simulation: summary statistics over the paths of the total interest paid, the largest
+ * payment, and the interest rate after the last reset. This object is immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public final class SimulationSummary {
+
+    private final PathStatistics totalInterest;
+    private final PathStatistics maxPmt;
+    private final PathStatistics finalRate;
+
+    SimulationSummary(PathStatistics totalInterest, PathStatistics maxPmt, PathStatistics finalRate) {
+        this.totalInterest = totalInterest;
+        this.maxPmt = maxPmt;
+        this.finalRate = finalRate;
+    }
+
+    /**
+     * Gets the statistics of the unrounded interest paid over the life of the mortgage.
+     *
+     * @return <tt>PathStatistics</tt> of the total interest
+     */
+    public PathStatistics getTotalInterest() {
+        return totalInterest;
+    }
+
+    /**
+     * Gets the statistics of the largest unrounded payment of the mortgage, which measures payment shock.
+     *
+     * @return <tt>PathStatistics</tt> of the largest payment
+     */
+    public PathStatistics getMaxPmt() {
+        return maxPmt;
+    }
+
+    /**
+     * Gets the statistics of the interest rate in effect at the end of the mortgage.
+     *
+     * @return <tt>PathStatistics</tt> of the final rate
+     */
+    public PathStatistics getFinalRate() {
+        return finalRate;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("totalInterest", totalInterest)
+                .add("maxPmt", maxPmt)
+                .add("finalRate", finalRate)
+                .toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(totalInterest, maxPmt, finalRate);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+
+        if (!(object instanceof SimulationSummary)) {
+            return false;
+        }
+
+        SimulationSummary that = (SimulationSummary) object;
+        return Objects.equal(this.totalInterest, that.totalInterest)
+                && Objects.equal(this.maxPmt, that.maxPmt)
+                && Objects.equal(this.finalRate, that.finalRate);
+    }
+}
@@ -0,0 +1,62 @@
+package co.da.jmtg.sim;
+
+/**
+ * Accumulates the summary statistics of a value one path at a time, with Welford's update of the mean and the sum of
+ * squared differences from it. Two accumulators merge with the update of Chan et al., so the paths can be split among
+ * threads and each thread can keep its own accumulator. An accumulator is not thread safe.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class StatisticsAccumulator {
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        if (count == 1) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+    }
+
+    /*
+     * Adds the values of another accumulator to this one. The other accumulator is not changed.
+     */
+    void merge(StatisticsAccumulator other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    PathStatistics toStatistics() {
+        double standardDeviation = count < 2 ? 0.0 : Math.sqrt(m2 / (count - 1));
+        return new PathStatistics(count, mean, standardDeviation, min, max);
+    }
+}
@@ -0,0 +1,60 @@
+package co.da.jmtg.sim;
+
+import java.util.SplittableRandom;
+
+import com.google.common.base.Objects;
+
+/**
+ * A <tt>RatePathGenerator</tt> that follows the Vasicek model, <tt>dr = a(b - r)dt + sigma dW</tt>. Each step uses the
+ * exact transition of the model over the length of the step, so the distribution of the rates does not depend on how
+ * long the steps are. The model allows any rate, so each rate is clamped between <tt>RatePathGenerators.MIN_RATE</tt>
+ * and 100. This object is immutable.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+final class VasicekRatePathGenerator implements RatePathGenerator {
+
+    private final double startRate;
+    private final double meanRate;
+    private final double reversionSpeed;
+    private final double volatility;
+    private final double yearsPerStep;
+
+    // The transition over one step: r' = r * decay + meanRate * (1 - decay) + stepVolatility * Z.
+    private final double decay;
+    private final double stepVolatility;
+
+    VasicekRatePathGenerator(double startRate, double meanRate, double reversionSpeed, double volatility,
+            double yearsPerStep) {
+        this.startRate = startRate;
+        this.meanRate = meanRate;
+        this.reversionSpeed = reversionSpeed;
+        this.volatility = volatility;
+        this.yearsPerStep = yearsPerStep;
+
+        decay = Math.exp(-reversionSpeed * yearsPerStep);
+        stepVolatility = reversionSpeed == 0.0 ? volatility * Math.sqrt(yearsPerStep)
+                : volatility * Math.sqrt((1 - decay * decay) / (2 * reversionSpeed));
+    }
+
+    @Override
+    public void nextPath(SplittableRandom random, double[] rates) {
+        double rate = startRate;
+        for (int i = 0; i < rates.length; i++) {
+            rate = rate * decay + meanRate * (1 - decay) + stepVolatility * RatePathGenerators.nextGaussian(random);
+            rates[i] = RatePathGenerators.clamp(rate);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("startRate", startRate)
+                .add("meanRate", meanRate)
+                .add("reversionSpeed", reversionSpeed)
+                .add("volatility", volatility)
+                .add("yearsPerStep", yearsPerStep)
+                .toString();
+    }
+}
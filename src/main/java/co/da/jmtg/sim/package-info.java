@@ -0,0 +1,8 @@
+/**
+ * This package contains the RatePathGenerator interface and its implementations, and the engine that simulates the
+ * schedule of an adjustable rate mortgage over many interest rate paths.
+ * 
+ * @author David Armstrong
+ *
+ */
+package co.da.jmtg.sim;
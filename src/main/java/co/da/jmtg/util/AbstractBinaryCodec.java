@@ -0,0 +1,212 @@
+package co.da.jmtg.util;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * <p>
+ * A skeletal implementation of <tt>BinaryCodec</tt> that reads and writes the frames. A subclass only reads and writes
+ * its records.
+ * </p>
+ *
+ * <p>
+ * The header of a frame is 17 bytes: a magic number of 2 bytes, the version, the type tag, the flags, the CRC-32
+ * checksum, the count of records, and the length of the records in bytes. The checksum covers the count, the length,
+ * and the records, and it is 0 when the frame has no checksum.
+ * </p>
+ *
+ * @param <T>
+ *            the type of the objects
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public abstract class AbstractBinaryCodec<T> implements BinaryCodec<T> {
+
+    /**
+     * The number of bytes of the header of a frame.
+     */
+    public static final int HEADER_SIZE = 17;
+
+    private static final short MAGIC = 0x4A4D;
+    private static final byte CHECKSUM = 1;
+
+    // The offsets of the fields of the header that are written after the records.
+    private static final int CRC_OFFSET = 5;
+    private static final int COUNT_OFFSET = 9;
+    private static final int LENGTH_OFFSET = 13;
+
+    private final byte typeTag;
+
+    /**
+     * Creates a codec for the type tag passed in. Each codec of a process must have its own tag.
+     *
+     * @param typeTag
+     *            the tag of the records in the header of a frame
+     */
+    protected AbstractBinaryCodec(byte typeTag) {
+        this.typeTag = typeTag;
+    }
+
+    @Override
+    public byte getTypeTag() {
+        return typeTag;
+    }
+
+    @Override
+    public int sizeOfFrame(Collection<? extends T> values) {
+        Preconditions.checkNotNull(values, "values must not be null.");
+
+        int size = HEADER_SIZE;
+        for (T value : values) {
+            size += sizeOf(value);
+        }
+        return size;
+    }
+
+    @Override
+    public void encode(ByteBuffer buffer, Collection<? extends T> values, boolean checksum) {
+        Preconditions.checkNotNull(buffer, "buffer must not be null.");
+        Preconditions.checkNotNull(values, "values must not be null.");
+
+        if (buffer.remaining() < HEADER_SIZE) {
+            throw new BufferOverflowException();
+        }
+
+        int start = buffer.position();
+        try {
+            buffer.putShort(MAGIC);
+            buffer.put(VERSION);
+            buffer.put(typeTag);
+            buffer.put(checksum ? CHECKSUM : 0);
+
+            // The checksum, count, and length are written once the records are.
+            buffer.position(start + HEADER_SIZE);
+            int count = 0;
+            for (T value : values) {
+                Preconditions.checkNotNull(value, "values must not contain null.");
+                write(buffer, value);
+                count++;
+            }
+            buffer.putInt(start + COUNT_OFFSET, count);
+            buffer.putInt(start + LENGTH_OFFSET, buffer.position() - start - HEADER_SIZE);
+            buffer.putInt(start + CRC_OFFSET, checksum ? checksum(buffer, start, buffer.position()) : 0);
+        } catch (RuntimeException e) {
+            buffer.position(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<T> decode(ByteBuffer buffer) {
+        Preconditions.checkNotNull(buffer, "buffer must not be null.");
+
+        int start = buffer.position();
+        try {
+            return decodeFrame(buffer, start);
+        } catch (RuntimeException e) {
+            buffer.position(start);
+            throw e;
+        }
+    }
+
+    private List<T> decodeFrame(ByteBuffer buffer, int start) {
+        Preconditions.checkArgument(buffer.remaining() >= HEADER_SIZE, "The frame is truncated.");
+        Preconditions.checkArgument(buffer.getShort() == MAGIC, "The buffer does not hold a frame at its position.");
+        byte version = buffer.get();
+        Preconditions.checkArgument(version > 0 && version <= VERSION, "Version %s is not supported.", version);
+        byte tag = buffer.get();
+        Preconditions.checkArgument(tag == typeTag, "The frame holds records of type %s, not %s.", tag, typeTag);
+        boolean trusted = (buffer.get() & CHECKSUM) != 0;
+        int crc = buffer.getInt();
+        int count = buffer.getInt();
+        int length = buffer.getInt();
+        Preconditions.checkArgument(count >= 0 && length >= 0 && length <= buffer.remaining(),
+                "The frame is truncated.");
+
+        int end = buffer.position() + length;
+        if (trusted) {
+            Preconditions.checkArgument(crc == checksum(buffer, start, end),
+                    "The checksum of the frame does not match.");
+        }
+
+        // Read the records from a view that ends with the frame, so a bad record cannot read past it.
+        ByteBuffer records = buffer.duplicate();
+        records.order(buffer.order());
+        records.limit(end);
+
+        List<T> values = new ArrayList<T>(Math.min(count, length));
+        try {
+            for (int i = 0; i < count; i++) {
+                values.add(read(records, !trusted));
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The frame is truncated.");
+        }
+        Preconditions.checkArgument(records.position() == end, "The length of the frame does not match its records.");
+
+        buffer.position(end);
+        return values;
+    }
+
+    /**
+     * Gets the number of records of the frame whose header is at the position of the buffer, without reading the frame.
+     * The position of the buffer is not changed.
+     *
+     * @param buffer
+     *            the buffer, with at least the header of the frame remaining
+     *
+     * @return count of records
+     *
+     * @throws IllegalArgumentException
+     *             if the buffer does not hold the header of a frame at its position
+     */
+    public static int getRecordCt(ByteBuffer buffer) {
+        checkHeader(buffer);
+        return buffer.getInt(buffer.position() + COUNT_OFFSET);
+    }
+
+    /**
+     * Gets the number of bytes of the frame whose header is at the position of the buffer, including the header,
+     * without reading the frame. A reader can skip the frame by moving the position that far. The position of the
+     * buffer is not changed.
+     *
+     * @param buffer
+     *            the buffer, with at least the header of the frame remaining
+     *
+     * @return size of the frame in bytes
+     *
+     * @throws IllegalArgumentException
+     *             if the buffer does not hold the header of a frame at its position
+     */
+    public static int getFrameSize(ByteBuffer buffer) {
+        checkHeader(buffer);
+        return HEADER_SIZE + buffer.getInt(buffer.position() + LENGTH_OFFSET);
+    }
+
+    private static void checkHeader(ByteBuffer buffer) {
+        Preconditions.checkArgument(buffer.remaining() >= HEADER_SIZE, "The frame is truncated.");
+        Preconditions.checkArgument(buffer.getShort(buffer.position()) == MAGIC,
+                "The buffer does not hold a frame at its position.");
+    }
+
+    /*
+     * Computes the checksum of the frame that starts at start, from its count to the end of its records.
+     */
+    private static int checksum(ByteBuffer buffer, int start, int end) {
+        ByteBuffer covered = buffer.duplicate();
+        covered.limit(end);
+        covered.position(start + COUNT_OFFSET);
+
+        CRC32 crc = new CRC32();
+        crc.update(covered);
+        return (int) crc.getValue();
+    }
+}
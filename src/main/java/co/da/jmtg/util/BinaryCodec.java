@@ -0,0 +1,153 @@
+package co.da.jmtg.util;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * <p>
+ * Writes objects of one type to a <tt>ByteBuffer</tt> and reads them back, in a compact binary format that is meant
+ * for moving inputs and results between the JVMs of a portfolio run. The values are written in the byte order of the
+ * buffer, so both ends must use the same order.
+ * </p>
+ *
+ * <p>
+ * A record is the fields of one object with nothing around it. Codecs write records inside the records of other
+ * codecs, so a schedule record holds the records of its <tt>PmtCalculator</tt> and <tt>PmtKey</tt>. A frame is a
+ * header followed by a batch of records of the same type. The header holds the format version, the type of the
+ * records, their count, and the length of the frame, and it can hold a CRC-32 checksum of the frame. A single buffer
+ * can hold any number of frames one after the other.
+ * </p>
+ *
+ * <p>
+ * When a frame is read, the records of a frame with a checksum are trusted once the checksum matches, so their fields
+ * are not validated again. The fields of a frame without a checksum are validated as they are read. Implementations
+ * must be thread safe.
+ * </p>
+ *
+ * @param <T>
+ *            the type of the objects
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+public interface BinaryCodec<T> {
+
+    /**
+     * The version of the format that this library writes.
+     */
+    byte VERSION = 1;
+
+    /**
+     * Gets the tag that identifies the type of the records in the header of a frame.
+     *
+     * @return type tag
+     */
+    byte getTypeTag();
+
+    /**
+     * Gets the number of bytes the record of an object takes.
+     *
+     * @param value
+     *            the object
+     *
+     * @return size of the record in bytes
+     *
+     * @throws NullPointerException
+     *             if value is null
+     */
+    int sizeOf(T value);
+
+    /**
+     * Writes the record of an object at the position of the buffer, and moves the position past it.
+     *
+     * @param buffer
+     *            the buffer
+     * @param value
+     *            the object
+     *
+     * @throws NullPointerException
+     *             if buffer or value is null
+     *
+     * @throws IllegalArgumentException
+     *             if value is an implementation this codec cannot write
+     *
+     * @throws java.nio.BufferOverflowException
+     *             if the record does not fit in the buffer
+     */
+    void write(ByteBuffer buffer, T value);
+
+    /**
+     * Reads the record of an object at the position of the buffer, and moves the position past it.
+     *
+     * @param buffer
+     *            the buffer
+     * @param validate
+     *            true to check the fields before the object is created
+     *
+     * @return the object
+     *
+     * @throws NullPointerException
+     *             if buffer is null
+     *
+     * @throws IllegalArgumentException
+     *             if validate is true and a field is not valid
+     *
+     * @throws java.nio.BufferUnderflowException
+     *             if the buffer ends before the record does
+     */
+    T read(ByteBuffer buffer, boolean validate);
+
+    /**
+     * Gets the number of bytes the frame of a batch of objects takes.
+     *
+     * @param values
+     *            the objects
+     *
+     * @return size of the frame in bytes
+     *
+     * @throws NullPointerException
+     *             if values is null or contains null
+     */
+    int sizeOfFrame(Collection<? extends T> values);
+
+    /**
+     * Writes a frame with the records of a batch of objects at the position of the buffer, and moves the position past
+     * it. If the frame does not fit, the position of the buffer is not changed.
+     *
+     * @param buffer
+     *            the buffer
+     * @param values
+     *            the objects, in the order they are written
+     * @param checksum
+     *            true to write a CRC-32 checksum of the frame, so the reader can trust its records
+     *
+     * @throws NullPointerException
+     *             if buffer or values is null, or if values contains null
+     *
+     * @throws IllegalArgumentException
+     *             if one of the objects is an implementation this codec cannot write
+     *
+     * @throws java.nio.BufferOverflowException
+     *             if the frame does not fit in the buffer
+     */
+    void encode(ByteBuffer buffer, Collection<? extends T> values, boolean checksum);
+
+    /**
+     * Reads the frame at the position of the buffer, and moves the position past it. If the frame cannot be read, the
+     * position of the buffer is not changed.
+     *
+     * @param buffer
+     *            the buffer
+     *
+     * @return the objects of the frame, in the order they were written
+     *
+     * @throws NullPointerException
+     *             if buffer is null
+     *
+     * @throws IllegalArgumentException
+     *             if the frame is not a frame of this codec, if its version is not supported, if it is truncated, if
+     *             its checksum does not match, or if it has no checksum and a field is not valid
+     */
+    List<T> decode(ByteBuffer buffer);
+}
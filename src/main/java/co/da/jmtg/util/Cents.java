@@ -0,0 +1,76 @@
+package co.da.jmtg.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * <p>
+ * Contains static methods that round amounts HALF_EVEN to whole cents, the way <tt>BigDecimal.setScale(2,
+ * RoundingMode.HALF_EVEN)</tt> does, without allocating a <tt>BigDecimal</tt> for most amounts.
+ * </p>
+ *
+ * <p>
+ * An amount smaller than 1.0E9 is rounded with a double multiply. The product is within 1.0E-4 of a cent of the decimal
+ * value <tt>BigDecimal</tt> would round, so it rounds the same way unless it is that close to half a cent. Only those
+ * amounts, and larger ones, are rounded with a <tt>BigDecimal</tt>.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ *
+ */
+public final class Cents {
+
+    private static final double FAST_CENTS_LIMIT = 1.0E9;
+    private static final double TIE_TOLERANCE = 1.0E-4;
+
+    // Returned by roundFast for an amount it cannot round. No amount it rounds is this many cents.
+    private static final long NOT_ROUNDED = Long.MIN_VALUE;
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private Cents() {
+    }
+
+    /**
+     * Rounds an amount HALF_EVEN to whole cents, exactly the way <tt>BigDecimal.valueOf(amount)</tt> rounds. It is
+     * the rounding of the values of an amortization table.
+     *
+     * @param amount
+     *            the amount to round
+     *
+     * @return the amount in whole cents
+     */
+    public static long toCents(double amount) {
+        long cents = roundFast(amount);
+        return cents != NOT_ROUNDED ? cents : BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_EVEN)
+                .unscaledValue().longValue();
+    }
+
+    /**
+     * Rounds an amount HALF_EVEN to whole cents, exactly the way <tt>new BigDecimal(amount)</tt> rounds, which is the
+     * exact binary value of the double. It is the rounding of the payment of a <tt>PmtCalculator</tt>.
+     *
+     * @param amount
+     *            the amount to round
+     *
+     * @return the amount in whole cents
+     */
+    public static long toCentsExact(double amount) {
+        long cents = roundFast(amount);
+        return cents != NOT_ROUNDED ? cents : new BigDecimal(amount).setScale(2, RoundingMode.HALF_EVEN)
+                .unscaledValue().longValue();
+    }
+
+    /*
+     * Rounds an amount with a double multiply, or returns NOT_ROUNDED if it is too large or too close to half a cent.
+     */
+    private static long roundFast(double amount) {
+        double scaled = amount * 100;
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        if (Math.abs(amount) < FAST_CENTS_LIMIT && Math.abs(fraction - 0.5) > TIE_TOLERANCE) {
+            return (long) floor + (fraction > 0.5 ? 1L : 0L);
+        }
+        return NOT_ROUNDED;
+    }
+}
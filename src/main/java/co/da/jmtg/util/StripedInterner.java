@@ -0,0 +1,67 @@
+package co.da.jmtg.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Interner;
+
+/**
+ * An implementation of <tt>Interner</tt> that keeps strong references to its instances in an array of concurrent maps.
+ * The map used for an instance is chosen from the instance's hash code. This object is thread safe.
+ *
+ * @since 1.1
+ * @author David Armstrong
+ */
+class StripedInterner<E> implements Interner<E> {
+
+    private final ConcurrentMap<E, E>[] stripes;
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    private StripedInterner(int stripeCt) {
+        Preconditions.checkArgument(stripeCt > 0, "stripes must be greater than 0.");
+
+        // Round the count of stripes up to a power of two so a stripe can be selected with a mask.
+        int size = Integer.highestOneBit(stripeCt);
+        if (size < stripeCt) {
+            size <<= 1;
+        }
+
+        stripes = new ConcurrentMap[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ConcurrentHashMap<E, E>();
+        }
+        mask = size - 1;
+    }
+
+    static <E> Interner<E> newInstance(int stripes) {
+        return new StripedInterner<E>(stripes);
+    }
+
+    @Override
+    public E intern(E sample) {
+        Preconditions.checkNotNull(sample, "sample must not be null.");
+
+        ConcurrentMap<E, E> stripe = stripes[spread(sample.hashCode()) & mask];
+
+        // Most calls are for an instance that already exists. get does not lock, so check for it first and only fall
+        // back to putIfAbsent when the instance is new.
+        E canonical = stripe.get(sample);
+        if (canonical != null) {
+            return canonical;
+        }
+
+        canonical = stripe.putIfAbsent(sample, sample);
+        return canonical == null ? sample : canonical;
+    }
+
+    /*
+     * Spreads the high bits of the hash code into the low bits used to select a stripe. ConcurrentHashMap does the same
+     * thing with the low bits, so use a different mix here to keep the two from selecting on the same bits.
+     */
+    private static int spread(int h) {
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return h ^ (h >>> 7) ^ (h >>> 4);
+    }
+}
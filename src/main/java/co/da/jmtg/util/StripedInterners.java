@@ -0,0 +1,51 @@
+package co.da.jmtg.util;
+
+import com.google.common.collect.Interner;
+
+/**
+ * <p>
+ * Contains static methods pertaining to instances of <tt>Interner</tt>.
+ * </p>
+ *
+ * <p>
+ * The newStrongInterner method returns an interner that behaves like the strong interner from Guava's
+ * <tt>Interners</tt> class, but it spreads its instances over several independent maps and looks an instance up
+ * before it tries to add it. A lookup that finds an instance never takes a lock, so many threads asking for the same
+ * instances do not contend with each other.
+ * </p>
+ *
+ * @since 1.1
+ * @author David Armstrong
+ *
+ */
+public class StripedInterners {
+
+    // Suppresses default constructor, ensuring non-instantiability.
+    private StripedInterners() {
+    }
+
+    /**
+     * Creates a new interner that retains strong references to its instances. The count of stripes is based on the
+     * count of available processors.
+     *
+     * @return new <tt>Interner</tt>
+     */
+    public static <E> Interner<E> newStrongInterner() {
+        return StripedInterner.newInstance(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Creates a new interner that retains strong references to its instances.
+     *
+     * @param stripes
+     *            the minimum count of stripes. It is rounded up to the next power of two.
+     *
+     * @return new <tt>Interner</tt>
+     *
+     * @throws IllegalArgumentException
+     *             if stripes is not greater than 0.
+     */
+    public static <E> Interner<E> newStrongInterner(int stripes) {
+        return StripedInterner.newInstance(stripes);
+    }
+}
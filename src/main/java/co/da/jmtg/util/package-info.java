@@ -0,0 +1,7 @@
+/**
+ * This package contains support classes shared by the other packages, such as the interners used for instance control.
+ *
+ * @author David Armstrong
+ *
+ */
+package co.da.jmtg.util;
@@ -0,0 +1,156 @@
+package co.da.jmtg.amort;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+
+public class AdjustableAmortizationCalculatorTest {
+
+    private static final RateCaps CAPS = RateCaps.of(2.0, 2.0, 5.0, 2.0);
+
+    @Test
+    public void testNoRateChange() {
+        // If the rate never changes, every reset amortizes the balance again at the same payment, so the table is the
+        // fixed table.
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 300000.00, 5.0, 360);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 1, 1), 30);
+        FixedAmortizationCalculator fixed = FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(
+                pmtCalculator, pmtKey);
+        AdjustableAmortizationCalculator adjustable = AdjustableAmortizationCalculators
+                .getDefaultAdjustableAmortizationCalculator(pmtCalculator, pmtKey, 60, 12, 0.0, CAPS);
+
+        List<Payment> expected = new ArrayList<>(fixed.getTable().values());
+        assertTrue(adjustable.size() == expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Payment payment = adjustable.getPayment(i);
+            assertTrue(adjustable.getRate(i) == 5.0);
+            assertTrue(Math.abs(payment.getBalanceUnrounded() - expected.get(i).getBalanceUnrounded()) < 1.0E-6);
+            assertTrue(Math.abs(payment.getInterestUnrounded() - expected.get(i).getInterestUnrounded()) < 1.0E-6);
+            assertTrue(Math.abs(payment.getCumulativeInterestUnrounded()
+                    - expected.get(i).getCumulativeInterestUnrounded()) < 1.0E-6);
+        }
+        assertTrue(Math.abs(adjustable.getTotalCost() - fixed.getTotalCost()) < 0.015);
+        assertTrue(adjustable.getTable().keySet().equals(fixed.getTable().keySet()));
+
+        // An index rate plus the margin equal to the initial rate changes nothing either.
+        AdjustableAmortizationCalculator indexed = adjustable.setIndexRates(5.0);
+        assertTrue(indexed.getRate(300) == 5.0);
+        assertTrue(indexed.getPayment(300).equals(adjustable.getPayment(300)));
+    }
+
+    @Test
+    public void testRateCaps() {
+        assertTrue(CAPS.apply(5.0, 5.0, true, 9.0) == 7.0);
+        assertTrue(CAPS.apply(5.0, 9.5, false, 12.0) == 10.0);
+        assertTrue(CAPS.apply(5.0, 5.0, true, 1.0) == 3.0);
+        assertTrue(CAPS.apply(5.0, 3.0, false, 0.5) == 2.0);
+        assertTrue(CAPS.apply(5.0, 6.0, false, 6.5) == 6.5);
+
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 300000.00, 4.0, 360);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 1, 1), 30);
+        AdjustableAmortizationCalculator adjustable = AdjustableAmortizationCalculators
+                .getDefaultAdjustableAmortizationCalculator(pmtCalculator, pmtKey, 60, 12, 2.75, CAPS, 5.0, 7.0);
+
+        // 5/1 with 2/2/5 caps: 4 -> 6 at the first reset, 8 at the next, then the lifetime cap of 9.
+        assertTrue(adjustable.getRate(59) == 4.0);
+        assertTrue(adjustable.getRate(60) == 6.0);
+        assertTrue(adjustable.getRate(72) == 8.0);
+        assertTrue(adjustable.getRate(84) == 9.0);
+        assertTrue(adjustable.getRate(359) == 9.0);
+
+        // The payment at a reset amortizes the balance left over the payments left.
+        Payment before = adjustable.getPayment(59);
+        Payment reset = adjustable.getPayment(60);
+        double pmt = PmtCalculators.calcPmtUnrounded(pmtCalculator, before.getBalanceUnrounded(), 6.0, 300);
+        assertTrue(Math.abs(reset.getTotalUnrounded() - pmt) < 1.0E-9);
+        assertTrue(reset.getTotalUnrounded() > before.getTotalUnrounded());
+        assertTrue(adjustable.size() == 360);
+        assertTrue(adjustable.getPayment(359).getBalance() == 0.0);
+    }
+
+    @Test
+    public void testLateRateChange() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 300000.00, 4.0, 360);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 1, 1), 30);
+        DefaultAdjustableAmortizationCalculator adjustable = (DefaultAdjustableAmortizationCalculator)
+                AdjustableAmortizationCalculators.getDefaultAdjustableAmortizationCalculator(pmtCalculator, pmtKey, 60,
+                        12, 2.75, CAPS, 1.5, 2.0, 2.5);
+        assertTrue(adjustable.size() == 360);
+
+        // Changing reset 20 keeps the segments before it, and computes the ones after it from them.
+        DefaultAdjustableAmortizationCalculator changed = (DefaultAdjustableAmortizationCalculator) adjustable
+                .setIndexRate(20, 4.0);
+        for (int s = 0; s <= 20; s++) {
+            assertTrue(changed.segment(s) == adjustable.segment(s));
+        }
+        assertFalse(changed.segment(21) == adjustable.segment(21));
+        assertTrue(changed.getRate(299) == adjustable.getRate(299));
+        assertTrue(changed.getRate(300) == 6.75 && adjustable.getRate(300) == 5.25);
+        assertTrue(changed.getPayment(299).equals(adjustable.getPayment(299)));
+        assertFalse(changed.getPayment(300).equals(adjustable.getPayment(300)));
+
+        // The resets between the old end and reset 20 keep the last index rate.
+        double[] indexRates = changed.getIndexRates();
+        assertTrue(indexRates.length == 21);
+        assertTrue(indexRates[2] == 2.5 && indexRates[19] == 2.5 && indexRates[20] == 4.0);
+        assertTrue(changed.equals(adjustable.setIndexRates(indexRates)));
+
+        // Setting the same rates shares every segment.
+        DefaultAdjustableAmortizationCalculator same = (DefaultAdjustableAmortizationCalculator) adjustable
+                .setIndexRates(1.5, 2.0, 2.5, 2.5);
+        assertTrue(same.segment(25) == adjustable.segment(25));
+
+        // A change made before anything is read still shares the earlier segments, whichever calculator reads first.
+        DefaultAdjustableAmortizationCalculator fresh = (DefaultAdjustableAmortizationCalculator)
+                AdjustableAmortizationCalculators.getDefaultAdjustableAmortizationCalculator(pmtCalculator, pmtKey, 60,
+                        12, 2.75, CAPS, 1.5, 2.0, 2.5);
+        DefaultAdjustableAmortizationCalculator early = (DefaultAdjustableAmortizationCalculator) fresh.setIndexRate(
+                20, 4.0);
+        DefaultAdjustableAmortizationCalculator later = (DefaultAdjustableAmortizationCalculator) early.setIndexRate(
+                22, 5.0);
+        assertTrue(later.getPayment(359).equals(changed.setIndexRate(22, 5.0).getPayment(359)));
+        for (int s = 0; s <= 20; s++) {
+            assertTrue(fresh.segment(s) == later.segment(s));
+            assertTrue(early.segment(s) == later.segment(s));
+        }
+        for (int s = 21; s <= 22; s++) {
+            assertTrue(early.segment(s) == later.segment(s));
+        }
+        assertFalse(early.segment(23) == later.segment(23));
+    }
+
+    private static AdjustableAmortizationCalculator noFixedPmts() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 100000.00, 6.0, 120);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 1, 1), 10);
+        return AdjustableAmortizationCalculators.getDefaultAdjustableAmortizationCalculator(pmtCalculator, pmtKey, 0,
+                12, 1.0, CAPS, 6.0);
+    }
+
+    @Test
+    public void testNoFixedPmts() {
+        // With no fixed payments, the first reset sets the rate of the first payment.
+        AdjustableAmortizationCalculator adjustable = noFixedPmts();
+        assertTrue(adjustable.getRate(0) == 7.0);
+        assertTrue(adjustable.size() == 120);
+        assertTrue(adjustable.getPayment(119).getBalance() == 0.0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetPaymentPastLast() {
+        noFixedPmts().getPayment(120);
+    }
+}
@@ -0,0 +1,165 @@
+package co.da.jmtg.amort;
+
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+
+/**
+ * Cross-checks the FIXED_POINT engine against the STANDARD engine. The bounds asserted here are the differences
+ * documented for {@link AmortizationEngine#FIXED_POINT}.
+ */
+public class AmortizationEngineCrossCheckTest {
+
+    private static final double CENT = 0.01 + 1.0E-9;
+
+    @Test
+    public void testMultiplyRate() {
+        Random random = new Random(20140201L);
+        BigDecimal scale = BigDecimal.ONE.movePointLeft(FixedPointSchedule.RATE_DIGITS);
+        for (int i = 0; i < 100000; i++) {
+            long cents = i < 1000 ? i : (random.nextLong() >>> 1) % 9000000000000L;
+            long rate = (random.nextLong() >>> 1) % 1000000000000L;
+            long expected = BigDecimal.valueOf(cents).multiply(BigDecimal.valueOf(rate)).multiply(scale)
+                    .setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+            assertTrue(FixedPointSchedule.multiplyRate(cents, rate) == expected);
+        }
+
+        // Exactly half a cent rounds to the even cent.
+        long half = 5000000000000L;
+        assertTrue(FixedPointSchedule.multiplyRate(1, half) == 0);
+        assertTrue(FixedPointSchedule.multiplyRate(3, half) == 2);
+    }
+
+    @Test
+    public void testFixedPointIsExact() {
+        for (FixedAmortizationCalculator amortCalculator : buildCalculators(AmortizationEngine.FIXED_POINT)) {
+            long owed = cents(amortCalculator.getPmtCalculator().getLoanAmt());
+            long interestPaid = 0;
+            for (Payment payment : amortCalculator.getTable().values()) {
+                assertTrue(cents(payment.getPrincipal()) + cents(payment.getInterest()) == cents(payment.getTotal()));
+                assertTrue(owed - cents(payment.getPrincipal()) == cents(payment.getBalance()));
+                interestPaid += cents(payment.getInterest());
+                assertTrue(interestPaid == cents(payment.getCumulativeInterest()));
+                assertTrue(payment.getBalanceUnrounded() == payment.getBalance());
+                owed = cents(payment.getBalance());
+            }
+            // The last installment pays off the loan.
+            assertTrue(owed == 0);
+        }
+    }
+
+    @Test
+    public void testFixedPointAgainstStandard() {
+        List<FixedAmortizationCalculator> fixedPoint = buildCalculators(AmortizationEngine.FIXED_POINT);
+        List<FixedAmortizationCalculator> standard = buildCalculators(AmortizationEngine.STANDARD);
+        for (int i = 0; i < standard.size(); i++) {
+            List<Payment> expected = new ArrayList<>(standard.get(i).getTable().values());
+            List<Payment> actual = new ArrayList<>(fixedPoint.get(i).getTable().values());
+
+            // The table can end one payment earlier or later.
+            assertTrue(Math.abs(expected.size() - actual.size()) <= 1);
+
+            int size = Math.min(expected.size(), actual.size());
+            for (int j = 0; j < size; j++) {
+                // The balance drifts because the payment is rounded, but by no more than a couple of dollars.
+                assertTrue(Math.abs(expected.get(j).getBalance() - actual.get(j).getBalance()) <= 2.00);
+                // The interest is rounded every period, so it differs by a cent at most, except for the last
+                // payment, which pays off what is left.
+                if (j < size - 1) {
+                    assertTrue(Math.abs(expected.get(j).getInterest() - actual.get(j).getInterest()) <= CENT);
+                }
+            }
+
+            assertTrue(Math.abs(standard.get(i).getTotalCost() - fixedPoint.get(i).getTotalCost()) < 1.00);
+        }
+    }
+
+    @Test
+    public void testFixedPointWithExtraPayments() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 240000.00, 5.125, 30);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 2, 1), 30);
+        Map<LocalDate, Double> extraPmts = new HashMap<>();
+        for (int i = 0; i < 120; i += 12) {
+            extraPmts.put(pmtKey.getKeys().get(i), 2500.005);
+        }
+
+        FixedAmortizationCalculator fixedPoint = FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(
+                pmtCalculator, pmtKey, AmortizationEngine.FIXED_POINT).setExtraPayments(extraPmts);
+        FixedAmortizationCalculator standard = fixedPoint.setEngine(AmortizationEngine.STANDARD);
+        assertTrue(fixedPoint.getEngine() == AmortizationEngine.FIXED_POINT);
+        assertTrue(fixedPoint.areExtraPayments());
+
+        // The extra payments are rounded HALF_EVEN to the cent.
+        assertTrue(fixedPoint.getExtraPayment(pmtKey.getFirstKey()) == 2500.00);
+        assertTrue(Math.abs(fixedPoint.getTable().size() - standard.getTable().size()) <= 1);
+        assertTrue(Math.abs(fixedPoint.getTotalCost() - standard.getTotalCost()) < 1.00);
+        assertTrue(fixedPoint.getTable().get(fixedPoint.getTable().lastKey()).getBalance() == 0.0);
+
+        FixedAmortizationCalculator unshared = FixedAmortizationCalculators.newDefaultFixedAmortizationCalculator(
+                pmtCalculator, pmtKey, AmortizationEngine.FIXED_POINT).setExtraPayments(extraPmts);
+        assertTrue(unshared != fixedPoint);
+        assertTrue(unshared.equals(fixedPoint));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFixedPointExtraPmtTooLarge() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 200000.00, 4.5, 30);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 2, 1), 30);
+        // Too large for a long in cents, so it would wrap if it were converted without a check.
+        FixedAmortizationCalculators.newDefaultFixedAmortizationCalculator(pmtCalculator, pmtKey,
+                AmortizationEngine.FIXED_POINT).setExtraPayment(pmtKey.getFirstKey(), 1.0e17);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFixedPointBalanceTooLarge() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 90000000000.00, 4.5, 30);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 2, 1), 30);
+        // The loan amount fits, but the missed installments push the balance past what the arithmetic can handle.
+        Map<LocalDate, Double> extraPmts = new HashMap<>();
+        for (int i = 0; i < 12; i++) {
+            extraPmts.put(pmtKey.getKeys().get(i), -5000000000.00);
+        }
+        FixedAmortizationCalculators.newDefaultFixedAmortizationCalculator(pmtCalculator, pmtKey,
+                AmortizationEngine.FIXED_POINT).setExtraPayments(extraPmts);
+    }
+
+    private static List<FixedAmortizationCalculator> buildCalculators(AmortizationEngine engine) {
+        List<FixedAmortizationCalculator> calculators = new ArrayList<>();
+        for (PmtPeriod pmtPeriod : new PmtPeriod[] { PmtPeriod.MONTHLY, PmtPeriod.BIWEEKLY, PmtPeriod.WEEKLY,
+                PmtPeriod.RAPID_BIWEEKLY }) {
+            for (double rate = 1.0; rate <= 15.0; rate += 1.125) {
+                for (int years : new int[] { 10, 15, 30, 40 }) {
+                    for (double loanAmt : new double[] { 50000.00, 123456.78, 417000.00, 1500000.00 }) {
+                        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, loanAmt, rate,
+                                years);
+                        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 1, 1), years);
+                        calculators.add(FixedAmortizationCalculators.newDefaultFixedAmortizationCalculator(
+                                pmtCalculator, pmtKey, engine));
+                    }
+                }
+            }
+        }
+        return calculators;
+    }
+
+    private static long cents(double amount) {
+        return Math.round(amount * 100);
+    }
+}
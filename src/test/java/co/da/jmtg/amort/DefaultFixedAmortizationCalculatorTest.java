@@ -17,8 +17,10 @@ import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.math.BigDecimal;
 import java.util.*;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class DefaultFixedAmortizationCalculatorTest {
@@ -161,6 +163,39 @@ public class DefaultFixedAmortizationCalculatorTest {
         assertTrue(extraPmt.getAmount() == extraAmt);
     }
 
+    @Test
+    public void testSetExtraPaymentToZero() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 150000.00, 4.25, 30);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, 30);
+        LocalDate key = pmtKey.getKeys().get(12);
+
+        FixedAmortizationCalculator amortCalculator = FixedAmortizationCalculators
+                .getDefaultFixedAmortizationCalculator(pmtCalculator, pmtKey);
+        FixedAmortizationCalculator extra = amortCalculator.setExtraPayment(key, 500.0);
+        assertTrue(extra.getExtraPayment(key) == 500.0);
+
+        // Setting the extra payment to 0.0 clears it.
+        FixedAmortizationCalculator cleared = extra.setExtraPayment(key, 0.0);
+        assertTrue(cleared.getExtraPayment(key) == 0.0);
+        assertFalse(cleared.areExtraPayments());
+        assertTrue(cleared.equals(amortCalculator));
+        assertTrue(cleared == amortCalculator);
+
+        Map<LocalDate, Double> extraPmts = new HashMap<>();
+        extraPmts.put(key, 0.0);
+        assertTrue(extra.setExtraPayments(extraPmts) == amortCalculator);
+
+        // A 0.0 only clears the installments it is set for.
+        extraPmts.put(pmtKey.getKeys().get(24), 250.0);
+        FixedAmortizationCalculator moved = extra.setExtraPayments(extraPmts);
+        assertTrue(moved.getExtraPayment(key) == 0.0);
+        assertTrue(moved.equals(amortCalculator.setExtraPayment(pmtKey.getKeys().get(24), 250.0)));
+
+        // Setting 0.0 on a mortgage without extra payments changes nothing.
+        assertTrue(amortCalculator.setExtraPayment(key, 0.0) == amortCalculator);
+    }
+
     @Test
     public void testSetExtraPayments() {
         PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
@@ -480,6 +515,622 @@ public class DefaultFixedAmortizationCalculatorTest {
         assertTrue(amortCalculator2 == amortCalculator1 == false);
     }
 
+    @Test
+    public void testNewInstance() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        double loanAmt = 150000.00;
+        double interestRate = 4.25;
+        int years = 20;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, loanAmt, interestRate, years);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, years);
+
+        FixedAmortizationCalculator interned = FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(
+                pmtCalculator, pmtKey, ExtraPmts.getDefaultExtraPmt(pmtKey, 500.0));
+        // Build the second object entirely from objects that are not interned.
+        PmtCalculator pmtCalculator2 = PmtCalculators.newDefaultPmtCalculator(pmtPeriod, loanAmt, interestRate, years);
+        PmtKey pmtKey2 = PmtKeys.newDefaultPmtKeyForYears(pmtPeriod, pmtKey.getFirstKey(), years);
+        FixedAmortizationCalculator amortCalculator = FixedAmortizationCalculators
+                .newDefaultFixedAmortizationCalculator(pmtCalculator2, pmtKey2,
+                        ExtraPmts.newDefaultExtraPmt(pmtKey2, 500.0));
+
+        assertTrue(amortCalculator != interned);
+        assertTrue(amortCalculator.equals(interned));
+        assertTrue(interned.equals(amortCalculator));
+        assertTrue(amortCalculator.hashCode() == interned.hashCode());
+        assertTrue(amortCalculator.compareTo(interned) == 0);
+        assertTrue(interned.compareTo(amortCalculator) == 0);
+
+        // The objects returned by the mutators are not interned either, but they still compare by value.
+        FixedAmortizationCalculator cleared = amortCalculator.clearExtraPayments();
+        assertTrue(cleared != amortCalculator.clearExtraPayments());
+        assertTrue(cleared.equals(interned.clearExtraPayments()));
+        assertTrue(cleared.compareTo(interned) > 0);
+        assertTrue(interned.compareTo(cleared) < 0);
+    }
+
+    @Test
+    public void testGetTotalCost() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        int years = 20;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 150000.00, 4.25, years);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, years);
+        FixedAmortizationCalculator amortCalculator = FixedAmortizationCalculators
+                .getDefaultFixedAmortizationCalculator(pmtCalculator, pmtKey,
+                        ExtraPmts.getDefaultExtraPmt(pmtKey, 500.0));
+
+        SortedMap<LocalDate, Payment> table = amortCalculator.getTable();
+        double expected = new BigDecimal("150000.00").add(
+                BigDecimal.valueOf(table.get(table.lastKey()).getCumulativeInterest())).doubleValue();
+        assertTrue(amortCalculator.getTotalCost() == expected);
+    }
+
+    @Test
+    public void testTotalCostOrdering() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        int years = 20;
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, years);
+
+        List<FixedAmortizationCalculator> calculators = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 150000.00 - i * 1000,
+                    3.0 + (i % 7) * 0.25, years);
+            FixedAmortizationCalculator amortCalculator = FixedAmortizationCalculators
+                    .getDefaultFixedAmortizationCalculator(pmtCalculator, pmtKey);
+            if (i % 3 == 0) {
+                amortCalculator = amortCalculator.setExtraPayment(ExtraPmts.getDefaultExtraPmt(pmtKey, i * 10.0 + 1));
+            }
+            calculators.add(amortCalculator);
+        }
+
+        // There are no ties on total cost here, so the ordering must agree with compareTo.
+        List<FixedAmortizationCalculator> byOrdering = FixedAmortizationCalculators.totalCostOrdering().sortedCopy(
+                calculators);
+        List<FixedAmortizationCalculator> byCompareTo = Ordering.natural().sortedCopy(calculators);
+        assertTrue(byOrdering.equals(byCompareTo));
+
+        for (int i = 1; i < byOrdering.size(); i++) {
+            assertTrue(byOrdering.get(i - 1).getTotalCost() <= byOrdering.get(i).getTotalCost());
+        }
+
+        // Same total cost, so the ordering falls back to the payment calculator and payment key.
+        FixedAmortizationCalculator first = calculators.get(1);
+        assertTrue(FixedAmortizationCalculators.totalCostOrdering().compare(first, first) == 0);
+        FixedAmortizationCalculator later = first.setPmtKey(pmtKey.setFirstKey(pmtKey.getFirstKey().plusMonths(1)));
+        assertTrue(first.getTotalCost() == later.getTotalCost());
+        assertTrue(FixedAmortizationCalculators.totalCostOrdering().compare(first, later) < 0);
+        assertTrue(FixedAmortizationCalculators.totalCostOrdering().compare(later, first) > 0);
+        assertTrue(first.compareTo(later) < 0);
+    }
+
+    @Test
+    public void testSharedScheduleCore() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 175000.00, 3.875, 30);
+        PmtKey pmtKey1 = PmtKeys.getDefaultPmtKey(pmtPeriod, new LocalDate(2014, 3, 1), 360);
+        PmtKey pmtKey2 = PmtKeys.getDefaultPmtKey(pmtPeriod, new LocalDate(2015, 7, 15), 360);
+        Map<LocalDate, Double> extraPmts1 = ImmutableSortedMap.of(pmtKey1.getKeys().get(11), 5000.0);
+        Map<LocalDate, Double> extraPmts2 = ImmutableSortedMap.of(pmtKey2.getKeys().get(11), 5000.0);
+
+        FixedAmortizationCalculator amortCalculator1 = FixedAmortizationCalculators
+                .getDefaultFixedAmortizationCalculator(pmtCalculator, pmtKey1, extraPmts1);
+        FixedAmortizationCalculator amortCalculator2 = FixedAmortizationCalculators
+                .getDefaultFixedAmortizationCalculator(pmtCalculator, pmtKey2, extraPmts2);
+        FixedAmortizationCalculator unshared = FixedAmortizationCalculators.newDefaultFixedAmortizationCalculator(
+                pmtCalculator, pmtKey2, extraPmts2);
+
+        // The loans only differ by their first payment date, so their tables hold the same Payment objects.
+        List<Payment> pmts1 = new ArrayList<>(amortCalculator1.getTable().values());
+        List<Payment> pmts2 = new ArrayList<>(amortCalculator2.getTable().values());
+        List<Payment> unsharedPmts = new ArrayList<>(unshared.getTable().values());
+        assertTrue(pmts1.size() == pmts2.size());
+        assertTrue(pmts1.size() < 360);
+        for (int i = 0; i < pmts1.size(); i++) {
+            assertTrue(pmts1.get(i) == pmts2.get(i));
+            assertTrue(unsharedPmts.get(i) != pmts2.get(i));
+            assertTrue(unsharedPmts.get(i).equals(pmts2.get(i)));
+        }
+
+        assertTrue(amortCalculator1.getTable().firstKey().equals(pmtKey1.getFirstKey()));
+        assertTrue(amortCalculator2.getTable().firstKey().equals(pmtKey2.getFirstKey()));
+        assertTrue(amortCalculator1.getTotalCost() == amortCalculator2.getTotalCost());
+        assertTrue(amortCalculator1.getExtraPayment(pmtKey1.getKeys().get(11)) == 5000.0);
+        assertTrue(amortCalculator2.getExtraPayment(pmtKey2.getKeys().get(11)) == 5000.0);
+        assertTrue(unshared.equals(amortCalculator2));
+        assertFalse(amortCalculator1.equals(amortCalculator2));
+    }
+
+    @Test
+    public void testGetSum() {
+        PmtPeriod pmtPeriod = PmtPeriod.BIWEEKLY;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 210000.00, 4.75, 30);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 5, 9), 30);
+        FixedAmortizationCalculator amortCalculator = FixedAmortizationCalculators
+                .getDefaultFixedAmortizationCalculator(pmtCalculator, pmtKey,
+                        ExtraPmts.getDefaultExtraPmt(pmtKey.setCount(100), 125.0));
+        SortedMap<LocalDate, Payment> table = amortCalculator.getTable();
+
+        LocalDate[] dates = { new LocalDate(2013, 1, 1), pmtKey.getFirstKey(), new LocalDate(2015, 2, 14),
+                new LocalDate(2020, 12, 31), pmtKey.getKeys().get(200), new LocalDate(2039, 7, 4),
+                new LocalDate(2050, 1, 1) };
+        for (int stat = Payment.TOTAL; stat <= Payment.INTEREST; stat++) {
+            for (int i = 0; i < dates.length; i++) {
+                for (int j = i; j < dates.length; j++) {
+                    assertTrue(amortCalculator.getSum(stat, dates[i], dates[j]) == sum(
+                            table.subMap(dates[i], dates[j]), stat));
+                }
+            }
+        }
+
+        SortedMap<Integer, Double> yearlyInterest = amortCalculator.getYearlySums(Payment.INTEREST);
+        assertTrue(yearlyInterest.firstKey() == 2014);
+        assertTrue(yearlyInterest.lastKey() == table.lastKey().getYear());
+        BigDecimal totalInterest = BigDecimal.ZERO;
+        for (int year : yearlyInterest.keySet()) {
+            double expected = sum(table.subMap(new LocalDate(year, 1, 1), new LocalDate(year + 1, 1, 1)),
+                    Payment.INTEREST);
+            assertTrue(yearlyInterest.get(year) == expected);
+            assertTrue(amortCalculator.getYearlySum(Payment.INTEREST, year) == expected);
+            totalInterest = totalInterest.add(BigDecimal.valueOf(expected));
+        }
+        assertTrue(amortCalculator.getYearlySum(Payment.INTEREST, 2013) == 0.0);
+        assertTrue(totalInterest.doubleValue() == sum(table, Payment.INTEREST));
+
+        // Sums across a portfolio of loans.
+        FixedAmortizationCalculator other = amortCalculator.setPmtKey(pmtKey.setFirstKey(new LocalDate(2015, 1, 2)));
+        SortedMap<Integer, Double> portfolio = FixedAmortizationCalculators.getYearlySums(
+                ImmutableList.of(amortCalculator, other), Payment.INTEREST);
+        assertTrue(portfolio.firstKey() == 2014);
+        assertTrue(portfolio.get(2014).equals(yearlyInterest.get(2014)));
+        assertTrue(portfolio.get(2016) == BigDecimal.valueOf(yearlyInterest.get(2016))
+                .add(BigDecimal.valueOf(other.getYearlySum(Payment.INTEREST, 2016))).doubleValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetSumInvalidStat() {
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(PmtPeriod.MONTHLY, 150000.00, 4.25, 20);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(PmtPeriod.MONTHLY, 20);
+        FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(pmtCalculator, pmtKey).getYearlySum(
+                Payment.BALANCE, pmtKey.getFirstKey().getYear());
+    }
+
+    private static double sum(SortedMap<LocalDate, Payment> table, int stat) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Payment payment : table.values()) {
+            sum = sum.add(BigDecimal.valueOf(payment.getPmtStats()[stat]));
+        }
+        return sum.doubleValue();
+    }
+
+    @Test
+    public void testThresholdQueries() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 6, 1), 30);
+        List<FixedAmortizationCalculator> calculators = new ArrayList<>();
+        for (double rate : new double[] { 2.5, 4.375, 7.0, 12.0 }) {
+            PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 250000.00, rate, 30);
+            FixedAmortizationCalculator amortCalculator = FixedAmortizationCalculators
+                    .getDefaultFixedAmortizationCalculator(pmtCalculator, pmtKey);
+            calculators.add(amortCalculator);
+            calculators.add(amortCalculator.setExtraPayment(ExtraPmts.getDefaultExtraPmt(
+                    PmtKeys.getDefaultPmtKey(PmtPeriod.YEARLY, pmtKey.getFirstKey(), 30), 4000.0)));
+            calculators.add(amortCalculator.setExtraPayment(pmtKey.getKeys().get(24), -2000.0));
+        }
+
+        for (FixedAmortizationCalculator amortCalculator : calculators) {
+            double[] balances = { 250000.00, 249999.99, 200000.00, 195000.00, 125000.00, 1000.00, 0.0, -1.0 };
+            for (double balance : balances) {
+                assertTrue(Objects.equal(amortCalculator.getFirstKeyWithBalanceAtOrBelow(balance),
+                        scanBalance(amortCalculator.getTable(), balance)));
+            }
+            // Also try the balance of every payment, where rounding matters most.
+            for (Payment payment : amortCalculator.getTable().values()) {
+                assertTrue(Objects.equal(amortCalculator.getFirstKeyWithBalanceAtOrBelow(payment.getBalance()),
+                        scanBalance(amortCalculator.getTable(), payment.getBalance())));
+                assertTrue(Objects.equal(amortCalculator.getFirstKeyWithCumulativeInterestAtOrAbove(payment
+                        .getCumulativeInterest()), scanCumulativeInterest(amortCalculator.getTable(), payment
+                        .getCumulativeInterest())));
+            }
+            assertTrue(amortCalculator.getFirstKeyWithCumulativeInterestAtOrAbove(0.0).equals(pmtKey.getFirstKey()));
+            double totalCost = amortCalculator.getTotalCost();
+            assertTrue(amortCalculator.getFirstKeyWithCumulativeInterestAtOrAbove(totalCost) == null);
+        }
+    }
+
+    private static LocalDate scanBalance(SortedMap<LocalDate, Payment> table, double balance) {
+        for (Map.Entry<LocalDate, Payment> entry : table.entrySet()) {
+            if (entry.getValue().getBalance() <= balance) return entry.getKey();
+        }
+        return null;
+    }
+
+    private static LocalDate scanCumulativeInterest(SortedMap<LocalDate, Payment> table, double cumulativeInterest) {
+        for (Map.Entry<LocalDate, Payment> entry : table.entrySet()) {
+            if (entry.getValue().getCumulativeInterest() >= cumulativeInterest) return entry.getKey();
+        }
+        return null;
+    }
+
+    @Test
+    public void testParallelScanEngine() {
+        PmtPeriod pmtPeriod = PmtPeriod.WEEKLY;
+        int years = 40;
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 1, 6), years);
+        Map<LocalDate, Double> extraPmts = new HashMap<>();
+        for (int i = 0; i < pmtKey.getCount(); i += 3) {
+            extraPmts.put(pmtKey.getKeys().get(i), 10.0 + i % 17);
+        }
+
+        for (double rate : new double[] { 3.25, 6.5, 11.0 }) {
+            PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 320000.00, rate, years);
+            FixedAmortizationCalculator standard = FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(
+                    pmtCalculator, pmtKey);
+            assertTrue(standard.getEngine() == AmortizationEngine.STANDARD);
+
+            for (FixedAmortizationCalculator expected : ImmutableList.of(standard,
+                    standard.setExtraPayments(extraPmts))) {
+                FixedAmortizationCalculator actual = expected.setEngine(AmortizationEngine.PARALLEL_SCAN);
+                assertTrue(actual.getEngine() == AmortizationEngine.PARALLEL_SCAN);
+                assertTrue(actual == expected.setEngine(AmortizationEngine.PARALLEL_SCAN));
+                assertFalse(actual.equals(expected));
+                assertTrue(actual.setEngine(AmortizationEngine.STANDARD) == expected);
+                assertTrue(actual.areExtraPayments() == expected.areExtraPayments());
+
+                // The tables must agree within the tolerance documented for PARALLEL_SCAN.
+                List<Payment> expectedPmts = new ArrayList<>(expected.getTable().values());
+                List<Payment> actualPmts = new ArrayList<>(actual.getTable().values());
+                assertTrue(Math.abs(expectedPmts.size() - actualPmts.size()) <= 1);
+                for (int i = 0; i < Math.min(expectedPmts.size(), actualPmts.size()); i++) {
+                    Payment e = expectedPmts.get(i);
+                    Payment a = actualPmts.get(i);
+                    assertTrue(Math.abs(e.getBalanceUnrounded() - a.getBalanceUnrounded()) < 1.0E-6);
+                    assertTrue(Math.abs(e.getCumulativeInterestUnrounded() - a.getCumulativeInterestUnrounded())
+                            < 1.0E-6);
+                    assertTrue(Math.abs(e.getTotalUnrounded() - a.getTotalUnrounded()) < 1.0E-6);
+                    assertTrue(Math.abs(e.getBalance() - a.getBalance()) <= 0.01 + 1.0E-9);
+                    assertTrue(Math.abs(e.getInterest() - a.getInterest()) <= 0.01 + 1.0E-9);
+                }
+                assertTrue(Math.abs(expected.getTotalCost() - actual.getTotalCost()) <= 0.01 + 1.0E-9);
+            }
+        }
+    }
+
+    @Test
+    public void testRecurringExtraPmts() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 1, 15), 30);
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 300000.00, 5.5, 30);
+        List<LocalDate> keys = pmtKey.getKeys();
+
+        ExtraPmt yearly = ExtraPmts.getDefaultExtraPmt(PmtKeys.getDefaultPmtKey(PmtPeriod.YEARLY, keys.get(0), 30),
+                2500.0);
+        ExtraPmt monthly = ExtraPmts.getDefaultExtraPmt(PmtKeys.getDefaultPmtKey(PmtPeriod.MONTHLY, keys.get(13), 10),
+                100.0);
+        Map<LocalDate, Double> expectedPmts = new HashMap<>();
+        for (LocalDate key : yearly.getPmtKey().getKeys()) {
+            expectedPmts.put(key, 2500.0);
+        }
+        for (LocalDate key : monthly.getPmtKey().getKeys()) {
+            expectedPmts.put(key, 100.0);
+        }
+
+        FixedAmortizationCalculator amortCalculator = FixedAmortizationCalculators
+                .getDefaultFixedAmortizationCalculator(pmtCalculator, pmtKey, ImmutableList.of(yearly, monthly));
+        assertTrue(amortCalculator == FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(pmtCalculator,
+                pmtKey, expectedPmts));
+
+        // Each change must give the same table as a calculator built from a map with the same extra payments.
+        LocalDate yearlyKey = yearly.getPmtKey().getKeys().get(1);
+        amortCalculator = amortCalculator.setExtraPayment(yearlyKey, 700.0);
+        expectedPmts.put(yearlyKey, 700.0);
+        assertTrue(amortCalculator.equals(DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey,
+                expectedPmts)));
+
+        yearlyKey = yearly.getPmtKey().getKeys().get(2);
+        amortCalculator = amortCalculator.addExtraPayment(yearlyKey, 50.0);
+        expectedPmts.put(yearlyKey, 2550.0);
+        assertTrue(amortCalculator.equals(DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey,
+                expectedPmts)));
+
+        amortCalculator = amortCalculator.setExtraPayment(monthly);
+        assertTrue(amortCalculator.equals(DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey,
+                expectedPmts)));
+
+        amortCalculator = amortCalculator.removeExtraPayments(ImmutableList.of(keys.get(14), yearlyKey));
+        expectedPmts.remove(keys.get(14));
+        expectedPmts.remove(yearlyKey);
+        assertTrue(amortCalculator.equals(DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey,
+                expectedPmts)));
+        assertTrue(amortCalculator.getExtraPayment(keys.get(14)) == 0.0);
+        assertTrue(amortCalculator.getExtraPayment(keys.get(15)) == 100.0);
+
+        // The extra payments are a view of the table.
+        SortedMap<LocalDate, Double> extraPmts = amortCalculator.getExtraPayments();
+        assertTrue(extraPmts.size() == amortCalculator.getTable().size());
+        for (Map.Entry<LocalDate, Payment> entry : amortCalculator.getTable().entrySet()) {
+            assertTrue(extraPmts.get(entry.getKey()).equals(entry.getValue().getExtraPrincipal()));
+        }
+        assertTrue(extraPmts.headMap(keys.get(12)).size() == 12);
+    }
+
+    @Test
+    public void testSparseExtraPmts() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 2, 7), 25);
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 180000.00, 4.75, 300);
+        List<LocalDate> keys = pmtKey.getKeys();
+        ExtraPmt monthly = ExtraPmts.getDefaultExtraPmt(PmtKeys.getDefaultPmtKey(PmtPeriod.MONTHLY, keys.get(0), 52),
+                40.0);
+
+        FixedAmortizationCalculator amortCalculator = DefaultFixedAmortizationCalculator.newInstance(pmtCalculator,
+                pmtKey, monthly);
+        amortCalculator = amortCalculator.setExtraPayment(keys.get(10), 0.1).addExtraPayment(keys.get(10), 0.2)
+                .addExtraPayment(keys.get(100), 5000.0).setExtraPayment(keys.get(20), 0.3);
+        assertTrue(amortCalculator.getExtraPayment(keys.get(10)) == 0.3);
+        assertTrue(amortCalculator.getExtraPayment(keys.get(20)) == 0.3);
+        assertTrue(amortCalculator.getExtraPayment(keys.get(21)) == 40.0);
+        assertTrue(amortCalculator.getExtraPayment(keys.get(100)) == 5000.0);
+
+        // Removing every extra payment of an installment a rule covers leaves no extra payment at all.
+        amortCalculator = amortCalculator.removeExtraPayments(ImmutableList.of(keys.get(10), keys.get(100)));
+        assertTrue(amortCalculator.getExtraPayment(keys.get(10)) == 0.0);
+        assertTrue(amortCalculator.getExtraPayment(keys.get(100)) == 0.0);
+        assertTrue(amortCalculator.getExtraPayment(keys.get(11)) == 40.0);
+
+        Map<LocalDate, Double> expectedPmts = new HashMap<>();
+        for (LocalDate key : monthly.getPmtKey().getKeys()) {
+            expectedPmts.put(key, 40.0);
+        }
+        expectedPmts.put(keys.get(20), 0.3);
+        expectedPmts.remove(keys.get(10));
+        assertTrue(amortCalculator.equals(DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey,
+                expectedPmts)));
+        assertTrue(amortCalculator.getExtraPayments().equals(DefaultFixedAmortizationCalculator.newInstance(
+                pmtCalculator, pmtKey, expectedPmts).getExtraPayments()));
+
+        // Setting 0.0 clears a single payment and an installment a rule covers.
+        amortCalculator = amortCalculator.setExtraPayment(keys.get(20), 0.0).setExtraPayment(keys.get(30), 0.0);
+        assertTrue(amortCalculator.getExtraPayment(keys.get(20)) == 0.0);
+        assertTrue(amortCalculator.getExtraPayment(keys.get(30)) == 0.0);
+        assertTrue(amortCalculator.getExtraPayment(keys.get(31)) == 40.0);
+        expectedPmts.remove(keys.get(20));
+        expectedPmts.remove(keys.get(30));
+        assertTrue(amortCalculator.equals(DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey,
+                expectedPmts)));
+
+        // Clearing every installment of the rule leaves no extra payments at all.
+        Map<LocalDate, Double> clearPmts = new HashMap<>();
+        for (LocalDate key : monthly.getPmtKey().getKeys()) {
+            clearPmts.put(key, 0.0);
+        }
+        amortCalculator = amortCalculator.setExtraPayments(clearPmts);
+        assertFalse(amortCalculator.areExtraPayments());
+        assertTrue(amortCalculator.equals(DefaultFixedAmortizationCalculator.newInstance(pmtCalculator, pmtKey)));
+    }
+
+    @Test
+    public void testStreams() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 4, 1), 30);
+        List<FixedAmortizationCalculator> portfolio = new ArrayList<>();
+        long expectedRows = 0;
+        long expectedCents = 0;
+        for (int i = 0; i < 40; i++) {
+            PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 100000.00 + i * 5000.0,
+                    3.0 + i % 7 * 0.5, 360);
+            FixedAmortizationCalculator amortCalculator = DefaultFixedAmortizationCalculator.newInstance(
+                    pmtCalculator, pmtKey).setExtraPayment(pmtKey.getKeys().get(i * 3), 20000.0 * (i % 5));
+            portfolio.add(amortCalculator);
+            expectedRows += amortCalculator.getTable().size();
+            for (Payment payment : amortCalculator.getTable().values()) {
+                expectedCents += Math.round(payment.getInterest() * 100);
+            }
+        }
+
+        // The rows of one table come in order of the payment date.
+        FixedAmortizationCalculator amortCalculator = portfolio.get(7);
+        List<LocalDate> dates = new ArrayList<>();
+        amortCalculator.stream().forEachOrdered(row -> dates.add(row.getDate()));
+        assertTrue(dates.equals(new ArrayList<>(amortCalculator.getTable().keySet())));
+        assertTrue(amortCalculator.parallelStream().allMatch(row -> row.getCalculator() == amortCalculator
+                && row.getPayment() == amortCalculator.getTable().get(row.getDate())
+                && row.getDate().equals(pmtKey.getKeys().get(row.getIndex()))));
+
+        Spliterator<AmortizationRow> spliterator = amortCalculator.spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED));
+        assertTrue(spliterator.estimateSize() == amortCalculator.getTable().size());
+        Spliterator<AmortizationRow> prefix = spliterator.trySplit();
+        assertTrue(Math.abs(prefix.estimateSize() - spliterator.estimateSize()) <= 1);
+
+        assertTrue(FixedAmortizationCalculators.stream(portfolio, false).count() == expectedRows);
+        assertTrue(FixedAmortizationCalculators.stream(portfolio, true).mapToLong(
+                row -> Math.round(row.getPayment().getInterest() * 100)).sum() == expectedCents);
+        assertTrue(splitAndCount(FixedAmortizationCalculators.spliterator(portfolio)) == expectedRows);
+        assertTrue(splitAndCount(FixedAmortizationCalculators.spliterator(portfolio.subList(3, 4))) == portfolio
+                .get(3).getTable().size());
+        assertTrue(FixedAmortizationCalculators.stream(ImmutableList.<FixedAmortizationCalculator> of(), true)
+                .count() == 0);
+    }
+
+    /*
+     * Splits the spliterator down to single rows, checking that every piece knows its exact size.
+     */
+    private static long splitAndCount(Spliterator<AmortizationRow> spliterator) {
+        long size = spliterator.estimateSize();
+        Spliterator<AmortizationRow> prefix = spliterator.trySplit();
+        if (prefix == null) {
+            long[] count = new long[1];
+            spliterator.forEachRemaining(row -> count[0]++);
+            assertTrue(count[0] == size && size <= 1);
+            return count[0];
+        }
+        assertTrue(prefix.estimateSize() + spliterator.estimateSize() == size);
+        return splitAndCount(prefix) + splitAndCount(spliterator);
+    }
+
+    @Test
+    public void testGetCheapest() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        int years = 15;
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, years);
+
+        // More candidates than one batch so the batches are merged.
+        List<ScheduleCandidate> candidates = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 120000.00 + (i % 37) * 500,
+                    3.0 + (i % 11) * 0.125, years);
+            if (i % 4 == 0) {
+                ExtraPmt extraPmt = ExtraPmts.getDefaultExtraPmt(pmtKey, i + 1);
+                candidates.add(ScheduleCandidate.of(pmtCalculator, pmtKey, extraPmt));
+            } else if (i % 4 == 1) {
+                Map<LocalDate, Double> extraPmts = new HashMap<>();
+                extraPmts.put(pmtKey.getKeys().get(i % 100), 1000.0 + i);
+                candidates.add(ScheduleCandidate.of(pmtCalculator, pmtKey, extraPmts));
+            } else {
+                candidates.add(ScheduleCandidate.of(pmtCalculator, pmtKey));
+            }
+        }
+
+        List<FixedAmortizationCalculator> all = new ArrayList<>();
+        for (ScheduleCandidate candidate : candidates) {
+            FixedAmortizationCalculator amortCalculator = candidate.toCalculator();
+            assertTrue(candidate.calcTotalCost() == amortCalculator.getTotalCost());
+            all.add(amortCalculator);
+        }
+        List<FixedAmortizationCalculator> sorted = Ordering.natural().sortedCopy(all);
+
+        List<FixedAmortizationCalculator> cheapest = FixedAmortizationCalculators.getCheapest(candidates, 10);
+        assertTrue(cheapest.size() == 10);
+        for (int i = 0; i < cheapest.size(); i++) {
+            assertTrue(cheapest.get(i).getTotalCost() == sorted.get(i).getTotalCost());
+        }
+
+        List<FixedAmortizationCalculator> everything = FixedAmortizationCalculators.getCheapest(candidates, 1000);
+        assertTrue(everything.size() == candidates.size());
+        assertTrue(everything.get(everything.size() - 1).getTotalCost() == sorted.get(sorted.size() - 1)
+                .getTotalCost());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetCheapestInvalidExtraPmt() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 150000.00, 4.25, 20);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, 20);
+        Map<LocalDate, Double> extraPmts = new HashMap<>();
+        extraPmts.put(pmtKey.getFirstKey().plusDays(3), 1000.0);
+        List<ScheduleCandidate> candidates = ImmutableList.of(ScheduleCandidate.of(pmtCalculator, pmtKey),
+                ScheduleCandidate.of(pmtCalculator, pmtKey, extraPmts));
+        FixedAmortizationCalculators.getCheapest(candidates, 1);
+    }
+
+    @Test
+    public void testGetCheapestTies() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 150000.00, 4.25, 15);
+
+        // Every candidate has the same total cost, so only the tie-breaking decides which ones are kept.
+        List<ScheduleCandidate> candidates = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2010, 1, 1).plusDays(i), 15);
+            candidates.add(ScheduleCandidate.of(pmtCalculator, pmtKey));
+        }
+        List<FixedAmortizationCalculator> all = new ArrayList<>();
+        for (ScheduleCandidate candidate : candidates) {
+            all.add(candidate.toCalculator());
+        }
+        List<FixedAmortizationCalculator> sorted = Ordering.natural().sortedCopy(all);
+
+        List<FixedAmortizationCalculator> cheapest = FixedAmortizationCalculators.getCheapest(candidates, 10);
+        assertTrue(cheapest.equals(sorted.subList(0, 10)));
+
+        // The order of the input must not matter.
+        Collections.reverse(candidates);
+        assertTrue(FixedAmortizationCalculators.getCheapest(candidates, 10).equals(cheapest));
+        Collections.shuffle(candidates, new Random(7));
+        assertTrue(FixedAmortizationCalculators.getCheapest(candidates, 10).equals(cheapest));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testScheduleCandidatePmtPeriodMismatch() {
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(PmtPeriod.MONTHLY, 150000.00, 4.25, 20);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(PmtPeriod.BIWEEKLY, 20);
+        ScheduleCandidate.of(pmtCalculator, pmtKey);
+    }
+
+    @Test
+    public void testProjection() {
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        List<ScheduleCandidate> candidates = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            // Loans start on different days of different months, so payments fall in different buckets.
+            PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2010 + i % 7, 1 + i % 12,
+                    1 + i % 28), 15);
+            PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 90000.00 + (i % 41) * 750,
+                    3.5 + (i % 9) * 0.25, 180);
+            if (i % 3 == 0) {
+                ExtraPmt extraPmt = ExtraPmts.getDefaultExtraPmt(pmtKey, i + 1);
+                candidates.add(ScheduleCandidate.of(pmtCalculator, pmtKey, extraPmt));
+            } else if (i % 3 == 1) {
+                Map<LocalDate, Double> extraPmts = new HashMap<>();
+                extraPmts.put(pmtKey.getKeys().get(i % 60), 5000.0 + i);
+                candidates.add(ScheduleCandidate.of(pmtCalculator, pmtKey, extraPmts));
+            } else {
+                candidates.add(ScheduleCandidate.of(pmtCalculator, pmtKey));
+            }
+        }
+        List<FixedAmortizationCalculator> portfolio = new ArrayList<>();
+        for (ScheduleCandidate candidate : candidates) {
+            portfolio.add(candidate.toCalculator());
+        }
+
+        for (ProjectionBucket bucket : ProjectionBucket.values()) {
+            // Sum the rows into a map by the first day of their bucket, the way it would be done without a projection.
+            SortedMap<LocalDate, long[]> expected = new TreeMap<>();
+            for (FixedAmortizationCalculator amortCalculator : portfolio) {
+                for (Map.Entry<LocalDate, Payment> entry : amortCalculator.getTable().entrySet()) {
+                    LocalDate date = entry.getKey();
+                    int month = (date.getMonthOfYear() - 1) / bucket.months() * bucket.months() + 1;
+                    LocalDate start = new LocalDate(date.getYear(), month, 1);
+                    long[] sums = expected.get(start);
+                    if (sums == null) {
+                        sums = new long[Payment.INTEREST + 1];
+                        expected.put(start, sums);
+                    }
+                    for (int stat = Payment.TOTAL; stat <= Payment.INTEREST; stat++) {
+                        sums[stat] += Math.round(entry.getValue().getPmtStats()[stat] * 100);
+                    }
+                }
+            }
+
+            CashFlowProjection projection = FixedAmortizationCalculators.project(portfolio, bucket);
+            assertTrue(projection.getBucket() == bucket);
+            assertTrue(projection.getStart(0).equals(expected.firstKey()));
+            assertTrue(projection.getStart(projection.size() - 1).equals(expected.lastKey()));
+            for (int i = 0; i < projection.size(); i++) {
+                long[] sums = expected.get(projection.getStart(i));
+                for (int stat = Payment.TOTAL; stat <= Payment.INTEREST; stat++) {
+                    assertTrue(projection.getSum(stat, i) == (sums == null ? 0L : sums[stat]) / 100.0);
+                }
+                assertTrue(projection.indexOf(projection.getStart(i).plusDays(20)) == i);
+            }
+            assertTrue(projection.indexOf(expected.firstKey().minusDays(1)) == -1);
+
+            // The candidates are projected without building their tables, and come out the same.
+            assertTrue(projection.equals(FixedAmortizationCalculators.projectCandidates(candidates, bucket)));
+        }
+
+        CashFlowProjection yearly = FixedAmortizationCalculators.project(portfolio, ProjectionBucket.YEAR);
+        SortedMap<Integer, Double> interest = FixedAmortizationCalculators.getYearlySums(portfolio, Payment.INTEREST);
+        assertTrue(yearly.size() == interest.size());
+        for (int i = 0; i < yearly.size(); i++) {
+            assertTrue(yearly.getSum(Payment.INTEREST, i) == interest.get(yearly.getStart(i).getYear()));
+        }
+
+        CashFlowProjection empty = FixedAmortizationCalculators.projectCandidates(
+                new ArrayList<ScheduleCandidate>(), ProjectionBucket.MONTH);
+        assertTrue(empty.size() == 0);
+        assertTrue(empty.getTotalSum(Payment.TOTAL) == 0.0);
+    }
+
     @Test
     public void testBuildTable_Case1() {
         PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
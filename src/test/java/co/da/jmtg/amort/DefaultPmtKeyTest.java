@@ -3,13 +3,17 @@ package co.da.jmtg.amort;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.joda.time.LocalDate;
 import org.junit.Test;
 
 import co.da.jmtg.pmt.PmtPeriod;
 
+import com.google.common.collect.ComparisonChain;
+
 public class DefaultPmtKeyTest {
 
     @Test
@@ -149,4 +153,66 @@ public class DefaultPmtKeyTest {
         assertTrue(count == years * 12);
     }
 
+    @Test
+    public void testNewInstance() {
+        PmtKey interned = PmtKeys.getDefaultPmtKey(PmtPeriod.MONTHLY, new LocalDate("2014-02-01"), 360);
+        PmtKey pmtKey = PmtKeys.newDefaultPmtKey(PmtPeriod.MONTHLY, new LocalDate("2014-02-01"), 360);
+
+        assertFalse(pmtKey == interned);
+        assertTrue(pmtKey.equals(interned));
+        assertTrue(interned.equals(pmtKey));
+        assertTrue(pmtKey.hashCode() == interned.hashCode());
+        assertTrue(pmtKey.compareTo(interned) == 0);
+        assertTrue(interned.compareTo(pmtKey) == 0);
+
+        PmtKey pmtKey2 = pmtKey.setCount(180);
+        assertFalse(pmtKey2 == pmtKey.setCount(180));
+        assertTrue(pmtKey2.equals(interned.setCount(180)));
+        assertTrue(pmtKey2.compareTo(interned) < 0);
+    }
+
+    @Test
+    public void testEquivalenceWithKeyList() {
+        // Identity, hashing, and ordering use only firstKey, pmtPeriod, and count. Check that they agree with the
+        // semantics that also evaluated the full list of keys.
+        List<PmtKey> pmtKeys = new ArrayList<>();
+        LocalDate firstKey = new LocalDate("2014-01-31");
+        for (PmtPeriod pmtPeriod : PmtPeriod.values()) {
+            for (int day = 0; day < 3; day++) {
+                for (int count : new int[] { 1, 2, 26, 360 }) {
+                    if (pmtPeriod == PmtPeriod.ONETIME && count != 1) {
+                        continue;
+                    }
+                    pmtKeys.add(PmtKeys.newDefaultPmtKey(pmtPeriod, firstKey.plusDays(day), count));
+                    pmtKeys.add(PmtKeys.newDefaultPmtKey(pmtPeriod, firstKey.plusDays(day), count));
+                }
+            }
+        }
+
+        for (PmtKey pmtKey1 : pmtKeys) {
+            for (PmtKey pmtKey2 : pmtKeys) {
+                boolean equalByList = pmtKey1.getFirstKey().equals(pmtKey2.getFirstKey())
+                        && pmtKey1.getPmtPeriod() == pmtKey2.getPmtPeriod()
+                        && pmtKey1.getCount() == pmtKey2.getCount()
+                        && pmtKey1.getKeys().equals(pmtKey2.getKeys());
+                assertTrue(pmtKey1.equals(pmtKey2) == equalByList);
+                if (equalByList) {
+                    assertTrue(pmtKey1.hashCode() == pmtKey2.hashCode());
+                }
+                assertTrue(Integer.signum(pmtKey1.compareTo(pmtKey2)) == Integer.signum(compareByList(pmtKey1,
+                        pmtKey2)));
+            }
+        }
+    }
+
+    private static int compareByList(PmtKey pmtKey1, PmtKey pmtKey2) {
+        ComparisonChain cmpChain = ComparisonChain.start()
+                .compare(pmtKey1.getFirstKey(), pmtKey2.getFirstKey())
+                .compare(pmtKey1.getPmtPeriod(), pmtKey2.getPmtPeriod())
+                .compare(pmtKey1.getCount(), pmtKey2.getCount());
+        for (int i = 0; i < Math.min(pmtKey1.getCount(), pmtKey2.getCount()); i++) {
+            cmpChain = cmpChain.compare(pmtKey1.getKeys().get(i), pmtKey2.getKeys().get(i));
+        }
+        return cmpChain.result();
+    }
 }
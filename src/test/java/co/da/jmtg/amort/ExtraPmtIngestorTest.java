@@ -0,0 +1,121 @@
+package co.da.jmtg.amort;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+
+public class ExtraPmtIngestorTest {
+
+    private static final PmtPeriod PMT_PERIOD = PmtPeriod.MONTHLY;
+
+    private static FixedAmortizationCalculator newLoan(double loanAmt) {
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(PMT_PERIOD, loanAmt, 4.0, 360);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(PMT_PERIOD, new LocalDate(2014, 1, 1), 30);
+        return FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(pmtCalculator, pmtKey);
+    }
+
+    @Test
+    public void testIngest() throws IOException {
+        Map<Long, FixedAmortizationCalculator> loans = new HashMap<>();
+        loans.put(7L, newLoan(100000.00));
+        loans.put(12345678901L, newLoan(250000.00));
+        loans.put(9L, newLoan(50000.00));
+
+        Path file = Files.createTempFile("extra", ".csv");
+        try {
+            Files.write(file, ("loan_id,date,amount\r\n"
+                    + "7,2014-03-01,100\r\n"
+                    + "12345678901,2015-01-01,2500.5\r\n"
+                    + "7,2014-03-01,0.25\r\n"
+                    + "\r\n"
+                    + "7,2014-03-15,100.00\r\n"
+                    + "8,2014-03-01,100.00\r\n"
+                    + "7,2014-3-01,100.00\r\n"
+                    + "7,2014-04-01,-5.00\r\n"
+                    + "7,2014-04-01,1.005\r\n"
+                    + "x,2014-04-01,1.00\r\n"
+                    + "7,2014-05-01,75.00").getBytes(StandardCharsets.US_ASCII));
+
+            ExtraPmtIngestion ingestion = FixedAmortizationCalculators.ingestExtraPayments(file, loans);
+            assertTrue(ingestion.getRecordCt() == 4);
+            assertTrue(ingestion.getRejectedCt() == 6);
+            assertTrue(ingestion.getErrors().size() == 6);
+            assertTrue(ingestion.getErrors().get(0).startsWith("line 6: 7,2014-03-15,100.00: "));
+
+            // The loans in the file are in the result, in the order they first appear, and the others are not.
+            Map<Long, FixedAmortizationCalculator> calculators = ingestion.getCalculators();
+            assertTrue(calculators.keySet().toString().equals("[7, 12345678901]"));
+
+            Map<LocalDate, Double> expected = new HashMap<>();
+            expected.put(new LocalDate(2014, 3, 1), 100.25);
+            expected.put(new LocalDate(2014, 5, 1), 75.00);
+            assertTrue(calculators.get(7L).equals(loans.get(7L).addExtraPayments(expected)));
+            assertTrue(calculators.get(12345678901L).equals(loans.get(12345678901L).addExtraPayment(
+                    new LocalDate(2015, 1, 1), 2500.50)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testLargeFile() throws IOException {
+        // More records than a chunk, and more bytes than a buffer, so lines are split between reads and the rules of a
+        // loan are added over several flushes.
+        Map<Long, FixedAmortizationCalculator> loans = new HashMap<>();
+        for (long id = 0; id < 50; id++) {
+            loans.put(id, newLoan(100000.00 + id * 1000));
+        }
+        List<LocalDate> keys = loans.get(0L).getPmtKey().getKeys();
+
+        Map<Long, Map<LocalDate, Long>> expectedCents = new HashMap<>();
+        Path file = Files.createTempFile("extra", ".csv");
+        try {
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+                for (int i = 0; i < 70000; i++) {
+                    long id = i % 50;
+                    LocalDate key = keys.get(i % 120);
+                    long cents = 100 + i % 7;
+                    writer.write(id + "," + key + "," + cents / 100 + "." + String.format("%02d", cents % 100) + "\n");
+
+                    Map<LocalDate, Long> byDate = expectedCents.get(id);
+                    if (byDate == null) {
+                        byDate = new HashMap<>();
+                        expectedCents.put(id, byDate);
+                    }
+                    Long sum = byDate.get(key);
+                    byDate.put(key, (sum == null ? 0L : sum) + cents);
+                }
+            }
+
+            ExtraPmtIngestion ingestion = FixedAmortizationCalculators.ingestExtraPayments(file, loans);
+            assertTrue(ingestion.getRecordCt() == 70000);
+            assertTrue(ingestion.getRejectedCt() == 0);
+            assertTrue(ingestion.getCalculators().size() == 50);
+
+            for (long id = 0; id < 50; id++) {
+                FixedAmortizationCalculator calculator = ingestion.getCalculators().get(id);
+                for (Map.Entry<LocalDate, Long> entry : expectedCents.get(id).entrySet()) {
+                    double amount = calculator.getExtraPayment(entry.getKey());
+                    assertTrue(Math.round(amount * 100) == entry.getValue());
+                }
+                assertTrue(calculator.getTotalCost() < loans.get(id).getTotalCost());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package co.da.jmtg.amort;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+import co.da.jmtg.pmt.extra.ExtraPmt;
+import co.da.jmtg.pmt.extra.ExtraPmts;
+
+public class ScheduleCacheTest {
+
+    private static final PmtPeriod PMT_PERIOD = PmtPeriod.MONTHLY;
+    private static final long TTL = 60000L;
+
+    private Path file;
+    private long now = 1000000L;
+    private final LongSupplier clock = new LongSupplier() {
+        @Override
+        public long getAsLong() {
+            return now;
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("schedules", ".bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private static PmtCalculator pmtCalculator(double loanAmt, int years) {
+        return PmtCalculators.getDefaultPmtCalculator(PMT_PERIOD, loanAmt, 4.5, years * 12);
+    }
+
+    private static PmtKey pmtKey(LocalDate start, int years) {
+        return PmtKeys.getDefaultPmtKeyForYears(PMT_PERIOD, start, years);
+    }
+
+    @Test
+    public void testHeapTier() {
+        ScheduleCache cache = ScheduleCache.newHeapCache(10, TTL, clock);
+        PmtCalculator pmtCalculator = pmtCalculator(200000.00, 30);
+        PmtKey pmtKey = pmtKey(new LocalDate(2014, 1, 1), 30);
+
+        FixedAmortizationCalculator first = cache.get(pmtCalculator, pmtKey);
+        assertTrue(cache.getMissCt() == 1 && cache.getHeapHitCt() == 0);
+        assertTrue(first.equals(FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(pmtCalculator,
+                pmtKey)));
+
+        // A loan that starts on another day shares the table, with its own dates.
+        PmtKey later = pmtKey(new LocalDate(2015, 6, 1), 30);
+        FixedAmortizationCalculator second = cache.get(pmtCalculator, later);
+        assertTrue(cache.getMissCt() == 1 && cache.getHeapHitCt() == 1);
+        assertTrue(second.equals(FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(pmtCalculator,
+                later)));
+        assertTrue(second.getTable().firstKey().equals(new LocalDate(2015, 6, 1)));
+        assertTrue(cache.getHeapHitRatio() == 0.5);
+        assertTrue(cache.getDiskHitRatio() == 0.0);
+        assertTrue(cache.getDiskSize() == 0);
+
+        // Extra payments are part of the fingerprint.
+        ExtraPmt extraPmt = ExtraPmts.getDefaultExtraPmt(PmtKeys.getDefaultPmtKey(PmtPeriod.YEARLY, new LocalDate(2014,
+                12, 1), 10), 1000.00);
+        FixedAmortizationCalculator extra = cache.get(pmtCalculator, pmtKey, Arrays.asList(extraPmt));
+        assertTrue(cache.getMissCt() == 2);
+        assertTrue(extra.equals(first.setExtraPayment(extraPmt)));
+        assertTrue(cache.getHeapSize() == 2);
+    }
+
+    @Test
+    public void testDiskTier() throws IOException {
+        PmtKey pmtKey = pmtKey(new LocalDate(2014, 1, 1), 30);
+        ExtraPmt extraPmt = ExtraPmts.getDefaultExtraPmt(PmtKeys.getDefaultPmtKey(PMT_PERIOD, new LocalDate(2015, 1,
+                1), 60), 250.00);
+        FixedAmortizationCalculator[] expected = new FixedAmortizationCalculator[3];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(pmtCalculator(
+                    100000.00 * (i + 1), 30), pmtKey, Arrays.asList(extraPmt));
+        }
+
+        ScheduleCache cache = ScheduleCache.open(file, 100, 1 << 20, TTL, clock);
+        for (FixedAmortizationCalculator calculator : expected) {
+            cache.get(calculator.getPmtCalculator(), pmtKey, Arrays.asList(extraPmt));
+        }
+        assertTrue(cache.getMissCt() == 3 && cache.getDiskSize() == 3);
+        cache.close();
+
+        // The tables are read back from the file after a restart.
+        cache = ScheduleCache.open(file, 100, 1 << 20, TTL, clock);
+        assertTrue(cache.getDiskSize() == 3 && cache.getHeapSize() == 0);
+        FixedAmortizationCalculator restored = cache.get(expected[0].getPmtCalculator(), pmtKey, Arrays
+                .asList(extraPmt));
+        assertTrue(cache.getDiskHitCt() == 1 && cache.getMissCt() == 0);
+        assertTrue(restored.equals(expected[0]));
+        assertTrue(restored.getTotalCost() == expected[0].getTotalCost());
+        assertTrue(restored.getTable().equals(expected[0].getTable()));
+
+        // Warming up moves the other tables to the heap tier.
+        assertTrue(cache.warmUp(10) == 3);
+        for (FixedAmortizationCalculator calculator : expected) {
+            assertTrue(cache.get(calculator.getPmtCalculator(), pmtKey, Arrays.asList(extraPmt)).equals(calculator));
+        }
+        assertTrue(cache.getHeapHitCt() == 3 && cache.getDiskHitCt() == 1 && cache.getMissCt() == 0);
+        assertTrue(cache.getDiskHitRatio() == 1.0);
+        cache.close();
+    }
+
+    @Test
+    public void testExpiry() throws IOException {
+        PmtCalculator pmtCalculator = pmtCalculator(200000.00, 15);
+        PmtKey pmtKey = pmtKey(new LocalDate(2014, 1, 1), 15);
+
+        ScheduleCache cache = ScheduleCache.open(file, 10, 1 << 20, TTL, clock);
+        cache.get(pmtCalculator, pmtKey);
+        now += TTL - 1;
+        cache.get(pmtCalculator, pmtKey);
+        assertTrue(cache.getHeapHitCt() == 1);
+
+        // Both tiers expire the table, so it is built again.
+        now += 1;
+        cache.get(pmtCalculator, pmtKey);
+        assertTrue(cache.getHeapHitCt() == 1 && cache.getDiskHitCt() == 0 && cache.getMissCt() == 2);
+        assertTrue(cache.getHeapEvictionCt() == 1 && cache.getDiskEvictionCt() == 1);
+        cache.close();
+
+        // Expired tables are not read when the file is opened.
+        now += TTL;
+        cache = ScheduleCache.open(file, 10, 1 << 20, TTL, clock);
+        assertTrue(cache.getDiskSize() == 0);
+        assertTrue(cache.warmUp(10) == 0);
+        cache.close();
+    }
+
+    @Test
+    public void testExpiryAfterRestart() throws IOException {
+        PmtCalculator pmtCalculator = pmtCalculator(200000.00, 15);
+        PmtKey pmtKey = pmtKey(new LocalDate(2014, 1, 1), 15);
+
+        ScheduleCache cache = ScheduleCache.open(file, 10, 1 << 20, TTL, clock);
+        cache.get(pmtCalculator, pmtKey);
+        cache.close();
+
+        // A table read from the file expires in the heap tier when it was written plus the ttl, not a ttl after the
+        // read.
+        now += TTL - 1;
+        cache = ScheduleCache.open(file, 10, 1 << 20, TTL, clock);
+        cache.get(pmtCalculator, pmtKey);
+        assertTrue(cache.getDiskHitCt() == 1 && cache.getHeapSize() == 1);
+        now += 1;
+        cache.get(pmtCalculator, pmtKey);
+        assertTrue(cache.getHeapHitCt() == 0 && cache.getHeapEvictionCt() == 1 && cache.getMissCt() == 1);
+        cache.close();
+
+        // The same holds for the tables moved by warmUp.
+        now += TTL - 1;
+        cache = ScheduleCache.open(file, 10, 1 << 20, TTL, clock);
+        assertTrue(cache.warmUp(10) == 1);
+        now += 1;
+        cache.get(pmtCalculator, pmtKey);
+        assertTrue(cache.getHeapHitCt() == 0 && cache.getHeapEvictionCt() == 1 && cache.getMissCt() == 1);
+        cache.close();
+    }
+
+    @Test
+    public void testSizeEviction() throws IOException {
+        // A table of 15 years takes 8706 bytes on disk, so the file holds 3 of them. When it is full, it keeps the
+        // newest tables that fit in half of it, which is only the newest one.
+        ScheduleCache cache = ScheduleCache.open(file, 1, 32768, TTL, clock);
+        PmtKey pmtKey = pmtKey(new LocalDate(2014, 1, 1), 15);
+        for (int i = 0; i < 8; i++) {
+            now++;
+            cache.get(pmtCalculator(100000.00 + i * 1000, 15), pmtKey);
+        }
+        assertTrue(cache.getHeapSize() == 1 && cache.getHeapEvictionCt() == 7);
+        assertTrue(cache.getDiskSize() == 2 && cache.getDiskEvictionCt() == 6);
+
+        // A table evicted from the heap tier is still on disk, and the oldest tables are gone.
+        cache.get(pmtCalculator(106000.00, 15), pmtKey);
+        cache.get(pmtCalculator(100000.00, 15), pmtKey);
+        assertTrue(cache.getMissCt() == 9 && cache.getDiskHitCt() == 1);
+        assertTrue(cache.getDiskSize() == 3);
+        cache.close();
+    }
+
+    @Test
+    public void testTornEntry() throws IOException {
+        PmtKey pmtKey = pmtKey(new LocalDate(2014, 1, 1), 15);
+        ScheduleCache cache = ScheduleCache.open(file, 10, 65536, TTL, clock);
+        cache.get(pmtCalculator(100000.00, 15), pmtKey);
+        cache.get(pmtCalculator(200000.00, 15), pmtKey);
+        cache.close();
+
+        // Change a byte of a payment of the second table, as a crash in the middle of a write would.
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0x7f }), 16 + 8706 + 1000);
+        }
+
+        cache = ScheduleCache.open(file, 10, 65536, TTL, clock);
+        assertTrue(cache.getDiskSize() == 1);
+        cache.get(pmtCalculator(100000.00, 15), pmtKey);
+        cache.get(pmtCalculator(200000.00, 15), pmtKey);
+        assertTrue(cache.getDiskHitCt() == 1 && cache.getMissCt() == 1);
+        assertTrue(cache.getDiskSize() == 2);
+        cache.close();
+    }
+
+    @Test
+    public void testClosed() throws IOException {
+        PmtCalculator pmtCalculator = pmtCalculator(200000.00, 15);
+        PmtKey pmtKey = pmtKey(new LocalDate(2014, 1, 1), 15);
+        ScheduleCache cache = ScheduleCache.open(file, 10, 65536, TTL, clock);
+        cache.close();
+
+        // The cache goes on with its heap tier.
+        cache.get(pmtCalculator, pmtKey);
+        cache.get(pmtCalculator, pmtKey);
+        assertTrue(cache.getMissCt() == 1 && cache.getHeapHitCt() == 1);
+        assertTrue(cache.getDiskSize() == 0);
+        assertFalse(cache.toString().isEmpty());
+    }
+}
@@ -0,0 +1,157 @@
+package co.da.jmtg.amort;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+import co.da.jmtg.pmt.extra.ExtraPmt;
+import co.da.jmtg.pmt.extra.ExtraPmts;
+import co.da.jmtg.util.BinaryCodec;
+
+public class ScheduleCodecTest {
+
+    private static final PmtPeriod PMT_PERIOD = PmtPeriod.MONTHLY;
+    private static final PmtCalculator PMT_CALCULATOR = PmtCalculators.getDefaultPmtCalculator(PMT_PERIOD, 200000.00,
+            4.5, 360);
+    private static final PmtKey PMT_KEY = PmtKeys.getDefaultPmtKeyForYears(PMT_PERIOD, new LocalDate(2014, 1, 1), 30);
+
+    @Test
+    public void testValueObjects() {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        List<PmtCalculator> calculators = Arrays.asList(PMT_CALCULATOR,
+                PmtCalculators.getCanadianPmtCalculator(PmtPeriod.BIWEEKLY, 350000.00, 3.25, 650));
+        List<PmtKey> keys = Arrays.asList(PMT_KEY, PmtKeys.getDefaultPmtKey(PmtPeriod.ONETIME, new LocalDate(2015, 2,
+                28)));
+        List<ExtraPmt> extraPmts = Arrays.asList(ExtraPmts.getDefaultExtraPmt(PmtKeys.getDefaultPmtKey(
+                PmtPeriod.YEARLY, new LocalDate(2014, 12, 1), 10), 1000.00));
+
+        // Frames of different types follow each other in one buffer.
+        PmtCalculators.getBinaryCodec().encode(buffer, calculators, true);
+        PmtKeys.getBinaryCodec().encode(buffer, keys, false);
+        ExtraPmts.getBinaryCodec().encode(buffer, extraPmts, true);
+        assertTrue(buffer.position() == 3 * 17 + 2 * 22 + 2 * 9 + 17);
+
+        buffer.flip();
+        List<PmtCalculator> decodedCalculators = PmtCalculators.getBinaryCodec().decode(buffer);
+        assertTrue(decodedCalculators.equals(calculators));
+        assertTrue(decodedCalculators.get(1).getPmt() == calculators.get(1).getPmt());
+        // The objects read are not interned.
+        assertFalse(decodedCalculators.get(0) == PMT_CALCULATOR);
+        assertTrue(PmtKeys.getBinaryCodec().decode(buffer).equals(keys));
+        assertTrue(ExtraPmts.getBinaryCodec().decode(buffer).equals(extraPmts));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testSchedules() {
+        FixedAmortizationCalculator plain = FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(
+                PMT_CALCULATOR, PMT_KEY);
+        FixedAmortizationCalculator extra = plain.setExtraPayment(ExtraPmts.getDefaultExtraPmt(PmtKeys
+                .getDefaultPmtKey(PMT_PERIOD, new LocalDate(2015, 1, 1), 60), 250.00)).addExtraPayment(
+                new LocalDate(2016, 6, 1), 10000.00);
+        FixedAmortizationCalculator fixedPoint = extra.setEngine(AmortizationEngine.FIXED_POINT);
+        // A ledger snapshot whose only extra payments are the negative ones of a missed installment.
+        ServicingLedger ledger = ServicingLedger.of(PMT_CALCULATOR, PMT_KEY);
+        ledger.post(PMT_KEY.getKeys().get(0), PMT_CALCULATOR.getPmt());
+        ledger.post(PMT_KEY.getKeys().get(2), PMT_CALCULATOR.getPmt());
+        FixedAmortizationCalculator snapshot = ledger.snapshot();
+        List<FixedAmortizationCalculator> schedules = Arrays.asList(plain, extra, fixedPoint, snapshot);
+
+        BinaryCodec<FixedAmortizationCalculator> codec = FixedAmortizationCalculators.getBinaryCodec();
+        assertTrue(codec.sizeOf(plain) == 40);
+
+        for (boolean checksum : new boolean[] { true, false }) {
+            ByteBuffer buffer = ByteBuffer.allocate(codec.sizeOfFrame(schedules));
+            codec.encode(buffer, schedules, checksum);
+            assertFalse(buffer.hasRemaining());
+
+            buffer.flip();
+            List<FixedAmortizationCalculator> decoded = codec.decode(buffer);
+            assertTrue(decoded.equals(schedules));
+            assertTrue(decoded.get(1).getTotalCost() == extra.getTotalCost());
+            assertTrue(decoded.get(1).getExtraPayments().equals(extra.getExtraPayments()));
+            assertTrue(decoded.get(2).getEngine() == AmortizationEngine.FIXED_POINT);
+            assertTrue(decoded.get(3).equals(snapshot));
+            assertTrue(decoded.get(3).getExtraPayment(PMT_KEY.getKeys().get(1)) < 0.0);
+            assertTrue(decoded.get(3).getTotalCost() == snapshot.getTotalCost());
+        }
+    }
+
+    @Test
+    public void testBatch() {
+        List<FixedAmortizationCalculator> schedules = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            PmtCalculator pmtCalculator = PmtCalculators.newDefaultPmtCalculator(PMT_PERIOD, 100000.00 + i * 100,
+                    3.0 + i % 40 / 8.0, 360);
+            schedules.add(FixedAmortizationCalculators.newDefaultFixedAmortizationCalculator(pmtCalculator, PMT_KEY));
+        }
+
+        BinaryCodec<FixedAmortizationCalculator> codec = FixedAmortizationCalculators.getBinaryCodec();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(codec.sizeOfFrame(schedules));
+        codec.encode(buffer, schedules, true);
+        buffer.flip();
+        assertTrue(codec.decode(buffer).equals(schedules));
+    }
+
+    @Test
+    public void testBadFrames() {
+        BinaryCodec<PmtCalculator> codec = PmtCalculators.getBinaryCodec();
+        List<PmtCalculator> calculators = Arrays.asList(PMT_CALCULATOR);
+
+        // A frame that does not fit leaves the position where it was.
+        ByteBuffer small = ByteBuffer.allocate(30);
+        small.position(3);
+        try {
+            codec.encode(small, calculators, true);
+            assertTrue(false);
+        } catch (java.nio.BufferOverflowException e) {
+            assertTrue(small.position() == 3);
+        }
+
+        // A corrupted frame with a checksum is rejected.
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        codec.encode(buffer, calculators, true);
+        buffer.flip();
+        buffer.put(20, (byte) (buffer.get(20) ^ 1));
+        assertRejected(codec, buffer);
+
+        // Without a checksum the fields are validated instead.
+        buffer.clear();
+        codec.encode(buffer, calculators, false);
+        buffer.flip();
+        buffer.put(18, (byte) 42);
+        assertRejected(codec, buffer);
+
+        // The frame of another type is rejected.
+        buffer.clear();
+        PmtKeys.getBinaryCodec().encode(buffer, Arrays.asList(PMT_KEY), true);
+        buffer.flip();
+        assertRejected(codec, buffer);
+
+        // A truncated frame is rejected.
+        buffer.clear();
+        codec.encode(buffer, calculators, false);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 1);
+        assertRejected(codec, buffer);
+    }
+
+    private static void assertRejected(BinaryCodec<?> codec, ByteBuffer buffer) {
+        try {
+            codec.decode(buffer);
+            assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            assertTrue(buffer.position() == 0);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package co.da.jmtg.amort;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+
+public class ServicingLedgerTest {
+
+    private static final PmtPeriod PMT_PERIOD = PmtPeriod.MONTHLY;
+    private static final PmtCalculator PMT_CALCULATOR = PmtCalculators.getDefaultPmtCalculator(PMT_PERIOD, 200000.00,
+            4.5, 360);
+    private static final PmtKey PMT_KEY = PmtKeys.getDefaultPmtKeyForYears(PMT_PERIOD, new LocalDate(2014, 1, 1), 30);
+
+    @Test
+    public void testScheduledPayments() {
+        // Paying the scheduled payment every month is the schedule.
+        ServicingLedger ledger = ServicingLedger.of(PMT_CALCULATOR, PMT_KEY);
+        List<LocalDate> keys = PMT_KEY.getKeys();
+        for (int i = 0; i < 24; i++) {
+            ledger.post(keys.get(i), PMT_CALCULATOR.getPmt());
+        }
+
+        FixedAmortizationCalculator scheduled = FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(
+                PMT_CALCULATOR, PMT_KEY);
+        Payment payment = scheduled.getTable().get(keys.get(23));
+        assertTrue(ledger.getPostedCt() == 24);
+        assertTrue(ledger.getNextDueDate().equals(keys.get(24)));
+        assertTrue(ledger.getBalance() == payment.getBalance());
+        assertTrue(ledger.getCumulativeInterest() == payment.getCumulativeInterest());
+        assertTrue(ledger.getPaidAmount(23) == PMT_CALCULATOR.getPmt());
+        assertTrue(ledger.snapshot().equals(scheduled));
+    }
+
+    @Test
+    public void testActualPayments() {
+        ServicingLedger ledger = ServicingLedger.of(PMT_CALCULATOR, PMT_KEY);
+        List<LocalDate> keys = PMT_KEY.getKeys();
+        double pmt = PMT_CALCULATOR.getPmt();
+        for (int i = 0; i < 6; i++) {
+            ledger.post(keys.get(i), pmt);
+        }
+        // A curtailment posted on its own on the same date as the payment is added to it.
+        ledger.post(keys.get(5), 5000.00);
+        assertTrue(ledger.getPostedCt() == 6);
+        assertTrue(ledger.getPaidAmount(5) == pmt + 5000.00);
+
+        // Two missed payments, and then a short one.
+        ledger.post(keys.get(8), 500.00);
+        assertTrue(ledger.getPostedCt() == 9);
+        assertTrue(ledger.getPaidAmount(6) == 0.0 && ledger.getPaidAmount(7) == 0.0);
+
+        // The snapshot holds exactly the values the ledger posted, and the rest of the schedule after them.
+        FixedAmortizationCalculator snapshot = ledger.snapshot();
+        List<Payment> payments = new ArrayList<>(snapshot.getTable().values());
+        assertTrue(payments.get(8).getBalance() == ledger.getBalance());
+        assertTrue(payments.get(8).getCumulativeInterest() == ledger.getCumulativeInterest());
+        assertTrue(payments.get(5).getExtraPrincipal() == 5000.00);
+        assertTrue(payments.get(6).getTotal() == 0.0);
+        assertTrue(payments.get(7).getBalance() > payments.get(6).getBalance());
+        assertTrue(payments.get(8).getTotal() == 500.00);
+        assertTrue(payments.get(9).getTotal() == pmt);
+
+        // Posting goes on after a snapshot.
+        ledger.post(keys.get(9), pmt);
+        assertTrue(ledger.getBalance() == payments.get(9).getBalance());
+
+        try {
+            ledger.post(keys.get(3), pmt);
+            assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            assertTrue(true);
+        }
+        try {
+            ledger.post(new LocalDate(2015, 1, 15), pmt);
+            assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            assertTrue(true);
+        }
+    }
+
+    @Test
+    public void testDerivedFromSnapshot() {
+        ServicingLedger ledger = ServicingLedger.of(PMT_CALCULATOR, PMT_KEY);
+        List<LocalDate> keys = PMT_KEY.getKeys();
+        double pmt = PMT_CALCULATOR.getPmt();
+        // One installment posted as a payment of 0.0 and one skipped are both missed the same way.
+        ledger.post(keys.get(0), pmt);
+        ledger.post(keys.get(1), 0.0);
+        ledger.post(keys.get(3), pmt);
+        assertTrue(ledger.getPaidAmount(1) == 0.0 && ledger.getPaidAmount(2) == 0.0);
+
+        FixedAmortizationCalculator snapshot = ledger.snapshot();
+        List<Payment> payments = new ArrayList<>(snapshot.getTable().values());
+        assertTrue(payments.get(1).getTotalUnrounded() == 0.0 && payments.get(2).getTotalUnrounded() == 0.0);
+        assertTrue(payments.get(1).getExtraPrincipal() < 0.0);
+
+        // Calculators derived from the snapshot keep the missed installments.
+        FixedAmortizationCalculator added = snapshot.addExtraPayment(keys.get(10), 100.0);
+        FixedAmortizationCalculator set = snapshot.setExtraPayment(keys.get(10), 100.0);
+        assertTrue(added.equals(set));
+        List<Payment> addedPmts = new ArrayList<>(added.getTable().values());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(addedPmts.get(i).equals(payments.get(i)));
+        }
+        assertTrue(addedPmts.get(10).getExtraPrincipal() == 100.0);
+
+        FixedAmortizationCalculator fixedPoint = snapshot.setEngine(AmortizationEngine.FIXED_POINT);
+        List<Payment> fixedPointPmts = new ArrayList<>(fixedPoint.getTable().values());
+        assertTrue(fixedPointPmts.get(1).getExtraPrincipal() < 0.0);
+        assertTrue(fixedPointPmts.get(1).getBalance() > fixedPointPmts.get(0).getBalance());
+        assertTrue(fixedPoint.setEngine(AmortizationEngine.STANDARD).equals(snapshot));
+    }
+
+    @Test
+    public void testPayoff() {
+        ServicingLedger ledger = ServicingLedger.of(PMT_CALCULATOR, PMT_KEY);
+        List<LocalDate> keys = PMT_KEY.getKeys();
+        ledger.post(keys.get(0), PMT_CALCULATOR.getPmt());
+        ledger.post(keys.get(1), 250000.00);
+        assertTrue(ledger.isPaidOff());
+        assertTrue(ledger.getBalance() == 0.0);
+        assertTrue(ledger.getNextDueDate() == null);
+        assertTrue(ledger.snapshot().getTable().size() == 2);
+
+        try {
+            ledger.post(keys.get(2), PMT_CALCULATOR.getPmt());
+            assertTrue(false);
+        } catch (IllegalStateException e) {
+            assertFalse(ledger.getPostedCt() != 2);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package co.da.jmtg.amort;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+
+public class StructuredAmortizationCalculatorTest {
+
+    private static final PmtPeriod PMT_PERIOD = PmtPeriod.MONTHLY;
+    private static final PmtKey PMT_KEY = PmtKeys.getDefaultPmtKeyForYears(PMT_PERIOD, new LocalDate(2014, 1, 1), 30);
+
+    @Test
+    public void testInterestOnly() {
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(PMT_PERIOD, 300000.00, 6.0, 360);
+        StructuredAmortizationCalculator amortCalculator = StructuredAmortizationCalculators
+                .getInterestOnlyAmortizationCalculator(pmtCalculator, PMT_KEY, 120);
+        assertTrue(amortCalculator.getPmtStructure() == PmtStructure.INTEREST_ONLY);
+        assertTrue(amortCalculator.size() == 360);
+
+        // The first ten years pay 1% of 300,000 a month and nothing goes to the principal.
+        for (int i = 0; i < 120; i++) {
+            Payment payment = amortCalculator.getPayment(i);
+            assertTrue(payment.getInterest() == 1500.00);
+            assertTrue(payment.getPrincipal() == 0.0);
+            assertTrue(payment.getBalance() == 300000.00);
+        }
+
+        // The last twenty years are the table of a 20 year loan of the same amount.
+        PmtCalculator amortizing = PmtCalculators.getDefaultPmtCalculator(PMT_PERIOD, 300000.00, 6.0, 240);
+        PmtKey amortizingKey = PmtKeys.getDefaultPmtKeyForYears(PMT_PERIOD, new LocalDate(2024, 1, 1), 20);
+        List<Payment> expected = new ArrayList<>(FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(
+                amortizing, amortizingKey).getTable().values());
+        for (int i = 0; i < expected.size(); i++) {
+            Payment payment = amortCalculator.getPayment(i + 120);
+            assertTrue(payment.getTotal() == expected.get(i).getTotal());
+            assertTrue(payment.getBalance() == expected.get(i).getBalance());
+        }
+        assertTrue(amortCalculator.getPayment(359).getBalance() == 0.0);
+        assertTrue(amortCalculator.getTable().firstKey().equals(new LocalDate(2014, 1, 1)));
+        assertTrue(amortCalculator.getTable().size() == 360);
+    }
+
+    @Test
+    public void testBalloon() {
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(PMT_PERIOD, 200000.00, 5.0, 360);
+        StructuredAmortizationCalculator balloon = StructuredAmortizationCalculators
+                .getBalloonAmortizationCalculator(pmtCalculator, PMT_KEY, 84);
+        FixedAmortizationCalculator fixed = FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(
+                pmtCalculator, PMT_KEY);
+        List<Payment> expected = new ArrayList<>(fixed.getTable().values());
+
+        // A 7 year balloon amortized over 30 years pays the 30 year payment, then the balance at maturity.
+        assertTrue(balloon.size() == 84);
+        for (int i = 0; i < 83; i++) {
+            assertTrue(balloon.getPayment(i).equals(expected.get(i)));
+        }
+        Payment last = balloon.getPayment(83);
+        assertTrue(last.getBalance() == 0.0);
+        assertTrue(last.getPrincipal() == expected.get(82).getBalance());
+        assertTrue(last.getTotal() > 100000.00);
+        assertTrue(balloon.getTotalCost() < fixed.getTotalCost());
+
+        try {
+            StructuredAmortizationCalculators.getBalloonAmortizationCalculator(pmtCalculator, PMT_KEY, 361);
+            assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            assertTrue(true);
+        }
+    }
+
+    @Test
+    public void testGraduated() {
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(PMT_PERIOD, 250000.00, 7.0, 360);
+        DefaultStructuredAmortizationCalculator graduated = (DefaultStructuredAmortizationCalculator)
+                StructuredAmortizationCalculators.getGraduatedAmortizationCalculator(pmtCalculator, PMT_KEY, 12, 5,
+                        7.5);
+
+        // The payment goes up 7.5% a year for five years and then stays level until the loan is paid off.
+        PmtPolicy pmtPolicy = graduated.getPmtPolicy();
+        assertTrue(pmtPolicy.stepStarts.length == 6);
+        assertTrue(Math.abs(pmtPolicy.pmtAt(12) / pmtPolicy.pmtAt(11) - 1.075) < 1.0E-12);
+        assertTrue(pmtPolicy.pmtAt(359) == pmtPolicy.pmtAt(60));
+        assertTrue(pmtPolicy.pmtAt(0) < pmtCalculator.getPmtUnrounded());
+        assertTrue(pmtPolicy.pmtAt(60) > pmtCalculator.getPmtUnrounded());
+
+        // The early payments are less than the interest, so the balance goes up before it goes down.
+        assertTrue(graduated.getPayment(0).getBalance() > 250000.00);
+        assertTrue(graduated.size() == 360);
+        assertTrue(graduated.getPayment(359).getBalance() == 0.0);
+        assertTrue(Math.abs(graduated.getPayment(359).getTotalUnrounded() - pmtPolicy.pmtAt(359)) < 0.01);
+
+        // No increases is the level payment loan.
+        StructuredAmortizationCalculator level = StructuredAmortizationCalculators
+                .getGraduatedAmortizationCalculator(pmtCalculator, PMT_KEY, 12, 0, 7.5);
+        FixedAmortizationCalculator fixed = FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(
+                pmtCalculator, PMT_KEY);
+        assertTrue(Math.abs(level.getTotalCost() - fixed.getTotalCost()) < 0.02);
+        assertFalse(level.equals(graduated));
+    }
+}
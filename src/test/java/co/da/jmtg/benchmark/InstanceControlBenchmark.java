@@ -0,0 +1,131 @@
+package co.da.jmtg.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator;
+import co.da.jmtg.amort.FixedAmortizationCalculators;
+import co.da.jmtg.amort.PmtKey;
+import co.da.jmtg.amort.PmtKeys;
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+import co.da.jmtg.pmt.extra.ExtraPmt;
+import co.da.jmtg.pmt.extra.ExtraPmts;
+import co.da.jmtg.util.StripedInterners;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Measures the throughput of the getInstance methods that use instance control. Every call asks for an instance that
+ * already exists, which is the common case once a service has been running for a while. Run the main method to measure
+ * each benchmark with 1, 2, 4, 8, 16, and 32 threads. The throughput should grow close to linearly with the thread
+ * count up to the number of cores on the machine.
+ *
+ * @author David Armstrong
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstanceControlBenchmark {
+
+    private static final int SAMPLES = 256;
+
+    private final double[] loanAmts = new double[SAMPLES];
+    private final LocalDate[] firstKeys = new LocalDate[SAMPLES];
+    private final PmtCalculator[] pmtCalculators = new PmtCalculator[SAMPLES];
+    private final PmtKey[] pmtKeys = new PmtKey[SAMPLES];
+    private final Long[] values = new Long[SAMPLES];
+
+    private final Interner<Long> guavaInterner = Interners.newStrongInterner();
+    private final Interner<Long> stripedInterner = StripedInterners.newStrongInterner();
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            next = (next + 1) & (SAMPLES - 1);
+            return next;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        LocalDate firstKey = new LocalDate(2014, 1, 1);
+        for (int i = 0; i < SAMPLES; i++) {
+            loanAmts[i] = 100000.00 + i * 1000;
+            firstKeys[i] = firstKey.plusMonths(i);
+            pmtCalculators[i] = PmtCalculators.getDefaultPmtCalculator(PmtPeriod.MONTHLY, loanAmts[i], 4.5, 360);
+            pmtKeys[i] = PmtKeys.getDefaultPmtKey(PmtPeriod.MONTHLY, firstKeys[i], 360);
+            values[i] = Long.valueOf(i * 31L);
+
+            // Populate every cache so the benchmarks measure the lookup of an existing instance.
+            ExtraPmts.getDefaultExtraPmt(PmtKeys.getDefaultPmtKey(PmtPeriod.ONETIME, firstKeys[i]), loanAmts[i] / 100);
+            FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(pmtCalculators[i], pmtKeys[i]);
+            guavaInterner.intern(values[i]);
+            stripedInterner.intern(values[i]);
+        }
+    }
+
+    @Benchmark
+    public PmtCalculator pmtCalculator(Cursor cursor) {
+        return PmtCalculators.getDefaultPmtCalculator(PmtPeriod.MONTHLY, loanAmts[cursor.next()], 4.5, 360);
+    }
+
+    @Benchmark
+    public PmtKey pmtKey(Cursor cursor) {
+        return PmtKeys.getDefaultPmtKey(PmtPeriod.ONETIME, firstKeys[cursor.next()]);
+    }
+
+    @Benchmark
+    public ExtraPmt extraPmt(Cursor cursor) {
+        int i = cursor.next();
+        return ExtraPmts.getDefaultExtraPmt(PmtKeys.getDefaultPmtKey(PmtPeriod.ONETIME, firstKeys[i]), loanAmts[i] / 100);
+    }
+
+    @Benchmark
+    public FixedAmortizationCalculator fixedAmortizationCalculator(Cursor cursor) {
+        int i = cursor.next();
+        return FixedAmortizationCalculators.getDefaultFixedAmortizationCalculator(pmtCalculators[i], pmtKeys[i]);
+    }
+
+    @Benchmark
+    public Long guavaStrongInterner(Cursor cursor) {
+        return guavaInterner.intern(values[cursor.next()]);
+    }
+
+    @Benchmark
+    public Long stripedStrongInterner(Cursor cursor) {
+        return stripedInterner.intern(values[cursor.next()]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[] { 1, 2, 4, 8, 16, 32 }) {
+            Options options = new OptionsBuilder()
+                    .include(InstanceControlBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -78,4 +78,32 @@ public class CanadianPmtCalculatorTest {
         assertTrue(pmtCalc3.compareTo(pmtCalc1) < 0);
     }
 
+    @Test
+    public void testNewInstance() {
+        PmtCalculator interned = PmtCalculators.getCanadianPmtCalculator(PmtPeriod.MONTHLY, 200000.00, 4.5, 300);
+        PmtCalculator pmtCalc = PmtCalculators.newCanadianPmtCalculator(PmtPeriod.MONTHLY, 200000.00, 4.5, 300);
+
+        assertFalse(pmtCalc == interned);
+        assertTrue(pmtCalc.equals(interned));
+        assertTrue(interned.equals(pmtCalc));
+        assertTrue(pmtCalc.hashCode() == interned.hashCode());
+        assertTrue(pmtCalc.compareTo(interned) == 0);
+        assertFalse(pmtCalc.setInterestRate(5.0) == pmtCalc.setInterestRate(5.0));
+    }
+
+    @Test
+    public void testAnnuityFactor() {
+        // A payment calculated from the cached annuity factor is exactly the payment of the calculator.
+        PmtCalculator template = PmtCalculators.newCanadianPmtCalculator(PmtPeriod.MONTHLY, 1.0, 1.0, 1);
+        PmtPeriod[] pmtPeriods = { PmtPeriod.MONTHLY, PmtPeriod.BIWEEKLY, PmtPeriod.RAPID_WEEKLY };
+        for (PmtPeriod pmtPeriod : pmtPeriods) {
+            double factor = PmtCalculators.getAnnuityFactor(template, 4.625, 780);
+            double pmt = PmtCalculators.calcPmtUnrounded(pmtPeriod, 237500.00, factor);
+            PmtCalculator pmtCalc = PmtCalculators.getCanadianPmtCalculator(pmtPeriod, 237500.00, 4.625, 780);
+            assertTrue(pmt == pmtCalc.getPmtUnrounded());
+            assertTrue(pmt == PmtCalculators.calcPmtUnrounded(template.setPmtPeriod(pmtPeriod), 237500.00, 4.625,
+                    780));
+        }
+        assertTrue(PmtCalculators.getAnnuityFactorCt() > 0);
+    }
 }
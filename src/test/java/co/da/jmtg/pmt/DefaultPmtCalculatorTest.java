@@ -77,4 +77,44 @@ public class DefaultPmtCalculatorTest {
         assertTrue(pmtCalc3.compareTo(pmtCalc1) < 0);
     }
 
+    @Test
+    public void testNewInstance() {
+        PmtCalculator interned = PmtCalculators.getDefaultPmtCalculator(PmtPeriod.MONTHLY, 200000.00, 4.5, 360);
+        PmtCalculator pmtCalc1 = PmtCalculators.newDefaultPmtCalculator(PmtPeriod.MONTHLY, 200000.00, 4.5, 360);
+        PmtCalculator pmtCalc2 = PmtCalculators.newDefaultPmtCalculator(PmtPeriod.MONTHLY, 200000.00, 4.5, 360);
+
+        // Objects that are not interned are equal to each other and to the interned object, but are not the same
+        // object.
+        assertFalse(pmtCalc1 == pmtCalc2);
+        assertFalse(pmtCalc1 == interned);
+        assertTrue(pmtCalc1.equals(pmtCalc2));
+        assertTrue(pmtCalc1.equals(interned));
+        assertTrue(interned.equals(pmtCalc1));
+        assertTrue(pmtCalc1.hashCode() == interned.hashCode());
+        assertTrue(pmtCalc1.compareTo(interned) == 0);
+        assertTrue(interned.compareTo(pmtCalc1) == 0);
+
+        // The set methods of an object that is not interned do not intern either.
+        PmtCalculator pmtCalc3 = pmtCalc1.setYears(240);
+        assertFalse(pmtCalc3 == pmtCalc1.setYears(240));
+        assertTrue(pmtCalc3.equals(interned.setYears(240)));
+        assertTrue(pmtCalc3.compareTo(interned) < 0);
+        assertTrue(interned.compareTo(pmtCalc3) > 0);
+    }
+
+    @Test
+    public void testAnnuityFactor() {
+        // A payment calculated from the cached annuity factor is exactly the payment of the calculator.
+        PmtCalculator template = PmtCalculators.newDefaultPmtCalculator(PmtPeriod.MONTHLY, 1.0, 1.0, 1);
+        PmtPeriod[] pmtPeriods = { PmtPeriod.MONTHLY, PmtPeriod.BIWEEKLY, PmtPeriod.RAPID_WEEKLY };
+        for (PmtPeriod pmtPeriod : pmtPeriods) {
+            double factor = PmtCalculators.getAnnuityFactor(template, 4.625, 780);
+            double pmt = PmtCalculators.calcPmtUnrounded(pmtPeriod, 237500.00, factor);
+            PmtCalculator pmtCalc = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 237500.00, 4.625, 780);
+            assertTrue(pmt == pmtCalc.getPmtUnrounded());
+            assertTrue(pmt == PmtCalculators.calcPmtUnrounded(template.setPmtPeriod(pmtPeriod), 237500.00, 4.625,
+                    780));
+        }
+        assertTrue(PmtCalculators.getAnnuityFactorCt() > 0);
+    }
 }
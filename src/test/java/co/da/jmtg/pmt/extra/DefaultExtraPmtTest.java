@@ -131,4 +131,21 @@ public class DefaultExtraPmtTest {
         assertTrue(extraPmt3.compareTo(extraPmt2) > 0);
     }
 
+    @Test
+    public void testNewInstance() {
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(PmtPeriod.MONTHLY, 15);
+        ExtraPmt interned = ExtraPmts.getDefaultExtraPmt(pmtKey, 1000.00);
+        ExtraPmt extraPmt = ExtraPmts.newDefaultExtraPmt(pmtKey, 1000.00);
+
+        assertTrue(extraPmt != interned);
+        assertTrue(extraPmt.equals(interned));
+        assertTrue(interned.equals(extraPmt));
+        assertTrue(extraPmt.hashCode() == interned.hashCode());
+        assertTrue(extraPmt.compareTo(interned) == 0);
+
+        ExtraPmt extraPmt2 = extraPmt.setAmount(1500.00);
+        assertTrue(extraPmt2 != extraPmt.setAmount(1500.00));
+        assertTrue(extraPmt2.compareTo(interned) > 0);
+        assertTrue(interned.compareTo(extraPmt2) < 0);
+    }
 }
@@ -0,0 +1,115 @@
+package co.da.jmtg.pool;
+
+import java.util.Iterator;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator;
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.amort.FixedAmortizationCalculators;
+import co.da.jmtg.amort.PmtKey;
+import co.da.jmtg.amort.PmtKeys;
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PoolsTest {
+
+    private static final double TOLERANCE = 1.0E-6;
+
+    @Test
+    public void testPsaRamp() {
+        PrepaymentModel psa = PrepaymentModels.getPsa(100.0);
+        assertTrue(Math.abs(psa.getCpr(1) - 0.2) < TOLERANCE);
+        assertTrue(Math.abs(psa.getCpr(15) - 3.0) < TOLERANCE);
+        assertTrue(Math.abs(psa.getCpr(30) - 6.0) < TOLERANCE);
+        assertTrue(Math.abs(psa.getCpr(300) - 6.0) < TOLERANCE);
+
+        // The SMM of 6% CPR is 0.5143%.
+        assertTrue(Math.abs(psa.getSmm(30) - 0.514301) < TOLERANCE);
+        assertTrue(Math.abs(PrepaymentModels.getPsa(150.0).getCpr(30) - 9.0) < TOLERANCE);
+        assertTrue(psa.equals(PrepaymentModels.getPsa(100.0)));
+        assertFalse(psa.equals(PrepaymentModels.getConstantCpr(6.0)));
+
+        PrepaymentModel vector = PrepaymentModels.getCprVector(1.0, 2.0, 3.0);
+        assertTrue(Math.abs(vector.getCpr(2) - 2.0) < TOLERANCE);
+        assertTrue(Math.abs(vector.getCpr(40) - 3.0) < TOLERANCE);
+        assertTrue(Math.abs(PrepaymentModels.getConstantSmm(0.5).getSmm(7) - 0.5) < TOLERANCE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCpr() {
+        PrepaymentModels.getConstantCpr(101.0);
+    }
+
+    @Test
+    public void testNoPrepayments() {
+        // With no prepayments, the pool pays exactly like a single loan.
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 250000.00, 5.25, 360);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 1, 1), 30);
+        FixedAmortizationCalculator amortCalculator = FixedAmortizationCalculators
+                .getDefaultFixedAmortizationCalculator(pmtCalculator, pmtKey);
+
+        PoolCashFlows cashFlows = Pools.getCashFlows(pmtCalculator, PrepaymentModels.getConstantCpr(0.0));
+        assertTrue(cashFlows.size() == amortCalculator.getTable().size());
+
+        Iterator<Payment> payments = amortCalculator.getTable().values().iterator();
+        for (int i = 0; i < cashFlows.size(); i++) {
+            Payment payment = payments.next();
+            assertTrue(Math.abs(cashFlows.getInterest(i) - payment.getInterestUnrounded()) < TOLERANCE);
+            assertTrue(Math.abs(cashFlows.getScheduledPrincipal(i) - payment.getPrincipalUnrounded()) < TOLERANCE);
+            assertTrue(cashFlows.getPrepaidPrincipal(i) == 0.0);
+        }
+        assertTrue(cashFlows.getBalance(cashFlows.size() - 1) == 0.0);
+        assertTrue(Math.abs(cashFlows.getTotalInterest() - (amortCalculator.getTotalCost() - 250000.00)) < 0.01);
+    }
+
+    @Test
+    public void testPrepayments() {
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(PmtPeriod.MONTHLY, 1000000.00, 6.0, 360);
+
+        double lastLife = Double.MAX_VALUE;
+        for (double speed = 0.0; speed <= 400.0; speed += 100.0) {
+            PoolCashFlows cashFlows = Pools.getCashFlows(pmtCalculator, PrepaymentModels.getPsa(speed));
+
+            // Every dollar of the pool is paid back once, scheduled or prepaid, and the balance never goes up.
+            double principal = 0.0;
+            double owed = 1000000.00;
+            for (int i = 0; i < cashFlows.size(); i++) {
+                principal += cashFlows.getScheduledPrincipal(i) + cashFlows.getPrepaidPrincipal(i);
+                assertTrue(cashFlows.getBalance(i) <= owed);
+                assertTrue(Math.abs(cashFlows.getTotal(i) - cashFlows.getInterest(i)
+                        - cashFlows.getScheduledPrincipal(i) - cashFlows.getPrepaidPrincipal(i)) < TOLERANCE);
+                owed = cashFlows.getBalance(i);
+            }
+            assertTrue(Math.abs(principal - 1000000.00) < 0.01);
+
+            // Faster prepayments shorten the life of the pool.
+            double life = cashFlows.getWeightedAverageLife();
+            assertTrue(life < lastLife);
+            lastLife = life;
+        }
+
+        // A seasoned pool is already at the top of the ramp, so it prepays faster at first than a new one.
+        PoolCashFlows fresh = Pools.getCashFlows(pmtCalculator, PrepaymentModels.getPsa(100.0));
+        PoolCashFlows seasoned = Pools.getCashFlows(pmtCalculator, 30, PrepaymentModels.getPsa(100.0));
+        assertTrue(seasoned.getPrepaidPrincipal(0) > fresh.getPrepaidPrincipal(0));
+        assertTrue(seasoned.getWeightedAverageLife() < fresh.getWeightedAverageLife());
+        assertTrue(fresh.equals(Pools.getCashFlows(pmtCalculator, PrepaymentModels.getPsa(100.0))));
+
+        // Biweekly pools convert the SMM of each month to the length of a period.
+        PmtCalculator biweekly = pmtCalculator.setPmtPeriod(PmtPeriod.BIWEEKLY);
+        PoolCashFlows biweeklyFlows = Pools.getCashFlows(biweekly, PrepaymentModels.getConstantCpr(6.0));
+        double survival = 1.0;
+        for (int i = 0; i < 26; i++) {
+            survival *= 1 - biweeklyFlows.getPrepaidPrincipal(i)
+                    / (biweeklyFlows.getPrepaidPrincipal(i) + biweeklyFlows.getBalance(i));
+        }
+        assertTrue(Math.abs(survival - 0.94) < TOLERANCE);
+    }
+}
@@ -0,0 +1,27 @@
+package co.da.jmtg.shard;
+
+import java.io.IOException;
+
+/**
+ * A worker that halts its JVM when it is sent the first attempt of the shard whose id is the value of the system
+ * property <tt>co.da.jmtg.shard.haltOnShard</tt>, to test the restart of failed shards.
+ */
+public final class HaltingPortfolioWorker {
+
+    static final String HALT_ON_SHARD = "co.da.jmtg.shard.haltOnShard";
+
+    private HaltingPortfolioWorker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        final int haltOnShard = Integer.getInteger(HALT_ON_SHARD, -1);
+        PortfolioWorker.run(args, new PortfolioWorker.ShardListener() {
+            @Override
+            public void shardReceived(int shardId, int attempt) {
+                if (shardId == haltOnShard && attempt == 0) {
+                    Runtime.getRuntime().halt(1);
+                }
+            }
+        });
+    }
+}
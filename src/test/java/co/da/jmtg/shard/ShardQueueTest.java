@@ -0,0 +1,70 @@
+package co.da.jmtg.shard;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ShardQueueTest {
+
+    @Test
+    public void testSteal() throws InterruptedException {
+        // Slot 0 gets shards 0 to 5, slot 1 gets 6 to 11, and slot 2 gets 12 to 17.
+        ShardQueue queue = new ShardQueue(newShards(18), 3, 3);
+
+        // Slot 2 gets cheap shards, so it finishes its own block while the others are still on their first shard.
+        Shard first0 = queue.take(0);
+        Shard first1 = queue.take(1);
+        assertTrue(first0.id == 0 && first1.id == 6);
+        for (int id = 12; id < 18; id++) {
+            Shard shard = queue.take(2);
+            assertTrue(shard.id == id);
+            queue.complete(shard);
+        }
+
+        // Then it steals from the tail of the longest block of another slot, the first one on a tie.
+        List<Integer> stolenIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Shard shard = queue.take(2);
+            stolenIds.add(shard.id);
+            queue.complete(shard);
+        }
+        assertTrue(stolenIds.equals(toList(5, 11, 4, 10, 3)));
+
+        // The slots that were robbed still take their own blocks from the head, in order.
+        queue.complete(first0);
+        queue.complete(first1);
+        assertTrue(queue.take(0).id == 1);
+        assertTrue(queue.take(1).id == 7);
+    }
+
+    @Test
+    public void testStealUntilDone() throws InterruptedException {
+        // Slot 1 never takes a shard, so slot 0 computes every shard, its own block first.
+        ShardQueue queue = new ShardQueue(newShards(8), 2, 3);
+        List<Integer> ids = new ArrayList<>();
+        for (Shard shard = queue.take(0); shard != null; shard = queue.take(0)) {
+            ids.add(shard.id);
+            queue.complete(shard);
+        }
+        assertTrue(ids.equals(toList(0, 1, 2, 3, 7, 6, 5, 4)));
+    }
+
+    private static List<Integer> toList(int... ids) {
+        List<Integer> list = new ArrayList<>();
+        for (int id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    private static List<Shard> newShards(int shardCt) {
+        List<Shard> shards = new ArrayList<>();
+        for (int i = 0; i < shardCt; i++) {
+            shards.add(new Shard(i, i * 1000L, 1000, i * 40, 40));
+        }
+        return shards;
+    }
+}
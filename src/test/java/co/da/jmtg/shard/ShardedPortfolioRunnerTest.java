@@ -0,0 +1,102 @@
+package co.da.jmtg.shard;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator;
+import co.da.jmtg.amort.FixedAmortizationCalculator.Payment;
+import co.da.jmtg.amort.FixedAmortizationCalculators;
+import co.da.jmtg.amort.PmtKey;
+import co.da.jmtg.amort.PmtKeys;
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+
+public class ShardedPortfolioRunnerTest {
+
+    private static final int LOAN_CT = 400;
+
+    private Path loanFile;
+    private List<FixedAmortizationCalculator> loans;
+
+    @Before
+    public void setUp() throws IOException {
+        loanFile = Files.createTempFile("loans", ".bin");
+        loans = new ArrayList<>();
+        for (int i = 0; i < LOAN_CT; i++) {
+            PmtPeriod pmtPeriod = i % 3 == 0 ? PmtPeriod.BIWEEKLY : PmtPeriod.MONTHLY;
+            PmtCalculator pmtCalculator = PmtCalculators.newDefaultPmtCalculator(pmtPeriod, 100000.00 + i * 50,
+                    3.0 + i % 24 / 8.0, pmtPeriod.pmtsPerYear() * (15 + i % 16));
+            PmtKey pmtKey = PmtKeys.newDefaultPmtKey(pmtPeriod, new LocalDate(2014, 1 + i % 12, 1),
+                    pmtCalculator.getPmtCt());
+            FixedAmortizationCalculator loan = FixedAmortizationCalculators.newDefaultFixedAmortizationCalculator(
+                    pmtCalculator, pmtKey);
+            if (i % 5 == 0) {
+                loan = loan.addExtraPayment(pmtKey.getKeys().get(12), 5000.00);
+            }
+            loans.add(loan);
+        }
+        assertTrue(ShardedPortfolioRunner.writeLoanFile(loanFile, loans, 40) == LOAN_CT);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(loanFile);
+    }
+
+    @Test
+    public void testRun() throws IOException {
+        PortfolioRunResult result = ShardedPortfolioRunner.of(2).run(loanFile);
+        assertResult(result);
+        assertTrue(result.getShardCt() == 10);
+        assertTrue(result.getRetryCt() == 0 && result.getRestartCt() == 0);
+    }
+
+    @Test
+    public void testRestart() throws IOException {
+        // The worker that gets shard 3 dies the first time, so the shard is computed again by a new worker.
+        PortfolioRunResult result = ShardedPortfolioRunner.of(2).setWorkerClass(HaltingPortfolioWorker.class)
+                .setJvmOptions("-D" + HaltingPortfolioWorker.HALT_ON_SHARD + "=3").run(loanFile);
+        assertResult(result);
+        assertTrue(result.getRetryCt() == 1 && result.getRestartCt() == 1);
+    }
+
+    @Test
+    public void testFailedShard() throws IOException {
+        // Corrupt a record of the last shard, so its checksum never matches.
+        try (RandomAccessFile file = new RandomAccessFile(loanFile.toFile(), "rw")) {
+            file.seek(file.length() - 10);
+            file.write(0x7F);
+        }
+        try {
+            ShardedPortfolioRunner.of(2).setMaxAttempts(2).run(loanFile);
+            assertTrue(false);
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Shard 9 failed 2 times."));
+        }
+    }
+
+    private void assertResult(PortfolioRunResult result) {
+        assertTrue(result.getLoanCt() == LOAN_CT);
+        for (int i = 0; i < LOAN_CT; i++) {
+            FixedAmortizationCalculator loan = loans.get(i);
+            assertTrue(result.getPmtCt(i) == loan.getTable().size());
+            assertTrue(result.getTotalCost(i) == loan.getTotalCost());
+        }
+        assertTrue(result.getYearlySums(Payment.INTEREST).equals(
+                FixedAmortizationCalculators.getYearlySums(loans, Payment.INTEREST)));
+        assertTrue(result.getYearlySums(Payment.EXTRA_PRINCIPAL).equals(
+                FixedAmortizationCalculators.getYearlySums(loans, Payment.EXTRA_PRINCIPAL)));
+    }
+}
@@ -0,0 +1,123 @@
+package co.da.jmtg.sheet;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.joda.time.LocalDate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.da.jmtg.amort.PmtKeys;
+import co.da.jmtg.amort.ScheduleCache;
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+
+public class CacheWarmerTest {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("rates", ".properties");
+        Files.write(file, Arrays.asList("# The products quoted by the service",
+                "rates = 3.5..4.0, 4.5",
+                "terms = 15, 30",
+                "periods = MONTHLY, BIWEEKLY",
+                "amounts = 150000, 250000",
+                "formulas = DEFAULT, CANADIAN"), StandardCharsets.UTF_8);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        RateSheet rateSheet = RateSheet.read(file);
+        assertTrue(Arrays.equals(rateSheet.getRates(), new double[] { 3.5, 3.625, 3.75, 3.875, 4.0, 4.5 }));
+        assertTrue(Arrays.equals(rateSheet.getTerms(), new int[] { 15, 30 }));
+        assertTrue(rateSheet.getPmtPeriods().equals(Arrays.asList(PmtPeriod.MONTHLY, PmtPeriod.BIWEEKLY)));
+        assertTrue(rateSheet.getFormulas().equals(Arrays.asList(PmtFormula.DEFAULT, PmtFormula.CANADIAN)));
+        assertTrue(rateSheet.getCellCt() == 6 * 2 * 2 * 2 * 2);
+        assertTrue(rateSheet.equals(RateSheet.of(rateSheet.getRates(), new int[] { 15, 30 }, Arrays.asList(
+                PmtPeriod.MONTHLY, PmtPeriod.BIWEEKLY), new double[] { 150000, 250000 }).setFormulas(
+                PmtFormula.DEFAULT, PmtFormula.CANADIAN)));
+
+        // The steps are computed from the low rate, so they do not drift.
+        double[] rates = RateSheet.rateRange(2.0, 8.0);
+        assertTrue(rates.length == 49 && rates[48] == 8.0);
+
+        Files.write(file, Arrays.asList("rates = 4.0", "terms = 30", "periods = YEARLY", "amounts = 1000"),
+                StandardCharsets.UTF_8);
+        try {
+            RateSheet.read(file);
+            assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Valid PmtPeriod values"));
+        }
+
+        Files.write(file, Arrays.asList("rates = 4.0", "terms = 30", "periods = MONTHLY"), StandardCharsets.UTF_8);
+        try {
+            RateSheet.read(file);
+            assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().equals("The rate sheet has no amounts."));
+        }
+    }
+
+    @Test
+    public void testRun() throws IOException {
+        RateSheet rateSheet = RateSheet.read(file);
+        LocalDate firstPmtDt = new LocalDate(2015, 3, 1);
+        WarmUpReport report = CacheWarmer.of(rateSheet).setFirstPmtDts(Arrays.asList(firstPmtDt, new LocalDate(2015,
+                4, 1))).setMaxRounds(20).run();
+
+        assertTrue(report.getCalculatorCt() == 96);
+        assertTrue(report.getKeyCt() == 8);
+        assertTrue(report.getTableCt() == 0);
+        assertTrue(report.getRounds() >= CacheWarmer.MIN_ROUNDS && report.getRounds() <= 20);
+        assertTrue(report.getAnnuityFactorCt() >= 6 * 2 * 2 * 2);
+        assertTrue(report.isWarm() || report.getRounds() == 20);
+
+        // The calculators and keys were interned, and the payments of the factors are the payments of the
+        // calculators.
+        PmtCalculator pmtCalculator = PmtCalculators.getCanadianPmtCalculator(PmtPeriod.BIWEEKLY, 250000, 3.875, 780);
+        assertTrue(PmtFormula.CANADIAN.getPmtCalculator(PmtPeriod.BIWEEKLY, 250000, 3.875, 780) == pmtCalculator);
+        assertTrue(PmtCalculators.calcPmtUnrounded(PmtPeriod.BIWEEKLY, 250000, PmtFormula.CANADIAN.getAnnuityFactor(
+                3.875, 780)) == pmtCalculator.getPmtUnrounded());
+        assertTrue(PmtKeys.getDefaultPmtKeyForYears(PmtPeriod.MONTHLY, firstPmtDt, 15) == PmtKeys
+                .getDefaultPmtKeyForYears(PmtPeriod.MONTHLY, firstPmtDt, 15));
+    }
+
+    @Test
+    public void testScheduleCache() throws InterruptedException, ExecutionException, IOException {
+        RateSheet rateSheet = RateSheet.of(new double[] { 4.0, 4.125 }, new int[] { 15 }, Arrays.asList(
+                PmtPeriod.MONTHLY), new double[] { 100000, 200000 });
+        LocalDate firstPmtDt = new LocalDate(2015, 3, 1);
+        ScheduleCache scheduleCache = ScheduleCache.newHeapCache(100, 60000L);
+
+        Future<WarmUpReport> future = CacheWarmer.of(rateSheet).setFirstPmtDts(Arrays.asList(firstPmtDt))
+                .setScheduleCache(scheduleCache).setMaxRounds(10).start();
+        WarmUpReport report = future.get();
+        assertTrue(future.isDone());
+        assertTrue(report.getTableCt() == 4 && report.getRounds() == 10);
+        assertTrue(scheduleCache.getHeapSize() == 4 && scheduleCache.getMissCt() == 4);
+
+        // A loan of the sheet that starts on another day is a hit.
+        scheduleCache.get(PmtCalculators.getDefaultPmtCalculator(PmtPeriod.MONTHLY, 200000, 4.125, 180), PmtKeys
+                .getDefaultPmtKeyForYears(PmtPeriod.MONTHLY, new LocalDate(2016, 1, 1), 15));
+        assertTrue(scheduleCache.getHeapHitCt() == 1);
+        assertFalse(report.toString().isEmpty());
+    }
+}
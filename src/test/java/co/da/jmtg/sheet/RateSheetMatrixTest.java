@@ -0,0 +1,93 @@
+package co.da.jmtg.sheet;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+
+public class RateSheetMatrixTest {
+
+    private static final RateSheet RATE_SHEET = RateSheet.of(RateSheet.rateRange(3.0, 7.0), new int[] { 10, 15, 30 },
+            Arrays.asList(PmtPeriod.MONTHLY, PmtPeriod.BIWEEKLY, PmtPeriod.RAPID_BIWEEKLY), new double[] { 100000,
+                    183000, 250000.5, 417000 }).setFormulas(PmtFormula.DEFAULT, PmtFormula.CANADIAN);
+
+    @Test
+    public void testCompute() {
+        int annuityFactorCt = PmtCalculators.getAnnuityFactorCt();
+        RateSheetMatrix matrix = RateSheetMatrix.compute(RATE_SHEET);
+        assertTrue(matrix.getCellCt() == 33 * 3 * 3 * 4 * 2);
+
+        // BIWEEKLY and RAPID_BIWEEKLY share the factors of each term, and the cache is not used.
+        assertTrue(matrix.getAnnuityFactorCt() == 2 * 33 * 6);
+        assertTrue(PmtCalculators.getAnnuityFactorCt() == annuityFactorCt);
+
+        // Every payment is exactly the payment of a calculator, in the order of the cells.
+        int cell = 0;
+        for (PmtFormula formula : RATE_SHEET.getFormulas()) {
+            for (PmtPeriod pmtPeriod : RATE_SHEET.getPmtPeriods()) {
+                for (int term : RATE_SHEET.getTerms()) {
+                    for (double rate : RATE_SHEET.getRates()) {
+                        for (double amount : RATE_SHEET.getAmounts()) {
+                            PmtCalculator pmtCalculator = formula.newPmtCalculator(pmtPeriod, amount, rate, RateSheet
+                                    .getPmtCt(pmtPeriod, term));
+                            assertTrue(matrix.indexOf(formula, pmtPeriod, term, rate, amount) == cell);
+                            assertTrue(matrix.getPmt(cell) == pmtCalculator.getPmt());
+                            assertTrue(matrix.getPmtUnrounded(cell) == pmtCalculator.getPmtUnrounded());
+                            cell++;
+                        }
+                    }
+                }
+            }
+        }
+
+        assertTrue(matrix.getPmt(PmtFormula.DEFAULT, PmtPeriod.MONTHLY, 30, 4.5, 183000) == PmtCalculators
+                .getDefaultPmtCalculator(PmtPeriod.MONTHLY, 183000, 4.5, 360).getPmt());
+        try {
+            matrix.getPmt(PmtFormula.DEFAULT, PmtPeriod.MONTHLY, 30, 4.0625, 183000);
+            assertTrue(false);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().equals("Interest Rate 4.0625 is not on the sheet."));
+        }
+    }
+
+    @Test
+    public void testWriteCsv() throws IOException {
+        RateSheet rateSheet = RateSheet.of(new double[] { 4.5, 4.625 }, new int[] { 30 }, Arrays.asList(
+                PmtPeriod.MONTHLY), new double[] { 200000, 165000.5 });
+        RateSheetMatrix matrix = RateSheetMatrix.compute(rateSheet);
+
+        StringWriter writer = new StringWriter();
+        matrix.writeCsv(writer);
+        String[] lines = writer.toString().split("\n");
+        assertTrue(lines.length == 5);
+        assertTrue(lines[0].equals("formula,period,term,rate,amount,pmt"));
+        assertTrue(lines[1].equals("DEFAULT,MONTHLY,30,4.5,200000,1013.37"));
+        assertTrue(lines[2].startsWith("DEFAULT,MONTHLY,30,4.5,165000.5,"));
+        assertTrue(lines[3].startsWith("DEFAULT,MONTHLY,30,4.625,200000,"));
+        for (int i = 1; i < lines.length; i++) {
+            String pmt = lines[i].substring(lines[i].lastIndexOf(',') + 1);
+            assertTrue(Double.parseDouble(pmt) == matrix.getPmt(i - 1));
+            assertTrue(pmt.length() - pmt.indexOf('.') == 3);
+        }
+
+        Path file = Files.createTempFile("rates", ".csv");
+        try {
+            matrix.writeCsv(file);
+            List<String> fileLines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertTrue(fileLines.equals(Arrays.asList(lines)));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
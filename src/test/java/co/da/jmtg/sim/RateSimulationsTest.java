@@ -0,0 +1,96 @@
+package co.da.jmtg.sim;
+
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import co.da.jmtg.amort.FixedAmortizationCalculator;
+import co.da.jmtg.amort.FixedAmortizationCalculators;
+import co.da.jmtg.amort.PmtKey;
+import co.da.jmtg.amort.PmtKeys;
+import co.da.jmtg.pmt.PmtCalculator;
+import co.da.jmtg.pmt.PmtCalculators;
+import co.da.jmtg.pmt.PmtPeriod;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RateSimulationsTest {
+
+    @Test
+    public void testConstantRate() {
+        // If the rate never moves, every reset amortizes the balance again at the same payment, so every path pays
+        // what the fixed schedule pays.
+        PmtPeriod pmtPeriod = PmtPeriod.MONTHLY;
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(pmtPeriod, 300000.00, 5.0, 360);
+        PmtKey pmtKey = PmtKeys.getDefaultPmtKeyForYears(pmtPeriod, new LocalDate(2014, 1, 1), 30);
+        FixedAmortizationCalculator amortCalculator = FixedAmortizationCalculators
+                .getDefaultFixedAmortizationCalculator(pmtCalculator, pmtKey);
+
+        AdjustableLoan loan = AdjustableLoan.of(pmtCalculator, 60, 12);
+        assertTrue(loan.getResetCt() == 25);
+        RatePathGenerator generator = RatePathGenerators.getVasicek(5.0, 5.0, 0.5, 0.0, 1.0);
+        SimulationSummary summary = RateSimulations.simulate(loan, generator, 200, 42L);
+
+        PathStatistics totalInterest = summary.getTotalInterest();
+        assertTrue(totalInterest.getCount() == 200);
+        assertTrue(Math.abs(totalInterest.getMean() - (amortCalculator.getTotalCost() - 300000.00)) < 0.01);
+        assertTrue(totalInterest.getStandardDeviation() < 1.0E-6);
+        assertTrue(Math.abs(summary.getMaxPmt().getMax() - pmtCalculator.getPmtUnrounded()) < 1.0E-6);
+        assertTrue(summary.getFinalRate().getMin() == 5.0);
+    }
+
+    @Test
+    public void testRandomPaths() {
+        PmtCalculator pmtCalculator = PmtCalculators.getDefaultPmtCalculator(PmtPeriod.MONTHLY, 300000.00, 4.0, 360);
+        AdjustableLoan loan = AdjustableLoan.of(pmtCalculator, 84, 12);
+        RatePathGenerator generator = RatePathGenerators.getVasicek(4.0, 6.0, 0.3, 1.2, 1.0);
+
+        // More paths than one range, so the ranges are split and merged. The same seed gives the same result.
+        SimulationSummary summary = RateSimulations.simulate(loan, generator, 5000, 7L);
+        assertTrue(summary.equals(RateSimulations.simulate(loan, generator, 5000, 7L)));
+        assertFalse(summary.equals(RateSimulations.simulate(loan, generator, 5000, 8L)));
+
+        // Rates revert up toward 6%, so the loan costs more on average than it would at 4% and payments go up.
+        PathStatistics finalRate = summary.getFinalRate();
+        assertTrue(finalRate.getMean() > 5.0 && finalRate.getMean() < 7.0);
+        assertTrue(finalRate.getMin() >= RatePathGenerators.MIN_RATE);
+        assertTrue(summary.getMaxPmt().getMean() > pmtCalculator.getPmtUnrounded());
+        assertTrue(summary.getTotalInterest().getStandardDeviation() > 0.0);
+
+        // Rates that only go up make every reset raise the payment.
+        RatePathGenerator rising = RatePathGenerators.getHistoricalBootstrap(4.0, 3.0, 3.25, 3.5, 3.75);
+        SimulationSummary risingSummary = RateSimulations.simulate(loan, rising, 100, 7L);
+        assertTrue(Math.abs(risingSummary.getFinalRate().getMin() - (4.0 + 23 * 0.25)) < 1.0E-9);
+        assertTrue(risingSummary.getMaxPmt().getMin() > pmtCalculator.getPmtUnrounded());
+    }
+
+    @Test
+    public void testMerge() {
+        StatisticsAccumulator all = new StatisticsAccumulator();
+        StatisticsAccumulator left = new StatisticsAccumulator();
+        StatisticsAccumulator right = new StatisticsAccumulator();
+        for (int i = 0; i < 100; i++) {
+            double value = Math.sin(i) * 1000 + i;
+            all.add(value);
+            (i < 37 ? left : right).add(value);
+        }
+        left.merge(right);
+
+        PathStatistics expected = all.toStatistics();
+        PathStatistics merged = left.toStatistics();
+        assertTrue(merged.getCount() == expected.getCount());
+        assertTrue(Math.abs(merged.getMean() - expected.getMean()) < 1.0E-9);
+        assertTrue(Math.abs(merged.getStandardDeviation() - expected.getStandardDeviation()) < 1.0E-9);
+        assertTrue(merged.getMin() == expected.getMin());
+        assertTrue(merged.getMax() == expected.getMax());
+    }
+
+    @Test
+    public void testPmtFormula() {
+        // The formula the simulation re-amortizes with is the one the PmtCalculator uses.
+        PmtCalculator pmtCalculator = PmtCalculators.getCanadianPmtCalculator(PmtPeriod.BIWEEKLY, 200000.00, 3.5, 300);
+        PmtCalculator other = pmtCalculator.setLoanAmt(150000.00).setInterestRate(4.75).setYears(200);
+        assertTrue(PmtCalculators.calcPmtUnrounded(pmtCalculator, 150000.00, 4.75, 200) == other.getPmtUnrounded());
+        assertTrue(PmtCalculators.calcPeriodInterestRate(pmtCalculator, 4.75) == other.getPeriodInterestRate());
+    }
+}
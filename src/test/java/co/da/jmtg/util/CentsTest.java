@@ -0,0 +1,40 @@
+package co.da.jmtg.util;
+
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CentsTest {
+
+    @Test
+    public void testToCents() {
+        // Half a cent and amounts close to it are rounded HALF_EVEN, the way BigDecimal rounds them.
+        assertTrue(Cents.toCents(0.125) == 12L);
+        assertTrue(Cents.toCents(0.135) == 14L);
+        assertTrue(Cents.toCents(-0.125) == -12L);
+        assertTrue(Cents.toCents(1.005) == 100L);
+        assertTrue(Cents.toCents(2.0E9 + 0.015) == 200000000002L);
+
+        Random random = new Random(17);
+        for (int i = 0; i < 100000; i++) {
+            double amount = (random.nextDouble() - 0.25) * Math.pow(10, random.nextInt(10));
+            assertTrue(Cents.toCents(amount) == BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_EVEN)
+                    .unscaledValue().longValue());
+            assertTrue(Cents.toCentsExact(amount) == new BigDecimal(amount).setScale(2, RoundingMode.HALF_EVEN)
+                    .unscaledValue().longValue());
+        }
+    }
+
+    @Test
+    public void testToCentsExact() {
+        // 1.015 is a little less than 1.015 in binary, so its exact value rounds down, while its decimal value is half
+        // a cent and rounds to even.
+        assertTrue(Cents.toCentsExact(1.015) == 101L);
+        assertTrue(Cents.toCents(1.015) == 102L);
+        assertTrue(Cents.toCentsExact(0.125) == 12L);
+    }
+}
@@ -0,0 +1,69 @@
+package co.da.jmtg.util;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.google.common.collect.Interner;
+
+public class StripedInternerTest {
+
+    @Test
+    public void testIntern() {
+        Interner<String> interner = StripedInterners.newStrongInterner();
+        String value1 = new String("2014-02-01");
+        String value2 = new String("2014-02-01");
+        String value3 = new String("2014-03-01");
+
+        assertTrue(value1 != value2);
+        assertTrue(interner.intern(value1) == value1);
+        assertTrue(interner.intern(value2) == value1);
+        assertTrue(interner.intern(value3) == value3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStripesMustBePositive() {
+        StripedInterners.newStrongInterner(0);
+    }
+
+    @Test
+    public void testInternFromManyThreads() throws Exception {
+        final Interner<Long> interner = StripedInterners.newStrongInterner(3);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(new Callable<Long[]>() {
+                    @Override
+                    public Long[] call() {
+                        Long[] interned = new Long[1000];
+                        for (int i = 0; i < interned.length; i++) {
+                            // Values outside the cache of Long.valueOf make sure every thread offers its own copy of
+                            // the value.
+                            interned[i] = interner.intern(Long.valueOf(i + 1000L));
+                        }
+                        return interned;
+                    }
+                }));
+            }
+
+            Long[] first = futures.get(0).get();
+            for (Future<Long[]> future : futures) {
+                Long[] interned = future.get();
+                for (int i = 0; i < interned.length; i++) {
+                    assertTrue(interned[i] == first[i]);
+                    assertTrue(interned[i].longValue() == i + 1000L);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}